@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DynamoDB operations end to end: marshall, sign, execute against
+ * {@link StubHttpClient} and unmarshall.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamoDBBenchmark {
+
+    /** Number of items answered to a query. */
+    static final int QUERY_ITEMS = 100;
+
+    private static final String TABLE = "Music";
+
+    @State(Scope.Benchmark)
+    public static class PutItemState {
+        AmazonDynamoDBClient client;
+        PutItemRequest request;
+
+        @Setup
+        public void setup() {
+            client = client("{}");
+            request = new PutItemRequest().withTableName(TABLE).withItem(item(0));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class GetItemState {
+        AmazonDynamoDBClient client;
+        GetItemRequest request;
+
+        @Setup
+        public void setup() {
+            final StringBuilder response = new StringBuilder("{\"Item\":");
+            appendItem(response, 0);
+            client = client(response.append('}').toString());
+            final Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+            key.put("Artist", new AttributeValue("Artist 0"));
+            key.put("SongTitle", new AttributeValue("Song 0"));
+            request = new GetItemRequest().withTableName(TABLE).withKey(key)
+                    .withConsistentRead(true);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class QueryState {
+        AmazonDynamoDBClient client;
+        QueryRequest request;
+
+        @Setup
+        public void setup() {
+            client = client(queryResponse(QUERY_ITEMS));
+            request = new QueryRequest().withTableName(TABLE).addKeyConditionsEntry("Artist",
+                    new Condition().withComparisonOperator(ComparisonOperator.EQ)
+                            .withAttributeValueList(new AttributeValue("Artist 0")));
+        }
+    }
+
+    @Benchmark
+    public PutItemResult putItem(PutItemState state) {
+        return state.client.putItem(state.request);
+    }
+
+    @Benchmark
+    public GetItemResult getItem(GetItemState state) {
+        return state.client.getItem(state.request);
+    }
+
+    @Benchmark
+    public QueryResult query(QueryState state) {
+        return state.client.query(state.request);
+    }
+
+    private static AmazonDynamoDBClient client(String response) {
+        return new AmazonDynamoDBClient(Fixtures.credentialsProvider(),
+                Fixtures.clientConfiguration(), new StubHttpClient(200, response));
+    }
+
+    /**
+     * @param i the index of the item.
+     * @return an item of a dozen attributes of various types.
+     */
+    static Map<String, AttributeValue> item(int i) {
+        final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("Artist", new AttributeValue("Artist " + i));
+        item.put("SongTitle", new AttributeValue("Song " + i));
+        item.put("AlbumTitle", new AttributeValue("Album Title With Some Length " + i));
+        item.put("Year", new AttributeValue().withN(Integer.toString(1970 + i % 50)));
+        item.put("Price", new AttributeValue().withN("1.99"));
+        item.put("Genre", new AttributeValue("Rock"));
+        item.put("Tags", new AttributeValue().withSS("classic", "live", "remastered"));
+        item.put("Explicit", new AttributeValue().withBOOL(false));
+        item.put("PlayCount", new AttributeValue().withN(Long.toString(123456789L * i)));
+        item.put("Description", new AttributeValue(
+                "A longer text attribute, as found in most real world items: caf\u00e9 \u65e5\u672c"));
+        return item;
+    }
+
+    /**
+     * @param items the number of items.
+     * @return the body of a Query response.
+     */
+    static String queryResponse(int items) {
+        final StringBuilder response = new StringBuilder("{\"Count\":").append(items)
+                .append(",\"Items\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                response.append(',');
+            }
+            appendItem(response, i);
+        }
+        return response.append("],\"ScannedCount\":").append(items).append('}').toString();
+    }
+
+    private static void appendItem(StringBuilder json, int i) {
+        json.append("{\"Artist\":{\"S\":\"Artist ").append(i)
+                .append("\"},\"SongTitle\":{\"S\":\"Song ").append(i)
+                .append("\"},\"AlbumTitle\":{\"S\":\"Album Title With Some Length ").append(i)
+                .append("\"},\"Year\":{\"N\":\"").append(1970 + i % 50)
+                .append("\"},\"Price\":{\"N\":\"1.99\"},\"Genre\":{\"S\":\"Rock\"}")
+                .append(",\"Tags\":{\"SS\":[\"classic\",\"live\",\"remastered\"]}")
+                .append(",\"Explicit\":{\"BOOL\":false},\"PlayCount\":{\"N\":\"")
+                .append(123456789L * i)
+                .append("\"},\"Description\":{\"S\":\"A longer text attribute, as found in most")
+                .append(" real world items: caf\\u00e9 \u65e5\u672c\"}}");
+    }
+}
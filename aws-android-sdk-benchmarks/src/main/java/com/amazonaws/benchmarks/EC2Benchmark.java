@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.services.ec2.AmazonEC2Client;
+import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.transform.DescribeInstancesResultStaxUnmarshaller;
+import com.amazonaws.transform.StaxUnmarshallerContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EC2 DescribeInstances, the largest and deepest of the StAX unmarshalled
+ * responses: end to end, and the unmarshaller alone on a
+ * {@link StaxUnmarshallerContext}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EC2Benchmark {
+
+    /** Number of reservations of one instance each in the response. */
+    @Param({"10", "200"})
+    public int reservations;
+
+    private AmazonEC2Client client;
+    private XmlPullParserFactory parserFactory;
+    private String response;
+
+    @Setup
+    public void setup() throws Exception {
+        response = describeInstancesResponse(reservations);
+        client = new AmazonEC2Client(Fixtures.credentialsProvider(),
+                Fixtures.clientConfiguration(), new StubHttpClient(200, response));
+        parserFactory = XmlPullParserFactory.newInstance();
+    }
+
+    @Benchmark
+    public DescribeInstancesResult describeInstances() {
+        return client.describeInstances(new DescribeInstancesRequest());
+    }
+
+    @Benchmark
+    public DescribeInstancesResult unmarshall() throws Exception {
+        final XmlPullParser parser = parserFactory.newPullParser();
+        parser.setInput(new StringReader(response));
+        return DescribeInstancesResultStaxUnmarshaller.getInstance().unmarshall(
+                new StaxUnmarshallerContext(parser));
+    }
+
+    private static String describeInstancesResponse(int reservations) {
+        final StringBuilder xml = new StringBuilder(
+                "<DescribeInstancesResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\">"
+                        + "<requestId>8f7724cf-496f-496e-8fe3-example</requestId>"
+                        + "<reservationSet>");
+        for (int i = 0; i < reservations; i++) {
+            xml.append("<item><reservationId>r-0").append(i)
+                    .append("</reservationId><ownerId>123456789012</ownerId><groupSet/>")
+                    .append("<instancesSet><item><instanceId>i-0").append(i)
+                    .append("</instanceId><imageId>ami-bff32ccc</imageId>")
+                    .append("<instanceState><code>16</code><name>running</name></instanceState>")
+                    .append("<privateDnsName>ip-192-168-1-88.eu-west-1.compute.internal")
+                    .append("</privateDnsName><dnsName>ec2-54-194-252-215.eu-west-1.compute")
+                    .append(".amazonaws.com</dnsName><reason/><keyName>my_keypair</keyName>")
+                    .append("<amiLaunchIndex>0</amiLaunchIndex><productCodes/>")
+                    .append("<instanceType>t2.micro</instanceType>")
+                    .append("<launchTime>2018-05-08T16:46:19.000Z</launchTime>")
+                    .append("<placement><availabilityZone>eu-west-1c</availabilityZone>")
+                    .append("<groupName/><tenancy>default</tenancy></placement>")
+                    .append("<monitoring><state>disabled</state></monitoring>")
+                    .append("<subnetId>subnet-56f5f633</subnetId><vpcId>vpc-11112222</vpcId>")
+                    .append("<privateIpAddress>192.168.1.88</privateIpAddress>")
+                    .append("<ipAddress>54.194.252.215</ipAddress><sourceDestCheck>true")
+                    .append("</sourceDestCheck><groupSet><item><groupId>sg-e4076980</groupId>")
+                    .append("<groupName>SecurityGroup1</groupName></item></groupSet>")
+                    .append("<architecture>x86_64</architecture>")
+                    .append("<rootDeviceType>ebs</rootDeviceType>")
+                    .append("<rootDeviceName>/dev/xvda</rootDeviceName><blockDeviceMapping>")
+                    .append("<item><deviceName>/dev/xvda</deviceName><ebs>")
+                    .append("<volumeId>vol-1234567890abcdef0</volumeId><status>attached</status>")
+                    .append("<attachTime>2015-12-22T10:44:09.000Z</attachTime>")
+                    .append("<deleteOnTermination>true</deleteOnTermination></ebs></item>")
+                    .append("</blockDeviceMapping><virtualizationType>hvm</virtualizationType>")
+                    .append("<clientToken>xMcwG14507example</clientToken><tagSet><item>")
+                    .append("<key>Name</key><value>Server_").append(i)
+                    .append("</value></item></tagSet><hypervisor>xen</hypervisor>")
+                    .append("<networkInterfaceSet><item>")
+                    .append("<networkInterfaceId>eni-551ba033</networkInterfaceId>")
+                    .append("<subnetId>subnet-56f5f633</subnetId><vpcId>vpc-11112222</vpcId>")
+                    .append("<description>Primary network interface</description>")
+                    .append("<ownerId>123456789012</ownerId><status>in-use</status>")
+                    .append("<macAddress>02:dd:2c:5e:01:69</macAddress>")
+                    .append("<privateIpAddress>192.168.1.88</privateIpAddress>")
+                    .append("<privateDnsName>ip-192-168-1-88.eu-west-1.compute.internal")
+                    .append("</privateDnsName><sourceDestCheck>true</sourceDestCheck>")
+                    .append("<groupSet><item><groupId>sg-e4076980</groupId>")
+                    .append("<groupName>SecurityGroup1</groupName></item></groupSet>")
+                    .append("<attachment><attachmentId>eni-attach-39697adc</attachmentId>")
+                    .append("<deviceIndex>0</deviceIndex><status>attached</status>")
+                    .append("<attachTime>2018-05-08T16:46:19.000Z</attachTime>")
+                    .append("<deleteOnTermination>true</deleteOnTermination></attachment>")
+                    .append("<privateIpAddressesSet><item>")
+                    .append("<privateIpAddress>192.168.1.88</privateIpAddress>")
+                    .append("<primary>true</primary></item></privateIpAddressesSet>")
+                    .append("</item></networkInterfaceSet><ebsOptimized>false</ebsOptimized>")
+                    .append("</item></instancesSet></item>");
+        }
+        return xml.append("</reservationSet></DescribeInstancesResponse>").toString();
+    }
+}
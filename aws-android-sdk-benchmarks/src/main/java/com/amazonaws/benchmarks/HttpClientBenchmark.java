@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.http.HttpResponseHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead of {@link AmazonHttpClient} itself: an unsigned request with
+ * trivial response handlers, so that only the execution loop, request
+ * conversion, retry bookkeeping and metrics are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpClientBenchmark {
+
+    private AmazonHttpClient client;
+    private HttpResponseHandler<AmazonWebServiceResponse<String>> responseHandler;
+    private HttpResponseHandler<AmazonServiceException> errorResponseHandler;
+
+    @Setup
+    public void setup() {
+        client = new AmazonHttpClient(Fixtures.clientConfiguration(),
+                new StubHttpClient(200, "{}"));
+        responseHandler = new HttpResponseHandler<AmazonWebServiceResponse<String>>() {
+            @Override
+            public AmazonWebServiceResponse<String> handle(HttpResponse response) {
+                final AmazonWebServiceResponse<String> awsResponse = new AmazonWebServiceResponse<String>();
+                awsResponse.setResult("Result");
+                return awsResponse;
+            }
+
+            @Override
+            public boolean needsConnectionLeftOpen() {
+                return false;
+            }
+        };
+        errorResponseHandler = new HttpResponseHandler<AmazonServiceException>() {
+            @Override
+            public AmazonServiceException handle(HttpResponse response) {
+                return new AmazonServiceException("Unexpected error");
+            }
+
+            @Override
+            public boolean needsConnectionLeftOpen() {
+                return false;
+            }
+        };
+    }
+
+    @Benchmark
+    public String execute() {
+        return client.execute(newRequest(), responseHandler, errorResponseHandler,
+                new ExecutionContext()).getAwsResponse();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String executeContended() {
+        return execute();
+    }
+
+    @Benchmark
+    public String executeWithMetrics() {
+        return client.execute(newRequest(), responseHandler, errorResponseHandler,
+                new ExecutionContext(null, true, null)).getAwsResponse();
+    }
+
+    private static Request<?> newRequest() {
+        final Request<?> request = new DefaultRequest<String>(new AmazonWebServiceRequest() {
+        }, "BenchmarkService");
+        request.setHttpMethod(HttpMethodName.GET);
+        request.setEndpoint(URI.create("https://service.us-east-1.amazonaws.com"));
+        request.addParameter("Action", "Describe");
+        return request;
+    }
+}
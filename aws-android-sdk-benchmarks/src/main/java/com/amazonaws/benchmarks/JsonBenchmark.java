@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.transform.QueryResultJsonUnmarshaller;
+import com.amazonaws.services.kinesis.model.GetRecordsResult;
+import com.amazonaws.services.kinesis.model.transform.GetRecordsResultJsonUnmarshaller;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+import com.amazonaws.util.StringUtils;
+import com.amazonaws.util.json.AwsJsonReader;
+import com.amazonaws.util.json.AwsJsonWriter;
+import com.amazonaws.util.json.JsonUtils;
+import com.amazonaws.util.json.JsonUtils.JsonEngine;
+import com.amazonaws.util.json.Utf8JsonWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JSON protocol alone: unmarshalling a DynamoDB Query response and a
+ * Kinesis GetRecords response, and writing a DynamoDB item, with the UTF-8
+ * byte reader and writer the response handlers and marshallers use, and with
+ * the Gson and Jackson engines of {@link JsonUtils}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    /**
+     * The JSON engine: "utf8" for the UTF-8 byte reader and writer, "gson" or
+     * "jackson" for the engine set with {@link JsonUtils#setJsonEngine}.
+     */
+    @Param({"utf8", "gson", "jackson"})
+    public String engine;
+
+    private byte[] queryResponse;
+    private byte[] getRecordsResponse;
+    private Map<String, AttributeValue> item;
+
+    @Setup
+    public void setup() {
+        JsonUtils.setJsonEngine("jackson".equals(engine) ? JsonEngine.Jackson : JsonEngine.Gson);
+        queryResponse = DynamoDBBenchmark.queryResponse(DynamoDBBenchmark.QUERY_ITEMS)
+                .getBytes(StringUtils.UTF8);
+        getRecordsResponse = KinesisBenchmark.getRecordsResponse().getBytes(StringUtils.UTF8);
+        item = DynamoDBBenchmark.item(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        JsonUtils.setJsonEngine(JsonEngine.Gson);
+    }
+
+    @Benchmark
+    public QueryResult unmarshallQuery() throws Exception {
+        return QueryResultJsonUnmarshaller.getInstance().unmarshall(
+                new JsonUnmarshallerContext(reader(queryResponse)));
+    }
+
+    @Benchmark
+    public GetRecordsResult unmarshallGetRecords() throws Exception {
+        return GetRecordsResultJsonUnmarshaller.getInstance().unmarshall(
+                new JsonUnmarshallerContext(reader(getRecordsResponse)));
+    }
+
+    @Benchmark
+    public int marshallItem() throws Exception {
+        if ("utf8".equals(engine)) {
+            final Utf8JsonWriter writer = JsonUtils.getUtf8JsonWriter();
+            writeItem(writer);
+            writer.close();
+            final int length = writer.getContentLength();
+            writer.toInputStream().release();
+            return length;
+        }
+        final StringWriter stringWriter = new StringWriter();
+        final AwsJsonWriter writer = JsonUtils.getJsonWriter(stringWriter);
+        writeItem(writer);
+        writer.close();
+        return stringWriter.toString().getBytes(StringUtils.UTF8).length;
+    }
+
+    private AwsJsonReader reader(byte[] response) {
+        final InputStream in = new ByteArrayInputStream(response);
+        if ("utf8".equals(engine)) {
+            return JsonUtils.getJsonReader(in);
+        }
+        return JsonUtils.getJsonReader(new InputStreamReader(in, StringUtils.UTF8));
+    }
+    private void writeItem(AwsJsonWriter writer) throws Exception {
+        writer.beginObject();
+        writer.name("TableName").value("Music");
+        writer.name("Item").beginObject();
+        for (final Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            writer.name(attribute.getKey());
+            writeAttribute(attribute.getValue(), writer);
+        }
+        writer.endObject();
+        writer.endObject();
+    }
+
+    /** Writes the attribute types of the item as AttributeValueJsonMarshaller does. */
+    private static void writeAttribute(AttributeValue value, AwsJsonWriter writer)
+            throws Exception {
+        writer.beginObject();
+        if (value.getS() != null) {
+            writer.name("S").value(value.getS());
+        }
+        if (value.getN() != null) {
+            writer.name("N").value(value.getN());
+        }
+        if (value.getSS() != null) {
+            writer.name("SS").beginArray();
+            for (final String s : value.getSS()) {
+                writer.value(s);
+            }
+            writer.endArray();
+        }
+        if (value.getBOOL() != null) {
+            writer.name("BOOL").value(value.getBOOL());
+        }
+        writer.endObject();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.services.kinesis.AmazonKinesisClient;
+import com.amazonaws.services.kinesis.model.GetRecordsRequest;
+import com.amazonaws.services.kinesis.model.GetRecordsResult;
+import com.amazonaws.services.kinesis.model.PutRecordRequest;
+import com.amazonaws.services.kinesis.model.PutRecordResult;
+import com.amazonaws.util.Base64;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kinesis operations end to end: records are base64 encoded in JSON both
+ * ways.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KinesisBenchmark {
+
+    private static final String STREAM = "benchmark-stream";
+    private static final int RECORD_SIZE = 1024;
+    private static final int RECORDS = 100;
+    private static final String SEQUENCE_NUMBER = "49590338271490256608559692538361571095921575989136588898";
+
+    @State(Scope.Benchmark)
+    public static class PutRecordState {
+        AmazonKinesisClient client;
+        byte[] data;
+
+        @Setup
+        public void setup() {
+            client = client("{\"SequenceNumber\":\"" + SEQUENCE_NUMBER
+                    + "\",\"ShardId\":\"shardId-000000000000\"}");
+            data = Fixtures.randomBytes(RECORD_SIZE);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class GetRecordsState {
+        AmazonKinesisClient client;
+        GetRecordsRequest request;
+
+        @Setup
+        public void setup() {
+            client = client(getRecordsResponse());
+            request = new GetRecordsRequest().withShardIterator("AAAAAAAAAAETYyAYzd665+8e0X7J")
+                    .withLimit(RECORDS);
+        }
+    }
+
+    @Benchmark
+    public PutRecordResult putRecord(PutRecordState state) {
+        return state.client.putRecord(new PutRecordRequest().withStreamName(STREAM)
+                .withPartitionKey("partition-key").withData(ByteBuffer.wrap(state.data)));
+    }
+
+    @Benchmark
+    public GetRecordsResult getRecords(GetRecordsState state) {
+        return state.client.getRecords(state.request);
+    }
+
+    /**
+     * Returns a GetRecords response of {@value #RECORDS} records of
+     * {@value #RECORD_SIZE} random bytes, laid out as the service returns it.
+     */
+    static String getRecordsResponse() {
+        final String data = Base64.encodeAsString(Fixtures.randomBytes(RECORD_SIZE));
+        final StringBuilder response = new StringBuilder("{\"MillisBehindLatest\":0,")
+                .append("\"NextShardIterator\":\"AAAAAAAAAAHsW8zCWf9164uy8Epue6WS3w6wmj4a4USt+C")
+                .append("NvFbSvORGZyuzRd1p4jzrb8V9k5fDfz2pRe/5R2xOQq0QeH6N/ZEfaLk9bpdd23/G\"")
+                .append(",\"Records\":[");
+        for (int i = 0; i < RECORDS; i++) {
+            if (i > 0) {
+                response.append(',');
+            }
+            response.append("{\"ApproximateArrivalTimestamp\":1.441215410867E9,")
+                    .append("\"Data\":\"").append(data).append("\",\"PartitionKey\":\"key-")
+                    .append(i).append("\",\"SequenceNumber\":\"").append(SEQUENCE_NUMBER)
+                    .append("\"}");
+        }
+        return response.append("]}").toString();
+    }
+
+    private static AmazonKinesisClient client(String response) {
+        return new AmazonKinesisClient(Fixtures.credentialsProvider(),
+                Fixtures.clientConfiguration(), new StubHttpClient(200, response));
+    }
+}
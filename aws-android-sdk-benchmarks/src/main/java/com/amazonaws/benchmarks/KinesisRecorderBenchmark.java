@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.KinesisRecorder;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.KinesisRecorderConfig;
+import com.amazonaws.regions.Regions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KinesisRecorder.saveRecord from several threads at once: each thread
+ * writing its own record, or the records of all threads written in group
+ * commits, returning as soon as the record is handed over or once it is
+ * synced.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KinesisRecorderBenchmark {
+
+    private static final String STREAM = "benchmark-stream";
+    private static final int RECORD_SIZE = 256;
+    /** Large enough that no record is dropped within an iteration. */
+    private static final long MAX_STORAGE_SIZE = 512 * 1024 * 1024L;
+
+    @Param({"direct", "groupCommit", "groupCommitDurable"})
+    public String mode;
+
+    private File directory;
+    private KinesisRecorder recorder;
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = File.createTempFile("benchmark", "");
+        directory.delete();
+        directory.mkdir();
+        final KinesisRecorderConfig config = new KinesisRecorderConfig()
+                .withMaxStorageSize(MAX_STORAGE_SIZE)
+                .withGroupCommit(!"direct".equals(mode))
+                .withDurableSave("groupCommitDurable".equals(mode));
+        recorder = new KinesisRecorder(directory, Regions.US_EAST_1,
+                Fixtures.credentialsProvider(), config);
+        data = Fixtures.randomBytes(RECORD_SIZE);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteRecords() {
+        recorder.deleteAllRecords();
+    }
+
+    @TearDown
+    public void tearDown() {
+        recorder.deleteAllRecords();
+        delete(directory);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void saveRecord() {
+        recorder.saveRecord(data, STREAM);
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.S3ClientOptions;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.transform.ListObjectsStaxUnmarshaller;
+import com.amazonaws.services.s3.model.transform.ListObjectsV2StaxUnmarshaller;
+import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser;
+import com.amazonaws.util.StringUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * S3 operations end to end: a put with its MD5 check, from a stream and from
+ * a file hashed before or as it is sent, a head request whose result comes
+ * from the headers, and a listing parsed from XML, by the client and by the
+ * SAX and pull parsers alone.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class S3Benchmark {
+
+    private static final String BUCKET = "benchmark-bucket";
+    private static final String KEY = "photos/2018/benchmark.jpg";
+    private static final int LISTED_KEYS = 1000;
+
+    @State(Scope.Benchmark)
+    public static class PutObjectState {
+        /** Size of the object. */
+        @Param({"1024", "1048576"})
+        public int objectSize;
+
+        AmazonS3Client client;
+        byte[] content;
+
+        @Setup
+        public void setup() {
+            content = Fixtures.randomBytes(objectSize);
+            client = client(new StubHttpClient(200, new byte[0])
+                    .withHeader("ETag", "\"" + Fixtures.md5Hex(content) + "\""));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PutFileState {
+        /** Size of the file. */
+        @Param({"1048576", "16777216"})
+        public int fileSize;
+
+        /** Whether the MD5 of the file is calculated as it is sent. */
+        @Param({"false", "true"})
+        public boolean singlePassDigest;
+
+        AmazonS3Client client;
+        File file;
+
+        @Setup
+        public void setup() throws IOException {
+            final byte[] content = Fixtures.randomBytes(fileSize);
+            file = File.createTempFile("benchmark", ".bin");
+            final FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(content);
+            } finally {
+                out.close();
+            }
+            client = client(new StubHttpClient(200, new byte[0])
+                    .withHeader("ETag", "\"" + Fixtures.md5Hex(content) + "\""));
+            if (singlePassDigest) {
+                client.setS3ClientOptions(S3ClientOptions.builder().enableSinglePassDigest()
+                        .build());
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class GetObjectMetadataState {
+        AmazonS3Client client;
+
+        @Setup
+        public void setup() {
+            client = client(new StubHttpClient(200, new byte[0])
+                    .withHeader("ETag", "\"fba9dede5f27731c9771645a39863328\"")
+                    .withHeader("Content-Length", "434234")
+                    .withHeader("Content-Type", "image/jpeg")
+                    .withHeader("Last-Modified", "Sun, 1 Jan 2006 12:00:00 GMT")
+                    .withHeader("x-amz-request-id", "318BC8BC148832E5")
+                    .withHeader("x-amz-meta-owner", "benchmark"));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ListObjectsState {
+        AmazonS3Client client;
+
+        @Setup
+        public void setup() {
+            client = client(new StubHttpClient(200, listingDocument()));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ParseListingState {
+        /** Whether to parse with the pull parser rather than the SAX handler. */
+        @Param({"false", "true"})
+        public boolean pullParser;
+
+        byte[] document;
+
+        @Setup
+        public void setup() {
+            document = listingDocument().getBytes(StringUtils.UTF8);
+        }
+    }
+
+    @Benchmark
+    public PutObjectResult putObject(PutObjectState state) {
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(state.content.length);
+        return state.client.putObject(BUCKET, KEY, new ByteArrayInputStream(state.content),
+                metadata);
+    }
+
+    @Benchmark
+    public PutObjectResult putFile(PutFileState state) {
+        return state.client.putObject(BUCKET, KEY, state.file);
+    }
+
+    @Benchmark
+    public ObjectMetadata getObjectMetadata(GetObjectMetadataState state) {
+        return state.client.getObjectMetadata(BUCKET, KEY);
+    }
+
+    @Benchmark
+    public ObjectListing listObjects(ListObjectsState state) {
+        return state.client.listObjects(BUCKET);
+    }
+
+    @Benchmark
+    public ObjectListing parseListObjects(ParseListingState state) throws Exception {
+        final InputStream in = new ByteArrayInputStream(state.document);
+        if (state.pullParser) {
+            return new ListObjectsStaxUnmarshaller(false).unmarshall(in);
+        }
+        return new XmlResponsesSaxParser().parseListBucketObjectsResponse(in, false)
+                .getObjectListing();
+    }
+
+    @Benchmark
+    public ListObjectsV2Result parseListObjectsV2(ParseListingState state) throws Exception {
+        final InputStream in = new ByteArrayInputStream(state.document);
+        if (state.pullParser) {
+            return new ListObjectsV2StaxUnmarshaller(false).unmarshall(in);
+        }
+        return new XmlResponsesSaxParser().parseListObjectsV2Response(in, false).getResult();
+    }
+
+    /**
+     * Returns a listing of {@link #LISTED_KEYS} objects, readable as the
+     * response of both versions of ListObjects.
+     */
+    private static String listingDocument() {
+        final StringBuilder response = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                        + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>" + BUCKET + "</Name><Prefix></Prefix><Marker></Marker>"
+                        + "<KeyCount>" + LISTED_KEYS + "</KeyCount>"
+                        + "<MaxKeys>1000</MaxKeys><IsTruncated>false</IsTruncated>");
+        for (int i = 0; i < LISTED_KEYS; i++) {
+            response.append("<Contents><Key>photos/2018/").append(i)
+                    .append(".jpg</Key><LastModified>2018-01-01T12:00:00.000Z</LastModified>")
+                    .append("<ETag>&quot;fba9dede5f27731c9771645a39863328&quot;</ETag>")
+                    .append("<Size>").append(434234 + i).append("</Size>")
+                    .append("<Owner><ID>75aa57f09aa0c8caeab4f8c24e99d10f8e7faeebf76c078efc7c6")
+                    .append("caea54ba06a</ID><DisplayName>benchmark</DisplayName></Owner>")
+                    .append("<StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        return response.append("</ListBucketResult>").toString();
+    }
+
+    private static AmazonS3Client client(StubHttpClient httpClient) {
+        final AmazonS3Client client = new AmazonS3Client(Fixtures.credentialsProvider(),
+                Fixtures.clientConfiguration(), httpClient);
+        // an explicit region keeps the client from looking the bucket region up
+        client.setRegion(Region.getRegion(Regions.US_EAST_1));
+        return client;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.internal.S3Direct;
+import com.amazonaws.services.s3.internal.crypto.CryptoModuleDispatcher;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.CryptoConfiguration;
+import com.amazonaws.services.s3.model.EncryptionMaterials;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.StaticEncryptionMaterialsProvider;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Client-side encrypted uploads against plaintext ones: a put, encrypted by
+ * the cipher stream as it is sent, and a multipart upload whose parts are
+ * encrypted as they upload, one at a time, or encrypted ahead while the
+ * previous part uploads. The multipart uploads can take a simulated time per
+ * part on top of the stub round trip, the time the pipelined mode hides the
+ * encryption behind.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class S3EncryptionBenchmark {
+
+    private static final String BUCKET = "benchmark-bucket";
+    private static final String KEY = "photos/2018/benchmark.jpg";
+    private static final String UPLOAD_ID = "VXBsb2FkIElEIGZvciBlbHZpbmcncyBteS1tb3ZpZS5tMnRzIHVwbG9hZA";
+    private static final int PART_SIZE = 1024 * 1024;
+    private static final int PARTS = 4;
+
+    @State(Scope.Benchmark)
+    public static class PutObjectState {
+        /** Size of the object. */
+        @Param({"1048576", "16777216"})
+        public int objectSize;
+
+        /** Whether the object is encrypted on the client. */
+        @Param({"false", "true"})
+        public boolean encrypted;
+
+        AmazonS3Client client;
+        CryptoModuleDispatcher crypto;
+        byte[] content;
+
+        @Setup
+        public void setup() {
+            content = Fixtures.randomBytes(objectSize);
+            client = client();
+            crypto = crypto(client, 0, false);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MultipartUploadState {
+        /** How the parts are uploaded. */
+        @Param({"plaintext", "serial", "pipelined"})
+        public String mode;
+
+        /** The time each part takes to upload, on top of the stub round trip. */
+        @Param({"0", "20"})
+        public int uploadMillis;
+
+        AmazonS3Client client;
+        CryptoModuleDispatcher crypto;
+        ExecutorService executor;
+        byte[] content;
+
+        @Setup
+        public void setup() {
+            content = Fixtures.randomBytes(PART_SIZE * PARTS);
+            client = client();
+            crypto = crypto(client, uploadMillis, "pipelined".equals(mode));
+            executor = Executors.newFixedThreadPool(2);
+        }
+
+        @TearDown
+        public void tearDown() {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public PutObjectResult putObject(PutObjectState state) {
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(state.content.length);
+        final PutObjectRequest request = new PutObjectRequest(BUCKET, KEY,
+                new ByteArrayInputStream(state.content), metadata);
+        return state.encrypted ? state.crypto.putObjectSecurely(request)
+                : state.client.putObject(request);
+    }
+
+    @Benchmark
+    public List<PartETag> multipartUpload(MultipartUploadState state) throws Exception {
+        if ("plaintext".equals(state.mode)) {
+            final List<PartETag> partETags = new ArrayList<PartETag>();
+            for (int partNumber = 1; partNumber <= PARTS; partNumber++) {
+                partETags.add(state.client.uploadPart(partRequest(state, UPLOAD_ID, partNumber))
+                        .getPartETag());
+                pause(state.uploadMillis);
+            }
+            return partETags;
+        }
+
+        final String uploadId = state.crypto.initiateMultipartUploadSecurely(
+                new InitiateMultipartUploadRequest(BUCKET, KEY)).getUploadId();
+        final List<PartETag> partETags = new ArrayList<PartETag>();
+        if ("serial".equals(state.mode)) {
+            for (int partNumber = 1; partNumber <= PARTS; partNumber++) {
+                partETags.add(state.crypto.uploadPartSecurely(
+                        partRequest(state, uploadId, partNumber)).getPartETag());
+            }
+        } else {
+            // two parts at a time, as the TransferManager uploads them
+            final LinkedList<Future<PartETag>> inFlight = new LinkedList<Future<PartETag>>();
+            for (int partNumber = 1; partNumber <= PARTS; partNumber++) {
+                final UploadPartRequest request = partRequest(state, uploadId, partNumber);
+                final CryptoModuleDispatcher crypto = state.crypto;
+                inFlight.add(state.executor.submit(new Callable<PartETag>() {
+                    @Override
+                    public PartETag call() {
+                        return crypto.uploadPartSecurely(request).getPartETag();
+                    }
+                }));
+                if (inFlight.size() > 1) {
+                    partETags.add(inFlight.removeFirst().get());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                partETags.add(inFlight.removeFirst().get());
+            }
+        }
+        state.crypto.completeMultipartUploadSecurely(
+                new CompleteMultipartUploadRequest(BUCKET, KEY, uploadId, partETags));
+        return partETags;
+    }
+
+    private static UploadPartRequest partRequest(MultipartUploadState state, String uploadId,
+            int partNumber) {
+        return new UploadPartRequest()
+                .withBucketName(BUCKET)
+                .withKey(KEY)
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withPartSize(PART_SIZE)
+                .withLastPart(partNumber == PARTS)
+                .withInputStream(new ByteArrayInputStream(state.content,
+                        (partNumber - 1) * PART_SIZE, PART_SIZE));
+    }
+
+    private static void pause(int millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private static AmazonS3Client client() {
+        final AmazonS3Client client = new AmazonS3Client(Fixtures.credentialsProvider(),
+                Fixtures.clientConfiguration(), new StubHttpClient(200, new byte[0])
+                        .withHeader("ETag", "\"fba9dede5f27731c9771645a39863328\""));
+        // an explicit region keeps the client from looking the bucket region up
+        client.setRegion(Region.getRegion(Regions.US_EAST_1));
+        // the stub's ETag can't match the MD5 of the content sent; skipping
+        // the check for all the modes leaves the encryption as the difference
+        System.setProperty("com.amazonaws.services.s3.disableGetObjectMD5Validation", "true");
+        return client;
+    }
+
+    /**
+     * Returns the crypto module of an encryption client whose puts and parts
+     * go through the given client, and whose other requests are answered
+     * locally.
+     */
+    private static CryptoModuleDispatcher crypto(final AmazonS3Client client,
+            final int uploadMillis, boolean pipelined) {
+        final S3Direct s3 = new S3Direct() {
+            @Override
+            public PutObjectResult putObject(PutObjectRequest req) {
+                return client.putObject(req);
+            }
+
+            @Override
+            public UploadPartResult uploadPart(UploadPartRequest req) {
+                final UploadPartResult result = client.uploadPart(req);
+                try {
+                    pause(uploadMillis);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return result;
+            }
+
+            @Override
+            public InitiateMultipartUploadResult initiateMultipartUpload(
+                    InitiateMultipartUploadRequest req) {
+                final InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+                result.setBucketName(req.getBucketName());
+                result.setKey(req.getKey());
+                result.setUploadId(UPLOAD_ID + System.nanoTime());
+                return result;
+            }
+
+            @Override
+            public CompleteMultipartUploadResult completeMultipartUpload(
+                    CompleteMultipartUploadRequest req) {
+                final CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+                result.setBucketName(req.getBucketName());
+                result.setKey(req.getKey());
+                return result;
+            }
+
+            @Override
+            public S3Object getObject(GetObjectRequest req) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ObjectMetadata getObject(GetObjectRequest req, File dest) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CopyPartResult copyPart(CopyPartRequest req) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void abortMultipartUpload(AbortMultipartUploadRequest req) {
+            }
+        };
+        return new CryptoModuleDispatcher(null, s3, Fixtures.credentialsProvider(),
+                new StaticEncryptionMaterialsProvider(new EncryptionMaterials(
+                        new SecretKeySpec(Fixtures.randomBytes(32), "AES"))),
+                new CryptoConfiguration().withPipelinedMultipartUpload(pipelined));
+    }
+}
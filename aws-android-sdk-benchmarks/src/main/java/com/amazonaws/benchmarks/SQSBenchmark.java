@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.services.sqs.AmazonSQSClient;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQS operations end to end over the query protocol: form encoded requests
+ * and XML responses, including the MD5 checks of the message bodies.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SQSBenchmark {
+
+    private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/123456789012/queue";
+    private static final String BODY = "{\"event\":\"benchmark\",\"payload\":\"" + repeat('x', 512)
+            + "\"}";
+    private static final int MAX_MESSAGES = 10;
+
+    @State(Scope.Benchmark)
+    public static class SendMessageState {
+        AmazonSQSClient client;
+        SendMessageRequest request;
+
+        @Setup
+        public void setup() {
+            client = client("<SendMessageResponse><SendMessageResult><MD5OfMessageBody>"
+                    + Fixtures.md5Hex(BODY) + "</MD5OfMessageBody>"
+                    + "<MessageId>5fea7756-0ea4-451a-a703-a558b933e274</MessageId>"
+                    + "</SendMessageResult>" + responseMetadata() + "</SendMessageResponse>");
+            request = new SendMessageRequest(QUEUE_URL, BODY);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReceiveMessageState {
+        AmazonSQSClient client;
+        ReceiveMessageRequest request;
+
+        @Setup
+        public void setup() {
+            final StringBuilder response = new StringBuilder(
+                    "<ReceiveMessageResponse><ReceiveMessageResult>");
+            final String md5 = Fixtures.md5Hex(BODY);
+            for (int i = 0; i < MAX_MESSAGES; i++) {
+                response.append("<Message><MessageId>5fea7756-0ea4-451a-a703-a558b933e27")
+                        .append(i).append("</MessageId><ReceiptHandle>")
+                        .append(repeat('h', 180)).append(i)
+                        .append("</ReceiptHandle><MD5OfBody>").append(md5)
+                        .append("</MD5OfBody><Body>").append(BODY.replace("\"", "&quot;"))
+                        .append("</Body><Attribute><Name>SenderId</Name>")
+                        .append("<Value>195004372649</Value></Attribute>")
+                        .append("<Attribute><Name>SentTimestamp</Name>")
+                        .append("<Value>1238099229000</Value></Attribute></Message>");
+            }
+            response.append("</ReceiveMessageResult>").append(responseMetadata())
+                    .append("</ReceiveMessageResponse>");
+            client = client(response.toString());
+            request = new ReceiveMessageRequest(QUEUE_URL).withMaxNumberOfMessages(MAX_MESSAGES)
+                    .withAttributeNames("All");
+        }
+    }
+
+    @Benchmark
+    public SendMessageResult sendMessage(SendMessageState state) {
+        return state.client.sendMessage(state.request);
+    }
+
+    @Benchmark
+    public ReceiveMessageResult receiveMessage(ReceiveMessageState state) {
+        return state.client.receiveMessage(state.request);
+    }
+
+    private static AmazonSQSClient client(String response) {
+        return new AmazonSQSClient(Fixtures.credentialsProvider(),
+                Fixtures.clientConfiguration(), new StubHttpClient(200, response));
+    }
+
+    private static String responseMetadata() {
+        return "<ResponseMetadata><RequestId>27daac76-34dd-47df-bd01-1f6e873584a0"
+                + "</RequestId></ResponseMetadata>";
+    }
+
+    private static String repeat(char c, int count) {
+        final StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.auth.AWS4Signer;
+import com.amazonaws.auth.AWS4SigningKeyCache;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.util.StringUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signs requests with {@link AWS4Signer}: canonical request, string to sign,
+ * signing key and payload hash. The uncached runs clear the shared
+ * {@link AWS4SigningKeyCache} before each request, so the signing key is
+ * derived every time, as it was before the cache. The regex runs build the
+ * canonical headers the way the signer did before they were built in one
+ * pass, sorting the headers twice and collapsing whitespace with a regex;
+ * the GC profiler gives the allocation per request of both.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SigningBenchmark {
+
+    /** Size of the request body. */
+    @Param({"0", "1024", "65536"})
+    public int payloadSize;
+
+    /** Whether the derived signing key is cached between requests. */
+    @Param({"cached", "uncached"})
+    public String signingKey;
+
+    /** How the canonical headers are built. */
+    @Param({"onePass", "regex"})
+    public String canonicalHeaders;
+
+    private AWS4Signer signer;
+    private AWSCredentials credentials;
+    private byte[] payload;
+    private boolean uncached;
+
+    @Setup
+    public void setup() {
+        signer = "regex".equals(canonicalHeaders) ? new RegexHeadersSigner() : new AWS4Signer();
+        signer.setServiceName("dynamodb");
+        signer.setRegionName(Fixtures.REGION);
+        credentials = Fixtures.credentialsProvider().getCredentials();
+        payload = Fixtures.randomBytes(payloadSize);
+        uncached = "uncached".equals(signingKey);
+    }
+
+    @Benchmark
+    public Request<?> sign() {
+        final Request<?> request = new DefaultRequest<Object>(new AmazonWebServiceRequest() {
+        }, "AmazonDynamoDBv2");
+        request.setHttpMethod(HttpMethodName.POST);
+        request.setEndpoint(URI.create("https://dynamodb.us-east-1.amazonaws.com"));
+        request.setResourcePath("/");
+        request.addHeader("X-Amz-Target", "DynamoDB_20120810.PutItem");
+        request.addHeader("Content-Type", "application/x-amz-json-1.0");
+        request.addHeader("Content-Length", Integer.toString(payload.length));
+        request.setContent(new ByteArrayInputStream(payload));
+        if (uncached) {
+            AWS4SigningKeyCache.getSharedCache().clear();
+        }
+        signer.sign(request, credentials);
+        return request;
+    }
+
+    /**
+     * Builds the canonical headers as the signer did before they were built
+     * in one pass.
+     */
+    static final class RegexHeadersSigner extends AWS4Signer {
+        @Override
+        protected String getCanonicalizedHeaderString(Request<?> request) {
+            final List<String> sortedHeaders = new ArrayList<String>();
+            sortedHeaders.addAll(request.getHeaders().keySet());
+            Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+
+            final StringBuilder buffer = new StringBuilder();
+            for (final String header : sortedHeaders) {
+                if (isSigned(header)) {
+                    final String key = StringUtils.lowerCase(header).replaceAll("\\s+", " ");
+                    final String value = request.getHeaders().get(header);
+
+                    buffer.append(key).append(":");
+                    if (value != null) {
+                        buffer.append(value.replaceAll("\\s+", " "));
+                    }
+
+                    buffer.append("\n");
+                }
+            }
+
+            return buffer.toString();
+        }
+
+        @Override
+        protected String getSignedHeadersString(Request<?> request) {
+            final List<String> sortedHeaders = new ArrayList<String>();
+            sortedHeaders.addAll(request.getHeaders().keySet());
+            Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+
+            final StringBuilder buffer = new StringBuilder();
+            for (final String header : sortedHeaders) {
+                if (isSigned(header)) {
+                    if (buffer.length() > 0) {
+                        buffer.append(";");
+                    }
+                    buffer.append(StringUtils.lowerCase(header));
+                }
+            }
+
+            return buffer.toString();
+        }
+
+        private static boolean isSigned(String header) {
+            return "date".equalsIgnoreCase(header) || "Content-MD5".equalsIgnoreCase(header)
+                    || "host".equalsIgnoreCase(header)
+                    || header.startsWith("x-amz") || header.startsWith("X-Amz");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.http.HttpClient;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-process {@link HttpClient} answering every request with the same
+ * canned response. It reads the request body to the end, as sending it
+ * would, so that the cost of producing the body is part of the benchmarks.
+ */
+public final class StubHttpClient implements HttpClient {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int statusCode;
+    private final Map<String, String> headers = new LinkedHashMap<String, String>();
+    private final byte[] body;
+    private final byte[] drain = new byte[BUFFER_SIZE];
+
+    /**
+     * @param statusCode the status code of the responses.
+     * @param body the body of the responses.
+     */
+    public StubHttpClient(int statusCode, String body) {
+        this(statusCode, body.getBytes(StringUtils.UTF8));
+    }
+
+    /**
+     * @param statusCode the status code of the responses.
+     * @param body the body of the responses.
+     */
+    public StubHttpClient(int statusCode, byte[] body) {
+        this.statusCode = statusCode;
+        this.body = body;
+    }
+
+    /**
+     * Adds a header to the responses.
+     *
+     * @param name the header name.
+     * @param value the header value.
+     * @return this client.
+     */
+    public StubHttpClient withHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        final InputStream content = request.getContent();
+        if (content != null) {
+            while (content.read(drain) != -1) {
+                // discard, as the network would
+            }
+        }
+        final HttpResponse.Builder builder = HttpResponse.builder()
+                .statusCode(statusCode)
+                .statusText("OK")
+                .content(new ByteArrayInputStream(body));
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
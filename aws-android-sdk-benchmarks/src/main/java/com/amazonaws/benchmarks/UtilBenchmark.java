@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.DateUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The date and base64 conversions every marshaller and unmarshaller goes
+ * through.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    private static final int BASE64_SIZE = 1024;
+
+    private final Date date = new Date(1423875641895L);
+    private String iso8601;
+    private String rfc822;
+    private byte[] bytes;
+    private String base64;
+
+    @Setup
+    public void setup() {
+        iso8601 = DateUtils.formatISO8601Date(date);
+        rfc822 = DateUtils.formatRFC822Date(date);
+        bytes = Fixtures.randomBytes(BASE64_SIZE);
+        base64 = Base64.encodeAsString(bytes);
+    }
+
+    @Benchmark
+    public String formatISO8601Date() {
+        return DateUtils.formatISO8601Date(date);
+    }
+
+    @Benchmark
+    public Date parseISO8601Date() {
+        return DateUtils.parseISO8601Date(iso8601);
+    }
+
+    @Benchmark
+    public String formatRFC822Date() {
+        return DateUtils.formatRFC822Date(date);
+    }
+
+    @Benchmark
+    public Date parseRFC822Date() {
+        return DateUtils.parseRFC822Date(rfc822);
+    }
+
+    @Benchmark
+    public byte[] base64Encode() {
+        return Base64.encode(bytes);
+    }
+
+    @Benchmark
+    public byte[] base64Decode() {
+        return Base64.decode(base64);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+/**
+ * JMH benchmarks of the request pipeline: signing, marshalling, execution and
+ * unmarshalling of representative DynamoDB, EC2, Kinesis, S3 and SQS
+ * operations against an in-process {@link com.amazonaws.benchmarks.StubHttpClient},
+ * plus the protocol building blocks on their own.
+ * <p>
+ * The module is not part of the default build. Build and run it on a JVM
+ * with:
+ *
+ * <pre>
+ * mvn -P benchmarks install -DskipTests
+ * java -jar aws-android-sdk-benchmarks/target/benchmarks.jar [JMH options] [regexp]
+ * </pre>
+ *
+ * Every run reports the throughput and, through the GC profiler, the
+ * allocation rate ({@code gc.alloc.rate.norm}, in bytes per operation).
+ */
+package com.amazonaws.benchmarks;
@@ -27,8 +27,10 @@ import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.http.AsyncExecutionEngine;
 
 import com.amazonaws.services.cloudwatch.model.*;
+import com.amazonaws.services.cloudwatch.model.transform.*;
 
 /**
  * Interface for accessing Amazon CloudWatch asynchronously.
@@ -61,6 +63,12 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient implemen
      */
     private ExecutorService executorService;
 
+    /**
+     * Engine executing the metric operations, or null if they run on the
+     * executor service.
+     */
+    private AsyncExecutionEngine executionEngine;
+
     private static final int DEFAULT_THREAD_POOL_SIZE = 10;
 
     /**
@@ -250,6 +258,35 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient implemen
         this.executorService = executorService;
     }
 
+    /**
+     * Constructs a new asynchronous client to invoke service methods on Amazon
+     * CloudWatch using the specified AWS account credentials provider, client
+     * configuration options and execution engine.
+     * <p>
+     * The metric operations (<code>PutMetricData</code>,
+     * <code>GetMetricStatistics</code> and <code>ListMetrics</code>) run on
+     * the execution engine, which holds no thread while a request waits to be
+     * retried. The alarm operations run on a fixed size thread pool. The
+     * engine can be shared by several clients and is not shut down with this
+     * client.
+     *
+     * @param awsCredentialsProvider The AWS credentials provider which will
+     *            provide credentials to authenticate requests with AWS
+     *            services.
+     * @param clientConfiguration Client configuration options (ex: max retry
+     *            limit, proxy settings, etc).
+     * @param executionEngine The engine executing the metric operations.
+     */
+    public AmazonCloudWatchAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
+            ClientConfiguration clientConfiguration, AsyncExecutionEngine executionEngine) {
+        this(awsCredentialsProvider, clientConfiguration, Executors
+                .newFixedThreadPool(clientConfiguration.getMaxConnections()));
+        if (executionEngine == null) {
+            throw new IllegalArgumentException("executionEngine cannot be null");
+        }
+        this.executionEngine = executionEngine;
+    }
+
     /**
      * Returns the executor service used by this async client to execute
      * requests.
@@ -261,6 +298,16 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient implemen
         return executorService;
     }
 
+    /**
+     * Returns the engine executing the metric operations of this client.
+     *
+     * @return The execution engine, or null if all the operations run on the
+     *         executor service.
+     */
+    public AsyncExecutionEngine getExecutionEngine() {
+        return executionEngine;
+    }
+
     /**
      * Shuts down the client, releasing all managed resources. This includes
      * forcibly terminating all pending asynchronous service calls. Clients who
@@ -738,6 +785,11 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient implemen
     public Future<GetMetricStatisticsResult> getMetricStatisticsAsync(
             final GetMetricStatisticsRequest getMetricStatisticsRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(getMetricStatisticsRequest,
+                    new GetMetricStatisticsRequestMarshaller(),
+                    new GetMetricStatisticsResultStaxUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<GetMetricStatisticsResult>() {
             public GetMetricStatisticsResult call() throws Exception {
                 return getMetricStatistics(getMetricStatisticsRequest);
@@ -807,6 +859,11 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient implemen
             final GetMetricStatisticsRequest getMetricStatisticsRequest,
             final AsyncHandler<GetMetricStatisticsRequest, GetMetricStatisticsResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(getMetricStatisticsRequest,
+                    new GetMetricStatisticsRequestMarshaller(),
+                    new GetMetricStatisticsResultStaxUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<GetMetricStatisticsResult>() {
             public GetMetricStatisticsResult call() throws Exception {
                 GetMetricStatisticsResult result = null;
@@ -851,6 +908,10 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient implemen
      */
     public Future<ListMetricsResult> listMetricsAsync(final ListMetricsRequest listMetricsRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(listMetricsRequest, new ListMetricsRequestMarshaller(),
+                    new ListMetricsResultStaxUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<ListMetricsResult>() {
             public ListMetricsResult call() throws Exception {
                 return listMetrics(listMetricsRequest);
@@ -888,6 +949,10 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient implemen
     public Future<ListMetricsResult> listMetricsAsync(final ListMetricsRequest listMetricsRequest,
             final AsyncHandler<ListMetricsRequest, ListMetricsResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(listMetricsRequest, new ListMetricsRequestMarshaller(),
+                    new ListMetricsResultStaxUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<ListMetricsResult>() {
             public ListMetricsResult call() throws Exception {
                 ListMetricsResult result = null;
@@ -1094,6 +1159,10 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient implemen
      */
     public Future<Void> putMetricDataAsync(final PutMetricDataRequest putMetricDataRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(putMetricDataRequest, new PutMetricDataRequestMarshaller(),
+                    null, executionEngine, null);
+        }
         return executorService.submit(new Callable<Void>() {
             public Void call() throws Exception {
                 putMetricData(putMetricDataRequest);
@@ -1144,6 +1213,10 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient implemen
     public Future<Void> putMetricDataAsync(final PutMetricDataRequest putMetricDataRequest,
             final AsyncHandler<PutMetricDataRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(putMetricDataRequest, new PutMetricDataRequestMarshaller(),
+                    null, executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
@@ -16,8 +16,10 @@
 package com.amazonaws;
 
 import com.amazonaws.http.IdleConnectionReaper;
+import com.amazonaws.retry.AdaptiveRateLimiter;
 import com.amazonaws.retry.PredefinedRetryPolicies;
 import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryQuota;
 import com.amazonaws.util.VersionInfoUtils;
 
 import java.net.InetAddress;
@@ -65,6 +67,14 @@ public class ClientConfiguration {
      */
     public static final boolean DEFAULT_USE_REAPER = true;
 
+    /**
+     * The default capacity of the retry quota: 0, retries aren't bounded by a
+     * quota unless one is configured.
+     *
+     * @see #setRetryQuotaCapacity(int)
+     */
+    public static final int DEFAULT_RETRY_QUOTA_CAPACITY = 0;
+
     /** The HTTP user agent header passed with all HTTP requests. */
     private String userAgent = DEFAULT_USER_AGENT;
 
@@ -160,6 +170,18 @@ public class ClientConfiguration {
      */
     private boolean useReaper = DEFAULT_USE_REAPER;
 
+    /**
+     * The capacity of the retry quota shared by the requests of a client, or 0
+     * to retry without a quota.
+     */
+    private int retryQuotaCapacity = DEFAULT_RETRY_QUOTA_CAPACITY;
+
+    /**
+     * Whether to limit the send rate of a client once the service starts
+     * throttling it.
+     */
+    private boolean adaptiveRateLimiting = false;
+
     /**
      * Optional override to control which signature algorithm should be used to
      * sign requests to the service. If not explicitly set, the client will
@@ -211,6 +233,8 @@ public class ClientConfiguration {
         this.socketTimeout = other.socketTimeout;
         this.userAgent = other.userAgent;
         this.useReaper = other.useReaper;
+        this.retryQuotaCapacity = other.retryQuotaCapacity;
+        this.adaptiveRateLimiting = other.adaptiveRateLimiting;
         this.socketReceiveBufferSizeHint = other.socketReceiveBufferSizeHint;
         this.socketSendBufferSizeHint = other.socketSendBufferSizeHint;
         this.signerOverride = other.signerOverride;
@@ -786,6 +810,90 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the capacity of the retry quota shared by all the requests of a
+     * client. Every retry takes {@link RetryQuota#RETRY_COST} tokens from the
+     * quota and successful requests put tokens back; when the quota runs dry
+     * failed requests are not retried until enough requests succeed again.
+     * This keeps a client from multiplying its load on a service that is
+     * failing most requests. {@link RetryQuota#DEFAULT_CAPACITY} suits most
+     * clients. The default is 0: retries are only bounded by the retry
+     * policy.
+     *
+     * @return the capacity of the retry quota, or 0 if retries aren't bounded
+     *         by a quota.
+     * @see RetryQuota
+     */
+    public int getRetryQuotaCapacity() {
+        return retryQuotaCapacity;
+    }
+
+    /**
+     * Sets the capacity of the retry quota shared by all the requests of a
+     * client.
+     *
+     * @param retryQuotaCapacity the capacity of the retry quota, or 0 to
+     *            retry without a quota.
+     * @see RetryQuota
+     */
+    public void setRetryQuotaCapacity(int retryQuotaCapacity) {
+        this.retryQuotaCapacity = retryQuotaCapacity;
+    }
+
+    /**
+     * Sets the capacity of the retry quota shared by all the requests of a
+     * client, and returns the updated ClientConfiguration object so that
+     * additional method calls may be chained together.
+     *
+     * @param retryQuotaCapacity the capacity of the retry quota, or 0 to
+     *            retry without a quota.
+     * @return The updated ClientConfiguration object.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withRetryQuotaCapacity(int retryQuotaCapacity) {
+        setRetryQuotaCapacity(retryQuotaCapacity);
+        return this;
+    }
+
+    /**
+     * Checks if the client limits its send rate once the service throttles
+     * it. When enabled, the first throttling error starts an
+     * {@link AdaptiveRateLimiter} that spaces out the requests of all the
+     * threads using the client to the rate the service accepts. The default
+     * is false.
+     *
+     * @return whether adaptive rate limiting is enabled.
+     * @see AdaptiveRateLimiter
+     */
+    public boolean isAdaptiveRateLimiting() {
+        return adaptiveRateLimiting;
+    }
+
+    /**
+     * Sets whether the client limits its send rate once the service throttles
+     * it.
+     *
+     * @param adaptiveRateLimiting whether to enable adaptive rate limiting.
+     * @see AdaptiveRateLimiter
+     */
+    public void setAdaptiveRateLimiting(boolean adaptiveRateLimiting) {
+        this.adaptiveRateLimiting = adaptiveRateLimiting;
+    }
+
+    /**
+     * Sets whether the client limits its send rate once the service throttles
+     * it, and returns the updated ClientConfiguration object so that
+     * additional method calls may be chained together.
+     *
+     * @param adaptiveRateLimiting whether to enable adaptive rate limiting.
+     * @return The updated ClientConfiguration object.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withAdaptiveRateLimiting(boolean adaptiveRateLimiting) {
+        setAdaptiveRateLimiting(adaptiveRateLimiting);
+        return this;
+    }
+
     /**
      * Returns the optional size hints (in bytes) for the low level TCP send and
      * receive buffers. This is an advanced option for advanced users who want
@@ -29,10 +29,9 @@ import com.amazonaws.logging.LogFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.List;
+import java.util.Map;
 
 /**
  * Signer implementation that signs requests with the AWS4 signing protocol.
@@ -45,6 +44,8 @@ public class AWS4Signer extends AbstractAWSSigner
     private static final String DATE_PATTERN = "yyyyMMdd";
     private static final String TIME_PATTERN = "yyyyMMdd'T'HHmmss'Z'";
     private static final long MILLISEC = 1000L;
+    /** Room reserved for the request line, path, query and hashes. */
+    private static final int CANONICAL_REQUEST_BUFFER_PADDING = 256;
 
     /** Seconds in a week, which is the max expiration time Sig-v4 accepts */
     private static final long MAX_EXPIRATION_TIME_IN_SECONDS = 60 * 60 * 24 * 7;
@@ -91,6 +92,10 @@ public class AWS4Signer extends AbstractAWSSigner
 
     protected static final Log log = LogFactory.getLog(AWS4Signer.class);
 
+    /** The canonical headers of the request being signed on each thread. */
+    private final ThreadLocal<CanonicalHeaders> signingHeaders =
+            new ThreadLocal<CanonicalHeaders>();
+
     @Override
     public void sign(Request<?> request, AWSCredentials credentials) {
         // annonymous credentials, don't sign
@@ -122,18 +127,26 @@ public class AWS4Signer extends AbstractAWSSigner
 
         final String signingCredentials = sanitizedCredentials.getAWSAccessKeyId() + "/" + scope;
 
-        final HeaderSigningResult headerSigningResult = computeSignature(
-                request,
-                dateStamp,
-                timeStamp,
-                ALGORITHM,
-                contentSha256,
-                sanitizedCredentials);
+        final HeaderSigningResult headerSigningResult;
+        final String signedHeaders;
+        final CanonicalHeaders previous = beginSigning(request);
+        try {
+            headerSigningResult = computeSignature(
+                    request,
+                    dateStamp,
+                    timeStamp,
+                    ALGORITHM,
+                    contentSha256,
+                    sanitizedCredentials);
+            signedHeaders = getSignedHeadersString(request);
+        } finally {
+            endSigning(previous);
+        }
 
         final String credentialsAuthorizationHeader =
                 "Credential=" + signingCredentials;
         final String signedHeadersAuthorizationHeader =
-                "SignedHeaders=" + getSignedHeadersString(request);
+                "SignedHeaders=" + signedHeaders;
         final String signatureAuthorizationHeader =
                 "Signature=" + BinaryUtils.toHex(headerSigningResult.getSignature());
 
@@ -208,44 +221,43 @@ public class AWS4Signer extends AbstractAWSSigner
     }
 
     protected String getCanonicalizedHeaderString(Request<?> request) {
-        final List<String> sortedHeaders = new ArrayList<String>();
-        sortedHeaders.addAll(request.getHeaders().keySet());
-        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
-
-        final StringBuilder buffer = new StringBuilder();
-        for (final String header : sortedHeaders) {
-            if (needsSign(header)) {
-                final String key = StringUtils.lowerCase(header).replaceAll("\\s+", " ");
-                final String value = request.getHeaders().get(header);
+        return canonicalHeaders(request).getCanonicalizedHeaders();
+    }
 
-                buffer.append(key).append(":");
-                if (value != null) {
-                    buffer.append(value.replaceAll("\\s+", " "));
-                }
+    protected String getSignedHeadersString(Request<?> request) {
+        return canonicalHeaders(request).getSignedHeaders();
+    }
 
-                buffer.append("\n");
-            }
-        }
+    /**
+     * Returns the canonical headers of the request being signed on this
+     * thread, which are built once per signing, or new canonical headers for
+     * any other request.
+     */
+    private CanonicalHeaders canonicalHeaders(Request<?> request) {
+        final CanonicalHeaders current = signingHeaders.get();
+        return current != null && current.request == request ? current
+                : new CanonicalHeaders(request);
+    }
 
-        return buffer.toString();
+    /**
+     * Starts signing a request whose headers no longer change, so that its
+     * canonical headers are only built once.
+     *
+     * @return the canonical headers of the request signed before, to be
+     *         passed to {@link #endSigning(CanonicalHeaders)}.
+     */
+    private CanonicalHeaders beginSigning(Request<?> request) {
+        final CanonicalHeaders previous = signingHeaders.get();
+        signingHeaders.set(new CanonicalHeaders(request));
+        return previous;
     }
 
-    protected String getSignedHeadersString(Request<?> request) {
-        final List<String> sortedHeaders = new ArrayList<String>();
-        sortedHeaders.addAll(request.getHeaders().keySet());
-        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
-
-        final StringBuilder buffer = new StringBuilder();
-        for (final String header : sortedHeaders) {
-            if (needsSign(header)) {
-                if (buffer.length() > 0) {
-                    buffer.append(";");
-                }
-                buffer.append(StringUtils.lowerCase(header));
-            }
+    private void endSigning(CanonicalHeaders previous) {
+        if (previous == null) {
+            signingHeaders.remove();
+        } else {
+            signingHeaders.set(previous);
         }
-
-        return buffer.toString();
     }
 
     protected String getCanonicalRequest(Request<?> request, String contentSha256) {
@@ -253,18 +265,22 @@ public class AWS4Signer extends AbstractAWSSigner
         final String path = HttpUtils.appendUri(request.getEndpoint().getPath(),
                 request.getResourcePath());
 
-        final String canonicalRequest =
-                request.getHttpMethod().toString() + "\n" +
-                        /*
-                         * This would optionally double url-encode the resource
-                         * path
-                         */
-                        getCanonicalizedResourcePath(path, doubleUrlEncode) + "\n" +
-                        getCanonicalizedQueryString(request) + "\n" +
-                        getCanonicalizedHeaderString(request) + "\n" +
-                        getSignedHeadersString(request) + "\n" +
-                        contentSha256;
-        log.debug("AWS4 Canonical Request: '\"" + canonicalRequest + "\"");
+        final String canonicalizedHeaders = getCanonicalizedHeaderString(request);
+        final StringBuilder builder = new StringBuilder(
+                canonicalizedHeaders.length() + CANONICAL_REQUEST_BUFFER_PADDING);
+        builder.append(request.getHttpMethod().toString()).append('\n')
+                /*
+                 * This would optionally double url-encode the resource path
+                 */
+                .append(getCanonicalizedResourcePath(path, doubleUrlEncode)).append('\n')
+                .append(getCanonicalizedQueryString(request)).append('\n')
+                .append(canonicalizedHeaders).append('\n')
+                .append(getSignedHeadersString(request)).append('\n')
+                .append(contentSha256);
+        final String canonicalRequest = builder.toString();
+        if (log.isDebugEnabled()) {
+            log.debug("AWS4 Canonical Request: '\"" + canonicalRequest + "\"");
+        }
         return canonicalRequest;
     }
 
@@ -275,7 +291,9 @@ public class AWS4Signer extends AbstractAWSSigner
                         dateTime + "\n" +
                         scope + "\n" +
                         BinaryUtils.toHex(hash(canonicalRequest));
-        log.debug("AWS4 String to Sign: '\"" + stringToSign + "\"");
+        if (log.isDebugEnabled()) {
+            log.debug("AWS4 String to Sign: '\"" + stringToSign + "\"");
+        }
         return stringToSign;
     }
 
@@ -294,20 +312,40 @@ public class AWS4Signer extends AbstractAWSSigner
         final String stringToSign = getStringToSign(algorithm, timeStamp, scope,
                 getCanonicalRequest(request, contentSha256));
 
-        // AWS4 uses a series of derived keys, formed by hashing different
-        // pieces of data
-        final byte[] kSecret = ("AWS4" + sanitizedCredentials.getAWSSecretKey())
-                .getBytes(StringUtils.UTF8);
-        final byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
-        final byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
-        final byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
-        final byte[] kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+        final byte[] kSigning = getSigningKey(sanitizedCredentials, dateStamp,
+                regionName, serviceName);
 
         final byte[] signature = sign(stringToSign.getBytes(StringUtils.UTF8), kSigning,
                 SigningAlgorithm.HmacSHA256);
         return new HeaderSigningResult(timeStamp, scope, kSigning, signature);
     }
 
+    /**
+     * Returns the AWS4 signing key for the given credentials and scope. The
+     * key is looked up in the shared {@link AWS4SigningKeyCache} first and
+     * only derived when there is no key cached for this date.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    protected final byte[] getSigningKey(AWSCredentials sanitizedCredentials,
+            String dateStamp, String regionName, String serviceName) {
+        final String accessKeyId = sanitizedCredentials.getAWSAccessKeyId();
+        final String secretKey = sanitizedCredentials.getAWSSecretKey();
+        final AWS4SigningKeyCache cache = AWS4SigningKeyCache.getSharedCache();
+
+        byte[] kSigning = cache.get(accessKeyId, secretKey, dateStamp, regionName, serviceName);
+        if (kSigning == null) {
+            // AWS4 uses a series of derived keys, formed by hashing different
+            // pieces of data
+            final byte[] kSecret = ("AWS4" + secretKey).getBytes(StringUtils.UTF8);
+            final byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
+            final byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
+            final byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
+            kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+            cache.put(accessKeyId, secretKey, dateStamp, regionName, serviceName, kSigning);
+        }
+        return kSigning;
+    }
+
     protected final String getTimeStamp(long dateMilli) {
         return DateUtils.format(TIME_PATTERN, new Date(dateMilli));
     }
@@ -453,23 +491,29 @@ public class AWS4Signer extends AbstractAWSSigner
         final String signingCredentials = sanitizedCredentials.getAWSAccessKeyId()
                 + "/" + scope;
 
-        // Add the important parameters for v4 signing
-        final String timeStamp = getTimeStamp(dateMilli);
-        request.addParameter("X-Amz-Algorithm", ALGORITHM);
-        request.addParameter("X-Amz-Date", timeStamp);
-        request.addParameter("X-Amz-SignedHeaders",
-                getSignedHeadersString(request));
-        request.addParameter("X-Amz-Expires",
-                Long.toString(expirationInSeconds));
-        request.addParameter("X-Amz-Credential", signingCredentials);
-
-        final String contentSha256 = calculateContentHashPresign(request);
-
-        final HeaderSigningResult headerSigningResult = computeSignature(request,
-                dateStamp, timeStamp, ALGORITHM, contentSha256,
-                sanitizedCredentials);
-        request.addParameter("X-Amz-Signature",
-                BinaryUtils.toHex(headerSigningResult.getSignature()));
+        // the parameters added below leave the headers as they are
+        final CanonicalHeaders previous = beginSigning(request);
+        try {
+            // Add the important parameters for v4 signing
+            final String timeStamp = getTimeStamp(dateMilli);
+            request.addParameter("X-Amz-Algorithm", ALGORITHM);
+            request.addParameter("X-Amz-Date", timeStamp);
+            request.addParameter("X-Amz-SignedHeaders",
+                    getSignedHeadersString(request));
+            request.addParameter("X-Amz-Expires",
+                    Long.toString(expirationInSeconds));
+            request.addParameter("X-Amz-Credential", signingCredentials);
+
+            final String contentSha256 = calculateContentHashPresign(request);
+
+            final HeaderSigningResult headerSigningResult = computeSignature(request,
+                    dateStamp, timeStamp, ALGORITHM, contentSha256,
+                    sanitizedCredentials);
+            request.addParameter("X-Amz-Signature",
+                    BinaryUtils.toHex(headerSigningResult.getSignature()));
+        } finally {
+            endSigning(previous);
+        }
     }
 
     /**
@@ -483,6 +527,93 @@ public class AWS4Signer extends AbstractAWSSigner
         return calculateContentHash(request);
     }
 
+    /**
+     * The canonicalized header block and the signed headers list of a request.
+     * Both are built when first needed, in one pass over the header names,
+     * which are sorted only once, and runs of whitespace are collapsed without
+     * using a regex.
+     */
+    private final class CanonicalHeaders {
+        final Request<?> request;
+        private String canonicalizedHeaders;
+        private String signedHeaders;
+
+        CanonicalHeaders(Request<?> request) {
+            this.request = request;
+        }
+
+        String getCanonicalizedHeaders() {
+            build();
+            return canonicalizedHeaders;
+        }
+
+        String getSignedHeaders() {
+            build();
+            return signedHeaders;
+        }
+
+        private void build() {
+            if (canonicalizedHeaders != null) {
+                return;
+            }
+            final Map<String, String> headers = request.getHeaders();
+            final String[] sortedHeaders = headers.keySet().toArray(new String[headers.size()]);
+            Arrays.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+
+            final StringBuilder canonical = new StringBuilder();
+            final StringBuilder signed = new StringBuilder();
+            for (final String header : sortedHeaders) {
+                if (!needsSign(header)) {
+                    continue;
+                }
+                final String key = StringUtils.lowerCase(header);
+                final String value = headers.get(header);
+
+                appendCollapsingWhitespace(canonical, key);
+                canonical.append(':');
+                if (value != null) {
+                    appendCollapsingWhitespace(canonical, value);
+                }
+                canonical.append('\n');
+
+                if (signed.length() > 0) {
+                    signed.append(';');
+                }
+                signed.append(key);
+            }
+            canonicalizedHeaders = canonical.toString();
+            signedHeaders = signed.toString();
+        }
+    }
+
+    /**
+     * Appends the value replacing every run of whitespace characters with a
+     * single space, the equivalent of {@code value.replaceAll("\\s+", " ")}.
+     */
+    private static void appendCollapsingWhitespace(StringBuilder builder, String value) {
+        boolean previousWasWhitespace = false;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (isWhitespace(c)) {
+                if (!previousWasWhitespace) {
+                    builder.append(' ');
+                }
+                previousWasWhitespace = true;
+            } else {
+                builder.append(c);
+                previousWasWhitespace = false;
+            }
+        }
+    }
+
+    /**
+     * Whitespace as matched by the regex character class {@code \\s}.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
     /**
      * Determine if a header needs to be signed. The headers must be signed
      * according to sigv4 spec are host, date, Content-MD5and all x-amz headers.
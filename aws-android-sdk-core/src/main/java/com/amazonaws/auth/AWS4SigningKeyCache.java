@@ -0,0 +1,166 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.auth;
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * Bounded, thread-safe cache of AWS4 derived signing keys. The signing key
+ * (kSigning) only depends on the secret key, the date stamp, the region and
+ * the service, so it can be reused for every request signed on the same day
+ * instead of recomputing the four step HMAC chain each time.
+ * <p>
+ * Entries are keyed by access key, region and service and remember the date
+ * stamp and secret key they were derived from. A lookup for a different date
+ * (i.e. after the date rolled over) or for a rotated secret key is a miss, and
+ * the stale entry is replaced by the next {@link #put}. Once the maximum size
+ * is reached the least recently used entry is evicted.
+ */
+public final class AWS4SigningKeyCache {
+
+    /** Default maximum number of signing keys kept by a cache. */
+    public static final int DEFAULT_MAX_ENTRIES = 300;
+
+    private static final AWS4SigningKeyCache SHARED_CACHE =
+            new AWS4SigningKeyCache(DEFAULT_MAX_ENTRIES);
+
+    private final InternalCache internalCache;
+
+    /**
+     * Creates a new cache that will contain at most the specified number of
+     * signing keys.
+     *
+     * @param maxEntries The maximum size of this cache.
+     */
+    public AWS4SigningKeyCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        internalCache = new InternalCache(maxEntries);
+    }
+
+    /**
+     * @return the process wide signing key cache shared by all the AWS4
+     *         signers.
+     */
+    public static AWS4SigningKeyCache getSharedCache() {
+        return SHARED_CACHE;
+    }
+
+    /**
+     * Returns the cached signing key for the given scope, or null if there is
+     * none or the cached one was derived for another date or secret key.
+     *
+     * @param accessKeyId the access key id of the credentials.
+     * @param secretKey the secret key of the credentials.
+     * @param dateStamp the date stamp in yyyyMMdd format.
+     * @param regionName the region name of the scope.
+     * @param serviceName the service name of the scope.
+     * @return a copy of the cached signing key, or null.
+     */
+    public byte[] get(String accessKeyId, String secretKey, String dateStamp,
+            String regionName, String serviceName) {
+        final SigningKey signingKey;
+        synchronized (internalCache) {
+            signingKey = internalCache.get(cacheKey(accessKeyId, regionName, serviceName));
+        }
+        if (signingKey == null || !signingKey.matches(secretKey, dateStamp)) {
+            return null;
+        }
+        return signingKey.kSigning.clone();
+    }
+
+    /**
+     * Adds a signing key to this cache, replacing any key previously derived
+     * for the same access key, region and service.
+     *
+     * @param accessKeyId the access key id of the credentials.
+     * @param secretKey the secret key of the credentials.
+     * @param dateStamp the date stamp in yyyyMMdd format.
+     * @param regionName the region name of the scope.
+     * @param serviceName the service name of the scope.
+     * @param kSigning the derived signing key.
+     */
+    public void put(String accessKeyId, String secretKey, String dateStamp,
+            String regionName, String serviceName, byte[] kSigning) {
+        final SigningKey signingKey = new SigningKey(secretKey, dateStamp, kSigning.clone());
+        synchronized (internalCache) {
+            internalCache.put(cacheKey(accessKeyId, regionName, serviceName), signingKey);
+        }
+    }
+
+    /**
+     * Removes all the signing keys from this cache.
+     */
+    public void clear() {
+        synchronized (internalCache) {
+            internalCache.clear();
+        }
+    }
+
+    /**
+     * @return the number of signing keys currently cached.
+     */
+    public int size() {
+        synchronized (internalCache) {
+            return internalCache.size();
+        }
+    }
+
+    private static String cacheKey(String accessKeyId, String regionName, String serviceName) {
+        return accessKeyId + "/" + regionName + "/" + serviceName;
+    }
+
+    private static final class SigningKey {
+        private final String secretKey;
+        private final String dateStamp;
+        private final byte[] kSigning;
+
+        SigningKey(String secretKey, String dateStamp, byte[] kSigning) {
+            this.secretKey = secretKey;
+            this.dateStamp = dateStamp;
+            this.kSigning = kSigning;
+        }
+
+        @SuppressWarnings("checkstyle:hiddenfield")
+        boolean matches(String secretKey, String dateStamp) {
+            return this.dateStamp.equals(dateStamp)
+                    && (this.secretKey == null ? secretKey == null
+                            : this.secretKey.equals(secretKey));
+        }
+    }
+
+    /**
+     * Access ordered LinkedHashMap that evicts the least recently used entry
+     * once the max size has been reached.
+     */
+    private static final class InternalCache extends LinkedHashMap<String, SigningKey> {
+        private static final long serialVersionUID = 1L;
+        private static final float LOAD_FACTOR = 0.75f;
+        private final int maxSize;
+
+        InternalCache(int maxSize) {
+            super(maxSize, LOAD_FACTOR, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Entry<String, SigningKey> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -55,6 +55,8 @@ public abstract class AbstractAWSSigner implements Signer {
     /** Empty sha256 hex. */
     public static final String EMPTY_STRING_SHA256_HEX;
     private static final ThreadLocal<MessageDigest> SHA256_MESSAGE_DIGEST;
+    private static final ThreadLocal<byte[]> UTF8_HASH_BUFFER;
+    private static final int UTF8_MAX_BYTES_PER_CHAR = 4;
     private static final int DEFAULT_BUFFER_SIZE = 1024;
     private static final int BUFFER_SIZE_MULTIPLIER = 5;
     private static final int TIME_MILLISEC = 1000;
@@ -73,6 +75,12 @@ public abstract class AbstractAWSSigner implements Signer {
                 }
             }
         };
+        UTF8_HASH_BUFFER = new ThreadLocal<byte[]>() {
+            @Override
+            protected byte[] initialValue() {
+                return new byte[DEFAULT_BUFFER_SIZE];
+            }
+        };
         EMPTY_STRING_SHA256_HEX = BinaryUtils.toHex(doHash(""));
     }
 
@@ -142,7 +150,7 @@ public abstract class AbstractAWSSigner implements Signer {
     private static byte[] doHash(String text) {
         try {
             final MessageDigest md = getMessageDigestInstance();
-            md.update(text.getBytes(UTF8));
+            updateUtf8(md, text);
             return md.digest();
         } catch (final Exception e) {
             throw new AmazonClientException(
@@ -152,6 +160,46 @@ public abstract class AbstractAWSSigner implements Signer {
         }
     }
 
+    /**
+     * Feeds the UTF-8 encoding of the text into the digest through a reusable
+     * per-thread buffer, so hashing a canonical request doesn't need a byte
+     * array copy of the whole string. Unpaired surrogates are encoded as '?',
+     * the same as {@link String#getBytes(java.nio.charset.Charset)}.
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    private static void updateUtf8(MessageDigest md, String text) {
+        final byte[] buffer = UTF8_HASH_BUFFER.get();
+        final int length = text.length();
+        int pos = 0;
+        for (int i = 0; i < length; i++) {
+            if (pos > buffer.length - UTF8_MAX_BYTES_PER_CHAR) {
+                md.update(buffer, 0, pos);
+                pos = 0;
+            }
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[pos++] = (byte) (0xc0 | (c >> 6));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                buffer[pos++] = (byte) (0xe0 | (c >> 12));
+                buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                buffer[pos++] = (byte) '?';
+            }
+        }
+        md.update(buffer, 0, pos);
+    }
+
     @SuppressWarnings("checkstyle:emptystatement")
     protected byte[] hash(InputStream input) {
         try {
@@ -28,23 +28,28 @@ import com.amazonaws.Response;
 import com.amazonaws.ResponseMetadata;
 import com.amazonaws.SDKGlobalConfiguration;
 import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.Signer;
 import com.amazonaws.handlers.CredentialsRequestHandler;
 import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.metrics.AwsSdkMetrics;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.AdaptiveRateLimiter;
 import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryQuota;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetrics.Field;
 import com.amazonaws.util.DateUtils;
+import com.amazonaws.util.PooledByteArrayInputStream;
 import com.amazonaws.util.TimingInfo;
 
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Date;
@@ -53,6 +58,11 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The Amazon HTTP Client class.
@@ -101,6 +111,12 @@ public class AmazonHttpClient {
 
     private final HttpRequestFactory requestFactory = new HttpRequestFactory();
 
+    /** The retry quota shared by the requests of this client, or null. */
+    private final RetryQuota retryQuota;
+
+    /** The send rate limiter of this client, or null. */
+    private final AdaptiveRateLimiter rateLimiter;
+
     /**
      * Constructs a new AWS client using the specified client configuration
      * options (ex: max retry attempts, proxy settings, etc).
@@ -139,9 +155,7 @@ public class AmazonHttpClient {
      * @param httpClient client specific HttpClient
      */
     public AmazonHttpClient(ClientConfiguration config, HttpClient httpClient) {
-        this.config = config;
-        this.httpClient = httpClient;
-        this.requestMetricCollector = null;
+        this(config, httpClient, null);
     }
 
     /**
@@ -162,6 +176,9 @@ public class AmazonHttpClient {
         this.config = config;
         this.httpClient = httpClient;
         this.requestMetricCollector = requestMetricCollector;
+        this.retryQuota = config.getRetryQuotaCapacity() > 0
+                ? new RetryQuota(config.getRetryQuotaCapacity()) : null;
+        this.rateLimiter = config.isAdaptiveRateLimiting() ? new AdaptiveRateLimiter() : null;
     }
 
     /**
@@ -217,6 +234,19 @@ public class AmazonHttpClient {
         } catch (final AmazonClientException e) {
             afterError(request, response, requestHandler2s, e);
             throw e;
+        } finally {
+            releaseContent(request);
+        }
+    }
+
+    /**
+     * Hands a pooled request body back to its pool once the request can no
+     * longer be sent.
+     */
+    private static void releaseContent(Request<?> request) {
+        final InputStream content = request.getContent();
+        if (content instanceof PooledByteArrayInputStream) {
+            ((PooledByteArrayInputStream) content).release();
         }
     }
 
@@ -265,53 +295,160 @@ public class AmazonHttpClient {
      * @see AmazonHttpClient#execute(Request, HttpResponseHandler,
      *      HttpResponseHandler, ExecutionContext)
      */
-    @SuppressWarnings("checkstyle:methodlength")
     <T> Response<T> executeHelper(Request<?> request,
             HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
             HttpResponseHandler<AmazonServiceException> errorResponseHandler,
             ExecutionContext executionContext) {
-        /*
-         * Depending on which response handler we end up choosing to handle the
-         * HTTP response, it might require us to leave the underlying HTTP
-         * connection open, depending on whether or not it reads the complete
-         * HTTP response stream from the HTTP connection, or if delays reading
-         * any of the content until after a response is returned to the caller.
-         */
-        boolean leaveHttpConnectionOpen = false;
         final AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
-        /*
-         * add the service endpoint to the logs. You can infer service name from
-         * service endpoint
-         */
-        awsRequestMetrics.addProperty(Field.ServiceName, request.getServiceName());
-        awsRequestMetrics.addProperty(Field.ServiceEndpoint, request.getEndpoint());
-
-        // Apply whatever request options we know how to handle, such as
-        // user-agent.
-        setUserAgent(request);
-        request.addHeader(HEADER_SDK_TRANSACTION_ID, UUID.randomUUID().toString());
-        int requestCount = 0;
-        long lastBackoffDelay = 0;
-        URI redirectedURI = null;
-        AmazonClientException retriedException = null;
-
-        // Make a copy of the original request params and headers so that we can
-        // permute it in this loop and start over with the original every time.
-        final Map<String, String> originalParameters = new LinkedHashMap<String, String>(
-                request.getParameters());
-        final Map<String, String> originalHeaders = new HashMap<String, String>(request.getHeaders());
-        // mark input stream if supported
-        final InputStream originalContent = request.getContent();
-        if (originalContent != null && originalContent.markSupported()) {
-            originalContent.mark(-1);
-        }
-
-        final AWSCredentials credentials = executionContext.getCredentials();
-        Signer signer = null;
-        HttpResponse httpResponse = null;
-        HttpRequest httpRequest = null;
-
+        final RequestExecution<T> execution = new RequestExecution<T>(request, responseHandler,
+                errorResponseHandler, executionContext);
         while (true) {
+            long backoffDelay = 0;
+            if (execution.nextAttempt()) { // retry
+                awsRequestMetrics.startEvent(Field.RetryPauseTime);
+                try {
+                    backoffDelay = execution.computeBackoffDelay();
+                    pause(backoffDelay);
+                } catch (final RuntimeException e) {
+                    throw handleUnexpectedFailure(e, awsRequestMetrics);
+                } catch (final Error e) {
+                    throw handleUnexpectedFailure(e, awsRequestMetrics);
+                } finally {
+                    awsRequestMetrics.endEvent(Field.RetryPauseTime);
+                }
+            }
+            final long rateLimitDelay = execution.acquireSendToken();
+            if (rateLimitDelay > 0) {
+                awsRequestMetrics.startEvent(Field.RateLimitPauseTime);
+                try {
+                    pause(rateLimitDelay);
+                } catch (final RuntimeException e) {
+                    throw handleUnexpectedFailure(e, awsRequestMetrics);
+                } catch (final Error e) {
+                    throw handleUnexpectedFailure(e, awsRequestMetrics);
+                } finally {
+                    awsRequestMetrics.endEvent(Field.RateLimitPauseTime);
+                }
+            }
+            final HttpRequest httpRequest = execution.prepareRequest(backoffDelay);
+            if (httpRequest == null) {
+                continue;
+            }
+            final Response<T> response = execution.send(httpRequest);
+            if (response != null) {
+                return response;
+            }
+        }
+    }
+
+    /**
+     * Executes the request without blocking the calling thread. The request
+     * is a chain of continuations driven by the given engine: retry decisions
+     * and completion run on its event loop, the back off between retries is a
+     * scheduled task, and only resolving the credentials, signing, sending
+     * the request and reading the response run on its I/O threads.
+     * Retries, request handlers and metrics behave as in
+     * {@link #execute(Request, HttpResponseHandler, HttpResponseHandler, ExecutionContext)}.
+     *
+     * @param request The AmazonWebServices request to send to the remote server
+     * @param responseHandler A response handler to accept a successful response
+     *            from the remote server
+     * @param errorResponseHandler A response handler to accept an unsuccessful
+     *            response from the remote server
+     * @param executionContext Additional information about the context of this
+     *            web service call
+     * @param credentialsProvider the provider of the credentials to sign the
+     *            request with, called on an I/O thread; or null to use the
+     *            credentials of the execution context. Credentials set on the
+     *            original request take precedence.
+     * @param engine the engine executing the request.
+     * @param callback notified of the outcome before the returned future
+     *            completes; or null.
+     * @param <T> the response type.
+     * @return the future result of the request.
+     */
+    public <T> Future<T> executeAsync(Request<?> request,
+            HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+            HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+            ExecutionContext executionContext,
+            AWSCredentialsProvider credentialsProvider,
+            AsyncExecutionEngine engine,
+            ResponseCallback<T> callback) {
+        if (executionContext == null) {
+            throw new AmazonClientException(
+                    "Internal SDK Error: No execution context parameter specified.");
+        }
+        final AsyncRequest<T> asyncRequest = new AsyncRequest<T>(request, responseHandler,
+                errorResponseHandler, executionContext, credentialsProvider, engine, callback);
+        asyncRequest.start();
+        return asyncRequest.future;
+    }
+
+    /**
+     * The state of a request across its attempts. An attempt is
+     * {@link #nextAttempt()}, then {@link #acquireSendToken()},
+     * {@link #prepareRequest(long)} and {@link #send(HttpRequest)}; the steps
+     * may run on different threads as long as they run one after the other.
+     */
+    private final class RequestExecution<T> {
+        private final Request<?> request;
+        private final HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler;
+        private final HttpResponseHandler<AmazonServiceException> errorResponseHandler;
+        private final ExecutionContext executionContext;
+        private final AWSRequestMetrics awsRequestMetrics;
+        private final AWSCredentials credentials;
+        private final Map<String, String> originalParameters;
+        private final Map<String, String> originalHeaders;
+        private final InputStream originalContent;
+
+        private int requestCount;
+        private URI redirectedURI;
+        private AmazonClientException retriedException;
+        private int retryCost;
+        private Signer signer;
+        private HttpRequest httpRequest;
+
+        RequestExecution(Request<?> request,
+                HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+                HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+                ExecutionContext executionContext) {
+            this.request = request;
+            this.responseHandler = responseHandler;
+            this.errorResponseHandler = errorResponseHandler;
+            this.executionContext = executionContext;
+            this.awsRequestMetrics = executionContext.getAwsRequestMetrics();
+            /*
+             * add the service endpoint to the logs. You can infer service name
+             * from service endpoint
+             */
+            awsRequestMetrics.addProperty(Field.ServiceName, request.getServiceName());
+            awsRequestMetrics.addProperty(Field.ServiceEndpoint, request.getEndpoint());
+
+            // Apply whatever request options we know how to handle, such as
+            // user-agent.
+            setUserAgent(request);
+            request.addHeader(HEADER_SDK_TRANSACTION_ID, UUID.randomUUID().toString());
+
+            // Make a copy of the original request params and headers so that
+            // we can permute it for each attempt and start over with the
+            // original every time.
+            originalParameters = new LinkedHashMap<String, String>(request.getParameters());
+            originalHeaders = new HashMap<String, String>(request.getHeaders());
+            // mark input stream if supported
+            originalContent = request.getContent();
+            if (originalContent != null && originalContent.markSupported()) {
+                originalContent.mark(-1);
+            }
+            credentials = executionContext.getCredentials();
+        }
+
+        /**
+         * Starts the next attempt, restoring the request as it was before the
+         * previous one.
+         *
+         * @return true if the attempt is a retry.
+         */
+        boolean nextAttempt() {
             ++requestCount;
             awsRequestMetrics.setCounter(Field.RequestCount, requestCount);
             if (requestCount > 1) { // retry
@@ -325,25 +462,57 @@ public class AmazonHttpClient {
                         redirectedURI.getScheme() + "://" + redirectedURI.getAuthority()));
                 request.setResourcePath(redirectedURI.getPath());
             }
+            return requestCount > 1;
+        }
+
+        /**
+         * @return the delay in milliseconds before the current attempt, which
+         *         must be a retry.
+         */
+        long computeBackoffDelay() {
+            final RetryPolicy retryPolicy = config.getRetryPolicy();
+            final int retries = requestCount // including next attempt
+                    - 1 // number of attempted requests
+                    - 1; // number of attempted retries
+
+            final long delay = retryPolicy.getBackoffStrategy().delayBeforeNextRetry(
+                    request.getOriginalRequest(), retriedException, retries);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Retriable error detected, " +
+                        "will retry in " + delay + "ms, attempt number: " + retries);
+            }
+            return delay;
+        }
+
+        /**
+         * Takes a token from the send rate limiter of the client for the
+         * current attempt.
+         *
+         * @return the delay in milliseconds to wait before sending the
+         *         attempt; 0 to send it now.
+         */
+        long acquireSendToken() {
+            return rateLimiter == null ? 0 : rateLimiter.acquire();
+        }
 
+        /**
+         * Signs the request and converts it to an HTTP request.
+         *
+         * @param backoffDelay the delay waited before this attempt.
+         * @return the HTTP request, or null if the attempt failed and should be
+         *         retried.
+         */
+        HttpRequest prepareRequest(long backoffDelay) {
             try {
                 if (requestCount > 1) { // retry
-                    awsRequestMetrics.startEvent(Field.RetryPauseTime);
-                    try {
-                        lastBackoffDelay = pauseBeforeNextRetry(request.getOriginalRequest(),
-                                retriedException,
-                                requestCount,
-                                config.getRetryPolicy());
-                    } finally {
-                        awsRequestMetrics.endEvent(Field.RetryPauseTime);
-                    }
                     final InputStream content = request.getContent();
                     if (content != null && content.markSupported()) {
                         content.reset();
                     }
                 }
                 request.addHeader(HEADER_SDK_RETRY_INFO,
-                        (requestCount - 1) + "/" + lastBackoffDelay);
+                        (requestCount - 1) + "/" + backoffDelay);
 
                 // Sign the request if a signer was provided
                 if (signer == null) {
@@ -364,11 +533,46 @@ public class AmazonHttpClient {
 
                 httpRequest = requestFactory.createHttpRequest(request, config,
                         executionContext);
-
                 retriedException = null;
+                return httpRequest;
+            } catch (final IOException ioe) {
+                handleIOException(ioe);
+                return null;
+            } catch (final RuntimeException e) {
+                throw handleUnexpectedFailure(e, awsRequestMetrics);
+            } catch (final Error e) {
+                throw handleUnexpectedFailure(e, awsRequestMetrics);
+            }
+        }
+
+        /**
+         * Sends the HTTP request and handles the response.
+         *
+         * @param httpRequest the HTTP request of this attempt.
+         * @return the response, or null if the attempt failed and should be
+         *         retried.
+         */
+        @SuppressWarnings("checkstyle:hiddenfield")
+        Response<T> send(HttpRequest httpRequest) {
+            /*
+             * Depending on which response handler we end up choosing to handle
+             * the HTTP response, it might require us to leave the underlying
+             * HTTP connection open, depending on whether or not it reads the
+             * complete HTTP response stream from the HTTP connection, or if
+             * delays reading any of the content until after a response is
+             * returned to the caller.
+             */
+            boolean leaveHttpConnectionOpen = false;
+            HttpResponse httpResponse = null;
+            try {
                 awsRequestMetrics.startEvent(Field.HttpRequestTime);
                 try {
-                    httpResponse = httpClient.execute(httpRequest);
+                    if (httpClient instanceof PooledHttpClient) {
+                        httpResponse = ((PooledHttpClient) httpClient).execute(httpRequest,
+                                awsRequestMetrics);
+                    } else {
+                        httpResponse = httpClient.execute(httpRequest);
+                    }
                 } finally {
                     awsRequestMetrics.endEvent(Field.HttpRequestTime);
                 }
@@ -383,6 +587,13 @@ public class AmazonHttpClient {
                     final T response = handleResponse(request, responseHandler,
                             httpResponse,
                             executionContext);
+                    if (retryQuota != null) {
+                        retryQuota.release(retryCost > 0 ? retryCost
+                                : RetryQuota.NO_RETRY_INCREMENT);
+                    }
+                    if (rateLimiter != null) {
+                        rateLimiter.updateRate(false);
+                    }
                     return new Response<T>(response, httpResponse);
                 } else if (isTemporaryRedirect(httpResponse)) {
                     /*
@@ -402,17 +613,21 @@ public class AmazonHttpClient {
                     awsRequestMetrics.addProperty(Field.AWSRequestID, null);
                 } else {
                     leaveHttpConnectionOpen = errorResponseHandler.needsConnectionLeftOpen();
-                    final AmazonServiceException ase = handleErrorResponse(request, errorResponseHandler,
-                            httpResponse);
+                    final AmazonServiceException ase = handleErrorResponse(request,
+                            errorResponseHandler, httpResponse);
                     awsRequestMetrics.addProperty(Field.AWSRequestID, ase.getRequestId());
                     awsRequestMetrics.addProperty(Field.AWSErrorCode, ase.getErrorCode());
                     awsRequestMetrics.addProperty(Field.StatusCode, ase.getStatusCode());
+                    if (rateLimiter != null) {
+                        rateLimiter.updateRate(RetryUtils.isThrottlingException(ase));
+                    }
 
                     if (!shouldRetry(request.getOriginalRequest(),
                             httpRequest.getContent(),
                             ase,
                             requestCount,
-                            config.getRetryPolicy())) {
+                            config.getRetryPolicy())
+                            || !acquireRetryQuota(RetryQuota.RETRY_COST)) {
                         throw ase;
                     }
 
@@ -429,32 +644,16 @@ public class AmazonHttpClient {
                     }
                     resetRequestAfterError(request, ase);
                 }
+                return null;
             } catch (final IOException ioe) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Unable to execute HTTP request: " + ioe.getMessage(), ioe);
-                }
-                awsRequestMetrics.incrementCounter(Field.Exception);
-                awsRequestMetrics.addProperty(Field.Exception, ioe);
-                awsRequestMetrics.addProperty(Field.AWSRequestID, null);
-
-                final AmazonClientException ace = new AmazonClientException(
-                        "Unable to execute HTTP request: " + ioe.getMessage(), ioe);
-                if (!shouldRetry(request.getOriginalRequest(),
-                        httpRequest.getContent(),
-                        ace,
-                        requestCount,
-                        config.getRetryPolicy())) {
-                    throw ace;
-                }
-
-                // Cache the retryable exception
-                retriedException = ace;
-                resetRequestAfterError(request, ioe);
+                handleIOException(ioe);
+                return null;
             } catch (final RuntimeException e) {
                 throw handleUnexpectedFailure(e, awsRequestMetrics);
             } catch (final Error e) {
                 throw handleUnexpectedFailure(e, awsRequestMetrics);
             } finally {
+                recordRetryCapacity();
                 /*
                  * Some response handlers need to manually manage the HTTP
                  * connection and will take care of releasing the connection on
@@ -472,7 +671,320 @@ public class AmazonHttpClient {
                     }
                 }
             }
-        } /* end while (true) */
+        }
+
+        /**
+         * Records an I/O failure of the current attempt and either prepares
+         * the request to be retried or throws.
+         */
+        private void handleIOException(IOException ioe) {
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to execute HTTP request: " + ioe.getMessage(), ioe);
+            }
+            awsRequestMetrics.incrementCounter(Field.Exception);
+            awsRequestMetrics.addProperty(Field.Exception, ioe);
+            awsRequestMetrics.addProperty(Field.AWSRequestID, null);
+
+            final AmazonClientException ace = new AmazonClientException(
+                    "Unable to execute HTTP request: " + ioe.getMessage(), ioe);
+            if (!shouldRetry(request.getOriginalRequest(),
+                    httpRequest == null ? null : httpRequest.getContent(),
+                    ace,
+                    requestCount,
+                    config.getRetryPolicy())
+                    || !acquireRetryQuota(ioe instanceof SocketTimeoutException
+                            ? RetryQuota.TIMEOUT_RETRY_COST : RetryQuota.RETRY_COST)) {
+                throw ace;
+            }
+
+            // Cache the retryable exception
+            retriedException = ace;
+            resetRequestAfterError(request, ioe);
+        }
+
+        /**
+         * Takes the cost of a retry from the retry quota of the client.
+         *
+         * @param cost the number of tokens the retry takes.
+         * @return false if the quota ran dry and the request must not be
+         *         retried.
+         */
+        private boolean acquireRetryQuota(int cost) {
+            if (retryQuota == null) {
+                return true;
+            }
+            if (!retryQuota.acquire(cost)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Retry quota exhausted, not retrying the request");
+                }
+                return false;
+            }
+            retryCost = cost;
+            return true;
+        }
+
+        private void recordRetryCapacity() {
+            if (retryQuota != null) {
+                awsRequestMetrics.addProperty(Field.RetryQuotaAvailable,
+                        retryQuota.getAvailableCapacity());
+            }
+            if (rateLimiter != null && rateLimiter.isEnabled()) {
+                awsRequestMetrics.addProperty(Field.ClientSendRate, rateLimiter.getSendRate());
+            }
+        }
+    }
+
+    /**
+     * A request executed by an {@link AsyncExecutionEngine}. Each stage runs
+     * as a continuation that schedules the next one; no thread waits for the
+     * request as a whole.
+     */
+    private final class AsyncRequest<T> implements AsyncExecutionEngine.InFlightRequest {
+        private final Request<?> request;
+        private final HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler;
+        private final HttpResponseHandler<AmazonServiceException> errorResponseHandler;
+        private final ExecutionContext executionContext;
+        private final AWSCredentialsProvider credentialsProvider;
+        private final AsyncExecutionEngine engine;
+        private final ResponseCallback<T> callback;
+        private final AWSRequestMetrics awsRequestMetrics;
+        private final ResponseFuture<T> future = new ResponseFuture<T>();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        /**
+         * The holders of the request body: the request until it completes,
+         * and each attempt while it signs or sends. The last one releases a
+         * pooled body.
+         */
+        private final AtomicInteger contentHolders = new AtomicInteger(1);
+
+        private List<RequestHandler2> requestHandler2s = Collections.emptyList();
+        private RequestExecution<T> execution;
+
+        AsyncRequest(Request<?> request,
+                HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+                HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+                ExecutionContext executionContext,
+                AWSCredentialsProvider credentialsProvider,
+                AsyncExecutionEngine engine,
+                ResponseCallback<T> callback) {
+            this.request = request;
+            this.responseHandler = responseHandler;
+            this.errorResponseHandler = errorResponseHandler;
+            this.executionContext = executionContext;
+            this.credentialsProvider = credentialsProvider;
+            this.engine = engine;
+            this.callback = callback;
+            this.awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        }
+
+        void start() {
+            engine.register(this);
+            try {
+                // the credentials provider may block
+                engine.executeBlocking(new Continuation() {
+                    @Override
+                    void proceed() {
+                        begin();
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void abort(AmazonClientException cause) {
+            complete(null, cause);
+        }
+
+        /** Runs on an I/O thread. */
+        private void begin() {
+            final AmazonWebServiceRequest originalRequest = request.getOriginalRequest();
+            if (originalRequest != null && originalRequest.getRequestCredentials() != null) {
+                executionContext.setCredentials(originalRequest.getRequestCredentials());
+            } else if (credentialsProvider != null) {
+                awsRequestMetrics.startEvent(Field.CredentialsRequestTime);
+                try {
+                    executionContext.setCredentials(credentialsProvider.getCredentials());
+                } finally {
+                    awsRequestMetrics.endEvent(Field.CredentialsRequestTime);
+                }
+            }
+            requestHandler2s = requestHandler2s(request, executionContext);
+            execution = new RequestExecution<T>(request, responseHandler,
+                    errorResponseHandler, executionContext);
+            engine.execute(new Continuation() {
+                @Override
+                void proceed() {
+                    nextAttempt();
+                }
+            });
+        }
+
+        /** Runs on the event loop. */
+        private void nextAttempt() {
+            if (!execution.nextAttempt()) {
+                limitRate(0);
+                return;
+            }
+            awsRequestMetrics.startEvent(Field.RetryPauseTime);
+            final long backoffDelay;
+            try {
+                backoffDelay = execution.computeBackoffDelay();
+            } catch (final RuntimeException e) {
+                awsRequestMetrics.endEvent(Field.RetryPauseTime);
+                throw handleUnexpectedFailure(e, awsRequestMetrics);
+            }
+            engine.schedule(new Continuation() {
+                @Override
+                void proceed() {
+                    awsRequestMetrics.endEvent(Field.RetryPauseTime);
+                    limitRate(backoffDelay);
+                }
+            }, backoffDelay);
+        }
+
+        /** Runs on the event loop. */
+        private void limitRate(final long backoffDelay) {
+            final long rateLimitDelay = execution.acquireSendToken();
+            if (rateLimitDelay <= 0) {
+                sign(backoffDelay);
+                return;
+            }
+            awsRequestMetrics.startEvent(Field.RateLimitPauseTime);
+            engine.schedule(new Continuation() {
+                @Override
+                void proceed() {
+                    awsRequestMetrics.endEvent(Field.RateLimitPauseTime);
+                    sign(backoffDelay);
+                }
+            }, rateLimitDelay);
+        }
+
+        /** Runs on the event loop. */
+        private void sign(final long backoffDelay) {
+            // signing hashes the whole body, so it runs on an I/O thread too
+            engine.executeBlocking(new Continuation() {
+                @Override
+                void proceed() {
+                    contentHolders.incrementAndGet();
+                    try {
+                        if (completed.get()) {
+                            return;
+                        }
+                        final HttpRequest httpRequest = execution.prepareRequest(backoffDelay);
+                        if (httpRequest == null) {
+                            engine.execute(new Continuation() {
+                                @Override
+                                void proceed() {
+                                    nextAttempt();
+                                }
+                            });
+                            return;
+                        }
+                        send(httpRequest);
+                    } finally {
+                        releaseContentHold();
+                    }
+                }
+            });
+        }
+
+        /** Runs on an I/O thread, after signing. */
+        private void send(HttpRequest httpRequest) {
+            final Response<T> response = execution.send(httpRequest);
+            engine.execute(new Continuation() {
+                @Override
+                void proceed() {
+                    if (response == null) {
+                        nextAttempt();
+                    } else {
+                        succeed(response);
+                    }
+                }
+            });
+        }
+
+        /** Runs on the event loop. */
+        private void succeed(Response<T> response) {
+            final TimingInfo timingInfo = awsRequestMetrics.getTimingInfo().endTiming();
+            afterResponse(request, requestHandler2s, response, timingInfo);
+            complete(response, null);
+        }
+
+        /**
+         * Releases a pooled body once neither the request nor an attempt
+         * holds it. A cancelled or aborted request may still have an attempt
+         * sending the body on an I/O thread.
+         */
+        private void releaseContentHold() {
+            if (contentHolders.decrementAndGet() == 0) {
+                releaseContent(request);
+            }
+        }
+
+        private void fail(Throwable t) {
+            Throwable failure = t;
+            if (failure instanceof RejectedExecutionException) {
+                failure = new AmazonClientException("Async execution engine was shut down", t);
+            }
+            if (failure instanceof AmazonClientException) {
+                try {
+                    afterError(request, null, requestHandler2s, (AmazonClientException) failure);
+                } catch (final RuntimeException e) {
+                    log.warn("Request handler failed after error", e);
+                }
+            }
+            complete(null, failure);
+        }
+
+        private void complete(Response<T> response, Throwable failure) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            engine.unregister(this);
+            releaseContentHold();
+            if (callback != null && !future.isCancelled()) {
+                try {
+                    if (failure == null) {
+                        callback.onResponse(response);
+                    } else if (failure instanceof Exception) {
+                        callback.onError((Exception) failure);
+                    } else {
+                        callback.onError(new AmazonClientException(
+                                "Unexpected error executing request: " + failure, failure));
+                    }
+                } catch (final RuntimeException e) {
+                    log.warn("Response callback failed", e);
+                }
+            }
+            if (failure == null) {
+                future.set(response.getAwsResponse());
+            } else {
+                future.setException(failure);
+            }
+        }
+
+        /**
+         * A stage of the request. It is skipped once the request was
+         * cancelled, and any failure completes the request.
+         */
+        private abstract class Continuation implements Runnable {
+            @Override
+            public final void run() {
+                if (future.isDone()) {
+                    complete(null, new CancellationException());
+                    return;
+                }
+                try {
+                    proceed();
+                } catch (final Throwable t) {
+                    fail(t);
+                }
+            }
+
+            abstract void proceed();
+        }
     }
 
     /**
@@ -558,6 +1070,22 @@ public class AmazonHttpClient {
         httpClient.shutdown();
     }
 
+    /**
+     * @return the retry quota of this client, or null if retries aren't
+     *         bounded by a quota.
+     */
+    RetryQuota getRetryQuota() {
+        return retryQuota;
+    }
+
+    /**
+     * @return the send rate limiter of this client, or null if adaptive rate
+     *         limiting is disabled.
+     */
+    AdaptiveRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
     /**
      * Returns true if a failed request should be retried.
      *
@@ -733,35 +1261,14 @@ public class AmazonHttpClient {
 
     /**
      * Sleep for a period of time on failed request to avoid flooding a service
-     * with retries.
+     * with retries, or to keep to the send rate of the client.
      *
-     * @param originalRequest The original service request that is being
-     *            executed.
-     * @param previousException Exception information for the previous attempt,
-     *            if any.
-     * @param requestCount current request count (including the next attempt
-     *            after the delay)
-     * @param retryPolicy The retry policy configured in this http client.
+     * @param delay the delay in milliseconds computed by the back off
+     *            strategy of the retry policy or the rate limiter.
      */
-    private long pauseBeforeNextRetry(AmazonWebServiceRequest originalRequest,
-            AmazonClientException previousException,
-            int requestCount,
-            RetryPolicy retryPolicy) {
-        final int retries = requestCount // including next attempt
-                - 1 // number of attempted requests
-                - 1; // number of attempted retries
-
-        final long delay = retryPolicy.getBackoffStrategy().delayBeforeNextRetry(
-                originalRequest, previousException, retries);
-
-        if (log.isDebugEnabled()) {
-            log.debug("Retriable error detected, " +
-                    "will retry in " + delay + "ms, attempt number: " + retries);
-        }
-
+    private void pause(long delay) {
         try {
             Thread.sleep(delay);
-            return delay;
         } catch (final InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new AmazonClientException(e.getMessage(), e);
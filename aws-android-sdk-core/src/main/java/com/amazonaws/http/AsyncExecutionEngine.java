@@ -0,0 +1,176 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads driving the requests executed by
+ * {@link AmazonHttpClient#executeAsync}. Each request is a chain of
+ * continuations rather than a thread: retry decisions and response completion
+ * run on a small event loop, and the back off between retries is a scheduled
+ * task on that loop instead of a sleeping thread. Only the stages that block
+ * on the network or on a credentials provider, and signing, which hashes the
+ * whole body, run on the I/O threads, and only for as long as they take, so a
+ * few threads can serve thousands of concurrent requests.
+ * <p>
+ * An engine can be shared by any number of clients. It owns its threads and
+ * must be shut down when no longer needed.
+ */
+public class AsyncExecutionEngine {
+
+    /** Default number of event loop threads. */
+    public static final int DEFAULT_EVENT_LOOP_THREADS = 2;
+
+    /** Default number of threads performing blocking I/O. */
+    public static final int DEFAULT_IO_THREADS = ClientConfiguration.DEFAULT_MAX_CONNECTIONS;
+
+    private static final AtomicInteger ENGINE_COUNT = new AtomicInteger();
+
+    /** A request being executed by an engine. */
+    interface InFlightRequest {
+        /**
+         * Fails the request because the engine shut down.
+         *
+         * @param cause the failure.
+         */
+        void abort(AmazonClientException cause);
+    }
+
+    private final ScheduledExecutorService eventLoop;
+    private final ExecutorService ioExecutor;
+    private final Set<InFlightRequest> inFlightRequests = Collections
+            .newSetFromMap(new ConcurrentHashMap<InFlightRequest, Boolean>());
+
+    /**
+     * Creates an engine with the default number of event loop and I/O
+     * threads.
+     */
+    public AsyncExecutionEngine() {
+        this(DEFAULT_EVENT_LOOP_THREADS, DEFAULT_IO_THREADS);
+    }
+
+    /**
+     * Creates an engine with the given number of threads.
+     *
+     * @param eventLoopThreads the number of threads running the
+     *            continuations and the retry back off.
+     * @param ioThreads the number of threads sending requests and reading
+     *            responses; typically the maximum number of connections.
+     */
+    public AsyncExecutionEngine(int eventLoopThreads, int ioThreads) {
+        if (eventLoopThreads <= 0 || ioThreads <= 0) {
+            throw new IllegalArgumentException("Thread counts must be positive");
+        }
+        final int engineId = ENGINE_COUNT.incrementAndGet();
+        eventLoop = Executors.newScheduledThreadPool(eventLoopThreads,
+                newThreadFactory("aws-sdk-async-" + engineId + "-event-loop-"));
+        ioExecutor = Executors.newFixedThreadPool(ioThreads,
+                newThreadFactory("aws-sdk-async-" + engineId + "-io-"));
+    }
+
+    void register(InFlightRequest request) {
+        inFlightRequests.add(request);
+    }
+
+    void unregister(InFlightRequest request) {
+        inFlightRequests.remove(request);
+    }
+
+    /**
+     * @return the number of requests being executed.
+     */
+    public int getInFlightRequestCount() {
+        return inFlightRequests.size();
+    }
+
+    /**
+     * Runs a continuation on the event loop. It must not block.
+     *
+     * @param continuation the continuation.
+     */
+    void execute(Runnable continuation) {
+        eventLoop.execute(continuation);
+    }
+
+    /**
+     * Runs a continuation on the event loop once the given delay has elapsed.
+     * No thread is held while waiting.
+     *
+     * @param continuation the continuation.
+     * @param delayMillis the delay in milliseconds.
+     */
+    void schedule(Runnable continuation, long delayMillis) {
+        eventLoop.schedule(continuation, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a stage that blocks, such as sending a request over an
+     * {@link HttpClient}, on the I/O threads.
+     *
+     * @param stage the blocking stage.
+     */
+    void executeBlocking(Runnable stage) {
+        ioExecutor.execute(stage);
+    }
+
+    /**
+     * Stops the engine threads. Requests in flight fail with an
+     * {@link AmazonClientException}, so callers wanting them to finish should
+     * wait for their futures first.
+     */
+    public void shutdown() {
+        eventLoop.shutdownNow();
+        ioExecutor.shutdownNow();
+        final AmazonClientException cause = new AmazonClientException(
+                "Async execution engine was shut down");
+        for (final InFlightRequest request : inFlightRequests) {
+            request.abort(cause);
+        }
+        inFlightRequests.clear();
+    }
+
+    /**
+     * @return true if this engine has been shut down.
+     */
+    public boolean isShutdown() {
+        return eventLoop.isShutdown();
+    }
+
+    private static ThreadFactory newThreadFactory(final String namePrefix) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread t = new Thread(r);
+                t.setName(namePrefix + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+}
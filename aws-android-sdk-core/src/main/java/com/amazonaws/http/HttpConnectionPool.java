@@ -0,0 +1,475 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of persistent HTTP connections, keyed by route (scheme, host
+ * and port). At most {@code maxConnectionsPerRoute} connections are open to a
+ * route at any time; callers asking for more wait until one is released or
+ * the lease times out. Released connections are kept idle for reuse and are
+ * closed by {@link #closeIdleConnections(long, TimeUnit)}, which the
+ * {@link IdleConnectionReaper} calls periodically.
+ */
+class HttpConnectionPool {
+
+    private static final Log log = LogFactory.getLog(HttpConnectionPool.class);
+
+    /** Socket timeout used to probe an idle connection for staleness. */
+    private static final int STALE_CHECK_TIMEOUT_MILLIS = 1;
+
+    /** Opens new connections for a route. */
+    interface ConnectionFactory {
+        /**
+         * @param route the route to connect to.
+         * @return a newly connected socket.
+         * @throws IOException if the connection cannot be established.
+         */
+        Socket connect(Route route) throws IOException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int maxConnectionsPerRoute;
+    private final Map<Route, RoutePool> routePools = new HashMap<Route, RoutePool>();
+    private boolean shutdown;
+
+    private long totalLeases;
+    private long reusedLeases;
+
+    HttpConnectionPool(ConnectionFactory connectionFactory, int maxConnectionsPerRoute) {
+        if (maxConnectionsPerRoute <= 0) {
+            throw new IllegalArgumentException("maxConnectionsPerRoute must be positive");
+        }
+        this.connectionFactory = connectionFactory;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Leases a connection to the given route, reusing an idle one when
+     * possible and otherwise opening a new one if the route is below its
+     * limit. Blocks while the route is at its limit.
+     *
+     * @param route the route to connect to.
+     * @param timeoutMillis how long to wait for a free connection; 0 waits
+     *            forever.
+     * @return the leased connection.
+     * @throws IOException if no connection became available in time, or the
+     *             connection could not be opened.
+     */
+    PooledConnection lease(Route route, long timeoutMillis) throws IOException {
+        final long deadline = timeoutMillis > 0
+                ? System.currentTimeMillis() + timeoutMillis : 0;
+        PooledConnection idle = null;
+        synchronized (this) {
+            final RoutePool routePool = getRoutePool(route);
+            routePool.pending++;
+            try {
+                while (true) {
+                    if (shutdown) {
+                        throw new IOException("Connection pool shut down");
+                    }
+                    idle = routePool.idle.pollFirst();
+                    if (idle != null || routePool.leased < maxConnectionsPerRoute) {
+                        // reserve the slot; connecting and the stale check
+                        // happen outside the lock
+                        routePool.leased++;
+                        totalLeases++;
+                        break;
+                    }
+                    long waitMillis = 0;
+                    if (deadline != 0) {
+                        waitMillis = deadline - System.currentTimeMillis();
+                        if (waitMillis <= 0) {
+                            throw new IOException("Timeout waiting for connection from pool");
+                        }
+                    }
+                    try {
+                        wait(waitMillis);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted waiting for connection from pool");
+                    }
+                }
+            } finally {
+                routePool.pending--;
+            }
+        }
+
+        if (idle != null) {
+            if (!idle.isStale()) {
+                synchronized (this) {
+                    reusedLeases++;
+                }
+                idle.reused = true;
+                return idle;
+            }
+            // the server closed it; open a new connection in the same slot
+            log.debug("Closing stale pooled connection to " + route);
+            idle.close();
+        }
+
+        try {
+            return new PooledConnection(route, connectionFactory.connect(route));
+        } catch (final IOException e) {
+            releaseSlot(route);
+            throw e;
+        } catch (final RuntimeException e) {
+            releaseSlot(route);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a leased connection to the pool. A connection that is not
+     * reusable is closed.
+     *
+     * @param connection the leased connection.
+     * @param reusable whether the connection can carry another request.
+     */
+    void release(PooledConnection connection, boolean reusable) {
+        boolean close = !reusable;
+        synchronized (this) {
+            final RoutePool routePool = getRoutePool(connection.route);
+            routePool.leased--;
+            if (reusable && !shutdown) {
+                connection.lastUsed = System.currentTimeMillis();
+                connection.reused = false;
+                routePool.idle.addFirst(connection);
+            } else {
+                close = true;
+            }
+            notifyAll();
+        }
+        if (close) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Closes the connections that have been idle for longer than the given
+     * time.
+     *
+     * @param idleTime the idle time.
+     * @param unit the unit of the idle time.
+     */
+    void closeIdleConnections(long idleTime, TimeUnit unit) {
+        final long cutoff = System.currentTimeMillis() - unit.toMillis(idleTime);
+        final ArrayDeque<PooledConnection> expired = new ArrayDeque<PooledConnection>();
+        synchronized (this) {
+            for (final RoutePool routePool : routePools.values()) {
+                final Iterator<PooledConnection> it = routePool.idle.iterator();
+                while (it.hasNext()) {
+                    final PooledConnection connection = it.next();
+                    if (connection.lastUsed <= cutoff) {
+                        it.remove();
+                        expired.add(connection);
+                    }
+                }
+            }
+        }
+        for (final PooledConnection connection : expired) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Closes all the idle connections and refuses any further lease. Leased
+     * connections are closed when they are released.
+     */
+    void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            notifyAll();
+        }
+        closeIdleConnections(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return a point in time snapshot of the pool statistics.
+     */
+    synchronized PoolStats getStats() {
+        int available = 0;
+        int leased = 0;
+        int pending = 0;
+        for (final RoutePool routePool : routePools.values()) {
+            available += routePool.idle.size();
+            leased += routePool.leased;
+            pending += routePool.pending;
+        }
+        return new PoolStats(available, leased, pending, totalLeases, reusedLeases);
+    }
+
+    private void releaseSlot(Route route) {
+        synchronized (this) {
+            getRoutePool(route).leased--;
+            totalLeases--;
+            notifyAll();
+        }
+    }
+
+    private RoutePool getRoutePool(Route route) {
+        RoutePool routePool = routePools.get(route);
+        if (routePool == null) {
+            routePool = new RoutePool();
+            routePools.put(route, routePool);
+        }
+        return routePool;
+    }
+
+    private static final class RoutePool {
+        private final ArrayDeque<PooledConnection> idle = new ArrayDeque<PooledConnection>();
+        private int leased;
+        private int pending;
+    }
+
+    /**
+     * The scheme, host and port a connection is established to.
+     */
+    static final class Route {
+        private final boolean secure;
+        private final String host;
+        private final int port;
+
+        Route(boolean secure, String host, int port) {
+            this.secure = secure;
+            this.host = host;
+            this.port = port;
+        }
+
+        boolean isSecure() {
+            return secure;
+        }
+
+        String getHost() {
+            return host;
+        }
+
+        int getPort() {
+            return port;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Route)) {
+                return false;
+            }
+            final Route other = (Route) o;
+            return secure == other.secure && port == other.port && host.equals(other.host);
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            return (host.hashCode() * prime + port) * prime + (secure ? 1 : 0);
+        }
+
+        @Override
+        public String toString() {
+            return (secure ? "https://" : "http://") + host + ":" + port;
+        }
+    }
+
+    /**
+     * A connection owned by the pool. It is either idle in the pool or leased
+     * to exactly one request.
+     */
+    static final class PooledConnection {
+        private static final int BUFFER_SIZE = 8 * 1024;
+
+        private final Route route;
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private long lastUsed;
+        private boolean reused;
+        /** The bytes read from and written to the socket. */
+        private long bytesRead;
+        private long bytesWritten;
+
+        PooledConnection(Route route, Socket socket) throws IOException {
+            this.route = route;
+            this.socket = socket;
+            this.in = new BufferedInputStream(new FilterInputStream(socket.getInputStream()) {
+                @Override
+                public int read() throws IOException {
+                    final int b = super.read();
+                    if (b != -1) {
+                        bytesRead++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    final int n = super.read(b, off, len);
+                    if (n > 0) {
+                        bytesRead += n;
+                    }
+                    return n;
+                }
+            }, BUFFER_SIZE);
+            this.out = new BufferedOutputStream(new FilterOutputStream(socket.getOutputStream()) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    bytesWritten++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    bytesWritten += len;
+                }
+            }, BUFFER_SIZE);
+        }
+
+        Route getRoute() {
+            return route;
+        }
+
+        Socket getSocket() {
+            return socket;
+        }
+
+        InputStream getInputStream() {
+            return in;
+        }
+
+        OutputStream getOutputStream() {
+            return out;
+        }
+
+        /**
+         * @return the number of bytes read from the socket, buffered or not.
+         */
+        long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * @return the number of bytes written to the socket, leaving out those
+         *         still buffered.
+         */
+        long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        /**
+         * @return true if this connection was taken from the idle pool rather
+         *         than newly opened.
+         */
+        boolean isReused() {
+            return reused;
+        }
+
+        /**
+         * An idle connection is stale when the server closed it or sent
+         * unsolicited data; either is detected by a non-blocking read.
+         */
+        boolean isStale() {
+            if (socket.isClosed() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+                return true;
+            }
+            try {
+                final int originalTimeout = socket.getSoTimeout();
+                try {
+                    socket.setSoTimeout(STALE_CHECK_TIMEOUT_MILLIS);
+                    // end of stream, or data nobody asked for
+                    in.read();
+                    return true;
+                } finally {
+                    socket.setSoTimeout(originalTimeout);
+                }
+            } catch (final SocketTimeoutException e) {
+                return false;
+            } catch (final IOException e) {
+                return true;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                log.debug("Unable to close connection to " + route, e);
+            }
+        }
+    }
+
+    /**
+     * Statistics of a connection pool.
+     */
+    static final class PoolStats {
+        private final int available;
+        private final int leased;
+        private final int pending;
+        private final long totalLeases;
+        private final long reusedLeases;
+
+        PoolStats(int available, int leased, int pending, long totalLeases, long reusedLeases) {
+            this.available = available;
+            this.leased = leased;
+            this.pending = pending;
+            this.totalLeases = totalLeases;
+            this.reusedLeases = reusedLeases;
+        }
+
+        /** @return the number of idle persistent connections. */
+        int getAvailable() {
+            return available;
+        }
+
+        /** @return the number of connections executing requests. */
+        int getLeased() {
+            return leased;
+        }
+
+        /** @return the number of callers waiting for a connection. */
+        int getPending() {
+            return pending;
+        }
+
+        /** @return the number of leases granted since the pool was created. */
+        long getTotalLeases() {
+            return totalLeases;
+        }
+
+        /** @return the number of leases served by an idle connection. */
+        long getReusedLeases() {
+            return reusedLeases;
+        }
+    }
+}
@@ -0,0 +1,748 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.http.HttpConnectionPool.PoolStats;
+import com.amazonaws.http.HttpConnectionPool.PooledConnection;
+import com.amazonaws.http.HttpConnectionPool.Route;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.StringUtils;
+
+import org.apache.http.conn.ssl.BrowserCompatHostnameVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+/**
+ * An implementation of {@link HttpClient} that speaks HTTP/1.1 over its own
+ * bounded pool of persistent connections, instead of relying on whatever
+ * pooling the platform's {@link java.net.HttpURLConnection} does.
+ * <p>
+ * At most {@link ClientConfiguration#getMaxConnections()} connections are
+ * opened to each host; further requests wait for a free connection for up to
+ * the connection timeout. Idle connections are reused most recently used
+ * first, checked for staleness before reuse, and closed by the
+ * {@link IdleConnectionReaper} when {@link ClientConfiguration#useReaper()}
+ * is set. All HTTPS connections are created from one SSL context so they
+ * resume each other's TLS sessions instead of doing a full handshake.
+ * <p>
+ * When executed through {@link AmazonHttpClient}, the time spent waiting for
+ * a connection, the pool occupancy and whether the connection was reused are
+ * recorded in the request's {@link AWSRequestMetrics}.
+ * <p>
+ * This client connects directly to the service endpoint; proxies are not
+ * supported. Like {@link UrlHttpClient}, it doesn't send the Expect
+ * 100-continue header.
+ */
+public class PooledHttpClient implements HttpClient {
+
+    private static final Log log = LogFactory.getLog(PooledHttpClient.class);
+
+    private static final int HTTP_PORT = 80;
+    private static final int HTTPS_PORT = 443;
+    private static final int HTTP_STATUS_CONTINUE = 100;
+    private static final int HTTP_STATUS_OK = 200;
+    private static final int HTTP_STATUS_NO_CONTENT = 204;
+    private static final int HTTP_STATUS_NOT_MODIFIED = 304;
+    private static final int HEX_RADIX = 16;
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+    private static final int BUFFER_SIZE_MULTIPLIER = 8;
+    /** Upper bound of a status or header line. */
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    /**
+     * Bytes left unread in a response body that are still drained on close so
+     * that the connection can be reused.
+     */
+    private static final int MAX_DRAIN_BYTES = 8 * 1024;
+    private static final byte[] CRLF = {
+            '\r', '\n'
+    };
+
+    private final ClientConfiguration config;
+    private final HttpConnectionPool pool;
+    private SSLSocketFactory sslSocketFactory;
+
+    /**
+     * Constructor.
+     *
+     * @param config the client config.
+     */
+    public PooledHttpClient(ClientConfiguration config) {
+        if (config.getProxyHost() != null) {
+            throw new IllegalArgumentException(
+                    "PooledHttpClient doesn't support proxies, use UrlHttpClient instead");
+        }
+        this.config = config;
+        this.pool = new HttpConnectionPool(new HttpConnectionPool.ConnectionFactory() {
+            @Override
+            public Socket connect(Route route) throws IOException {
+                return openSocket(route);
+            }
+        }, config.getMaxConnections());
+        if (config.useReaper()) {
+            IdleConnectionReaper.registerConnectionPool(pool);
+        }
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        return execute(request, null);
+    }
+
+    /**
+     * Executes a {@link HttpRequest} and reports the connection pool metrics
+     * of this execution.
+     *
+     * @param request a HTTP request
+     * @param awsRequestMetrics the metrics of the request; may be null.
+     * @return the response object
+     * @throws IOException in case of a connection problem
+     */
+    public HttpResponse execute(HttpRequest request, AWSRequestMetrics awsRequestMetrics)
+            throws IOException {
+        final Route route = toRoute(request.getUri());
+        while (true) {
+            final PooledConnection connection = leaseConnection(route, awsRequestMetrics);
+            final long bytesWritten = connection.getBytesWritten();
+            final long bytesRead = connection.getBytesRead();
+            boolean written = false;
+            try {
+                writeRequest(request, connection);
+                written = true;
+                return readResponse(request, connection);
+            } catch (final IOException e) {
+                pool.release(connection, false);
+                // A pooled connection may have been closed by the server while
+                // idle without it showing; send the request again on a new one,
+                // but only if the server can't have processed it.
+                final boolean stale = written
+                        ? connection.getBytesRead() == bytesRead && isClosedByPeer(e)
+                        : connection.getBytesWritten() == bytesWritten;
+                if (!connection.isReused() || !stale || !resetContent(request)) {
+                    throw e;
+                }
+                log.debug("Pooled connection to " + route + " failed, retrying: "
+                        + e.getMessage());
+            } catch (final RuntimeException e) {
+                pool.release(connection, false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Closes all the pooled connections and unregisters the pool from the
+     * {@link IdleConnectionReaper}.
+     */
+    @Override
+    public void shutdown() {
+        IdleConnectionReaper.removeConnectionPool(pool);
+        pool.shutdown();
+    }
+
+    HttpConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    private PooledConnection leaseConnection(Route route, AWSRequestMetrics awsRequestMetrics)
+            throws IOException {
+        if (awsRequestMetrics == null) {
+            return pool.lease(route, config.getConnectionTimeout());
+        }
+
+        final PooledConnection connection;
+        awsRequestMetrics.startEvent(Field.HttpClientGetConnectionTime);
+        try {
+            connection = pool.lease(route, config.getConnectionTimeout());
+        } finally {
+            awsRequestMetrics.endEvent(Field.HttpClientGetConnectionTime);
+        }
+        final PoolStats stats = pool.getStats();
+        awsRequestMetrics.setCounter(Field.HttpClientPoolAvailableCount, stats.getAvailable());
+        awsRequestMetrics.setCounter(Field.HttpClientPoolLeasedCount, stats.getLeased());
+        awsRequestMetrics.setCounter(Field.HttpClientPoolPendingCount, stats.getPending());
+        if (connection.isReused()) {
+            awsRequestMetrics.incrementCounter(Field.HttpClientPoolReusedCount);
+        }
+        return connection;
+    }
+
+    private static Route toRoute(URI uri) {
+        final boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort();
+        if (port == -1) {
+            port = secure ? HTTPS_PORT : HTTP_PORT;
+        }
+        return new Route(secure, uri.getHost(), port);
+    }
+
+    /**
+     * Whether the connection was closed or reset by the server, rather than
+     * timed out, which means the server never answered the request.
+     */
+    private static boolean isClosedByPeer(IOException e) {
+        return e instanceof EOFException || e instanceof SocketException;
+    }
+
+    private static boolean resetContent(HttpRequest request) {
+        final InputStream content = request.getContent();
+        if (content == null) {
+            return true;
+        }
+        if (!content.markSupported()) {
+            return false;
+        }
+        try {
+            content.reset();
+            return true;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    Socket openSocket(Route route) throws IOException {
+        final Socket socket = new Socket();
+        boolean connected = false;
+        try {
+            socket.setTcpNoDelay(true);
+            final int[] bufferSizeHints = config.getSocketBufferSizeHints();
+            if (bufferSizeHints[0] > 0) {
+                socket.setSendBufferSize(bufferSizeHints[0]);
+            }
+            if (bufferSizeHints[1] > 0) {
+                socket.setReceiveBufferSize(bufferSizeHints[1]);
+            }
+            if (config.getLocalAddress() != null) {
+                socket.bind(new InetSocketAddress(config.getLocalAddress(), 0));
+            }
+            socket.connect(new InetSocketAddress(route.getHost(), route.getPort()),
+                    config.getConnectionTimeout());
+            socket.setSoTimeout(config.getSocketTimeout());
+
+            if (!route.isSecure()) {
+                connected = true;
+                return socket;
+            }
+
+            final SSLSocket sslSocket = (SSLSocket) getSslSocketFactory().createSocket(socket,
+                    route.getHost(), route.getPort(), true);
+            try {
+                sslSocket.startHandshake();
+                HostnameVerifierHolder.VERIFIER.verify(route.getHost(), sslSocket);
+            } catch (final IOException e) {
+                sslSocket.close();
+                throw e;
+            }
+            connected = true;
+            return sslSocket;
+        } finally {
+            if (!connected) {
+                socket.close();
+            }
+        }
+    }
+
+    private synchronized SSLSocketFactory getSslSocketFactory() {
+        if (sslSocketFactory == null) {
+            if (config.getTrustManager() != null) {
+                final TrustManager[] customTrustManagers = new TrustManager[] {
+                        config.getTrustManager()
+                };
+                try {
+                    final SSLContext sc = SSLContext.getInstance("TLS");
+                    sc.init(null, customTrustManagers, null);
+                    sslSocketFactory = sc.getSocketFactory();
+                } catch (final GeneralSecurityException e) {
+                    throw new RuntimeException(e);
+                }
+            } else {
+                sslSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+            }
+        }
+        return sslSocketFactory;
+    }
+
+    void writeRequest(HttpRequest request, PooledConnection connection) throws IOException {
+        final URI uri = request.getUri();
+        final InputStream content = request.getContent();
+        final boolean chunked = content != null && request.isStreaming();
+
+        final StringBuilder head = new StringBuilder(DEFAULT_BUFFER_SIZE);
+        final String path = uri.getRawPath();
+        head.append(request.getMethod()).append(' ')
+                .append(path == null || path.isEmpty() ? "/" : path);
+        if (uri.getRawQuery() != null) {
+            head.append('?').append(uri.getRawQuery());
+        }
+        head.append(" HTTP/1.1\r\n");
+
+        boolean hasHost = false;
+        for (final Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            final String key = header.getKey();
+            // Framing headers are set below. See UrlHttpClient about why the
+            // Expect 100-continue header isn't sent.
+            if (HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(key)
+                    || "Transfer-Encoding".equalsIgnoreCase(key)
+                    || "Connection".equalsIgnoreCase(key)
+                    || HttpHeader.EXPECT.equalsIgnoreCase(key)) {
+                continue;
+            }
+            if (HttpHeader.HOST.equalsIgnoreCase(key)) {
+                hasHost = true;
+            }
+            head.append(key).append(": ")
+                    .append(header.getValue() == null ? "" : header.getValue())
+                    .append("\r\n");
+        }
+        if (!hasHost) {
+            head.append("Host: ").append(uri.getHost());
+            if (uri.getPort() != -1) {
+                head.append(':').append(uri.getPort());
+            }
+            head.append("\r\n");
+        }
+        if (chunked) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        } else if (content != null) {
+            head.append("Content-Length: ").append(request.getContentLength()).append("\r\n");
+        } else if ("POST".equals(request.getMethod()) || "PUT".equals(request.getMethod())) {
+            head.append("Content-Length: 0\r\n");
+        }
+        head.append("\r\n");
+
+        final OutputStream out = connection.getOutputStream();
+        out.write(head.toString().getBytes(StringUtils.UTF8));
+        if (content != null) {
+            final long written = writeContent(content, out, chunked);
+            if (!chunked && written != request.getContentLength()) {
+                throw new ProtocolException("Request content length mismatch, expected "
+                        + request.getContentLength() + " bytes but found " + written);
+            }
+        }
+        out.flush();
+    }
+
+    private static long writeContent(InputStream content, OutputStream out, boolean chunked)
+            throws IOException {
+        final byte[] buf = new byte[DEFAULT_BUFFER_SIZE * BUFFER_SIZE_MULTIPLIER];
+        long written = 0;
+        int len;
+        while ((len = content.read(buf)) != -1) {
+            if (len == 0) {
+                continue;
+            }
+            if (chunked) {
+                out.write(Integer.toHexString(len).getBytes(StringUtils.UTF8));
+                out.write(CRLF);
+            }
+            out.write(buf, 0, len);
+            if (chunked) {
+                out.write(CRLF);
+            }
+            written += len;
+        }
+        if (chunked) {
+            out.write('0');
+            out.write(CRLF);
+            out.write(CRLF);
+        }
+        return written;
+    }
+
+    HttpResponse readResponse(HttpRequest request, PooledConnection connection)
+            throws IOException {
+        final InputStream in = connection.getInputStream();
+        String version;
+        int statusCode;
+        String statusText;
+        Map<String, String> headers;
+        do {
+            final String statusLine = readLine(in);
+            if (statusLine == null) {
+                throw new EOFException("Connection closed before a response was received");
+            }
+            final String[] parts = statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new ProtocolException("Invalid status line: " + statusLine);
+            }
+            version = parts[0];
+            try {
+                statusCode = Integer.parseInt(parts[1]);
+            } catch (final NumberFormatException e) {
+                throw new ProtocolException("Invalid status line: " + statusLine);
+            }
+            statusText = parts.length > 2 ? parts[2] : "";
+            headers = readHeaders(in);
+            // skip informational responses, e.g. 100 Continue
+        } while (statusCode >= HTTP_STATUS_CONTINUE && statusCode < HTTP_STATUS_OK);
+
+        final HttpResponse.Builder builder = HttpResponse.builder()
+                .statusCode(statusCode)
+                .statusText(statusText);
+        String contentLength = null;
+        String transferEncoding = null;
+        String connectionHeader = null;
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+            if (HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(header.getKey())) {
+                contentLength = header.getValue();
+            } else if ("Transfer-Encoding".equalsIgnoreCase(header.getKey())) {
+                transferEncoding = header.getValue();
+            } else if ("Connection".equalsIgnoreCase(header.getKey())) {
+                connectionHeader = header.getValue();
+            }
+        }
+
+        boolean keepAlive = "HTTP/1.1".equals(version)
+                ? !"close".equalsIgnoreCase(connectionHeader)
+                : "keep-alive".equalsIgnoreCase(connectionHeader);
+
+        if ("HEAD".equals(request.getMethod())
+                || statusCode == HTTP_STATUS_NO_CONTENT
+                || statusCode == HTTP_STATUS_NOT_MODIFIED) {
+            pool.release(connection, keepAlive);
+            // HEAD method doesn't have a body
+            return builder.content("HEAD".equals(request.getMethod())
+                    ? null : new ByteArrayInputStream(new byte[0])).build();
+        }
+
+        final BodyInputStream body;
+        if (transferEncoding != null && StringUtils.lowerCase(transferEncoding).contains("chunked")) {
+            body = new ChunkedInputStream(in);
+        } else if (contentLength != null) {
+            final long length;
+            try {
+                length = Long.parseLong(contentLength.trim());
+            } catch (final NumberFormatException e) {
+                throw new ProtocolException("Invalid Content-Length: " + contentLength);
+            }
+            body = new FixedLengthInputStream(in, length);
+        } else {
+            // the body is delimited by the end of the connection
+            keepAlive = false;
+            body = new UntilCloseInputStream(in);
+        }
+        return builder.content(new ConnectionReleasingInputStream(body, connection, keepAlive))
+                .build();
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            final int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new ProtocolException("Invalid header line: " + line);
+            }
+            final String key = line.substring(0, colon).trim();
+            // No AWS service return a list of header values, so it's safe to
+            // take the first one.
+            if (!headers.containsKey(key)) {
+                headers.put(key, line.substring(colon + 1).trim());
+            }
+        }
+        if (line == null) {
+            throw new EOFException("Connection closed while reading response headers");
+        }
+        return headers;
+    }
+
+    /**
+     * Reads a CRLF (or LF) terminated line, or returns null at the end of the
+     * stream.
+     */
+    static String readLine(InputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                final int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_LINE_LENGTH) {
+                throw new ProtocolException("Response line too long");
+            }
+            line.append((char) b);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+
+    private static final class HostnameVerifierHolder {
+        /**
+         * A wildcard (such as "*.amazonaws.com") matches all subdomains, which
+         * S3 virtual hosting needs. See {@link HttpClient}.
+         */
+        private static final BrowserCompatHostnameVerifier VERIFIER =
+                new BrowserCompatHostnameVerifier();
+    }
+
+    /**
+     * Frames a response body on top of the connection's input stream.
+     */
+    private abstract static class BodyInputStream extends InputStream {
+        protected final InputStream in;
+        protected boolean eof;
+
+        BodyInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return true if the whole body has been read.
+         */
+        boolean isEof() {
+            return eof;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            final int n = read(b, 0, 1);
+            return n == -1 ? -1 : b[0] & 0xff;
+        }
+    }
+
+    /** A body with a Content-Length. */
+    private static final class FixedLengthInputStream extends BodyInputStream {
+        private long remaining;
+
+        FixedLengthInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+            this.eof = length == 0;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                eof = true;
+                return -1;
+            }
+            final int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n == -1) {
+                throw new EOFException("Connection closed with " + remaining
+                        + " bytes of the response body unread");
+            }
+            remaining -= n;
+            if (remaining == 0) {
+                eof = true;
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+    }
+
+    /** A body with Transfer-Encoding: chunked. */
+    private static final class ChunkedInputStream extends BodyInputStream {
+        private long chunkRemaining;
+
+        ChunkedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (eof) {
+                return -1;
+            }
+            if (chunkRemaining == 0) {
+                nextChunk();
+                if (eof) {
+                    return -1;
+                }
+            }
+            final int n = in.read(b, off, (int) Math.min(len, chunkRemaining));
+            if (n == -1) {
+                throw new EOFException("Connection closed inside a response chunk");
+            }
+            chunkRemaining -= n;
+            if (chunkRemaining == 0) {
+                final String crlf = readLine(in);
+                if (crlf == null || !crlf.isEmpty()) {
+                    throw new ProtocolException("Missing CRLF after response chunk");
+                }
+            }
+            return n;
+        }
+
+        private void nextChunk() throws IOException {
+            final String sizeLine = readLine(in);
+            if (sizeLine == null) {
+                throw new EOFException("Connection closed before the last response chunk");
+            }
+            final int extension = sizeLine.indexOf(';');
+            final String size = (extension == -1 ? sizeLine : sizeLine.substring(0, extension))
+                    .trim();
+            try {
+                chunkRemaining = Long.parseLong(size, HEX_RADIX);
+            } catch (final NumberFormatException e) {
+                throw new ProtocolException("Invalid chunk size: " + sizeLine);
+            }
+            if (chunkRemaining == 0) {
+                // skip the trailers
+                readHeaders(in);
+                eof = true;
+            }
+        }
+    }
+
+    /** A body delimited by the end of the connection. */
+    private static final class UntilCloseInputStream extends BodyInputStream {
+        UntilCloseInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = in.read(b, off, len);
+            if (n == -1) {
+                eof = true;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Gives the connection back to the pool once the body has been read to
+     * the end or the stream is closed.
+     */
+    private final class ConnectionReleasingInputStream extends InputStream {
+        private final BodyInputStream body;
+        private final PooledConnection connection;
+        private final boolean keepAlive;
+        private boolean released;
+
+        ConnectionReleasingInputStream(BodyInputStream body, PooledConnection connection,
+                boolean keepAlive) {
+            this.body = body;
+            this.connection = connection;
+            this.keepAlive = keepAlive;
+            if (body.isEof()) {
+                release(keepAlive);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (released && body.isEof()) {
+                return -1;
+            }
+            checkOpen();
+            try {
+                final int b = body.read();
+                releaseIfEof();
+                return b;
+            } catch (final IOException e) {
+                release(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (released && body.isEof()) {
+                return -1;
+            }
+            checkOpen();
+            try {
+                final int n = body.read(b, off, len);
+                releaseIfEof();
+                return n;
+            } catch (final IOException e) {
+                release(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            return released ? 0 : body.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (released) {
+                return;
+            }
+            // drain a short remainder, e.g. the last chunk, to keep the
+            // connection
+            if (keepAlive) {
+                try {
+                    final byte[] buf = new byte[DEFAULT_BUFFER_SIZE];
+                    int drained = 0;
+                    while (!body.isEof() && drained < MAX_DRAIN_BYTES) {
+                        final int n = body.read(buf, 0, buf.length);
+                        if (n == -1) {
+                            break;
+                        }
+                        drained += n;
+                    }
+                } catch (final IOException e) {
+                    release(false);
+                    return;
+                }
+            }
+            release(keepAlive && body.isEof());
+        }
+
+        private void checkOpen() throws IOException {
+            if (released) {
+                throw new IOException("Response content stream has been closed");
+            }
+        }
+
+        private void releaseIfEof() {
+            if (body.isEof()) {
+                release(keepAlive);
+            }
+        }
+
+        private void release(boolean reusable) {
+            if (!released) {
+                released = true;
+                pool.release(connection, reusable);
+            }
+        }
+    }
+}
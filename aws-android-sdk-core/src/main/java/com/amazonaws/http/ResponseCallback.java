@@ -0,0 +1,43 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.Response;
+
+/**
+ * Receives the outcome of a request executed by
+ * {@link AmazonHttpClient#executeAsync}. Exactly one of the methods is
+ * called, on an {@link AsyncExecutionEngine} thread, before the future of the
+ * request completes. Implementations must not block.
+ *
+ * @param <T> the response type.
+ */
+public interface ResponseCallback<T> {
+
+    /**
+     * Invoked when the request succeeded.
+     *
+     * @param response the response.
+     */
+    void onResponse(Response<T> response);
+
+    /**
+     * Invoked when the request failed, after any retry.
+     *
+     * @param exception the failure.
+     */
+    void onError(Exception exception);
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The future of a request executed by {@link AmazonHttpClient#executeAsync}.
+ * It is completed by the continuations of the request rather than by a task
+ * running on an executor.
+ *
+ * @param <V> the result type.
+ */
+final class ResponseFuture<V> implements Future<V> {
+
+    private V result;
+    private Throwable failure;
+    private boolean done;
+    private boolean cancelled;
+
+    /**
+     * Completes this future with a result.
+     *
+     * @param value the result.
+     * @return false if this future was already done.
+     */
+    synchronized boolean set(V value) {
+        if (done) {
+            return false;
+        }
+        result = value;
+        done = true;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Completes this future with a failure.
+     *
+     * @param t the failure.
+     * @return false if this future was already done.
+     */
+    synchronized boolean setException(Throwable t) {
+        if (done) {
+            return false;
+        }
+        failure = t;
+        done = true;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Cancels the request. A request being sent is abandoned once its
+     * response is read; no further attempt is made.
+     */
+    @Override
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+        if (done) {
+            return false;
+        }
+        cancelled = true;
+        done = true;
+        notifyAll();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized V get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized V get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    private V getResult() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size histogram of latencies with buckets in the manner of HDR
+ * histograms: latencies are counted in microseconds, exactly up to 32 and in
+ * 16 linear buckets per power of two above, so that any recorded latency is
+ * reported within about 6% of its value. Latencies of more than
+ * {@link #MAX_LATENCY_MICROS} are counted as that.
+ * <p>
+ * Recording is lock free and never allocates; a histogram takes about 4KB.
+ * {@link #snapshot(boolean)} can reset the counts as it copies them so that
+ * each snapshot covers the latencies recorded since the previous one.
+ */
+public final class LatencyHistogram {
+
+    /** Highest latency told apart from higher ones, about 19 hours. */
+    public static final long MAX_LATENCY_MICROS = (1L << 36) - 1;
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int LONG_BITS = 64;
+    private static final int BUCKET_COUNT = bucketOf(MAX_LATENCY_MICROS) + 1;
+    private static final double PERCENT = 100.0;
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records a latency.
+     *
+     * @param duration the latency; negative values are recorded as 0.
+     * @param unit the unit of the latency.
+     */
+    public void record(long duration, TimeUnit unit) {
+        final long micros = Math.min(Math.max(unit.toMicros(duration), 0), MAX_LATENCY_MICROS);
+        counts.incrementAndGet(bucketOf(micros));
+        totalMicros.addAndGet(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    /**
+     * Copies the recorded latencies. Latencies recorded concurrently may or
+     * may not be part of the snapshot; with a reset, those that aren't are
+     * part of the next one.
+     *
+     * @param reset whether to clear the histogram as it is copied.
+     * @return the snapshot.
+     */
+    public Snapshot snapshot(boolean reset) {
+        final long[] snapshotCounts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshotCounts[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+            count += snapshotCounts[i];
+        }
+        final long total = reset ? totalMicros.getAndSet(0) : totalMicros.get();
+        final long max = reset ? maxMicros.getAndSet(0) : maxMicros.get();
+        return new Snapshot(snapshotCounts, count, total, max);
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        final int shift = LONG_BITS - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        final int top = (int) (micros >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT
+                + top - HALF_SUB_BUCKET_COUNT;
+    }
+
+    /** @return the highest latency in microseconds counted in the bucket. */
+    static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        final int shift = (bucket - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+        final long top = (bucket - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT
+                + HALF_SUB_BUCKET_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * The latencies recorded by a {@link LatencyHistogram} at some point.
+     * Latencies are reported in milliseconds.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalMicros;
+        private final long maxMicros;
+
+        Snapshot(long[] counts, long count, long totalMicros, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        /**
+         * @return the number of latencies.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the mean latency in milliseconds, or 0 if there is none.
+         */
+        public double getMean() {
+            return count == 0 ? 0 : totalMicros / MICROS_PER_MILLI / count;
+        }
+
+        /**
+         * @return the highest latency in milliseconds, or 0 if there is none.
+         */
+        public double getMax() {
+            return maxMicros / MICROS_PER_MILLI;
+        }
+
+        /**
+         * Returns the latency that the given percentage of the latencies
+         * doesn't exceed, such as the median for 50 or the p99 for 99. The
+         * latency is the highest one of its bucket, and never higher than
+         * {@link #getMax()}.
+         *
+         * @param percentile the percentage, between 0 and 100.
+         * @return the latency in milliseconds, or 0 if there is none.
+         */
+        public double getPercentile(double percentile) {
+            if (percentile < 0 || percentile > PERCENT) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(count * percentile / PERCENT));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestOf(i), maxMicros) / MICROS_PER_MILLI;
+                }
+            }
+            return getMax();
+        }
+
+        @SuppressWarnings("checkstyle:magicnumber")
+        @Override
+        public String toString() {
+            return "count=" + count + ", mean=" + getMean() + ", p50=" + getPercentile(50)
+                    + ", p99=" + getPercentile(99) + ", max=" + getMax();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A request metric collector that aggregates latencies in memory instead of
+ * shipping every event somewhere. It keeps a {@link LatencyHistogram} of the
+ * {@link #FIELDS timed events} of the requests per service, operation and
+ * status code, from which {@link #snapshot(boolean)} reads percentiles.
+ * <p>
+ * Memory is bounded: past {@code maxSeries} combinations of service,
+ * operation and status code, requests are aggregated in a single
+ * {@link Series#OVERFLOW} series. Collecting is lock free once the series of
+ * a request exists.
+ *
+ * <pre>
+ * LatencyHistogramCollector collector = new LatencyHistogramCollector();
+ * AmazonDynamoDBClient client = new AmazonDynamoDBClient(credentialsProvider,
+ *         new ClientConfiguration(), collector);
+ * ...
+ * for (Map.Entry&lt;Series, Map&lt;Field, LatencyHistogram.Snapshot&gt;&gt; entry
+ *         : collector.snapshot(true).entrySet()) {
+ *     double p99 = entry.getValue().get(Field.HttpRequestTime).getPercentile(99);
+ * }
+ * </pre>
+ */
+public class LatencyHistogramCollector extends RequestMetricCollector {
+
+    /** The timed events aggregated by the collector. */
+    public static final List<Field> FIELDS = Collections.unmodifiableList(
+            Arrays.asList(Field.HttpRequestTime, Field.RequestSigningTime,
+                    Field.ResponseProcessingTime, Field.RetryPauseTime));
+
+    /** Default maximum number of series. */
+    public static final int DEFAULT_MAX_SERIES = 256;
+
+    private static final String REQUEST_SUFFIX = "Request";
+
+    private final ConcurrentHashMap<Series, LatencyHistogram[]> histograms = new ConcurrentHashMap<Series, LatencyHistogram[]>();
+    private final int maxSeries;
+
+    /**
+     * Creates a collector of up to {@link #DEFAULT_MAX_SERIES} series.
+     */
+    public LatencyHistogramCollector() {
+        this(DEFAULT_MAX_SERIES);
+    }
+
+    /**
+     * @param maxSeries the maximum number of combinations of service,
+     *            operation and status code to keep apart.
+     */
+    public LatencyHistogramCollector(int maxSeries) {
+        if (maxSeries <= 0) {
+            throw new IllegalArgumentException("maxSeries must be positive");
+        }
+        this.maxSeries = maxSeries;
+    }
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        final AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+        if (metrics == null || !metrics.isEnabled()) {
+            return;
+        }
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        final LatencyHistogram[] seriesHistograms = histogramsOf(new Series(
+                request.getServiceName(), operationOf(request), statusOf(metrics)));
+        for (int i = 0; i < FIELDS.size(); i++) {
+            final List<TimingInfo> events = timingInfo
+                    .getAllSubMeasurements(FIELDS.get(i).name());
+            if (events == null) {
+                continue;
+            }
+            for (final TimingInfo event : events) {
+                final Long endTimeNano = event.getEndTimeNanoIfKnown();
+                if (endTimeNano != null) {
+                    seriesHistograms[i].record(endTimeNano - event.getStartTimeNano(),
+                            TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the latencies collected per series and timed event. Series
+     * without latencies are left out.
+     *
+     * @param reset whether to clear the histograms as they are read, so that
+     *            the next snapshot only has the latencies collected since.
+     * @return the snapshots of the histograms per series and timed event.
+     */
+    public Map<Series, Map<Field, LatencyHistogram.Snapshot>> snapshot(boolean reset) {
+        final Map<Series, Map<Field, LatencyHistogram.Snapshot>> result = new HashMap<Series, Map<Field, LatencyHistogram.Snapshot>>();
+        for (final Map.Entry<Series, LatencyHistogram[]> entry : histograms.entrySet()) {
+            final Map<Field, LatencyHistogram.Snapshot> snapshots = new EnumMap<Field, LatencyHistogram.Snapshot>(
+                    Field.class);
+            boolean empty = true;
+            for (int i = 0; i < FIELDS.size(); i++) {
+                final LatencyHistogram.Snapshot snapshot = entry.getValue()[i].snapshot(reset);
+                snapshots.put(FIELDS.get(i), snapshot);
+                empty &= snapshot.getCount() == 0;
+            }
+            if (!empty) {
+                result.put(entry.getKey(), snapshots);
+            }
+        }
+        return result;
+    }
+
+    private LatencyHistogram[] histogramsOf(Series series) {
+        LatencyHistogram[] seriesHistograms = histograms.get(series);
+        if (seriesHistograms != null) {
+            return seriesHistograms;
+        }
+        // racing threads may briefly exceed the maximum by a few series
+        final Series key = histograms.size() < maxSeries ? series : Series.OVERFLOW;
+        seriesHistograms = new LatencyHistogram[FIELDS.size()];
+        for (int i = 0; i < seriesHistograms.length; i++) {
+            seriesHistograms[i] = new LatencyHistogram();
+        }
+        final LatencyHistogram[] existing = histograms.putIfAbsent(key, seriesHistograms);
+        return existing == null ? seriesHistograms : existing;
+    }
+
+    private static String operationOf(Request<?> request) {
+        final AmazonWebServiceRequest originalRequest = request.getOriginalRequest();
+        if (originalRequest == null) {
+            return null;
+        }
+        final String name = originalRequest.getClass().getSimpleName();
+        return name.endsWith(REQUEST_SUFFIX) && name.length() > REQUEST_SUFFIX.length()
+                ? name.substring(0, name.length() - REQUEST_SUFFIX.length())
+                : name;
+    }
+
+    private static Integer statusOf(AWSRequestMetrics metrics) {
+        final List<Object> statusCodes = metrics.getProperty(Field.StatusCode);
+        if (statusCodes == null || statusCodes.isEmpty()) {
+            return null;
+        }
+        final Object last = statusCodes.get(statusCodes.size() - 1);
+        return last instanceof Integer ? (Integer) last : null;
+    }
+
+    /**
+     * A combination of service, operation and final status code whose
+     * latencies are aggregated together.
+     */
+    public static final class Series {
+        /** The series of the requests past the maximum number of series. */
+        public static final Series OVERFLOW = new Series(null, null, null);
+
+        private final String serviceName;
+        private final String operationName;
+        private final Integer statusCode;
+
+        /**
+         * @param serviceName the service name.
+         * @param operationName the operation name.
+         * @param statusCode the HTTP status code of the last attempt.
+         */
+        public Series(String serviceName, String operationName, Integer statusCode) {
+            this.serviceName = serviceName;
+            this.operationName = operationName;
+            this.statusCode = statusCode;
+        }
+
+        /**
+         * @return the service name, such as "AmazonDynamoDB"; or null.
+         */
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        /**
+         * @return the operation name, such as "PutItem"; or null.
+         */
+        public String getOperationName() {
+            return operationName;
+        }
+
+        /**
+         * @return the HTTP status code of the last attempt, or null if no
+         *         response was received.
+         */
+        public Integer getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Series)) {
+                return false;
+            }
+            final Series other = (Series) obj;
+            return equal(serviceName, other.serviceName)
+                    && equal(operationName, other.operationName)
+                    && equal(statusCode, other.statusCode);
+        }
+
+        @SuppressWarnings("checkstyle:magicnumber")
+        @Override
+        public int hashCode() {
+            int hash = serviceName == null ? 0 : serviceName.hashCode();
+            hash = 31 * hash + (operationName == null ? 0 : operationName.hashCode());
+            return 31 * hash + (statusCode == null ? 0 : statusCode.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return serviceName + "/" + operationName + "/" + statusCode;
+        }
+
+        private static boolean equal(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
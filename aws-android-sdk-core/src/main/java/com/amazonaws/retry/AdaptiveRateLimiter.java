@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import com.amazonaws.ClientConfiguration;
+
+/**
+ * A client side send rate limiter that adapts to throttling. It stays out of
+ * the way until the service throttles a request; from then on requests take a
+ * token from a bucket refilled at a rate that is cut on every throttling
+ * response and grows back along a cubic curve while requests succeed, the
+ * way TCP CUBIC probes for bandwidth. Requests of all the threads sharing a
+ * client are spread out to the rate the service sustains instead of retrying
+ * into it.
+ * <p>
+ * {@link #acquire()} doesn't block: it reserves a token and returns how long
+ * the caller must wait before sending, so that asynchronous callers can
+ * schedule the send instead of holding a thread.
+ * <p>
+ * This class is thread safe.
+ *
+ * @see ClientConfiguration#setAdaptiveRateLimiting(boolean)
+ */
+public class AdaptiveRateLimiter {
+
+    /** Lowest send rate, in requests per second. */
+    static final double MIN_FILL_RATE = 0.5;
+    /** Smallest bucket, in tokens. */
+    static final double MIN_CAPACITY = 1.0;
+    /** Weight of the latest measurement in the measured send rate. */
+    static final double SMOOTH = 0.8;
+    /** Fraction of the rate kept after a throttling response. */
+    static final double BETA = 0.7;
+    /** How fast the rate grows back. */
+    static final double SCALE_CONSTANT = 0.4;
+    /** Width in seconds of the buckets the send rate is measured in. */
+    private static final double MEASUREMENT_INTERVAL = 0.5;
+    private static final double MILLIS_PER_SECOND = 1000.0;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public double currentTimeSeconds() {
+            return System.nanoTime() / NANOS_PER_SECOND;
+        }
+    };
+
+    private final Clock clock;
+    private double fillRate;
+    private double maxCapacity;
+    private double currentCapacity;
+    private double lastTimestamp = -1;
+    private boolean enabled;
+
+    private double measuredTxRate;
+    private double lastTxRateBucket;
+    private long requestCount;
+    private double lastMaxRate;
+    private double lastThrottleTime;
+    private double timeWindow;
+
+    /**
+     * Creates a limiter that allows any rate until the first throttling
+     * response.
+     */
+    public AdaptiveRateLimiter() {
+        this(SYSTEM_CLOCK);
+    }
+
+    /**
+     * @param clock the source of the current time.
+     */
+    AdaptiveRateLimiter(Clock clock) {
+        this.clock = clock;
+        final double now = clock.currentTimeSeconds();
+        lastTxRateBucket = Math.floor(now / MEASUREMENT_INTERVAL) * MEASUREMENT_INTERVAL;
+        lastThrottleTime = now;
+    }
+
+    /**
+     * Reserves a token for a request.
+     *
+     * @return how long in milliseconds the caller must wait before sending the
+     *         request; 0 to send it now.
+     */
+    public synchronized long acquire() {
+        if (!enabled) {
+            return 0;
+        }
+        refill();
+        currentCapacity -= 1;
+        if (currentCapacity >= 0) {
+            return 0;
+        }
+        // the token is borrowed from the refill to come
+        return (long) Math.ceil(-currentCapacity / fillRate * MILLIS_PER_SECOND);
+    }
+
+    /**
+     * Updates the send rate with the outcome of a request.
+     *
+     * @param throttled whether the service throttled the request.
+     */
+    public synchronized void updateRate(boolean throttled) {
+        final double now = clock.currentTimeSeconds();
+        updateMeasuredRate(now);
+        final double calculatedRate;
+        if (throttled) {
+            final double rateToUse = enabled ? Math.min(measuredTxRate, fillRate)
+                    : measuredTxRate;
+            lastMaxRate = rateToUse;
+            timeWindow = Math.cbrt(lastMaxRate * (1 - BETA) / SCALE_CONSTANT);
+            lastThrottleTime = now;
+            calculatedRate = rateToUse * BETA;
+            enabled = true;
+        } else {
+            final double elapsed = now - lastThrottleTime - timeWindow;
+            calculatedRate = SCALE_CONSTANT * elapsed * elapsed * elapsed + lastMaxRate;
+        }
+        updateFillRate(Math.min(calculatedRate, 2 * measuredTxRate), now);
+    }
+
+    /**
+     * @return whether the limiter is limiting the send rate, which it does
+     *         from the first throttling response on.
+     */
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the allowed send rate in requests per second, or
+     *         {@link Double#POSITIVE_INFINITY} while not limiting.
+     */
+    public synchronized double getSendRate() {
+        return enabled ? fillRate : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the measured send rate in requests per second.
+     */
+    public synchronized double getMeasuredSendRate() {
+        return measuredTxRate;
+    }
+
+    private void refill() {
+        final double now = clock.currentTimeSeconds();
+        if (lastTimestamp >= 0) {
+            currentCapacity = Math.min(maxCapacity,
+                    currentCapacity + (now - lastTimestamp) * fillRate);
+        }
+        lastTimestamp = now;
+    }
+
+    private void updateFillRate(double newRate, double now) {
+        refill();
+        fillRate = Math.max(newRate, MIN_FILL_RATE);
+        maxCapacity = Math.max(newRate, MIN_CAPACITY);
+        currentCapacity = Math.min(currentCapacity, maxCapacity);
+        lastTimestamp = now;
+    }
+
+    private void updateMeasuredRate(double now) {
+        final double timeBucket = Math.floor(now / MEASUREMENT_INTERVAL) * MEASUREMENT_INTERVAL;
+        requestCount++;
+        if (timeBucket > lastTxRateBucket) {
+            final double currentRate = requestCount / (timeBucket - lastTxRateBucket);
+            measuredTxRate = currentRate * SMOOTH + measuredTxRate * (1 - SMOOTH);
+            requestCount = 0;
+            lastTxRateBucket = timeBucket;
+        }
+    }
+
+    /**
+     * A source of the current time; tests drive their own.
+     */
+    interface Clock {
+        /**
+         * @return the current time in seconds.
+         */
+        double currentTimeSeconds();
+    }
+}
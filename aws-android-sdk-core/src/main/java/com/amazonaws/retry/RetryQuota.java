@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import com.amazonaws.ClientConfiguration;
+
+/**
+ * A token bucket shared by all the requests of a client that bounds how many
+ * retries it makes. Every retry takes {@link #RETRY_COST} tokens (or
+ * {@link #TIMEOUT_RETRY_COST} after a timeout), and is not made when the
+ * bucket runs dry. Successful requests put tokens back: the cost of their
+ * last retry, or {@link #NO_RETRY_INCREMENT} if they succeeded at once. While
+ * a service is healthy the bucket stays full; when most requests fail, retries
+ * stop after a while instead of multiplying the load on the service.
+ * <p>
+ * This class is thread safe.
+ *
+ * @see ClientConfiguration#setRetryQuotaCapacity(int)
+ */
+public class RetryQuota {
+
+    /** Default capacity of the bucket. */
+    public static final int DEFAULT_CAPACITY = 500;
+
+    /** Tokens taken by a retry. */
+    public static final int RETRY_COST = 5;
+
+    /** Tokens taken by a retry after a timeout. */
+    public static final int TIMEOUT_RETRY_COST = 10;
+
+    /** Tokens put back by a request that succeeded without retrying. */
+    public static final int NO_RETRY_INCREMENT = 1;
+
+    private final int capacity;
+    private int available;
+
+    /**
+     * @param capacity the number of tokens of the full bucket.
+     */
+    public RetryQuota(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.available = capacity;
+    }
+
+    /**
+     * Takes tokens for a retry.
+     *
+     * @param cost the number of tokens.
+     * @return true if the tokens were taken and the retry may be made.
+     */
+    public synchronized boolean acquire(int cost) {
+        if (available < cost) {
+            return false;
+        }
+        available -= cost;
+        return true;
+    }
+
+    /**
+     * Puts tokens back, up to the capacity of the bucket.
+     *
+     * @param amount the number of tokens.
+     */
+    public synchronized void release(int amount) {
+        available = Math.min(capacity, available + amount);
+    }
+
+    /**
+     * @return the number of tokens left.
+     */
+    public synchronized int getAvailableCapacity() {
+        return available;
+    }
+
+    /**
+     * @return the number of tokens of the full bucket.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
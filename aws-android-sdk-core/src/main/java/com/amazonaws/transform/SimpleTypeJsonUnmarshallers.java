@@ -17,7 +17,11 @@ package com.amazonaws.transform;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.util.Base64;
+import com.amazonaws.util.json.AwsJsonReader;
+import com.amazonaws.util.json.AwsJsonToken;
+import com.amazonaws.util.json.Utf8JsonReader;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
@@ -30,6 +34,22 @@ import java.util.Locale;
  * SimpleTypeJsonUnmarshallers class.
  */
 public class SimpleTypeJsonUnmarshallers {
+
+    /**
+     * Returns the reader of the context if it is a {@link Utf8JsonReader}
+     * positioned on the given token, so that the value can be decoded straight
+     * from the response bytes. Other tokens, nulls in particular, keep going
+     * through {@link AwsJsonReader#nextString()}.
+     */
+    private static Utf8JsonReader utf8Reader(JsonUnmarshallerContext unmarshallerContext,
+            AwsJsonToken token) throws IOException {
+        final AwsJsonReader reader = unmarshallerContext.getReader();
+        if (reader instanceof Utf8JsonReader && reader.peek() == token) {
+            return (Utf8JsonReader) reader;
+        }
+        return null;
+    }
+
     /**
      * Unmarshaller for String values.
      */
@@ -60,6 +80,10 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<Double, JsonUnmarshallerContext> {
         @Override
         public Double unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            final Utf8JsonReader reader = utf8Reader(unmarshallerContext, AwsJsonToken.VALUE_NUMBER);
+            if (reader != null) {
+                return reader.nextDouble();
+            }
             String doubleString = unmarshallerContext.getReader().nextString();
             return (doubleString == null) ? null : Double.parseDouble(doubleString);
         }
@@ -84,6 +108,10 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<Integer, JsonUnmarshallerContext> {
         @Override
         public Integer unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            final Utf8JsonReader reader = utf8Reader(unmarshallerContext, AwsJsonToken.VALUE_NUMBER);
+            if (reader != null) {
+                return reader.nextInt();
+            }
             String intString = unmarshallerContext.getReader().nextString();
             return (intString == null) ? null : Integer.parseInt(intString);
         }
@@ -156,6 +184,10 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<Boolean, JsonUnmarshallerContext> {
         @Override
         public Boolean unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            final Utf8JsonReader reader = utf8Reader(unmarshallerContext, AwsJsonToken.VALUE_BOOLEAN);
+            if (reader != null) {
+                return reader.nextBoolean();
+            }
             String booleanString = unmarshallerContext.getReader().nextString();
             return (booleanString == null) ? null : Boolean.parseBoolean(booleanString);
         }
@@ -203,6 +235,10 @@ public class SimpleTypeJsonUnmarshallers {
     public static class LongJsonUnmarshaller implements Unmarshaller<Long, JsonUnmarshallerContext> {
         @Override
         public Long unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            final Utf8JsonReader reader = utf8Reader(unmarshallerContext, AwsJsonToken.VALUE_NUMBER);
+            if (reader != null) {
+                return reader.nextLong();
+            }
             String longString = unmarshallerContext.getReader().nextString();
             return (longString == null) ? null : Long.parseLong(longString);
         }
@@ -251,6 +287,10 @@ public class SimpleTypeJsonUnmarshallers {
         private static final int DATE_MULTIPLIER = 1000;
         @Override
         public Date unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            final Utf8JsonReader reader = utf8Reader(unmarshallerContext, AwsJsonToken.VALUE_NUMBER);
+            if (reader != null) {
+                return new Date((long) reader.nextDouble() * DATE_MULTIPLIER);
+            }
             String dateString = unmarshallerContext.getReader().nextString();
             if (dateString == null)
                 return null;
@@ -285,6 +325,10 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<ByteBuffer, JsonUnmarshallerContext> {
         @Override
         public ByteBuffer unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            final Utf8JsonReader reader = utf8Reader(unmarshallerContext, AwsJsonToken.VALUE_STRING);
+            if (reader != null) {
+                return ByteBuffer.wrap(reader.nextBytes());
+            }
             String base64EncodedString = unmarshallerContext.getReader().nextString();
             byte[] decodedBytes = Base64.decode(base64EncodedString);
             return ByteBuffer.wrap(decodedBytes);
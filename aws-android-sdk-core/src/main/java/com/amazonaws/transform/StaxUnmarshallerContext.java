@@ -19,9 +19,12 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -36,13 +39,30 @@ import java.util.Map;
  */
 public class StaxUnmarshallerContext {
 
+    private static final int INITIAL_STACK_SIZE = 16;
+
     private int currentEventType;
     private final XmlPullParser xpp;
 
-    /** The deque stack. */
+    /**
+     * The paths of the open elements, the innermost first, e.g.
+     * "/a/b" then "/a". The paths are built from the element stack when the
+     * deque is read, so parsing doesn't pay for them. The deque is read only.
+     *
+     * @deprecated the element stack is tracked by ids; use
+     *             {@link #getCurrentDepth()} and {@link #testExpression}.
+     */
+    @Deprecated
     @SuppressWarnings("checkstyle:visibilitymodifier")
-    public final Deque<String> stack = new LinkedList<String>();
-    private String stackString = "";
+    public final Deque<String> stack = new ElementPathDeque();
+
+    /** Names of the open elements, from the root. */
+    private String[] elementNames = new String[INITIAL_STACK_SIZE];
+    /** Ids of the open elements, resolved lazily. */
+    private int[] elementIds = new int[INITIAL_STACK_SIZE];
+    private int depth;
+    /** Incremented whenever an element is opened or closed. */
+    private int modCount;
 
     private Map<String, String> metadata = new HashMap<String, String>();
     private List<MetadataExpression> metadataExpressions = new ArrayList<MetadataExpression>();
@@ -116,7 +136,7 @@ public class StaxUnmarshallerContext {
      *         document being parsed.
      */
     public int getCurrentDepth() {
-        return stack.size();
+        return depth;
     }
 
     /**
@@ -144,19 +164,7 @@ public class StaxUnmarshallerContext {
      *         the XML document, starting from the specified depth.
      */
     public boolean testExpression(String expression, int startingStackDepth) {
-        if (".".equals(expression))
-            return true;
-
-        int index = -1;
-        while ((index = expression.indexOf("/", index + 1)) > -1) {
-            // Don't consider attributes a new depth level
-            if (expression.charAt(index + 1) != '@') {
-                startingStackDepth++;
-            }
-        }
-
-        return (getCurrentDepth() == startingStackDepth
-                && stackString.endsWith("/" + expression));
+        return XmlPathExpression.compile(expression).matches(this, startingStackDepth);
     }
 
     /**
@@ -192,7 +200,7 @@ public class StaxUnmarshallerContext {
         // look for meta data
         if (currentEventType == XmlPullParser.START_TAG) {
             for (MetadataExpression metadataExpression : metadataExpressions) {
-                if (testExpression(metadataExpression.expression,
+                if (metadataExpression.expression.matches(this,
                         metadataExpression.targetDepth)) {
                     metadata.put(metadataExpression.key, readText());
                     break;
@@ -227,7 +235,8 @@ public class StaxUnmarshallerContext {
      *            data.
      */
     public void registerMetadataExpression(String expression, int targetDepth, String storageKey) {
-        metadataExpressions.add(new MetadataExpression(expression, targetDepth, storageKey));
+        metadataExpressions.add(new MetadataExpression(XmlPathExpression.compile(expression),
+                targetDepth, storageKey));
     }
 
     /*
@@ -241,24 +250,202 @@ public class StaxUnmarshallerContext {
     @SuppressWarnings("checkstyle:visibilitymodifier")
     private static class MetadataExpression {
 
-        public String expression;
+        public XmlPathExpression expression;
         public int targetDepth;
         public String key;
 
-        public MetadataExpression(String expression, int targetDepth, String key) {
+        public MetadataExpression(XmlPathExpression expression, int targetDepth, String key) {
             this.expression = expression;
             this.targetDepth = targetDepth;
             this.key = key;
         }
     }
 
+    /**
+     * Returns the name id of the open element at the given depth. Ids are
+     * resolved on first use since an expression naming the element may be
+     * compiled after the element was opened.
+     */
+    int getElementId(int index) {
+        int id = elementIds[index];
+        if (id == XmlPathExpression.UNKNOWN_NAME) {
+            id = XmlPathExpression.idOf(elementNames[index]);
+            elementIds[index] = id;
+        }
+        return id;
+    }
+
     private void updateContext() {
         if (currentEventType == XmlPullParser.START_TAG) {
-            stackString += "/" + xpp.getName();
-            stack.push(stackString);
-        } else if (currentEventType == XmlPullParser.END_TAG) {
-            stack.pop();
-            stackString = stack.isEmpty() ? "" : stack.peek();
+            if (depth == elementNames.length) {
+                final String[] names = new String[depth * 2];
+                System.arraycopy(elementNames, 0, names, 0, depth);
+                elementNames = names;
+                final int[] ids = new int[depth * 2];
+                System.arraycopy(elementIds, 0, ids, 0, depth);
+                elementIds = ids;
+            }
+            final String name = xpp.getName();
+            elementNames[depth] = name;
+            elementIds[depth] = XmlPathExpression.idOf(name);
+            depth++;
+            modCount++;
+        } else if (currentEventType == XmlPullParser.END_TAG && depth > 0) {
+            depth--;
+            elementNames[depth] = null;
+            modCount++;
+        }
+    }
+
+    /**
+     * A read only view of the element paths of the {@link #stack} field,
+     * rebuilt from the open element names when the stack changed since it
+     * was last read.
+     */
+    private final class ElementPathDeque extends AbstractCollection<String>
+            implements Deque<String> {
+
+        private LinkedList<String> paths = new LinkedList<String>();
+        private int pathsModCount;
+
+        private LinkedList<String> paths() {
+            if (pathsModCount != modCount) {
+                final LinkedList<String> rebuilt = new LinkedList<String>();
+                final StringBuilder path = new StringBuilder();
+                for (int i = 0; i < depth; i++) {
+                    path.append('/').append(elementNames[i]);
+                    rebuilt.addFirst(path.toString());
+                }
+                paths = rebuilt;
+                pathsModCount = modCount;
+            }
+            return paths;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Collections.unmodifiableCollection(paths()).iterator();
+        }
+
+        @Override
+        public Iterator<String> descendingIterator() {
+            final List<String> reversed = new ArrayList<String>(paths());
+            Collections.reverse(reversed);
+            return Collections.unmodifiableList(reversed).iterator();
+        }
+
+        @Override
+        public int size() {
+            return depth;
+        }
+
+        @Override
+        public String getFirst() {
+            return paths().getFirst();
+        }
+
+        @Override
+        public String getLast() {
+            return paths().getLast();
+        }
+
+        @Override
+        public String peekFirst() {
+            return paths().peekFirst();
+        }
+
+        @Override
+        public String peekLast() {
+            return paths().peekLast();
+        }
+
+        @Override
+        public String element() {
+            return getFirst();
+        }
+
+        @Override
+        public String peek() {
+            return peekFirst();
+        }
+
+        @Override
+        public void addFirst(String e) {
+            throw readOnly();
+        }
+
+        @Override
+        public void addLast(String e) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean offerFirst(String e) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean offerLast(String e) {
+            throw readOnly();
+        }
+
+        @Override
+        public String removeFirst() {
+            throw readOnly();
+        }
+
+        @Override
+        public String removeLast() {
+            throw readOnly();
+        }
+
+        @Override
+        public String pollFirst() {
+            throw readOnly();
+        }
+
+        @Override
+        public String pollLast() {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean removeFirstOccurrence(Object o) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean removeLastOccurrence(Object o) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean offer(String e) {
+            throw readOnly();
+        }
+
+        @Override
+        public String remove() {
+            throw readOnly();
+        }
+
+        @Override
+        public String poll() {
+            throw readOnly();
+        }
+
+        @Override
+        public void push(String e) {
+            throw readOnly();
+        }
+
+        @Override
+        public String pop() {
+            throw readOnly();
+        }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("The element stack is read only");
         }
     }
 }
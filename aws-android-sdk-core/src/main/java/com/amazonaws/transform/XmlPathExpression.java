@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.transform;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pseudo-xpath expression of {@link StaxUnmarshallerContext} compiled into
+ * element name ids, such as {@code "imageSet/item/id"}. Element names are
+ * interned into ids when an expression referencing them is compiled, so that
+ * matching an expression against the element stack compares ints instead of
+ * building and comparing path strings.
+ * <p>
+ * The unmarshallers pass the same literal expressions over and over, so
+ * compiled expressions are cached.
+ */
+final class XmlPathExpression {
+
+    /** Id of an element name no expression references (yet). */
+    static final int UNKNOWN_NAME = -1;
+
+    private static final int MAX_CACHED_EXPRESSIONS = 4096;
+
+    private static final ConcurrentMap<String, Integer> NAME_IDS = new ConcurrentHashMap<String, Integer>();
+    private static final AtomicInteger NAME_COUNT = new AtomicInteger();
+    private static final ConcurrentMap<String, XmlPathExpression> EXPRESSIONS = new ConcurrentHashMap<String, XmlPathExpression>();
+
+    private static final XmlPathExpression CURRENT = new XmlPathExpression(true, 0, new int[0]);
+
+    private final boolean matchesAll;
+    private final int depthOffset;
+    private final int[] nameIds;
+
+    private XmlPathExpression(boolean matchesAll, int depthOffset, int[] nameIds) {
+        this.matchesAll = matchesAll;
+        this.depthOffset = depthOffset;
+        this.nameIds = nameIds;
+    }
+
+    /**
+     * Returns the compiled form of the given expression.
+     *
+     * @param expression the expression, such as {@code "item/id"}, or
+     *            {@code "."} for the current element.
+     * @return the compiled expression.
+     */
+    static XmlPathExpression compile(String expression) {
+        XmlPathExpression compiled = EXPRESSIONS.get(expression);
+        if (compiled == null) {
+            compiled = doCompile(expression);
+            if (EXPRESSIONS.size() < MAX_CACHED_EXPRESSIONS) {
+                EXPRESSIONS.putIfAbsent(expression, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    private static XmlPathExpression doCompile(String expression) {
+        if (".".equals(expression)) {
+            return CURRENT;
+        }
+        final String[] segments = expression.split("/", -1);
+        final int[] ids = new int[segments.length];
+        int depthOffset = 0;
+        for (int i = 0; i < segments.length; i++) {
+            ids[i] = register(segments[i]);
+            // Don't consider attributes a new depth level
+            if (i > 0 && !segments[i].startsWith("@")) {
+                depthOffset++;
+            }
+        }
+        return new XmlPathExpression(false, depthOffset, ids);
+    }
+
+    private static int register(String name) {
+        Integer id = NAME_IDS.get(name);
+        if (id == null) {
+            final Integer newId = NAME_COUNT.getAndIncrement();
+            id = NAME_IDS.putIfAbsent(name, newId);
+            if (id == null) {
+                id = newId;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @param name an element name.
+     * @return the id of the name, or {@link #UNKNOWN_NAME} if no compiled
+     *         expression references it.
+     */
+    static int idOf(String name) {
+        final Integer id = NAME_IDS.get(name);
+        return id == null ? UNKNOWN_NAME : id;
+    }
+
+    /**
+     * Tests the expression against the element stack of a context.
+     *
+     * @param context the context.
+     * @param startingStackDepth the depth where the expression must start
+     *            matching.
+     * @return true if the expression matches the current element.
+     */
+    boolean matches(StaxUnmarshallerContext context, int startingStackDepth) {
+        if (matchesAll) {
+            return true;
+        }
+        final int depth = context.getCurrentDepth();
+        if (depth != startingStackDepth + depthOffset || nameIds.length > depth) {
+            return false;
+        }
+        // compare from the current element outwards, it differs most often
+        for (int i = nameIds.length - 1, d = depth - 1; i >= 0; i--, d--) {
+            if (context.getElementId(d) != nameIds[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
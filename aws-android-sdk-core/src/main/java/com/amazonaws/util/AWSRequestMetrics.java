@@ -138,9 +138,36 @@ public class AWSRequestMetrics {
          * /apidocs/org/apache/http/pool/PoolStats.html
          */
         HttpClientPoolPendingCount,
+        /**
+         * Time taken to get a connection from the pool of a
+         * {@link com.amazonaws.http.PooledHttpClient}, including the time
+         * spent waiting for a free connection and connecting.
+         */
+        HttpClientGetConnectionTime,
+        /**
+         * Number of requests sent on a pooled connection that was reused
+         * rather than newly opened. Divided by {@link #RequestCount} this gives
+         * the connection reuse ratio.
+         */
+        HttpClientPoolReusedCount,
 
         /** RetryPauseTime. */
         RetryPauseTime,
+        /**
+         * Time spent waiting for the adaptive rate limiter before sending a
+         * request.
+         */
+        RateLimitPauseTime,
+        /**
+         * Tokens left in the retry quota of the client when the request
+         * completed.
+         */
+        RetryQuotaAvailable,
+        /**
+         * Send rate in requests per second allowed by the adaptive rate
+         * limiter when the request completed; only set while limiting.
+         */
+        ClientSendRate,
         // S3DownloadThroughput, // migrated to S3RequestMetric in the S3 clint
         // library
         // S3UploadThroughput, // migrated to S3RequestMetric in the S3 clint
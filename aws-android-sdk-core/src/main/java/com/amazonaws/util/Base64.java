@@ -69,4 +69,19 @@ public enum Base64 {
     public static byte[] decode(byte[] b64) {
         return b64 == null || b64.length == 0 ? b64 : CODEC.decode(b64, b64.length);
     }
+
+    /**
+     * Decodes the first {@code length} base 64 encoded bytes of the given
+     * array, which must already be free of carriage returns, line feeds and
+     * spaces.
+     * @param b64 the base 64 encoded bytes.
+     * @param length the number of bytes to decode.
+     * @return the decoded result.
+     */
+    public static byte[] decode(byte[] b64, int length) {
+        if (b64 == null) {
+            return null;
+        }
+        return length == 0 ? new byte[0] : CODEC.decode(b64, length);
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small, bounded pool of byte arrays used as request body buffers, so that
+ * marshalling a request doesn't allocate and grow a fresh buffer each time.
+ * Only a limited number of arrays up to a limited size are retained; larger
+ * arrays are left to the garbage collector. The pool is thread safe.
+ */
+public final class ByteArrayPool {
+
+    /** Default number of arrays retained by the pool. */
+    public static final int DEFAULT_MAX_POOLED_ARRAYS = 8;
+
+    /** Default size of the largest array retained by the pool. */
+    public static final int DEFAULT_MAX_POOLED_ARRAY_SIZE = 128 * 1024;
+
+    private static final ByteArrayPool DEFAULT_POOL = new ByteArrayPool(
+            DEFAULT_MAX_POOLED_ARRAYS, DEFAULT_MAX_POOLED_ARRAY_SIZE);
+
+    private final Queue<byte[]> arrays = new ConcurrentLinkedQueue<byte[]>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxPooledArrays;
+    private final int maxPooledArraySize;
+
+    /**
+     * @param maxPooledArrays the maximum number of arrays retained.
+     * @param maxPooledArraySize the size of the largest array retained.
+     */
+    public ByteArrayPool(int maxPooledArrays, int maxPooledArraySize) {
+        if (maxPooledArrays < 0 || maxPooledArraySize < 0) {
+            throw new IllegalArgumentException("Pool limits can't be negative");
+        }
+        this.maxPooledArrays = maxPooledArrays;
+        this.maxPooledArraySize = maxPooledArraySize;
+    }
+
+    /**
+     * @return the pool shared by the request marshallers.
+     */
+    public static ByteArrayPool getDefault() {
+        return DEFAULT_POOL;
+    }
+
+    /**
+     * Takes an array of at least the given size from the pool, or allocates
+     * one. The content of a pooled array is undefined.
+     *
+     * @param minimumSize the minimum size of the array.
+     * @return an array of at least {@code minimumSize} bytes.
+     */
+    public byte[] acquire(int minimumSize) {
+        final byte[] array = arrays.poll();
+        if (array != null) {
+            size.decrementAndGet();
+            if (array.length >= minimumSize) {
+                return array;
+            }
+            release(array);
+        }
+        return new byte[minimumSize];
+    }
+
+    /**
+     * Returns an array to the pool. The caller must not use it afterwards.
+     *
+     * @param array the array.
+     */
+    public void release(byte[] array) {
+        if (array == null || array.length == 0 || array.length > maxPooledArraySize) {
+            return;
+        }
+        if (size.incrementAndGet() > maxPooledArrays) {
+            size.decrementAndGet();
+            return;
+        }
+        arrays.offer(array);
+    }
+
+    /**
+     * @return the number of arrays currently pooled.
+     */
+    public int getPooledCount() {
+        return size.get();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * A repeatable request body reading a buffer borrowed from a
+ * {@link ByteArrayPool}. Like any {@link ByteArrayInputStream} it supports
+ * mark and reset without copying, so the request can be signed and retried.
+ * {@link com.amazonaws.http.AmazonHttpClient} calls {@link #release()} once
+ * the request was executed, which hands the buffer back to the pool; the
+ * stream is empty afterwards.
+ */
+public class PooledByteArrayInputStream extends ByteArrayInputStream {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private ByteArrayPool pool;
+
+    /**
+     * @param pool the pool the buffer is returned to.
+     * @param buffer the buffer, owned by the stream from now on.
+     * @param length the number of bytes of the buffer to read.
+     */
+    public PooledByteArrayInputStream(ByteArrayPool pool, byte[] buffer, int length) {
+        super(buffer, 0, length);
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the buffer to its pool. Further calls have no effect.
+     */
+    public synchronized void release() {
+        if (pool == null) {
+            return;
+        }
+        final byte[] buffer = buf;
+        buf = EMPTY;
+        pos = 0;
+        count = 0;
+        mark = 0;
+        pool.release(buffer);
+        pool = null;
+    }
+}
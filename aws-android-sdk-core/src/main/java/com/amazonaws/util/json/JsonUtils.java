@@ -18,6 +18,7 @@ package com.amazonaws.util.json;
 import com.amazonaws.AmazonClientException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -102,6 +103,18 @@ public class JsonUtils {
         return factory.getJsonReader(in);
     }
 
+    /**
+     * Gets a JSON reader of UTF-8 encoded content. The content is parsed
+     * straight from its bytes by a {@link Utf8JsonReader}, whichever JSON
+     * engine is set.
+     *
+     * @param in UTF-8 encoded input stream
+     * @return a JSON reader
+     */
+    public static AwsJsonReader getJsonReader(InputStream in) {
+        return new Utf8JsonReader(in);
+    }
+
     /**
      * Gets a JSON writer. If no JSON engine is available, an
      * {@link AmazonClientException} will be thrown.
@@ -116,6 +129,17 @@ public class JsonUtils {
         return factory.getJsonWriter(out);
     }
 
+    /**
+     * Gets a JSON writer encoding UTF-8 into a buffer borrowed from the
+     * default {@link com.amazonaws.util.ByteArrayPool}, whichever JSON engine
+     * is set. The request marshallers write their bodies with it.
+     *
+     * @return a JSON writer
+     */
+    public static Utf8JsonWriter getUtf8JsonWriter() {
+        return new Utf8JsonWriter();
+    }
+
     /**
      * Convenient method to convert a JSON string to a map. Any object or array
      * will be discarded. Number and boolean are stored as string.
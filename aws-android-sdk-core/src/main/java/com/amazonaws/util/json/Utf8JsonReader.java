@@ -0,0 +1,892 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import com.amazonaws.util.Base64;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A streaming {@link AwsJsonReader} that parses UTF-8 encoded JSON straight
+ * from the bytes of an {@link InputStream}, without a {@link java.io.Reader}
+ * in between. Strings are decoded from the byte buffer into a reused character
+ * buffer, repeated field names are shared, and the typed methods (
+ * {@link #nextLong()}, {@link #nextDouble()}, {@link #nextBoolean()},
+ * {@link #nextBytes()}, ...) decode numbers, booleans and base64 blobs in
+ * place instead of going through an intermediate {@link String}.
+ * <p>
+ * The reader is strict: it accepts exactly one JSON value per document.
+ * Malformed UTF-8 sequences are decoded as U+FFFD, like
+ * {@link java.io.InputStreamReader} does. Instances are not thread safe.
+ */
+public final class Utf8JsonReader implements AwsJsonReader {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int INITIAL_CHARS_SIZE = 64;
+    private static final int INITIAL_STACK_SIZE = 32;
+    private static final int NAME_CACHE_SIZE = 256;
+    private static final int MAX_CACHED_NAME_LENGTH = 32;
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int HEX_RADIX = 16;
+    private static final int DECIMAL_RADIX = 10;
+    private static final int UNICODE_ESCAPE_LENGTH = 4;
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    /** Largest mantissa a double holds exactly: 2^53. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    /** Powers of ten that a double holds exactly. */
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // scopes of the nesting stack
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    // peeked tokens; a peeked string or name has its opening quote consumed,
+    // a peeked number starts at pos and a peeked literal is fully consumed
+    private static final int PEEKED_NONE = 0;
+    private static final int PEEKED_BEGIN_OBJECT = 1;
+    private static final int PEEKED_END_OBJECT = 2;
+    private static final int PEEKED_BEGIN_ARRAY = 3;
+    private static final int PEEKED_END_ARRAY = 4;
+    private static final int PEEKED_TRUE = 5;
+    private static final int PEEKED_FALSE = 6;
+    private static final int PEEKED_NULL = 7;
+    private static final int PEEKED_STRING = 8;
+    private static final int PEEKED_NAME = 9;
+    private static final int PEEKED_NUMBER = 10;
+    private static final int PEEKED_EOF = 11;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    private char[] chars = new char[INITIAL_CHARS_SIZE];
+    private int charCount;
+    private byte[] scratch;
+
+    private int[] stack = new int[INITIAL_STACK_SIZE];
+    private int stackSize;
+    private int peeked = PEEKED_NONE;
+
+    private final String[] nameCache = new String[NAME_CACHE_SIZE];
+
+    /**
+     * @param in the UTF-8 encoded JSON content.
+     */
+    public Utf8JsonReader(InputStream in) {
+        if (in == null) {
+            throw new IllegalArgumentException("in can't be null");
+        }
+        this.in = in;
+        stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        expect(PEEKED_BEGIN_ARRAY, "BEGIN_ARRAY");
+        push(EMPTY_ARRAY);
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        expect(PEEKED_END_ARRAY, "END_ARRAY");
+        stackSize--;
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        expect(PEEKED_BEGIN_OBJECT, "BEGIN_OBJECT");
+        push(EMPTY_OBJECT);
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        expect(PEEKED_END_OBJECT, "END_OBJECT");
+        stackSize--;
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public boolean isContainer() throws IOException {
+        final int p = peekToken();
+        return p == PEEKED_BEGIN_ARRAY || p == PEEKED_BEGIN_OBJECT;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        final int p = peekToken();
+        return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        expect(PEEKED_NAME, "FIELD_NAME");
+        peeked = PEEKED_NONE;
+        return readName();
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        final int p = peekToken();
+        peeked = PEEKED_NONE;
+        switch (p) {
+            case PEEKED_STRING:
+                readChars();
+                return new String(chars, 0, charCount);
+            case PEEKED_NUMBER:
+                readNumberChars();
+                return new String(chars, 0, charCount);
+            case PEEKED_TRUE:
+                return "true";
+            case PEEKED_FALSE:
+                return "false";
+            case PEEKED_NULL:
+                return null;
+            default:
+                peeked = p;
+                throw unexpected("a string");
+        }
+    }
+
+    /**
+     * Consumes the next value as a boolean. A string value is parsed like
+     * {@link Boolean#parseBoolean(String)}.
+     *
+     * @return the boolean value.
+     * @throws IOException if the next value is not a boolean or a string.
+     */
+    public boolean nextBoolean() throws IOException {
+        final int p = peekToken();
+        if (p == PEEKED_TRUE || p == PEEKED_FALSE) {
+            peeked = PEEKED_NONE;
+            return p == PEEKED_TRUE;
+        }
+        if (p == PEEKED_STRING) {
+            peeked = PEEKED_NONE;
+            readChars();
+            return charCount == "true".length() && regionMatchesIgnoreCase("true");
+        }
+        throw unexpected("a boolean");
+    }
+
+    /**
+     * Consumes the next value as a long. Numbers are decoded in place; a
+     * string or a number that isn't an integer is parsed with
+     * {@link Long#parseLong(String)}.
+     *
+     * @return the long value.
+     * @throws IOException if the next value is not a number or a string.
+     * @throws NumberFormatException if the value is not a long.
+     */
+    public long nextLong() throws IOException {
+        final int p = peekToken();
+        if (p == PEEKED_NUMBER) {
+            peeked = PEEKED_NONE;
+            readNumberChars();
+            return parseLong();
+        }
+        if (p == PEEKED_STRING) {
+            peeked = PEEKED_NONE;
+            readChars();
+            return Long.parseLong(new String(chars, 0, charCount));
+        }
+        throw unexpected("a number");
+    }
+
+    /**
+     * Consumes the next value as an int, as {@link #nextLong()} does.
+     *
+     * @return the int value.
+     * @throws IOException if the next value is not a number or a string.
+     * @throws NumberFormatException if the value is not an int.
+     */
+    public int nextInt() throws IOException {
+        final int p = peekToken();
+        if (p == PEEKED_NUMBER) {
+            peeked = PEEKED_NONE;
+            readNumberChars();
+            final long value = parseLong();
+            if (value != (int) value) {
+                throw new NumberFormatException("Value out of range: "
+                        + new String(chars, 0, charCount));
+            }
+            return (int) value;
+        }
+        if (p == PEEKED_STRING) {
+            peeked = PEEKED_NONE;
+            readChars();
+            return Integer.parseInt(new String(chars, 0, charCount));
+        }
+        throw unexpected("a number");
+    }
+
+    /**
+     * Consumes the next value as a double. Numbers with at most 15
+     * significant digits and a small exponent are decoded in place; other
+     * numbers and strings are parsed with {@link Double#parseDouble(String)}.
+     *
+     * @return the double value.
+     * @throws IOException if the next value is not a number or a string.
+     * @throws NumberFormatException if the value is not a double.
+     */
+    public double nextDouble() throws IOException {
+        final int p = peekToken();
+        if (p == PEEKED_NUMBER) {
+            peeked = PEEKED_NONE;
+            readNumberChars();
+            return parseDouble();
+        }
+        if (p == PEEKED_STRING) {
+            peeked = PEEKED_NONE;
+            readChars();
+            return Double.parseDouble(new String(chars, 0, charCount));
+        }
+        throw unexpected("a number");
+    }
+
+    /**
+     * Consumes the next value as a base64 encoded string and decodes it
+     * straight from the input buffer. Carriage returns, line feeds and spaces
+     * are skipped, as {@link Base64#decode(String)} does.
+     *
+     * @return the decoded bytes, or null if the value is null.
+     * @throws IOException if the next value is not a string or null.
+     * @throws IllegalArgumentException if the value is not valid base64.
+     */
+    public byte[] nextBytes() throws IOException {
+        final int p = peekToken();
+        if (p == PEEKED_NULL) {
+            peeked = PEEKED_NONE;
+            return null;
+        }
+        if (p != PEEKED_STRING) {
+            throw unexpected("a string");
+        }
+        peeked = PEEKED_NONE;
+        if (scratch == null) {
+            scratch = new byte[INITIAL_CHARS_SIZE];
+        }
+        int length = 0;
+        while (true) {
+            if (pos == limit && !fill(1)) {
+                throw new EOFException("Unterminated string" + location());
+            }
+            int c = buffer[pos++];
+            if (c == '"') {
+                break;
+            }
+            if (c == '\\') {
+                c = readEscape();
+            }
+            if (c == '\r' || c == '\n' || c == ' ') {
+                continue;
+            }
+            if (c < 0 || c > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid base64 character" + location());
+            }
+            if (length == scratch.length) {
+                final byte[] grown = new byte[length * 2];
+                System.arraycopy(scratch, 0, grown, 0, length);
+                scratch = grown;
+            }
+            scratch[length++] = (byte) c;
+        }
+        return Base64.decode(scratch, length);
+    }
+
+    @Override
+    public AwsJsonToken peek() throws IOException {
+        switch (peekToken()) {
+            case PEEKED_BEGIN_OBJECT:
+                return AwsJsonToken.BEGIN_OBJECT;
+            case PEEKED_END_OBJECT:
+                return AwsJsonToken.END_OBJECT;
+            case PEEKED_BEGIN_ARRAY:
+                return AwsJsonToken.BEGIN_ARRAY;
+            case PEEKED_END_ARRAY:
+                return AwsJsonToken.END_ARRAY;
+            case PEEKED_TRUE:
+            case PEEKED_FALSE:
+                return AwsJsonToken.VALUE_BOOLEAN;
+            case PEEKED_NULL:
+                return AwsJsonToken.VALUE_NULL;
+            case PEEKED_STRING:
+                return AwsJsonToken.VALUE_STRING;
+            case PEEKED_NAME:
+                return AwsJsonToken.FIELD_NAME;
+            case PEEKED_NUMBER:
+                return AwsJsonToken.VALUE_NUMBER;
+            case PEEKED_EOF:
+                return null;
+            default:
+                return AwsJsonToken.UNKNOWN;
+        }
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            final int p = peekToken();
+            peeked = PEEKED_NONE;
+            switch (p) {
+                case PEEKED_BEGIN_ARRAY:
+                    push(EMPTY_ARRAY);
+                    depth++;
+                    break;
+                case PEEKED_BEGIN_OBJECT:
+                    push(EMPTY_OBJECT);
+                    depth++;
+                    break;
+                case PEEKED_END_ARRAY:
+                case PEEKED_END_OBJECT:
+                    stackSize--;
+                    depth--;
+                    break;
+                case PEEKED_STRING:
+                case PEEKED_NAME:
+                    skipString();
+                    break;
+                case PEEKED_NUMBER:
+                    skipNumber();
+                    break;
+                case PEEKED_EOF:
+                    peeked = p;
+                    throw new EOFException("End of input" + location());
+                default:
+                    // literals are consumed when peeked
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        peeked = PEEKED_NONE;
+        stack[0] = NONEMPTY_DOCUMENT;
+        stackSize = 1;
+        in.close();
+    }
+
+    private void expect(int expected, String name) throws IOException {
+        if (peekToken() != expected) {
+            throw unexpected(name);
+        }
+    }
+
+    private IllegalStateException unexpected(String expected) throws IOException {
+        return new IllegalStateException("Expected " + expected + " but was " + peek()
+                + location());
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            final int[] grown = new int[stackSize * 2];
+            System.arraycopy(stack, 0, grown, 0, stackSize);
+            stack = grown;
+        }
+        stack[stackSize++] = scope;
+    }
+
+    private int peekToken() throws IOException {
+        if (peeked == PEEKED_NONE) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+
+    @SuppressWarnings("checkstyle:cyclomaticcomplexity")
+    private int doPeek() throws IOException {
+        final int scope = stack[stackSize - 1];
+        int c;
+        if (scope == EMPTY_ARRAY || scope == NONEMPTY_ARRAY) {
+            stack[stackSize - 1] = NONEMPTY_ARRAY;
+            c = nextNonWhitespace();
+            if (c == ']') {
+                pos++;
+                return PEEKED_END_ARRAY;
+            }
+            if (scope == NONEMPTY_ARRAY) {
+                if (c != ',') {
+                    throw syntaxError("Unterminated array");
+                }
+                pos++;
+            }
+        } else if (scope == EMPTY_OBJECT || scope == NONEMPTY_OBJECT) {
+            stack[stackSize - 1] = DANGLING_NAME;
+            c = nextNonWhitespace();
+            if (c == '}') {
+                pos++;
+                return PEEKED_END_OBJECT;
+            }
+            if (scope == NONEMPTY_OBJECT) {
+                if (c != ',') {
+                    throw syntaxError("Unterminated object");
+                }
+                pos++;
+                c = nextNonWhitespace();
+            }
+            if (c != '"') {
+                throw syntaxError("Expected name");
+            }
+            pos++;
+            return PEEKED_NAME;
+        } else if (scope == DANGLING_NAME) {
+            stack[stackSize - 1] = NONEMPTY_OBJECT;
+            c = nextNonWhitespace();
+            if (c != ':') {
+                throw syntaxError("Expected ':'");
+            }
+            pos++;
+        } else if (scope == EMPTY_DOCUMENT) {
+            stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+        } else if (scope == NONEMPTY_DOCUMENT) {
+            if (nextNonWhitespaceOrEof() == -1) {
+                return PEEKED_EOF;
+            }
+            throw syntaxError("Expected end of document");
+        }
+
+        c = nextNonWhitespaceOrEof();
+        if (c == -1) {
+            return PEEKED_EOF;
+        }
+        switch (c) {
+            case '{':
+                pos++;
+                return PEEKED_BEGIN_OBJECT;
+            case '[':
+                pos++;
+                return PEEKED_BEGIN_ARRAY;
+            case '"':
+                pos++;
+                return PEEKED_STRING;
+            case 't':
+                consumeLiteral("true");
+                return PEEKED_TRUE;
+            case 'f':
+                consumeLiteral("false");
+                return PEEKED_FALSE;
+            case 'n':
+                consumeLiteral("null");
+                return PEEKED_NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return PEEKED_NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void consumeLiteral(String literal) throws IOException {
+        final int length = literal.length();
+        if (limit - pos < length && !fill(length)) {
+            throw syntaxError("Unexpected end of input");
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[pos + i] != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+        pos += length;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        final int c = nextNonWhitespaceOrEof();
+        if (c == -1) {
+            throw new EOFException("End of input" + location());
+        }
+        return c;
+    }
+
+    /**
+     * Skips whitespace and returns the next byte without consuming it, or -1
+     * at the end of the input.
+     */
+    private int nextNonWhitespaceOrEof() throws IOException {
+        while (true) {
+            if (pos == limit && !fill(1)) {
+                return -1;
+            }
+            final int c = buffer[pos];
+            if (c == ' ' || c == '\n' || c == '\t' || c == '\r') {
+                pos++;
+                continue;
+            }
+            return c;
+        }
+    }
+
+    /**
+     * Ensures at least {@code minimum} bytes are buffered, compacting the
+     * buffer first.
+     *
+     * @return false if the input ended before.
+     */
+    private boolean fill(int minimum) throws IOException {
+        if (pos > 0) {
+            limit -= pos;
+            System.arraycopy(buffer, pos, buffer, 0, limit);
+            pos = 0;
+        }
+        while (limit < minimum) {
+            final int read = in.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the name whose opening quote was consumed. Short ASCII names are
+     * shared through a small cache since the same field names repeat in
+     * every element of a list.
+     */
+    private String readName() throws IOException {
+        int hash = 0;
+        final int start = pos;
+        int end = start;
+        final int max = Math.min(limit, start + MAX_CACHED_NAME_LENGTH);
+        while (end < max) {
+            final int c = buffer[end];
+            if (c == '"') {
+                break;
+            }
+            if (c == '\\' || c < 0) {
+                end = max;
+                break;
+            }
+            hash = hash * HASH_MULTIPLIER + c;
+            end++;
+        }
+        if (end < max) {
+            final int length = end - start;
+            final int slot = hash & (NAME_CACHE_SIZE - 1);
+            final String cached = nameCache[slot];
+            if (cached != null && cached.length() == length && matches(cached, start)) {
+                pos = end + 1;
+                return cached;
+            }
+            final char[] name = new char[length];
+            for (int i = 0; i < length; i++) {
+                name[i] = (char) buffer[start + i];
+            }
+            pos = end + 1;
+            final String result = new String(name);
+            nameCache[slot] = result;
+            return result;
+        }
+        readChars();
+        return new String(chars, 0, charCount);
+    }
+
+    private boolean matches(String s, int start) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean regionMatchesIgnoreCase(String s) {
+        return new String(chars, 0, charCount).equalsIgnoreCase(s);
+    }
+
+    /**
+     * Decodes the string whose opening quote was consumed into
+     * {@link #chars}, consuming the closing quote.
+     */
+    private void readChars() throws IOException {
+        charCount = 0;
+        while (true) {
+            if (pos == limit && !fill(1)) {
+                throw new EOFException("Unterminated string" + location());
+            }
+            // copy the run of plain ASCII characters
+            int p = pos;
+            final int l = limit;
+            while (p < l) {
+                final int c = buffer[p];
+                if (c == '"' || c == '\\' || c < 0) {
+                    break;
+                }
+                appendChar((char) c);
+                p++;
+            }
+            pos = p;
+            if (p == l) {
+                continue;
+            }
+            final int c = buffer[pos++];
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                appendChar((char) readEscape());
+            } else {
+                readMultiByte(c);
+            }
+        }
+    }
+
+    /**
+     * Decodes a UTF-8 sequence whose first byte was consumed.
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    private void readMultiByte(int first) throws IOException {
+        final int b = first & 0xFF;
+        final int extra;
+        int codePoint;
+        if ((b & 0xE0) == 0xC0) {
+            extra = 1;
+            codePoint = b & 0x1F;
+        } else if ((b & 0xF0) == 0xE0) {
+            extra = 2;
+            codePoint = b & 0x0F;
+        } else if ((b & 0xF8) == 0xF0) {
+            extra = 3;
+            codePoint = b & 0x07;
+        } else {
+            appendChar(REPLACEMENT_CHAR);
+            return;
+        }
+        if (limit - pos < extra) {
+            fill(extra);
+        }
+        for (int i = 0; i < extra; i++) {
+            if (pos == limit || (buffer[pos] & 0xC0) != 0x80) {
+                // truncated sequence; the byte is decoded on its own
+                appendChar(REPLACEMENT_CHAR);
+                return;
+            }
+            codePoint = (codePoint << 6) | (buffer[pos++] & 0x3F);
+        }
+        if ((extra == 1 && codePoint < 0x80) || (extra == 2 && codePoint < 0x800)
+                || (extra == 3 && (codePoint < 0x10000 || codePoint > Character.MAX_CODE_POINT))
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            appendChar(REPLACEMENT_CHAR);
+        } else if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            // Character.highSurrogate and lowSurrogate need API level 19
+            final int offset = codePoint - Character.MIN_SUPPLEMENTARY_CODE_POINT;
+            appendChar((char) (Character.MIN_HIGH_SURROGATE + (offset >>> 10)));
+            appendChar((char) (Character.MIN_LOW_SURROGATE + (offset & 0x3FF)));
+        } else {
+            appendChar((char) codePoint);
+        }
+    }
+
+    /**
+     * Decodes an escape sequence whose backslash was consumed.
+     */
+    private int readEscape() throws IOException {
+        if (pos == limit && !fill(1)) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+        final int c = buffer[pos++];
+        switch (c) {
+            case 'u':
+                if (limit - pos < UNICODE_ESCAPE_LENGTH && !fill(UNICODE_ESCAPE_LENGTH)) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                int value = 0;
+                for (int i = 0; i < UNICODE_ESCAPE_LENGTH; i++) {
+                    final int digit = Character.digit(buffer[pos++], HEX_RADIX);
+                    if (digit == -1) {
+                        throw syntaxError("Invalid escape sequence");
+                    }
+                    value = value * HEX_RADIX + digit;
+                }
+                return value;
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            if (pos == limit && !fill(1)) {
+                throw new EOFException("Unterminated string" + location());
+            }
+            final int c = buffer[pos++];
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                readEscape();
+            }
+        }
+    }
+
+    /**
+     * Copies the number starting at {@link #pos} into {@link #chars}.
+     */
+    private void readNumberChars() throws IOException {
+        charCount = 0;
+        while (true) {
+            if (pos == limit && !fill(1)) {
+                return;
+            }
+            final int c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.'
+                    || c == 'e' || c == 'E') {
+                appendChar((char) c);
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipNumber() throws IOException {
+        readNumberChars();
+    }
+
+    private long parseLong() {
+        int i = 0;
+        final boolean negative = charCount > 0 && chars[0] == '-';
+        if (negative) {
+            i++;
+        }
+        // accumulate negatively so that Long.MIN_VALUE fits
+        long value = 0;
+        final long limitBeforeMultiply = Long.MIN_VALUE / DECIMAL_RADIX;
+        if (i == charCount) {
+            return Long.parseLong(new String(chars, 0, charCount));
+        }
+        for (; i < charCount; i++) {
+            final int digit = chars[i] - '0';
+            if (digit < 0 || digit > DECIMAL_RADIX - 1 || value < limitBeforeMultiply) {
+                return Long.parseLong(new String(chars, 0, charCount));
+            }
+            final long next = value * DECIMAL_RADIX - digit;
+            if (next > value) {
+                return Long.parseLong(new String(chars, 0, charCount));
+            }
+            value = next;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                return Long.parseLong(new String(chars, 0, charCount));
+            }
+            return -value;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes the number in {@link #chars}. When the decimal mantissa and the
+     * power of ten are both exact doubles, a single multiplication or division
+     * is correctly rounded; anything else goes through
+     * {@link Double#parseDouble(String)}.
+     */
+    private double parseDouble() {
+        int i = 0;
+        final boolean negative = charCount > 0 && chars[0] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean seenDot = false;
+        for (; i < charCount; i++) {
+            final char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                if (mantissa >= MAX_EXACT_MANTISSA / DECIMAL_RADIX) {
+                    return slowParseDouble();
+                }
+                mantissa = mantissa * DECIMAL_RADIX + (c - '0');
+                digits++;
+                if (seenDot) {
+                    exponent--;
+                }
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                // exponents and anything unusual
+                return slowParseDouble();
+            }
+        }
+        if (digits == 0 || -exponent >= EXACT_POWERS_OF_TEN.length) {
+            return slowParseDouble();
+        }
+        final double value = exponent == 0 ? mantissa
+                : mantissa / EXACT_POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private double slowParseDouble() {
+        return Double.parseDouble(new String(chars, 0, charCount));
+    }
+
+    private void appendChar(char c) {
+        if (charCount == chars.length) {
+            final char[] grown = new char[charCount * 2];
+            System.arraycopy(chars, 0, grown, 0, charCount);
+            chars = grown;
+        }
+        chars[charCount++] = c;
+    }
+
+    private IOException syntaxError(String message) {
+        return new JsonSyntaxException(message + location());
+    }
+
+    private String location() {
+        return " at byte offset " + pos + " of the buffer";
+    }
+
+    /**
+     * Thrown when the content is not well formed JSON.
+     */
+    private static final class JsonSyntaxException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        JsonSyntaxException(String message) {
+            super(message);
+        }
+    }
+}
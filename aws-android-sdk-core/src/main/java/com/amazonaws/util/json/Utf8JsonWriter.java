@@ -0,0 +1,415 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.ByteArrayPool;
+import com.amazonaws.util.PooledByteArrayInputStream;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+/**
+ * An {@link AwsJsonWriter} encoding JSON as UTF-8 straight into a growable
+ * byte buffer borrowed from a {@link ByteArrayPool}. Once the document is
+ * complete, {@link #toInputStream()} hands the buffer over as the request
+ * content without copying it, replacing the
+ * {@code StringWriter -> String -> byte[]} chain of the {@link java.io.Writer}
+ * based engines. The output is the same as the Gson engine's.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class Utf8JsonWriter implements AwsJsonWriter {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int INITIAL_STACK_SIZE = 32;
+    private static final int NEGATIVE_THREE = -3;
+    private static final byte[] HEX = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    // scopes of the nesting stack
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final ByteArrayPool pool;
+    private byte[] buffer;
+    private int count;
+
+    private int[] stack = new int[INITIAL_STACK_SIZE];
+    private int stackSize;
+
+    /**
+     * Creates a writer borrowing its buffer from the default pool.
+     */
+    public Utf8JsonWriter() {
+        this(ByteArrayPool.getDefault());
+    }
+
+    /**
+     * @param pool the pool to borrow the buffer from.
+     */
+    public Utf8JsonWriter(ByteArrayPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool can't be null");
+        }
+        this.pool = pool;
+        buffer = pool.acquire(INITIAL_BUFFER_SIZE);
+        stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    @Override
+    public AwsJsonWriter beginArray() throws IOException {
+        beforeValue();
+        writeByte('[');
+        push(EMPTY_ARRAY);
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter endArray() throws IOException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    @Override
+    public AwsJsonWriter beginObject() throws IOException {
+        beforeValue();
+        writeByte('{');
+        push(EMPTY_OBJECT);
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter endObject() throws IOException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    @Override
+    public AwsJsonWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        final int scope = peekScope();
+        if (scope == NONEMPTY_OBJECT) {
+            writeByte(',');
+        } else if (scope != EMPTY_OBJECT) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        stack[stackSize - 1] = DANGLING_NAME;
+        writeString(name);
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return value();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        writeBytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue();
+        writeAscii(Double.toString(value));
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(long value) throws IOException {
+        beforeValue();
+        writeAscii(Long.toString(value));
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return value();
+        }
+        final String string = value.toString();
+        if ("-Infinity".equals(string) || "Infinity".equals(string) || "NaN".equals(string)) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue();
+        writeAscii(string);
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(Date value) throws IOException {
+        if (value == null) {
+            return value();
+        }
+        final BigDecimal dateValue = BigDecimal.valueOf(value.getTime());
+        return value(dateValue.scaleByPowerOfTen(NEGATIVE_THREE));
+    }
+
+    @Override
+    public AwsJsonWriter value(ByteBuffer value) throws IOException {
+        if (value == null) {
+            return value();
+        }
+        beforeValue();
+        value.mark();
+        final byte[] bytes = new byte[value.remaining()];
+        value.get(bytes, 0, bytes.length);
+        value.reset();
+        final byte[] encoded = Base64.encode(bytes);
+        writeByte('"');
+        writeBytes(encoded);
+        writeByte('"');
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value() throws IOException {
+        beforeValue();
+        writeBytes(NULL);
+        return this;
+    }
+
+    /**
+     * Nothing is buffered beyond the content buffer, so this does nothing.
+     */
+    @Override
+    public void flush() throws IOException {
+    }
+
+    /**
+     * Checks that the document is complete. The content stays available to
+     * {@link #toInputStream()}.
+     *
+     * @throws IOException if the document is incomplete.
+     */
+    @Override
+    public void close() throws IOException {
+        if (stackSize > 1 || stack[0] != NONEMPTY_DOCUMENT) {
+            throw new IOException("Incomplete document");
+        }
+    }
+
+    /**
+     * @return the number of bytes written so far.
+     */
+    public int getContentLength() {
+        return count;
+    }
+
+    /**
+     * Hands the buffer over to a repeatable stream of the content written so
+     * far, which returns it to the pool once released. The writer can't be
+     * used afterwards.
+     *
+     * @return the content as a stream.
+     */
+    public PooledByteArrayInputStream toInputStream() {
+        ensureOpen();
+        final PooledByteArrayInputStream content = new PooledByteArrayInputStream(pool, buffer,
+                count);
+        buffer = null;
+        return content;
+    }
+
+    private AwsJsonWriter close(int empty, int nonempty, char closeBracket) throws IOException {
+        final int scope = peekScope();
+        if (scope != nonempty && scope != empty) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        stackSize--;
+        writeByte(closeBracket);
+        return this;
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            final int[] grown = new int[stackSize * 2];
+            System.arraycopy(stack, 0, grown, 0, stackSize);
+            stack = grown;
+        }
+        stack[stackSize++] = scope;
+    }
+
+    private int peekScope() {
+        if (stackSize == 0) {
+            throw new IllegalStateException("JsonWriter is closed.");
+        }
+        return stack[stackSize - 1];
+    }
+
+    /**
+     * Writes the separator preceding a value and updates the scope.
+     */
+    private void beforeValue() throws IOException {
+        switch (peekScope()) {
+            case NONEMPTY_DOCUMENT:
+                throw new IllegalStateException("JSON must have only one top-level value.");
+            case EMPTY_DOCUMENT:
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case EMPTY_ARRAY:
+                stack[stackSize - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                writeByte(',');
+                break;
+            case DANGLING_NAME:
+                writeByte(':');
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                throw new IllegalStateException("Nesting problem.");
+        }
+    }
+
+    /**
+     * Writes a quoted string, escaping like Gson does and encoding as UTF-8.
+     * Unpaired surrogates are written as '?', like {@link String#getBytes}.
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    private void writeString(String value) {
+        final int length = value.length();
+        // worst case is a 6 byte escape per char
+        ensureCapacity(length * 6 + 2);
+        final byte[] b = buffer;
+        int p = count;
+        b[p++] = '"';
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    b[p++] = (byte) c;
+                    continue;
+                }
+                b[p++] = '\\';
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        b[p++] = (byte) c;
+                        break;
+                    case '\t':
+                        b[p++] = 't';
+                        break;
+                    case '\b':
+                        b[p++] = 'b';
+                        break;
+                    case '\n':
+                        b[p++] = 'n';
+                        break;
+                    case '\r':
+                        b[p++] = 'r';
+                        break;
+                    case '\f':
+                        b[p++] = 'f';
+                        break;
+                    default:
+                        p = writeUnicodeEscape(b, p, c);
+                        break;
+                }
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c == '\u2028' || c == '\u2029') {
+                b[p++] = '\\';
+                p = writeUnicodeEscape(b, p, c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                b[p++] = (byte) (0xF0 | (codePoint >> 18));
+                b[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                b[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                b[p++] = '?';
+            } else {
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        b[p++] = '"';
+        count = p;
+    }
+
+    @SuppressWarnings("checkstyle:magicnumber")
+    private static int writeUnicodeEscape(byte[] b, int p, char c) {
+        b[p++] = 'u';
+        b[p++] = HEX[(c >> 12) & 0xF];
+        b[p++] = HEX[(c >> 8) & 0xF];
+        b[p++] = HEX[(c >> 4) & 0xF];
+        b[p++] = HEX[c & 0xF];
+        return p;
+    }
+
+    private void writeAscii(String value) {
+        final int length = value.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buffer[count++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        ensureOpen();
+        final int required = count + extra;
+        if (required <= buffer.length) {
+            return;
+        }
+        final byte[] grown = new byte[Math.max(required, buffer.length * 2)];
+        System.arraycopy(buffer, 0, grown, 0, count);
+        pool.release(buffer);
+        buffer = grown;
+    }
+
+    private void ensureOpen() {
+        if (buffer == null) {
+            throw new IllegalStateException("The content was already handed over");
+        }
+    }
+}
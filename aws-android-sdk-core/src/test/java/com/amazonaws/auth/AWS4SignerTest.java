@@ -15,6 +15,7 @@
 
 package com.amazonaws.auth;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -169,6 +170,75 @@ public class AWS4SignerTest {
         assertFalse(signer.needsSign("User-Agent"));
     }
 
+    @Test
+    public void testCanonicalizedHeadersCollapseWhitespace() {
+        final Request<?> request = generateBasicRequest();
+        request.addHeader("X-Amz-Meta", " a \t\r\n b  ");
+        request.addHeader("Content-Type", "application/json");
+
+        assertEquals("host:demo.us-east-1.amazonaws.com\n"
+                + "x-amz-archive-description:test test\n"
+                + "x-amz-meta: a b \n",
+                signer.getCanonicalizedHeaderString(request));
+        assertEquals("host;x-amz-archive-description;x-amz-meta",
+                signer.getSignedHeadersString(request));
+    }
+
+    @Test
+    public void testSigningUsesOverriddenHeaderMethods() {
+        final AWS4Signer customSigner = new AWS4Signer() {
+            @Override
+            protected String getCanonicalizedHeaderString(Request<?> request) {
+                return "host:custom\n";
+            }
+
+            @Override
+            protected String getSignedHeadersString(Request<?> request) {
+                return "host";
+            }
+        };
+        customSigner.setServiceName("demo");
+        final Request<?> request = generateBasicRequest();
+
+        customSigner.sign(request, new BasicAWSCredentials("access", "secret"));
+
+        assertTrue(request.getHeaders().get("Authorization").contains("SignedHeaders=host,"));
+        assertTrue(customSigner.getCanonicalRequest(request, "hash")
+                .contains("\nhost:custom\n\nhost\nhash"));
+    }
+
+    @Test
+    public void testSigningAgainSeesChangedHeaders() {
+        final AWSCredentials credentials = new BasicAWSCredentials("access", "secret");
+        final Request<?> request = generateBasicRequest();
+
+        signer.sign(request, credentials);
+        assertTrue(request.getHeaders().get("Authorization").contains(
+                "SignedHeaders=host;x-amz-archive-description;x-amz-date,"));
+
+        request.addHeader("x-amz-meta", "meta");
+        signer.sign(request, credentials);
+        assertTrue(request.getHeaders().get("Authorization").contains(
+                "SignedHeaders=host;x-amz-archive-description;x-amz-date;x-amz-meta,"));
+    }
+
+    @Test
+    public void testHashMatchesUtf8Encoding() {
+        final String[] texts = new String[] {
+                "", "plain ascii", "caf\u00e9 \u20ac", "\ud83d\ude00 emoji", "lone \ud83d surrogate"
+        };
+        for (final String text : texts) {
+            assertArrayEquals(signer.hash(text.getBytes(StringUtils.UTF8)), signer.hash(text));
+        }
+
+        final StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longText.append("\u00e9\u20ac\ud83d\ude00x");
+        }
+        assertArrayEquals(signer.hash(longText.toString().getBytes(StringUtils.UTF8)),
+                signer.hash(longText.toString()));
+    }
+
     /**
      * Tests that if passed anonymous credentials, signer will not generate a
      * signature
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.auth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+public class AWS4SigningKeyCacheTest {
+
+    private static final byte[] KEY = new byte[] {
+            1, 2, 3, 4
+    };
+
+    @Test
+    public void testGetReturnsCachedKey() {
+        final AWS4SigningKeyCache cache = new AWS4SigningKeyCache(10);
+        assertNull(cache.get("access", "secret", "20180101", "us-east-1", "s3"));
+
+        cache.put("access", "secret", "20180101", "us-east-1", "s3", KEY);
+        assertArrayEquals(KEY, cache.get("access", "secret", "20180101", "us-east-1", "s3"));
+        assertNull(cache.get("access", "secret", "20180101", "us-west-2", "s3"));
+        assertNull(cache.get("access", "secret", "20180101", "us-east-1", "sqs"));
+    }
+
+    @Test
+    public void testDateRolloverAndSecretRotationMiss() {
+        final AWS4SigningKeyCache cache = new AWS4SigningKeyCache(10);
+        cache.put("access", "secret", "20180101", "us-east-1", "s3", KEY);
+
+        assertNull(cache.get("access", "secret", "20180102", "us-east-1", "s3"));
+        assertNull(cache.get("access", "rotated", "20180101", "us-east-1", "s3"));
+
+        // the next day's key replaces the stale entry
+        cache.put("access", "secret", "20180102", "us-east-1", "s3", KEY);
+        assertEquals(1, cache.size());
+        assertNull(cache.get("access", "secret", "20180101", "us-east-1", "s3"));
+        assertNotNull(cache.get("access", "secret", "20180102", "us-east-1", "s3"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        final AWS4SigningKeyCache cache = new AWS4SigningKeyCache(2);
+        cache.put("a", "secret", "20180101", "us-east-1", "s3", KEY);
+        cache.put("b", "secret", "20180101", "us-east-1", "s3", KEY);
+        cache.get("a", "secret", "20180101", "us-east-1", "s3");
+        cache.put("c", "secret", "20180101", "us-east-1", "s3", KEY);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a", "secret", "20180101", "us-east-1", "s3"));
+        assertNull(cache.get("b", "secret", "20180101", "us-east-1", "s3"));
+        assertNotNull(cache.get("c", "secret", "20180101", "us-east-1", "s3"));
+    }
+
+    @Test
+    public void testCachedKeyCannotBeModified() {
+        final AWS4SigningKeyCache cache = new AWS4SigningKeyCache(10);
+        final byte[] key = KEY.clone();
+        cache.put("access", "secret", "20180101", "us-east-1", "s3", key);
+        key[0] = 0;
+        cache.get("access", "secret", "20180101", "us-east-1", "s3")[1] = 0;
+
+        assertArrayEquals(KEY, cache.get("access", "secret", "20180101", "us-east-1", "s3"));
+    }
+
+    @Test
+    public void testSignatureUnchangedWithCachedKey() throws Exception {
+        final AWS4Signer signer = new AWS4Signer();
+        signer.setServiceName("demo");
+        signer.setRegionName("us-east-1");
+
+        final Calendar c = new GregorianCalendar();
+        c.set(1981, 1, 16, 6, 30, 0);
+        c.setTimeZone(TimeZone.getTimeZone("UTC"));
+        signer.overrideDate(c.getTime());
+
+        final AWSCredentials credentials = new BasicAWSCredentials("access", "secret");
+        AWS4SigningKeyCache.getSharedCache().clear();
+        final Request<?> first = newRequest();
+        signer.sign(first, credentials);
+        final Request<?> second = newRequest();
+        signer.sign(second, credentials);
+
+        assertEquals(first.getHeaders().get("Authorization"),
+                second.getHeaders().get("Authorization"));
+    }
+
+    private Request<?> newRequest() throws Exception {
+        final Request<?> request = new DefaultRequest<Void>("Foo");
+        request.setEndpoint(new URI("http://demo.us-east-1.amazonaws.com"));
+        request.addHeader("x-amz-archive-description", "test  test");
+        return request;
+    }
+}
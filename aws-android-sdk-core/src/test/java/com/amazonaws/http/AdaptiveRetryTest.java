@@ -0,0 +1,210 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryQuota;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AdaptiveRetryTest {
+
+    @Test
+    public void testDefaults() {
+        final AmazonHttpClient client = new AmazonHttpClient(new ClientConfiguration(),
+                new StubHttpClient(200));
+        assertNull("the retry quota is opt-in", client.getRetryQuota());
+        assertNull(client.getRateLimiter());
+
+        final ClientConfiguration config = new ClientConfiguration()
+                .withRetryQuotaCapacity(RetryQuota.DEFAULT_CAPACITY)
+                .withAdaptiveRateLimiting(true);
+        final ClientConfiguration copy = new ClientConfiguration(config);
+        assertEquals(RetryQuota.DEFAULT_CAPACITY, copy.getRetryQuotaCapacity());
+        assertTrue(copy.isAdaptiveRateLimiting());
+        final AmazonHttpClient configured = new AmazonHttpClient(copy, new StubHttpClient(200));
+        assertEquals(RetryQuota.DEFAULT_CAPACITY, configured.getRetryQuota().getCapacity());
+        assertNotNull(configured.getRateLimiter());
+    }
+
+    @Test
+    public void testRetryQuotaStopsRetriesOnFailingService() {
+        final StubHttpClient httpClient = new StubHttpClient(503);
+        final AmazonHttpClient client = new AmazonHttpClient(
+                config(3).withRetryQuotaCapacity(50), httpClient);
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                client.execute(newRequest(), responseHandler(), errorResponseHandler(),
+                        new ExecutionContext());
+                fail("Expected the request to fail");
+            } catch (final AmazonServiceException e) {
+                assertEquals(503, e.getStatusCode());
+            }
+        }
+        // 10 retries drain the quota: 3 requests retried 3 times, one once,
+        // and the other 16 fail at once
+        assertEquals(4 + 10 + 16, httpClient.executions.get());
+        assertEquals(0, client.getRetryQuota().getAvailableCapacity());
+
+        // successful requests refill the quota
+        httpClient.statusCode = 200;
+        final ExecutionContext context = new ExecutionContext(true);
+        for (int i = 0; i < 5; i++) {
+            client.execute(newRequest(), responseHandler(), errorResponseHandler(), context);
+        }
+        assertEquals(5 * RetryQuota.NO_RETRY_INCREMENT,
+                client.getRetryQuota().getAvailableCapacity());
+        final List<Object> available = context.getAwsRequestMetrics()
+                .getProperty(Field.RetryQuotaAvailable);
+        assertEquals(5, available.get(available.size() - 1));
+    }
+
+    @Test
+    public void testThrottlingEnablesRateLimiter() {
+        final StubHttpClient httpClient = new StubHttpClient(400);
+        final AmazonHttpClient client = new AmazonHttpClient(
+                config(0).withAdaptiveRateLimiting(true), httpClient);
+        assertFalse(client.getRateLimiter().isEnabled());
+
+        final ExecutionContext context = new ExecutionContext(true);
+        try {
+            client.execute(newRequest(), responseHandler(), errorResponseHandler(), context);
+            fail("Expected the request to be throttled");
+        } catch (final AmazonServiceException e) {
+            assertEquals("ThrottlingException", e.getErrorCode());
+        }
+        assertTrue(client.getRateLimiter().isEnabled());
+        final List<Object> sendRate = context.getAwsRequestMetrics()
+                .getProperty(Field.ClientSendRate);
+        assertEquals(client.getRateLimiter().getSendRate(), (Double) sendRate.get(0), 0);
+
+        // the next request waits for its token
+        httpClient.statusCode = 200;
+        assertTrue(client.getRateLimiter().acquire() > 0);
+    }
+
+    @Test
+    public void testUnthrottledErrorsDoNotEnableRateLimiter() {
+        final AmazonHttpClient client = new AmazonHttpClient(
+                config(2).withAdaptiveRateLimiting(true), new StubHttpClient(503));
+        try {
+            client.execute(newRequest(), responseHandler(), errorResponseHandler(),
+                    new ExecutionContext());
+            fail("Expected the request to fail");
+        } catch (final AmazonServiceException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+        assertFalse(client.getRateLimiter().isEnabled());
+    }
+
+    private static ClientConfiguration config(int maxErrorRetry) {
+        return new ClientConfiguration().withRetryPolicy(
+                new RetryPolicy(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+                        new RetryPolicy.BackoffStrategy() {
+                            @Override
+                            public long delayBeforeNextRetry(
+                                    AmazonWebServiceRequest originalRequest,
+                                    AmazonClientException exception, int retriesAttempted) {
+                                return 0;
+                            }
+                        }, maxErrorRetry, false));
+    }
+
+    private static Request<?> newRequest() {
+        final Request<?> request = new DefaultRequest<String>(new AmazonWebServiceRequest() {
+        }, "TestService");
+        request.setHttpMethod(HttpMethodName.GET);
+        request.setEndpoint(URI.create("https://www.test.com"));
+        return request;
+    }
+
+    private static HttpResponseHandler<AmazonWebServiceResponse<String>> responseHandler() {
+        return new HttpResponseHandler<AmazonWebServiceResponse<String>>() {
+            @Override
+            public AmazonWebServiceResponse<String> handle(HttpResponse response) {
+                final AmazonWebServiceResponse<String> awsResponse = new AmazonWebServiceResponse<String>();
+                awsResponse.setResult("Result");
+                return awsResponse;
+            }
+
+            @Override
+            public boolean needsConnectionLeftOpen() {
+                return false;
+            }
+        };
+    }
+
+    private static HttpResponseHandler<AmazonServiceException> errorResponseHandler() {
+        return new HttpResponseHandler<AmazonServiceException>() {
+            @Override
+            public AmazonServiceException handle(HttpResponse response) {
+                final AmazonServiceException ase = new AmazonServiceException("Failed");
+                ase.setErrorCode(response.getStatusCode() == 400 ? "ThrottlingException"
+                        : "ServiceUnavailable");
+                return ase;
+            }
+
+            @Override
+            public boolean needsConnectionLeftOpen() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Answers every request with the same status code: 400 stands for a
+     * throttling error.
+     */
+    private static final class StubHttpClient implements HttpClient {
+        private final AtomicInteger executions = new AtomicInteger();
+        private volatile int statusCode;
+
+        StubHttpClient(int statusCode) {
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) {
+            executions.incrementAndGet();
+            return HttpResponse.builder().statusCode(statusCode).build();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.Signer;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.util.ByteArrayPool;
+import com.amazonaws.util.PooledByteArrayInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AsyncExecutionEngineTest {
+
+    private static final long BACKOFF_MILLIS = 100;
+
+    private AsyncExecutionEngine engine;
+
+    @Before
+    public void setup() {
+        engine = new AsyncExecutionEngine(1, 2);
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testSuccessfulRequest() throws Exception {
+        final StubHttpClient httpClient = new StubHttpClient(0);
+        final AmazonHttpClient client = new AmazonHttpClient(config(3), httpClient);
+        final AtomicReference<Response<String>> callbackResponse = new AtomicReference<Response<String>>();
+
+        final Future<String> future = client.executeAsync(newRequest(), responseHandler(),
+                errorResponseHandler(), new ExecutionContext(), null, engine,
+                new ResponseCallback<String>() {
+                    @Override
+                    public void onResponse(Response<String> response) {
+                        callbackResponse.set(response);
+                    }
+
+                    @Override
+                    public void onError(Exception exception) {
+                        fail("Unexpected error " + exception);
+                    }
+                });
+
+        assertEquals("Result", future.get(5, TimeUnit.SECONDS));
+        assertEquals("Result", callbackResponse.get().getAwsResponse());
+        assertEquals(1, httpClient.executions.get());
+        assertEquals(0, engine.getInFlightRequestCount());
+    }
+
+    @Test
+    public void testSigningRunsOnIOThreads() throws Exception {
+        final StubHttpClient httpClient = new StubHttpClient(1);
+        final AmazonHttpClient client = new AmazonHttpClient(config(3), httpClient);
+        final List<String> signingThreads = Collections.synchronizedList(new ArrayList<String>());
+        final Signer signer = new Signer() {
+            @Override
+            public void sign(Request<?> request, AWSCredentials credentials) {
+                signingThreads.add(Thread.currentThread().getName());
+            }
+        };
+        final ExecutionContext executionContext = new ExecutionContext() {
+            @Override
+            public Signer getSignerByURI(URI uri) {
+                return signer;
+            }
+        };
+        executionContext.setCredentials(new BasicAWSCredentials("access", "secret"));
+
+        final Future<String> future = client.executeAsync(newRequest(), responseHandler(),
+                errorResponseHandler(), executionContext, null, engine, null);
+
+        assertEquals("Result", future.get(5, TimeUnit.SECONDS));
+        // signed again for the retry
+        assertEquals(2, signingThreads.size());
+        for (final String thread : signingThreads) {
+            assertTrue(thread, thread.contains("-io-"));
+        }
+    }
+
+    @Test
+    public void testBackoffDoesNotHoldThreads() throws Exception {
+        // every request is throttled once; with the two I/O threads sleeping
+        // through the back off this would take 100 * 100ms / 2 = 5 seconds
+        final int requests = 100;
+        final StubHttpClient httpClient = new StubHttpClient(1);
+        final AmazonHttpClient client = new AmazonHttpClient(config(3), httpClient);
+
+        final long start = System.currentTimeMillis();
+        final List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(client.executeAsync(newRequest(), responseHandler(),
+                    errorResponseHandler(), new ExecutionContext(), null, engine, null));
+        }
+        for (final Future<String> future : futures) {
+            assertEquals("Result", future.get(5, TimeUnit.SECONDS));
+        }
+        final long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(2 * requests, httpClient.executions.get());
+        assertTrue("Took " + elapsed + "ms", elapsed < requests * BACKOFF_MILLIS / 4);
+    }
+
+    @Test
+    public void testRetriesExhausted() throws Exception {
+        final StubHttpClient httpClient = new StubHttpClient(Integer.MAX_VALUE);
+        final AmazonHttpClient client = new AmazonHttpClient(config(2), httpClient);
+        final CountDownLatch callbackCalled = new CountDownLatch(1);
+        final AtomicReference<Exception> callbackError = new AtomicReference<Exception>();
+
+        final Future<String> future = client.executeAsync(newRequest(), responseHandler(),
+                errorResponseHandler(), new ExecutionContext(), null, engine,
+                new ResponseCallback<String>() {
+                    @Override
+                    public void onResponse(Response<String> response) {
+                        fail("Unexpected response");
+                    }
+
+                    @Override
+                    public void onError(Exception exception) {
+                        callbackError.set(exception);
+                        callbackCalled.countDown();
+                    }
+                });
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the request to fail");
+        } catch (final ExecutionException e) {
+            final AmazonServiceException ase = (AmazonServiceException) e.getCause();
+            assertEquals(503, ase.getStatusCode());
+            assertSame(ase, callbackError.get());
+        }
+        assertTrue(callbackCalled.await(1, TimeUnit.SECONDS));
+        assertEquals(3, httpClient.executions.get());
+    }
+
+    @Test
+    public void testPooledContentIsReleasedWhenRequestFails() throws Exception {
+        final StubHttpClient httpClient = new StubHttpClient(Integer.MAX_VALUE);
+        final AmazonHttpClient client = new AmazonHttpClient(config(1), httpClient);
+        final ByteArrayPool pool = new ByteArrayPool(1, 1024);
+        final Request<?> request = newRequest();
+        request.setHttpMethod(HttpMethodName.POST);
+        request.setContent(new PooledByteArrayInputStream(pool, new byte[16], 16));
+
+        final Future<String> future = client.executeAsync(request, responseHandler(),
+                errorResponseHandler(), new ExecutionContext(), null, engine, null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the request to fail");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof AmazonServiceException);
+        }
+
+        // the last attempt may let go of the body just after the failure
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getPooledCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, httpClient.executions.get());
+        assertEquals(1, pool.getPooledCount());
+        assertEquals(-1, request.getContent().read());
+    }
+
+    @Test
+    public void testIOExceptionIsRetried() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+        final AmazonHttpClient client = new AmazonHttpClient(config(3), new HttpClient() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                if (executions.incrementAndGet() == 1) {
+                    throw new IOException("BOOM");
+                }
+                return HttpResponse.builder().statusCode(200).build();
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        });
+
+        final Future<String> future = client.executeAsync(newRequest(), responseHandler(),
+                errorResponseHandler(), new ExecutionContext(), null, engine, null);
+        assertEquals("Result", future.get(5, TimeUnit.SECONDS));
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void testShutdownFailsRequestsInFlight() throws Exception {
+        final StubHttpClient httpClient = new StubHttpClient(Integer.MAX_VALUE);
+        final ClientConfiguration config = new ClientConfiguration().withRetryPolicy(
+                new RetryPolicy(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+                        new RetryPolicy.BackoffStrategy() {
+                            @Override
+                            public long delayBeforeNextRetry(
+                                    AmazonWebServiceRequest originalRequest,
+                                    AmazonClientException exception, int retriesAttempted) {
+                                return TimeUnit.MINUTES.toMillis(1);
+                            }
+                        }, 3, false));
+        final AmazonHttpClient client = new AmazonHttpClient(config, httpClient);
+
+        final Future<String> future = client.executeAsync(newRequest(), responseHandler(),
+                errorResponseHandler(), new ExecutionContext(), null, engine, null);
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (httpClient.executions.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, engine.getInFlightRequestCount());
+
+        engine.shutdown();
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the request to fail");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof AmazonClientException);
+        }
+        assertEquals(0, engine.getInFlightRequestCount());
+    }
+
+    @Test
+    public void testResponseFuture() throws Exception {
+        final ResponseFuture<String> future = new ResponseFuture<String>();
+        assertTrue(future.set(null));
+        assertTrue(future.isDone());
+        assertNull(future.get());
+        assertTrue(!future.setException(new RuntimeException()));
+        assertTrue(!future.cancel(true));
+    }
+
+    private static ClientConfiguration config(int maxErrorRetry) {
+        return new ClientConfiguration().withRetryPolicy(
+                new RetryPolicy(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+                        new RetryPolicy.BackoffStrategy() {
+                            @Override
+                            public long delayBeforeNextRetry(
+                                    AmazonWebServiceRequest originalRequest,
+                                    AmazonClientException exception, int retriesAttempted) {
+                                return BACKOFF_MILLIS;
+                            }
+                        }, maxErrorRetry, false));
+    }
+
+    private static Request<?> newRequest() {
+        final Request<?> request = new DefaultRequest<String>(new AmazonWebServiceRequest() {
+        }, "TestService");
+        request.setHttpMethod(HttpMethodName.GET);
+        request.setEndpoint(URI.create("https://www.test.com"));
+        return request;
+    }
+
+    private static HttpResponseHandler<AmazonWebServiceResponse<String>> responseHandler() {
+        return new HttpResponseHandler<AmazonWebServiceResponse<String>>() {
+            @Override
+            public AmazonWebServiceResponse<String> handle(HttpResponse response) {
+                final AmazonWebServiceResponse<String> awsResponse = new AmazonWebServiceResponse<String>();
+                awsResponse.setResult("Result");
+                return awsResponse;
+            }
+
+            @Override
+            public boolean needsConnectionLeftOpen() {
+                return false;
+            }
+        };
+    }
+
+    private static HttpResponseHandler<AmazonServiceException> errorResponseHandler() {
+        return new HttpResponseHandler<AmazonServiceException>() {
+            @Override
+            public AmazonServiceException handle(HttpResponse response) {
+                final AmazonServiceException ase = new AmazonServiceException("Slow down");
+                ase.setErrorCode("ServiceUnavailable");
+                return ase;
+            }
+
+            @Override
+            public boolean needsConnectionLeftOpen() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Answers 503 to the first attempts of each request and 200 afterwards.
+     */
+    private static final class StubHttpClient implements HttpClient {
+        private final int failedAttempts;
+        private final ConcurrentHashMap<String, AtomicInteger> attempts = new ConcurrentHashMap<String, AtomicInteger>();
+        private final AtomicInteger executions = new AtomicInteger();
+
+        StubHttpClient(int failedAttempts) {
+            this.failedAttempts = failedAttempts;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) {
+            executions.incrementAndGet();
+            final String invocationId = request.getHeaders().get("aws-sdk-invocation-id");
+            attempts.putIfAbsent(invocationId, new AtomicInteger());
+            if (attempts.get(invocationId).incrementAndGet() <= failedAttempts) {
+                return HttpResponse.builder().statusCode(503)
+                        .statusText("Service Unavailable").build();
+            }
+            return HttpResponse.builder().statusCode(200).build();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
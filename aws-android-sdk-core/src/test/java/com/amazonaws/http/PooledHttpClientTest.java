@@ -0,0 +1,324 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PooledHttpClientTest {
+
+    private StubServer server;
+    private PooledHttpClient client;
+
+    @Before
+    public void setup() throws IOException {
+        server = new StubServer();
+        client = new PooledHttpClient(new ClientConfiguration()
+                .withMaxConnections(1)
+                .withConnectionTimeout(1000)
+                .withReaper(false));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        server.respond("HTTP/1.1 200 OK\r\nContent-Length: 5\r\nx-amzn-RequestId: 1\r\n\r\nhello");
+        server.respond("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nworld");
+
+        HttpResponse response = client.execute(get("/first?a=b"));
+        assertEquals(200, response.getStatusCode());
+        assertEquals("OK", response.getStatusText());
+        assertEquals("1", response.getHeaders().get("x-amzn-RequestId"));
+        assertEquals("hello", IOUtils.toString(response.getContent()));
+
+        response = client.execute(get("/second"));
+        assertEquals("world", IOUtils.toString(response.getContent()));
+
+        assertEquals(1, server.connectionCount.get());
+        assertTrue(server.requests.get(0).startsWith("GET /first?a=b HTTP/1.1\r\n"));
+        assertEquals(2, client.getConnectionPool().getStats().getTotalLeases());
+        assertEquals(1, client.getConnectionPool().getStats().getReusedLeases());
+    }
+
+    @Test
+    public void testChunkedResponseAndRequestBody() throws Exception {
+        server.respond("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n6;ext=1\r\n world\r\n0\r\n\r\n");
+        server.respond("HTTP/1.1 204 No Content\r\n\r\n");
+
+        final byte[] body = "payload".getBytes(StringUtils.UTF8);
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Length", String.valueOf(body.length));
+        headers.put("Host", "localhost");
+        final HttpRequest post = new HttpRequest("POST", uri("/"), headers,
+                new ByteArrayInputStream(body));
+
+        final HttpResponse response = client.execute(post);
+        assertEquals("hello world", IOUtils.toString(response.getContent()));
+        assertTrue(server.requests.get(0).endsWith("\r\n\r\npayload"));
+        assertTrue(server.requests.get(0).contains("Content-Length: 7\r\n"));
+
+        // the chunked body was fully consumed, so the connection is reused
+        assertEquals(204, client.execute(get("/")).getStatusCode());
+        assertEquals(1, server.connectionCount.get());
+    }
+
+    @Test
+    public void testHeadResponseHasNoContent() throws Exception {
+        server.respond("HTTP/1.1 200 OK\r\nContent-Length: 100\r\n\r\n");
+        final HttpResponse response = client.execute(new HttpRequest("HEAD", uri("/")));
+        assertNull(response.getContent());
+        assertEquals("100", response.getHeaders().get("Content-Length"));
+        assertEquals(1, client.getConnectionPool().getStats().getAvailable());
+    }
+
+    @Test
+    public void testConnectionCloseIsNotReused() throws Exception {
+        server.respond("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\nok");
+        server.respond("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+
+        assertEquals("ok", IOUtils.toString(client.execute(get("/")).getContent()));
+        assertEquals("ok", IOUtils.toString(client.execute(get("/")).getContent()));
+        assertEquals(2, server.connectionCount.get());
+    }
+
+    @Test
+    public void testStalePooledConnectionIsReplaced() throws Exception {
+        server.respondAndClose("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+        assertEquals("ok", IOUtils.toString(client.execute(get("/")).getContent()));
+
+        server.respond("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nagain");
+        assertEquals("again", IOUtils.toString(client.execute(get("/")).getContent()));
+        assertEquals(2, server.connectionCount.get());
+    }
+
+    @Test
+    public void testReusedConnectionClosedBeforeResponseIsResent() throws Exception {
+        server.respond("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+        assertEquals("ok", IOUtils.toString(client.execute(get("/")).getContent()));
+
+        // the server closes the connection after reading the request, without
+        // a response
+        server.respondAndClose("");
+        server.respond("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nagain");
+        assertEquals("again", IOUtils.toString(client.execute(get("/")).getContent()));
+        assertEquals(2, server.connectionCount.get());
+        assertEquals(3, server.requests.size());
+    }
+
+    @Test
+    public void testReusedConnectionTimingOutOnReadIsNotResent() throws Exception {
+        client.shutdown();
+        client = new PooledHttpClient(new ClientConfiguration()
+                .withMaxConnections(1)
+                .withConnectionTimeout(1000)
+                .withSocketTimeout(200)
+                .withReaper(false));
+        server.respond("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+        assertEquals("ok", IOUtils.toString(client.execute(get("/")).getContent()));
+
+        // the server reads the request and never answers; it may have
+        // processed it, so it must not be sent again
+        server.respond("");
+        final byte[] body = "payload".getBytes(StringUtils.UTF8);
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Length", String.valueOf(body.length));
+        try {
+            client.execute(new HttpRequest("POST", uri("/"), headers,
+                    new ByteArrayInputStream(body)));
+            fail("Expected the read to time out");
+        } catch (final SocketTimeoutException expected) {
+            // not resent
+        }
+        Thread.sleep(100);
+        assertEquals(1, server.connectionCount.get());
+        assertEquals(2, server.requests.size());
+    }
+
+    @Test
+    public void testLeaseTimesOutWhenPoolIsExhausted() throws Exception {
+        server.respond("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+        final HttpResponse response = client.execute(get("/"));
+
+        // the only connection is still leased by the unread response
+        try {
+            client.execute(get("/"));
+            fail("Expected a timeout waiting for a connection");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().contains("Timeout waiting for connection"));
+        }
+        assertEquals(1, client.getConnectionPool().getStats().getLeased());
+
+        response.getContent().close();
+        assertEquals(0, client.getConnectionPool().getStats().getLeased());
+        assertEquals(1, client.getConnectionPool().getStats().getAvailable());
+    }
+
+    @Test
+    public void testCloseIdleConnections() throws Exception {
+        server.respond("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+        IOUtils.toString(client.execute(get("/")).getContent());
+        assertEquals(1, client.getConnectionPool().getStats().getAvailable());
+
+        client.getConnectionPool().closeIdleConnections(1, TimeUnit.MINUTES);
+        assertEquals(1, client.getConnectionPool().getStats().getAvailable());
+        client.getConnectionPool().closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        assertEquals(0, client.getConnectionPool().getStats().getAvailable());
+    }
+
+    @Test
+    public void testReaperRegistration() {
+        IdleConnectionReaper.shutdown();
+        final PooledHttpClient reaped = new PooledHttpClient(new ClientConfiguration());
+        assertEquals(1, IdleConnectionReaper.size());
+        reaped.shutdown();
+        assertEquals(0, IdleConnectionReaper.size());
+    }
+
+    private HttpRequest get(String path) {
+        return new HttpRequest("GET", uri(path));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+    /**
+     * A keep-alive HTTP server that answers each request with the next canned
+     * response.
+     */
+    private static final class StubServer implements Runnable {
+        private final ServerSocket serverSocket;
+        private final BlockingQueue<String> responses = new LinkedBlockingQueue<String>();
+        private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        private final AtomicInteger connectionCount = new AtomicInteger();
+        private final BlockingQueue<Boolean> closeAfterResponse = new LinkedBlockingQueue<Boolean>();
+
+        StubServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+            final Thread thread = new Thread(this, "stub-http-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        void respond(String response) {
+            closeAfterResponse.add(false);
+            responses.add(response);
+        }
+
+        void respondAndClose(String response) {
+            closeAfterResponse.add(true);
+            responses.add(response);
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final Socket socket = serverSocket.accept();
+                    connectionCount.incrementAndGet();
+                    final Thread handler = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            serve(socket);
+                        }
+                    });
+                    handler.setDaemon(true);
+                    handler.start();
+                }
+            } catch (final IOException e) {
+                // server closed
+            }
+        }
+
+        private void serve(Socket socket) {
+            try {
+                final InputStream in = socket.getInputStream();
+                final OutputStream out = socket.getOutputStream();
+                while (true) {
+                    final StringBuilder request = new StringBuilder();
+                    String line;
+                    int contentLength = 0;
+                    while ((line = PooledHttpClient.readLine(in)) != null && !line.isEmpty()) {
+                        request.append(line).append("\r\n");
+                        if (line.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(line.substring(15).trim());
+                        }
+                    }
+                    if (line == null) {
+                        break;
+                    }
+                    request.append("\r\n");
+                    for (int i = 0; i < contentLength; i++) {
+                        request.append((char) in.read());
+                    }
+                    requests.add(request.toString());
+                    final String response = responses.poll(1, TimeUnit.SECONDS);
+                    // an empty response leaves the request unanswered
+                    out.write(response.getBytes(StringUtils.UTF8));
+                    out.flush();
+                    if (closeAfterResponse.poll()) {
+                        break;
+                    }
+                }
+                socket.close();
+            } catch (final Exception e) {
+                // connection closed
+            }
+        }
+    }
+}
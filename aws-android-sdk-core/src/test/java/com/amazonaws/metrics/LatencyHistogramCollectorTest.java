@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.metrics.LatencyHistogramCollector.Series;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+import com.amazonaws.util.TimingInfo;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+public class LatencyHistogramCollectorTest {
+
+    private static final long MILLI_NANOS = 1000000L;
+
+    @Test
+    public void testAggregatesPerSeries() {
+        final LatencyHistogramCollector collector = new LatencyHistogramCollector();
+        for (int i = 1; i <= 100; i++) {
+            collector.collectMetrics(request(new PutItemRequest(), 200, i), null);
+        }
+        collector.collectMetrics(request(new PutItemRequest(), 400, 1000), null);
+        collector.collectMetrics(request(new GetItemRequest(), 200, 7), null);
+
+        final Map<Series, Map<Field, LatencyHistogram.Snapshot>> snapshot = collector.snapshot(true);
+        assertEquals(3, snapshot.size());
+
+        final Map<Field, LatencyHistogram.Snapshot> putItem = snapshot.get(
+                new Series("TestService", "PutItem", 200));
+        final LatencyHistogram.Snapshot httpRequestTime = putItem.get(Field.HttpRequestTime);
+        assertEquals(100, httpRequestTime.getCount());
+        assertEquals(99, httpRequestTime.getPercentile(99), 99 * 0.07);
+        assertEquals(100, putItem.get(Field.RequestSigningTime).getCount());
+        assertEquals(0, putItem.get(Field.RetryPauseTime).getCount());
+
+        assertEquals(1000, snapshot.get(new Series("TestService", "PutItem", 400))
+                .get(Field.HttpRequestTime).getMax(), 0);
+        assertEquals(1, snapshot.get(new Series("TestService", "GetItem", 200))
+                .get(Field.HttpRequestTime).getCount());
+
+        assertTrue("reset by the previous snapshot", collector.snapshot(false).isEmpty());
+    }
+
+    @Test
+    public void testSeriesAreBounded() {
+        final LatencyHistogramCollector collector = new LatencyHistogramCollector(2);
+        for (int status = 200; status < 210; status++) {
+            collector.collectMetrics(request(new PutItemRequest(), status, 1), null);
+        }
+        final Map<Series, Map<Field, LatencyHistogram.Snapshot>> snapshot = collector.snapshot(false);
+        assertEquals(3, snapshot.size());
+        assertEquals(8, snapshot.get(Series.OVERFLOW).get(Field.HttpRequestTime).getCount());
+    }
+
+    @Test
+    public void testIgnoresRequestsWithoutMetrics() {
+        final LatencyHistogramCollector collector = new LatencyHistogramCollector();
+        final Request<?> request = new DefaultRequest<String>(new PutItemRequest(), "TestService");
+        request.setAWSRequestMetrics(new AWSRequestMetrics());
+        collector.collectMetrics(request, null);
+        assertTrue(collector.snapshot(false).isEmpty());
+    }
+
+    private static Request<?> request(AmazonWebServiceRequest originalRequest, int statusCode,
+            long httpRequestMillis) {
+        final Request<?> request = new DefaultRequest<String>(originalRequest, "TestService");
+        final AWSRequestMetrics metrics = new AWSRequestMetricsFullSupport();
+        metrics.addProperty(Field.StatusCode, statusCode);
+        metrics.getTimingInfo().addSubMeasurement(Field.HttpRequestTime.name(),
+                TimingInfo.newTimingInfoFullSupport(0, httpRequestMillis * MILLI_NANOS));
+        metrics.getTimingInfo().addSubMeasurement(Field.RequestSigningTime.name(),
+                TimingInfo.newTimingInfoFullSupport(0, MILLI_NANOS));
+        request.setAWSRequestMetrics(metrics);
+        return request;
+    }
+
+    private static final class PutItemRequest extends AmazonWebServiceRequest {
+    }
+
+    private static final class GetItemRequest extends AmazonWebServiceRequest {
+    }
+}
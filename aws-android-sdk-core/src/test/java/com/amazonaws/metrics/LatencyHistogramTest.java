@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        long previousHighest = -1;
+        for (int bucket = 0; bucket <= LatencyHistogram.bucketOf(LatencyHistogram.MAX_LATENCY_MICROS); bucket++) {
+            final long highest = LatencyHistogram.highestOf(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(previousHighest + 1));
+            assertEquals(bucket, LatencyHistogram.bucketOf(highest));
+            // each bucket is narrower than 1/16 of its values
+            assertTrue(highest - previousHighest <= Math.max(1, (previousHighest + 1) / 16));
+            previousHighest = highest;
+        }
+        assertEquals(LatencyHistogram.MAX_LATENCY_MICROS, previousHighest);
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i, TimeUnit.MILLISECONDS);
+        }
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot(false);
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500.5, snapshot.getMean(), 0.001);
+        assertEquals(1000, snapshot.getMax(), 0);
+        assertEquals(500, snapshot.getPercentile(50), 500 * 0.07);
+        assertEquals(990, snapshot.getPercentile(99), 990 * 0.07);
+        assertEquals(1, snapshot.getPercentile(0), 0.07);
+        assertEquals("capped at the max", 1000, snapshot.getPercentile(100), 0);
+    }
+
+    @Test
+    public void testSnapshotReset() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(2, TimeUnit.SECONDS);
+        histogram.record(-1, TimeUnit.SECONDS);
+        histogram.record(1, TimeUnit.DAYS);
+        assertEquals(3, histogram.snapshot(false).getCount());
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot(true);
+        assertEquals(3, snapshot.getCount());
+        assertEquals(LatencyHistogram.MAX_LATENCY_MICROS / 1000.0, snapshot.getMax(), 0);
+        assertEquals(0, snapshot.getPercentile(1), 0);
+
+        final LatencyHistogram.Snapshot empty = histogram.snapshot(true);
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getPercentile(99), 0);
+        assertEquals(0, empty.getMax(), 0);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int threads = 4;
+        final int perThread = 100000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        histogram.record(i % 1000, TimeUnit.MICROSECONDS);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        long collected = 0;
+        while (done.getCount() > 0) {
+            collected += histogram.snapshot(true).getCount();
+        }
+        done.await();
+        collected += histogram.snapshot(true).getCount();
+        assertEquals("no latency lost across resets", threads * perThread, collected);
+    }
+}
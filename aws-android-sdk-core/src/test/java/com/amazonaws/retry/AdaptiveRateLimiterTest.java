@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AdaptiveRateLimiterTest {
+
+    @Test
+    public void testDisabledUntilThrottled() {
+        final SimulatedClock clock = new SimulatedClock();
+        final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(clock);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limiter.acquire());
+            limiter.updateRate(false);
+            clock.now += 0.001;
+        }
+        assertFalse(limiter.isEnabled());
+        assertEquals(Double.POSITIVE_INFINITY, limiter.getSendRate(), 0);
+        assertTrue(limiter.getMeasuredSendRate() > 500);
+
+        limiter.updateRate(true);
+        assertTrue(limiter.isEnabled());
+        assertTrue("rate cut below the measured rate",
+                limiter.getSendRate() < limiter.getMeasuredSendRate());
+    }
+
+    @Test
+    public void testAcquireReturnsDelayOnceLimiting() {
+        final SimulatedClock clock = new SimulatedClock();
+        final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(clock);
+        // no rate measured yet, so the limiter starts at its lowest rate
+        limiter.updateRate(true);
+        assertEquals(AdaptiveRateLimiter.MIN_FILL_RATE, limiter.getSendRate(), 0);
+
+        final long first = limiter.acquire();
+        final long second = limiter.acquire();
+        assertEquals(2000, first);
+        assertEquals("tokens are reserved in turn", 4000, second);
+
+        clock.now += 4;
+        assertEquals(2000, limiter.acquire());
+    }
+
+    @Test
+    public void testConvergesOnThrottlingService() {
+        // a service accepting 20 requests per second with bursts of 5,
+        // called by a client that would send a request every millisecond
+        final double serviceRate = 20;
+        final double serviceBurst = 5;
+        final SimulatedClock clock = new SimulatedClock();
+        final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(clock);
+        double serviceTokens = serviceBurst;
+        double lastServiceRefill = 0;
+
+        int sent = 0;
+        int throttled = 0;
+        while (clock.now < 120) {
+            clock.now += limiter.acquire() / 1000.0;
+            serviceTokens = Math.min(serviceBurst,
+                    serviceTokens + (clock.now - lastServiceRefill) * serviceRate);
+            lastServiceRefill = clock.now;
+            final boolean isThrottled = serviceTokens < 1;
+            if (!isThrottled) {
+                serviceTokens--;
+            }
+            limiter.updateRate(isThrottled);
+            clock.now += 0.001;
+            if (clock.now >= 60) { // steady state
+                sent++;
+                if (isThrottled) {
+                    throttled++;
+                }
+            }
+        }
+
+        final double sendRate = sent / 60.0;
+        assertTrue("send rate " + sendRate, sendRate > serviceRate / 2 && sendRate < serviceRate * 2);
+        assertTrue(throttled + " throttled of " + sent, throttled < sent / 5);
+    }
+
+    /** A clock driven by the test. */
+    private static final class SimulatedClock implements AdaptiveRateLimiter.Clock {
+        private double now;
+
+        @Override
+        public double currentTimeSeconds() {
+            return now;
+        }
+    }
+}
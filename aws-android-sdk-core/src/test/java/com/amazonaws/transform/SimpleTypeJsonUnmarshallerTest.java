@@ -16,6 +16,7 @@
 package com.amazonaws.transform;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.util.Base64;
@@ -26,6 +27,7 @@ import com.amazonaws.util.json.JsonUtils;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.math.BigDecimal;
@@ -298,4 +300,37 @@ public class SimpleTypeJsonUnmarshallerTest {
         assertEquals(sUnmarshaller.unmarshall(context), "String");
     }
 
+    @Test
+    public void testUtf8ReaderFastPaths() throws Exception {
+        String json = "{\"i\":7,\"l\":\"8\",\"d\":2.25,\"b\":true,\"date\":1234.5,"
+                + "\"bb\":\"AAEC\",\"n\":null}";
+        AwsJsonReader jr = JsonUtils.getJsonReader(
+                new ByteArrayInputStream(json.getBytes(StringUtils.UTF8)));
+        JsonUnmarshallerContext context = new JsonUnmarshallerContext(jr);
+        context.getReader().beginObject();
+
+        context.getReader().nextName();
+        assertEquals(Integer.valueOf(7), SimpleTypeJsonUnmarshallers.IntegerJsonUnmarshaller
+                .getInstance().unmarshall(context));
+        context.getReader().nextName();
+        assertEquals(Long.valueOf(8), SimpleTypeJsonUnmarshallers.LongJsonUnmarshaller
+                .getInstance().unmarshall(context));
+        context.getReader().nextName();
+        assertEquals(2.25, SimpleTypeJsonUnmarshallers.DoubleJsonUnmarshaller.getInstance()
+                .unmarshall(context), 0);
+        context.getReader().nextName();
+        assertTrue(SimpleTypeJsonUnmarshallers.BooleanJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        context.getReader().nextName();
+        assertEquals(new Date(1234000), SimpleTypeJsonUnmarshallers.DateJsonUnmarshaller
+                .getInstance().unmarshall(context));
+        context.getReader().nextName();
+        assertEquals(ByteBuffer.wrap(new byte[] {0, 1, 2}),
+                SimpleTypeJsonUnmarshallers.ByteBufferJsonUnmarshaller.getInstance()
+                        .unmarshall(context));
+        context.getReader().nextName();
+        assertNull(SimpleTypeJsonUnmarshallers.LongJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        context.getReader().endObject();
+    }
 }
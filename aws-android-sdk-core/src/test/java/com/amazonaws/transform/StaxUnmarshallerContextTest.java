@@ -20,6 +20,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 import org.xmlpull.v1.XmlPullParser;
@@ -28,7 +29,9 @@ import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 public class StaxUnmarshallerContextTest {
@@ -125,4 +128,73 @@ public class StaxUnmarshallerContextTest {
         assertNull("non existing key", context.getHeader("invalid key"));
         assertEquals("header value", "value", context.getHeader("key"));
     }
+
+    @Test
+    public void testExpressionCompiledAfterElementsWereOpened() throws Exception {
+        context = getContext("<a1b2c3><d4e5f6><g7h8i9 attr=\"v\"/></d4e5f6></a1b2c3>", null);
+        context.nextEvent();
+        context.nextEvent();
+        context.nextEvent();
+        // none of these names were referenced by an expression before
+        assertTrue(context.testExpression("a1b2c3/d4e5f6/g7h8i9", 1));
+        assertTrue(context.testExpression("d4e5f6/g7h8i9", 2));
+        assertFalse(context.testExpression("a1b2c3/g7h8i9", 2));
+        assertFalse("attributes aren't on the element stack",
+                context.testExpression("g7h8i9/@attr", 3));
+        assertFalse("deeper than the stack", context.testExpression("x/a1b2c3/d4e5f6/g7h8i9", 0));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testDeprecatedStackHoldsElementPaths() throws Exception {
+        context = getContext(XML_STRING, null);
+        assertTrue(context.stack.isEmpty());
+        context.nextEvent();
+        context.nextEvent();
+        assertEquals("/DescribeImagesResponse/requestId", context.stack.peek());
+        context.readText();
+        assertEquals(Arrays.asList("/DescribeImagesResponse"),
+                Arrays.asList(context.stack.toArray()));
+
+        context.nextEvent();
+        context.readText();
+        context.nextEvent();
+        context.nextEvent();
+        assertEquals(Arrays.asList("/DescribeImagesResponse/imageSet/item",
+                "/DescribeImagesResponse/imageSet", "/DescribeImagesResponse"),
+                Arrays.asList(context.stack.toArray()));
+        assertEquals(3, context.stack.size());
+        assertEquals("/DescribeImagesResponse", context.stack.getLast());
+        Iterator<String> descending = context.stack.descendingIterator();
+        assertEquals("/DescribeImagesResponse", descending.next());
+        assertEquals("/DescribeImagesResponse/imageSet", descending.next());
+
+        try {
+            context.stack.pop();
+            fail("The stack is read only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDeepDocument() throws Exception {
+        StringBuilder xml = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            xml.append("<e").append(i).append('>');
+        }
+        for (int i = 39; i >= 0; i--) {
+            xml.append("</e").append(i).append('>');
+        }
+        context = getContext(xml.toString(), null);
+        for (int i = 0; i < 40; i++) {
+            assertEquals(XmlPullParser.START_TAG, context.nextEvent());
+        }
+        assertEquals(40, context.getCurrentDepth());
+        assertTrue(context.testExpression("e38/e39", 39));
+        for (int i = 0; i < 40; i++) {
+            assertEquals(XmlPullParser.END_TAG, context.nextEvent());
+        }
+        assertEquals(0, context.getCurrentDepth());
+    }
 }
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+
+public class Utf8JsonReaderTest {
+
+    private static final String DYNAMODB_RESPONSE = "{\"Count\":2,\"Items\":["
+            + "{\"id\":{\"S\":\"Chloë\"},\"price\":{\"N\":\"12.5\"},\"blob\":{\"B\":\"AAEC\"},"
+            + "\"tags\":{\"SS\":[\"a\",\"\\u00e9\\n\\\"\",\"😀\"]},\"flag\":{\"BOOL\":true},"
+            + "\"none\":{\"NULL\":true}},"
+            + "{\"id\":{\"S\":\"2\"},\"price\":{\"N\":\"-1E+3\"},\"nested\":{\"M\":{\"l\":{\"L\":[]}}}}"
+            + "],\"ScannedCount\":2,\"ConsumedCapacity\":{\"CapacityUnits\":0.5},"
+            + "\"LastEvaluatedKey\":null}";
+
+    private static final String KINESIS_RESPONSE = "{\"FailedRecordCount\":0,\"Records\":["
+            + "{\"SequenceNumber\":\"49543463076548007577105092703039560359975228518395019266\","
+            + "\"ShardId\":\"shardId-000000000000\"},"
+            + "{\"ErrorCode\":\"ProvisionedThroughputExceededException\","
+            + "\"ErrorMessage\":\"Rate exceeded for shard\"}]}";
+
+    @Test
+    public void testMatchesGson() throws IOException {
+        for (final String json : new String[] {
+                DYNAMODB_RESPONSE, KINESIS_RESPONSE, "[]", "{}", " [1, -2.5e-3 ,true ,null] "
+        }) {
+            assertEquals(json, trace(new GsonFactory().getJsonReader(new StringReader(json))),
+                    trace(utf8Reader(json, false)));
+            assertEquals(json, trace(new GsonFactory().getJsonReader(new StringReader(json))),
+                    trace(utf8Reader(json, true)));
+        }
+    }
+
+    @Test
+    public void testSkipValue() throws IOException {
+        final AwsJsonReader reader = utf8Reader(DYNAMODB_RESPONSE, true);
+        reader.beginObject();
+        assertEquals("Count", reader.nextName());
+        reader.skipValue();
+        assertEquals("Items", reader.nextName());
+        reader.skipValue();
+        assertEquals("ScannedCount", reader.nextName());
+        assertEquals("2", reader.nextString());
+        assertEquals("ConsumedCapacity", reader.nextName());
+        assertTrue(reader.isContainer());
+        reader.skipValue();
+        assertEquals("LastEvaluatedKey", reader.nextName());
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertNull(reader.peek());
+    }
+
+    @Test
+    public void testTypedValues() throws IOException {
+        final Utf8JsonReader reader = utf8Reader("[9223372036854775807,-9223372036854775808,"
+                + "\"42\",2147483647,0.1,-123.456,1e-400,12345678901234567890,true,\"TRUE\","
+                + "\"AAEC\",\"AA\\r\\nEC\",\"\",null]", false);
+        reader.beginArray();
+        assertEquals(Long.MAX_VALUE, reader.nextLong());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        assertEquals(42, reader.nextLong());
+        assertEquals(Integer.MAX_VALUE, reader.nextInt());
+        assertEquals(0.1, reader.nextDouble(), 0);
+        assertEquals(-123.456, reader.nextDouble(), 0);
+        assertEquals(0.0, reader.nextDouble(), 0);
+        assertEquals(12345678901234567890d, reader.nextDouble(), 0);
+        assertTrue(reader.nextBoolean());
+        assertTrue(reader.nextBoolean());
+        assertArrayEquals(new byte[] {0, 1, 2}, reader.nextBytes());
+        assertArrayEquals(new byte[] {0, 1, 2}, reader.nextBytes());
+        assertArrayEquals(new byte[0], reader.nextBytes());
+        assertNull(reader.nextBytes());
+        reader.endArray();
+    }
+
+    @Test
+    public void testNumberOverflow() throws IOException {
+        final Utf8JsonReader reader = utf8Reader("[9223372036854775808,2147483648,1.5]", false);
+        reader.beginArray();
+        try {
+            reader.nextLong();
+            fail("Expected a NumberFormatException");
+        } catch (final NumberFormatException e) {
+            // expected
+        }
+        try {
+            reader.nextInt();
+            fail("Expected a NumberFormatException");
+        } catch (final NumberFormatException e) {
+            // expected
+        }
+        try {
+            reader.nextLong();
+            fail("Expected a NumberFormatException");
+        } catch (final NumberFormatException e) {
+            // expected
+        }
+        reader.endArray();
+    }
+
+    @Test
+    public void testLargeBase64Value() throws IOException {
+        final byte[] data = new byte[100 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final Utf8JsonReader reader = utf8Reader("{\"Data\":\"" + Base64.encodeAsString(data)
+                + "\"}", false);
+        reader.beginObject();
+        assertEquals("Data", reader.nextName());
+        assertArrayEquals(data, reader.nextBytes());
+        reader.endObject();
+    }
+
+    @Test
+    public void testNamesAreShared() throws IOException {
+        final Utf8JsonReader reader = utf8Reader("[{\"SequenceNumber\":1},{\"SequenceNumber\":2}]",
+                false);
+        reader.beginArray();
+        reader.beginObject();
+        final String first = reader.nextName();
+        reader.skipValue();
+        reader.endObject();
+        reader.beginObject();
+        assertSame(first, reader.nextName());
+    }
+
+    @Test
+    public void testMalformedUtf8IsReplaced() throws IOException {
+        final byte[] json = new byte[] {'"', 'a', (byte) 0xC3, '"'};
+        final Utf8JsonReader reader = new Utf8JsonReader(new ByteArrayInputStream(json));
+        assertEquals("a�", reader.nextString());
+    }
+
+    @Test
+    public void testMalformedJson() throws IOException {
+        for (final String json : new String[] {"{\"a\" 1}", "[1 2]", "{\"a\":1", "[tru]", "{a:1}"}) {
+            final AwsJsonReader reader = utf8Reader(json, false);
+            try {
+                while (reader.peek() != null) {
+                    if (reader.peek() == AwsJsonToken.BEGIN_OBJECT) {
+                        reader.beginObject();
+                    } else if (reader.peek() == AwsJsonToken.BEGIN_ARRAY) {
+                        reader.beginArray();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                fail("Expected a failure parsing " + json);
+            } catch (final IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnexpectedToken() throws IOException {
+        utf8Reader("[1]", false).beginObject();
+    }
+
+    private static Utf8JsonReader utf8Reader(String json, boolean oneByteAtATime) {
+        InputStream in = new ByteArrayInputStream(json.getBytes(StringUtils.UTF8));
+        if (oneByteAtATime) {
+            in = new FilterInputStream(in) {
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return super.read(b, off, Math.min(len, 1));
+                }
+            };
+        }
+        return new Utf8JsonReader(in);
+    }
+
+    /**
+     * Walks the whole document and records every token and value.
+     */
+    private static String trace(AwsJsonReader reader) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        AwsJsonToken token;
+        while ((token = reader.peek()) != null) {
+            sb.append(token);
+            switch (token) {
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    break;
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    break;
+                case FIELD_NAME:
+                    sb.append('=').append(reader.nextName());
+                    break;
+                default:
+                    sb.append('=').append(reader.nextString());
+                    break;
+            }
+            sb.append(' ');
+        }
+        reader.close();
+        return sb.toString();
+    }
+}
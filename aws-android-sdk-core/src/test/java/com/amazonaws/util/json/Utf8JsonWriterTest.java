@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.util.ByteArrayPool;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.PooledByteArrayInputStream;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+public class Utf8JsonWriterTest {
+
+    @Test
+    public void testMatchesGson() throws IOException {
+        final StringWriter sw = new StringWriter();
+        final AwsJsonWriter gson = new GsonFactory().getJsonWriter(sw);
+        write(gson);
+        gson.close();
+
+        final Utf8JsonWriter utf8 = new Utf8JsonWriter(new ByteArrayPool(1, 1024));
+        write(utf8);
+        utf8.close();
+
+        // the bytes the Gson based marshallers used to send
+        final byte[] expected = sw.toString().getBytes(StringUtils.UTF8);
+        assertEquals(expected.length, utf8.getContentLength());
+        assertArrayEquals(expected, IOUtils.toByteArray(utf8.toInputStream()));
+    }
+
+    @Test
+    public void testContentIsRepeatableAndReleased() throws IOException {
+        final ByteArrayPool pool = new ByteArrayPool(1, 1024 * 1024);
+        final Utf8JsonWriter writer = new Utf8JsonWriter(pool);
+        writer.beginArray();
+        for (int i = 0; i < 1000; i++) {
+            writer.value("value " + i);
+        }
+        writer.endArray();
+        writer.close();
+
+        final PooledByteArrayInputStream content = writer.toInputStream();
+        assertTrue(content.markSupported());
+        content.mark(-1);
+        final String first = IOUtils.toString(content);
+        content.reset();
+        assertEquals(first, IOUtils.toString(content));
+        assertEquals(writer.getContentLength(), first.length());
+
+        // the initial buffer went back to the pool when growing; the pool
+        // only keeps one array so the released content buffer is dropped
+        assertEquals(1, pool.getPooledCount());
+        content.release();
+        content.release();
+        assertEquals(1, pool.getPooledCount());
+        assertEquals(-1, content.read());
+
+        try {
+            writer.value("more");
+            fail("Expected the writer to be unusable after handing over its content");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPooledBufferIsReused() throws IOException {
+        final ByteArrayPool pool = new ByteArrayPool(2, 4096);
+        final Utf8JsonWriter writer = new Utf8JsonWriter(pool);
+        writer.beginObject().endObject().close();
+        final PooledByteArrayInputStream content = writer.toInputStream();
+        assertEquals(0, pool.getPooledCount());
+        content.release();
+        assertEquals(1, pool.getPooledCount());
+
+        new Utf8JsonWriter(pool);
+        assertEquals(0, pool.getPooledCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testIncompleteDocument() throws IOException {
+        final Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.beginObject();
+        writer.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNameOutsideObject() throws IOException {
+        new Utf8JsonWriter().beginArray().name("name");
+    }
+
+    private static void write(AwsJsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("string").value("plain");
+        writer.name("escaped").value("q\"b\\s/t\tn\nr\rf\fb\bc\u0001l\u2028\u2029");
+        writer.name("unicode").value("Chloë 日本 😀");
+        writer.name("lone").value("a\ud800b");
+        writer.name("true").value(true);
+        writer.name("long").value(Long.MIN_VALUE);
+        writer.name("double").value(-0.1);
+        writer.name("number").value(new BigDecimal("12345678901234567890.5"));
+        writer.name("nullNumber").value((Number) null);
+        writer.name("date").value(new Date(1423875641895L));
+        writer.name("bytes").value(ByteBuffer.wrap(new byte[] {0, 1, 2, (byte) 0xFF}));
+        writer.name("empty").value(ByteBuffer.allocate(0));
+        writer.name("null").value();
+        writer.name("nested").beginArray().beginObject().endObject().beginArray().endArray()
+                .value(1).endArray();
+        writer.endObject();
+    }
+}
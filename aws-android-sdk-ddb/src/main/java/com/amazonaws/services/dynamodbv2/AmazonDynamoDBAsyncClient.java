@@ -27,8 +27,10 @@ import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.http.AsyncExecutionEngine;
 
 import com.amazonaws.services.dynamodbv2.model.*;
+import com.amazonaws.services.dynamodbv2.model.transform.*;
 
 /**
  * Interface for accessing Amazon DynamoDB asynchronously. <fullname>Amazon
@@ -63,6 +65,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     private ExecutorService executorService;
 
+    /**
+     * Engine executing the item and batch operations without blocking a
+     * thread per request; null when they run on the executor service.
+     */
+    private AsyncExecutionEngine executionEngine;
+
     private static final int DEFAULT_THREAD_POOL_SIZE = 10;
 
     /**
@@ -251,6 +259,49 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
         this.executorService = executorService;
     }
 
+    /**
+     * Constructs a new asynchronous client to invoke service methods on Amazon
+     * DynamoDB using the specified AWS account credentials provider, client
+     * configuration options and execution engine.
+     * <p>
+     * The item and batch operations (<code>GetItem</code>,
+     * <code>PutItem</code>, <code>UpdateItem</code>, <code>DeleteItem</code>,
+     * <code>Query</code>, <code>Scan</code>, <code>BatchGetItem</code> and
+     * <code>BatchWriteItem</code>) run on the execution engine, which holds no
+     * thread while a request waits to be retried, so a few threads can serve
+     * thousands of concurrent requests. The other operations run on a fixed
+     * size thread pool. The engine can be shared by several clients and is
+     * not shut down with this client.
+     *
+     * @param awsCredentialsProvider The AWS credentials provider which will
+     *            provide credentials to authenticate requests with AWS
+     *            services.
+     * @param clientConfiguration Client configuration options (ex: max retry
+     *            limit, proxy settings, etc).
+     * @param executionEngine The engine executing the item and batch
+     *            operations.
+     */
+    public AmazonDynamoDBAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
+            ClientConfiguration clientConfiguration, AsyncExecutionEngine executionEngine) {
+        this(awsCredentialsProvider, clientConfiguration, Executors
+                .newFixedThreadPool(clientConfiguration.getMaxConnections()));
+        if (executionEngine == null) {
+            throw new IllegalArgumentException("executionEngine cannot be null");
+        }
+        this.executionEngine = executionEngine;
+    }
+
+    /**
+     * Returns the engine executing the item and batch operations of this
+     * client.
+     *
+     * @return The execution engine, or null if all the operations run on the
+     *         executor service.
+     */
+    public AsyncExecutionEngine getExecutionEngine() {
+        return executionEngine;
+    }
+
     /**
      * Returns the executor service used by this async client to execute
      * requests.
@@ -375,6 +426,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<BatchGetItemResult> batchGetItemAsync(
             final BatchGetItemRequest batchGetItemRequest) throws AmazonServiceException,
             AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(batchGetItemRequest, new BatchGetItemRequestMarshaller(),
+                    new BatchGetItemResultJsonUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<BatchGetItemResult>() {
             public BatchGetItemResult call() throws Exception {
                 return batchGetItem(batchGetItemRequest);
@@ -483,6 +538,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final BatchGetItemRequest batchGetItemRequest,
             final AsyncHandler<BatchGetItemRequest, BatchGetItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(batchGetItemRequest, new BatchGetItemRequestMarshaller(),
+                    new BatchGetItemResultJsonUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<BatchGetItemResult>() {
             public BatchGetItemResult call() throws Exception {
                 BatchGetItemResult result = null;
@@ -641,6 +700,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<BatchWriteItemResult> batchWriteItemAsync(
             final BatchWriteItemRequest batchWriteItemRequest) throws AmazonServiceException,
             AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(batchWriteItemRequest, new BatchWriteItemRequestMarshaller(),
+                    new BatchWriteItemResultJsonUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<BatchWriteItemResult>() {
             public BatchWriteItemResult call() throws Exception {
                 return batchWriteItem(batchWriteItemRequest);
@@ -792,6 +855,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final BatchWriteItemRequest batchWriteItemRequest,
             final AsyncHandler<BatchWriteItemRequest, BatchWriteItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(batchWriteItemRequest, new BatchWriteItemRequestMarshaller(),
+                    new BatchWriteItemResultJsonUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<BatchWriteItemResult>() {
             public BatchWriteItemResult call() throws Exception {
                 BatchWriteItemResult result = null;
@@ -1405,6 +1472,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<DeleteItemResult> deleteItemAsync(final DeleteItemRequest deleteItemRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(deleteItemRequest, new DeleteItemRequestMarshaller(),
+                    new DeleteItemResultJsonUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<DeleteItemResult>() {
             public DeleteItemResult call() throws Exception {
                 return deleteItem(deleteItemRequest);
@@ -1455,6 +1526,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DeleteItemResult> deleteItemAsync(final DeleteItemRequest deleteItemRequest,
             final AsyncHandler<DeleteItemRequest, DeleteItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(deleteItemRequest, new DeleteItemRequestMarshaller(),
+                    new DeleteItemResultJsonUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<DeleteItemResult>() {
             public DeleteItemResult call() throws Exception {
                 DeleteItemResult result = null;
@@ -2373,6 +2448,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<GetItemResult> getItemAsync(final GetItemRequest getItemRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(getItemRequest, new GetItemRequestMarshaller(),
+                    new GetItemResultJsonUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<GetItemResult>() {
             public GetItemResult call() throws Exception {
                 return getItem(getItemRequest);
@@ -2414,6 +2493,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<GetItemResult> getItemAsync(final GetItemRequest getItemRequest,
             final AsyncHandler<GetItemRequest, GetItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(getItemRequest, new GetItemRequestMarshaller(),
+                    new GetItemResultJsonUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<GetItemResult>() {
             public GetItemResult call() throws Exception {
                 GetItemResult result = null;
@@ -2853,6 +2936,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<PutItemResult> putItemAsync(final PutItemRequest putItemRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(putItemRequest, new PutItemRequestMarshaller(),
+                    new PutItemResultJsonUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<PutItemResult>() {
             public PutItemResult call() throws Exception {
                 return putItem(putItemRequest);
@@ -2989,6 +3076,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<PutItemResult> putItemAsync(final PutItemRequest putItemRequest,
             final AsyncHandler<PutItemRequest, PutItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(putItemRequest, new PutItemRequestMarshaller(),
+                    new PutItemResultJsonUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<PutItemResult>() {
             public PutItemResult call() throws Exception {
                 PutItemResult result = null;
@@ -3097,6 +3188,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<QueryResult> queryAsync(final QueryRequest queryRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(queryRequest, new QueryRequestMarshaller(),
+                    new QueryResultJsonUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<QueryResult>() {
             public QueryResult call() throws Exception {
                 return query(queryRequest);
@@ -3198,6 +3293,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<QueryResult> queryAsync(final QueryRequest queryRequest,
             final AsyncHandler<QueryRequest, QueryResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(queryRequest, new QueryRequestMarshaller(),
+                    new QueryResultJsonUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<QueryResult>() {
             public QueryResult call() throws Exception {
                 QueryResult result = null;
@@ -3668,6 +3767,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<ScanResult> scanAsync(final ScanRequest scanRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(scanRequest, new ScanRequestMarshaller(),
+                    new ScanResultJsonUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<ScanResult>() {
             public ScanResult call() throws Exception {
                 return scan(scanRequest);
@@ -3737,6 +3840,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<ScanResult> scanAsync(final ScanRequest scanRequest,
             final AsyncHandler<ScanRequest, ScanResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(scanRequest, new ScanRequestMarshaller(),
+                    new ScanResultJsonUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<ScanResult>() {
             public ScanResult call() throws Exception {
                 ScanResult result = null;
@@ -4267,6 +4374,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<UpdateItemResult> updateItemAsync(final UpdateItemRequest updateItemRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(updateItemRequest, new UpdateItemRequestMarshaller(),
+                    new UpdateItemResultJsonUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<UpdateItemResult>() {
             public UpdateItemResult call() throws Exception {
                 return updateItem(updateItemRequest);
@@ -4309,6 +4420,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<UpdateItemResult> updateItemAsync(final UpdateItemRequest updateItemRequest,
             final AsyncHandler<UpdateItemRequest, UpdateItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(updateItemRequest, new UpdateItemRequestMarshaller(),
+                    new UpdateItemResultJsonUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<UpdateItemResult>() {
             public UpdateItemResult call() throws Exception {
                 UpdateItemResult result = null;
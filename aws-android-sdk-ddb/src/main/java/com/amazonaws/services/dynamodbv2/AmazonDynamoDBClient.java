@@ -16,6 +16,7 @@
 package com.amazonaws.services.dynamodbv2;
 
 import java.util.*;
+import java.util.concurrent.Future;
 
 import com.amazonaws.*;
 import com.amazonaws.auth.*;
@@ -5144,6 +5145,76 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
         return client.getResponseMetadataForRequest(request);
     }
 
+    /**
+     * Marshalls the request and executes it on the given engine without
+     * blocking the calling thread. Credentials are resolved on an engine I/O
+     * thread.
+     *
+     * @param originalRequest the request.
+     * @param marshaller the marshaller of the request.
+     * @param unmarshaller the unmarshaller of the result.
+     * @param engine the engine executing the request.
+     * @param asyncHandler notified of the outcome; or null.
+     * @return the future result.
+     * @throws AmazonClientException if the request cannot be marshalled.
+     */
+    protected final <X, Y extends AmazonWebServiceRequest> Future<X> invokeAsync(
+            final Y originalRequest,
+            Marshaller<Request<Y>, Y> marshaller,
+            Unmarshaller<X, JsonUnmarshallerContext> unmarshaller,
+            AsyncExecutionEngine engine,
+            final AsyncHandler<Y, X> asyncHandler) {
+        final ExecutionContext executionContext = createExecutionContext(originalRequest);
+        final AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        final Request<Y> request;
+        awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+        try {
+            request = marshaller.marshall(originalRequest);
+            // Binds the request metrics to the current request.
+            request.setAWSRequestMetrics(awsRequestMetrics);
+        } catch (RuntimeException e) {
+            awsRequestMetrics.endEvent(Field.RequestMarshallTime);
+            awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+            endClientExecution(awsRequestMetrics, null, null, LOGGING_AWS_REQUEST_METRIC);
+            throw e;
+        } catch (Exception e) {
+            awsRequestMetrics.endEvent(Field.RequestMarshallTime);
+            awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+            endClientExecution(awsRequestMetrics, null, null, LOGGING_AWS_REQUEST_METRIC);
+            throw new AmazonClientException("Unable to marshall request: " + e.getMessage(), e);
+        }
+        awsRequestMetrics.endEvent(Field.RequestMarshallTime);
+        request.setEndpoint(endpoint);
+        request.setTimeOffset(timeOffset);
+
+        JsonResponseHandler<X> responseHandler = new JsonResponseHandler<X>(unmarshaller);
+        JsonErrorResponseHandler errorResponseHandler = new JsonErrorResponseHandler(
+                jsonErrorUnmarshallers);
+        return client.executeAsync(request, responseHandler, errorResponseHandler,
+                executionContext, awsCredentialsProvider, engine, new ResponseCallback<X>() {
+                    @Override
+                    public void onResponse(Response<X> response) {
+                        awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+                        endClientExecution(awsRequestMetrics, request, response,
+                                LOGGING_AWS_REQUEST_METRIC);
+                        if (asyncHandler != null) {
+                            asyncHandler.onSuccess(originalRequest, response.getAwsResponse());
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception exception) {
+                        awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+                        endClientExecution(awsRequestMetrics, request, null,
+                                LOGGING_AWS_REQUEST_METRIC);
+                        if (asyncHandler != null) {
+                            asyncHandler.onError(exception);
+                        }
+                    }
+                });
+    }
+
     private <X, Y extends AmazonWebServiceRequest> Response<X> invoke(Request<Y> request,
             HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler,
             ExecutionContext executionContext) {
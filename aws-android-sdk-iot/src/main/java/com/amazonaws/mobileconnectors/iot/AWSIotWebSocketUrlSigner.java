@@ -1,6 +1,7 @@
 package com.amazonaws.mobileconnectors.iot;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.AWS4SigningKeyCache;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSSessionCredentials;
 import com.amazonaws.auth.AnonymousAWSCredentials;
@@ -137,6 +138,8 @@ class AWSIotWebSocketUrlSigner {
 
     /**
      * The SigV4 signing key is made up by consecutively hashing a number of unique pieces of data.
+     * The derived key is shared with the other SigV4 signers through the
+     * {@link AWS4SigningKeyCache} so it is only computed once per day.
      * @param dateStamp the current date in short date format.
      * @param regionName AWS region name.
      * @param serviceName service name for IoT service.
@@ -145,12 +148,22 @@ class AWSIotWebSocketUrlSigner {
      */
     private byte[] getSigningKey(String dateStamp, String regionName, String serviceName, AWSCredentials credentials)
     {
+        AWS4SigningKeyCache cache = AWS4SigningKeyCache.getSharedCache();
+        byte[] signingKey = cache.get(credentials.getAWSAccessKeyId(), credentials.getAWSSecretKey(),
+                dateStamp, regionName, serviceName);
+        if (signingKey != null) {
+            return signingKey;
+        }
+
         // AWS4 uses a series of derived keys, formed by hashing different pieces of data
         byte[] signingSecret = (KEY_PREFIX + credentials.getAWSSecretKey()).getBytes();
         byte[] signingDate = sign(dateStamp, signingSecret, SigningAlgorithm.HmacSHA256);
         byte[] signingRegion = sign(regionName, signingDate, SigningAlgorithm.HmacSHA256);
         byte[] signingService = sign(serviceName, signingRegion, SigningAlgorithm.HmacSHA256);
-        return sign(TERMINATOR, signingService, SigningAlgorithm.HmacSHA256);
+        signingKey = sign(TERMINATOR, signingService, SigningAlgorithm.HmacSHA256);
+        cache.put(credentials.getAWSAccessKeyId(), credentials.getAWSSecretKey(),
+                dateStamp, regionName, serviceName, signingKey);
+        return signingKey;
     }
 
     /**
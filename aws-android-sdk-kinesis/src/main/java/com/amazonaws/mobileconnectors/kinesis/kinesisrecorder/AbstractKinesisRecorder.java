@@ -26,6 +26,11 @@ import com.amazonaws.logging.LogFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An abstract class for Amazon Kinesis recorders. It manages local file store
@@ -45,6 +50,9 @@ public abstract class AbstractKinesisRecorder {
      * Maximum size in bytes of records in PutRecordBatch.
      */
     private static final int MAX_BATCH_RECORDS_SIZE_BYTES = 512 * 1024;
+    /** How long the threads of a pipelined submission are kept idle. */
+    private static final long SUBMIT_THREAD_KEEP_ALIVE_SECONDS = 60L;
+    private static final AtomicInteger SUBMIT_THREAD_COUNT = new AtomicInteger(0);
 
     /**
      * The configurable options for Kinesis Recorder, includes the
@@ -52,6 +60,10 @@ public abstract class AbstractKinesisRecorder {
      */
     protected KinesisRecorderConfig config;
     protected FileRecordStore recordStore;
+    /** Writes the records saved in group commits, or null. */
+    private final GroupCommitWriter groupCommitWriter;
+    /** Sends the batches of a pipelined submission; guarded by this. */
+    private ThreadPoolExecutor submitExecutor;
 
     /**
      * Gets the sender to send saved records.
@@ -60,6 +72,20 @@ public abstract class AbstractKinesisRecorder {
      */
     protected abstract RecordSender getRecordSender();
 
+    /**
+     * @return the maximum number of records in a batch.
+     */
+    int getMaxRecordsPerBatch() {
+        return MAX_RECORDS_PER_BATCH;
+    }
+
+    /**
+     * @return the maximum size in bytes of the records in a batch.
+     */
+    int getMaxBatchRecordsSizeBytes() {
+        return MAX_BATCH_RECORDS_SIZE_BYTES;
+    }
+
     /**
      * Creates a {@link AbstractKinesisRecorder}.
      *
@@ -72,6 +98,12 @@ public abstract class AbstractKinesisRecorder {
         }
         this.recordStore = recordStore;
         this.config = config;
+        if (config != null && config.isGroupCommit()) {
+            this.groupCommitWriter = new GroupCommitWriter(recordStore,
+                    config.getGroupCommitIntervalMillis(), config.getGroupCommitBytes());
+        } else {
+            this.groupCommitWriter = null;
+        }
     }
 
     /**
@@ -90,14 +122,24 @@ public abstract class AbstractKinesisRecorder {
      * submitted to the streamName provided with a randomly generated partition
      * key to ensure equal distribution across shards. Note: Since operation
      * involves file I/O it is recommended not to call this method on the main
-     * thread to ensure responsive applications.
+     * thread to ensure responsive applications. In group commit mode, the
+     * record is handed over to a writer thread and this method returns
+     * without waiting for it to be written, unless durable saves are enabled
+     * in the {@link KinesisRecorderConfig}; a durable save of a record that
+     * doesn't fit in the max storage size fails instead of dropping it.
      *
      * @param data The data to submit to the stream
      * @param streamName The stream to submit the data to.
      */
     public void saveRecord(byte[] data, String streamName) {
+        final String record = FileRecordParser.asString(streamName, data);
         try {
-            recordStore.put(FileRecordParser.asString(streamName, data));
+            if (groupCommitWriter != null) {
+                groupCommitWriter.save(record.getBytes(StringUtils.UTF8),
+                        config.isDurableSave());
+            } else {
+                recordStore.put(record);
+            }
         } catch (final IOException e) {
             throw new AmazonClientException("Error saving record", e);
         }
@@ -112,22 +154,34 @@ public abstract class AbstractKinesisRecorder {
      * methods to make calls to Amazon Kinesis, do not call submitAll() on the
      * main thread of your application.
      *
+     * <p>
+     * If the submit concurrency of the {@link KinesisRecorderConfig} is more
+     * than 1, that many batches are sent at the same time, and each batch is
+     * deleted as soon as it is sent.
+     *
      * @throws AmazonClientException Thrown if there was an unrecoverable error
      *             during submission. Note: If the request appears to be
      *             invalid, the record will be deleted. If the request appears
      *             to be valid, it will be kept.
      */
     public synchronized void submitAllRecords() {
+        flushGroupCommit();
+        if (config != null && config.getSubmitConcurrency() > 1) {
+            submitAllRecordsPipelined();
+            return;
+        }
         final RecordSender sender = getRecordSender();
         final RecordIterator iterator = recordStore.iterator();
-        final List<byte[]> data = new ArrayList<byte[]>(MAX_RECORDS_PER_BATCH);
+        final int maxRecordsPerBatch = getMaxRecordsPerBatch();
+        final int maxBatchRecordsSizeBytes = getMaxBatchRecordsSizeBytes();
+        final List<byte[]> data = new ArrayList<byte[]>(maxRecordsPerBatch);
         int retry = 0;
         int count = 0;
         boolean unknownErrorRetried = false;
         try {
             while (iterator.hasNext() && retry < MAX_RETRY_COUNT) {
-                final String streamName = nextBatch(iterator, data, MAX_RECORDS_PER_BATCH,
-                        MAX_BATCH_RECORDS_SIZE_BYTES);
+                final String streamName = nextBatch(iterator, data, maxRecordsPerBatch,
+                        maxBatchRecordsSizeBytes);
                 if (streamName == null || data.isEmpty()) {
                     break;
                 }
@@ -216,6 +270,33 @@ public abstract class AbstractKinesisRecorder {
         }
     }
 
+    private void submitAllRecordsPipelined() {
+        final int concurrency = config.getSubmitConcurrency();
+        if (submitExecutor == null) {
+            submitExecutor = new ThreadPoolExecutor(concurrency, concurrency,
+                    SUBMIT_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread thread = new Thread(r, "KinesisRecorder-Submit-"
+                                    + SUBMIT_THREAD_COUNT.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            submitExecutor.allowCoreThreadTimeOut(true);
+        } else if (submitExecutor.getMaximumPoolSize() != concurrency) {
+            // the config is shared with the caller, who may have changed it
+            submitExecutor.setCorePoolSize(Math.min(concurrency, submitExecutor.getCorePoolSize()));
+            submitExecutor.setMaximumPoolSize(concurrency);
+            submitExecutor.setCorePoolSize(concurrency);
+        }
+        final int count = new PipelinedRecordSubmitter(this, recordStore, getRecordSender(),
+                submitExecutor, concurrency, config.isOrderedSubmit(), getMaxRecordsPerBatch(),
+                getMaxBatchRecordsSizeBytes(), MAX_RETRY_COUNT).submitAll();
+        LOGGER.debug(String.format("submitAllRecords sent %d records", count));
+    }
+
     /**
      * Reads a batch of records belong to the same stream into a list. If data
      * is read successfully, the stream name is returned.
@@ -304,10 +385,26 @@ public abstract class AbstractKinesisRecorder {
      * KinesisRecorder.
      */
     public synchronized void deleteAllRecords() {
+        flushGroupCommit();
         try {
             recordStore.iterator().removeAllRecords();
         } catch (final IOException e) {
             throw new AmazonClientException("Error deleting events", e);
         }
     }
+
+    /**
+     * Waits for the records saved in group commits so far to be written, so
+     * that they are part of the records submitted or deleted.
+     */
+    private void flushGroupCommit() {
+        if (groupCommitWriter == null) {
+            return;
+        }
+        try {
+            groupCommitWriter.flush();
+        } catch (final IOException e) {
+            throw new AmazonClientException("Error saving records", e);
+        }
+    }
 }
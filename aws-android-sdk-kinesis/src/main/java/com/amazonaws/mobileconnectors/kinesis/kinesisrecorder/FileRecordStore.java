@@ -22,177 +22,647 @@ import com.amazonaws.util.StringUtils;
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
 
 /**
  * The FileRecordStore is responsible for recording Kinesis PutRecordRequests to
- * the Android disk. Currently it stores each request as a JSON object
- * representing it's properties. One request per line.
+ * the Android disk. The records are appended to a log split into segment
+ * files, each record prefixed with its length and checksum, through one append
+ * channel kept open for the life of the store.
+ * <p>
+ * The position of the first record not yet sent is kept in a small checkpoint
+ * file, so removing the records that were sent only moves the checkpoint and
+ * deletes the segments before it, rather than rewriting the records left.
+ * Ranges of records sent out of order are acknowledged in memory until the
+ * records before them are sent too; a segment they cover entirely is deleted
+ * right away, and readers skip them.
+ * Records stored by earlier versions in a text file, one per line, are moved
+ * into the log when the store is opened.
  */
 class FileRecordStore {
     private static final Log LOGGER = LogFactory.getLog(FileRecordStore.class);
-    private final ReentrantLock accessLock = new ReentrantLock(true);
 
-    /** The file the requests are stored in. **/
-    private File recordFile;
+    /** The size at which the log rolls over to a new segment. */
+    static final long DEFAULT_SEGMENT_SIZE = 1024 * 1024L;
+
+    /**
+     * The fraction of the maximum storage size a segment takes at most, so
+     * that the space of the records sent but not yet reclaimed stays small.
+     */
+    private static final int SEGMENTS_PER_STORE = 8;
+
+    /** The length and checksum before each record. */
+    private static final int HEADER_SIZE = 8;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final String LEGACY_TEMP_SUFFIX = ".tmp";
+
+    private final ReentrantLock accessLock = new ReentrantLock(true);
 
     /** The FileManager used for interacting with the FS. **/
     private final FileManager fileManager;
 
     private final String recordFileName;
     private final long maxStorageSize;
+    private final long segmentSize;
+
+    /** The directory of the segments and checkpoint. **/
+    private File recordsDirectory;
+
+    /** The sequence numbers of the segments, oldest first. **/
+    private final List<Long> segments = new ArrayList<Long>();
+
+    /** The channel appending to the last segment. **/
+    private FileChannel appendChannel;
+
+    /** The total size of the segments. **/
+    private long diskBytes;
+
+    /** The segment and offset of the first record not yet removed. **/
+    private long checkpointSegment;
+    private long checkpointOffset;
+
+    /**
+     * The ranges of records sent after the checkpoint, keyed by their start;
+     * adjacent and overlapping ranges are merged.
+     **/
+    private final TreeMap<Position, Position> acknowledged = new TreeMap<Position, Position>();
 
     /**
      * Creates the FileRecordStore.
      *
-     * @param recorderDirectory The directory (which the FileRecordStore is only
+     * @param workDirectory The directory (which the FileRecordStore is only
      *            used for the KinesisRecorder) to use to store requests in
      * @param recordFileName Name of the record file
      * @param maxStorageSize Maximum storage size in bytes
      */
     public FileRecordStore(File workDirectory, String recordFileName, long maxStorageSize) {
+        this(workDirectory, recordFileName, maxStorageSize,
+                Math.max(1, Math.min(DEFAULT_SEGMENT_SIZE, maxStorageSize / SEGMENTS_PER_STORE)));
+    }
+
+    /**
+     * Creates the FileRecordStore, rolling its log over to a new segment at
+     * the given size.
+     */
+    FileRecordStore(File workDirectory, String recordFileName, long maxStorageSize,
+            long segmentSize) {
         this.fileManager = new FileManager(workDirectory);
         this.recordFileName = recordFileName;
         this.maxStorageSize = maxStorageSize;
+        this.segmentSize = segmentSize;
         try {
-            tryCreateRecordsFile();
+            open();
+            migrateLegacyRecords();
         } catch (final IOException ioe) {
             throw new AmazonClientException("Failed to create file store", ioe);
         }
     }
 
+    /**
+     * Returns whether there are records stored under the given name, in the
+     * log or in a text file of an earlier version.
+     */
+    static boolean exists(File workDirectory, String recordFileName) {
+        final File recordsDir = new File(workDirectory, Constants.RECORDS_DIRECTORY);
+        return new File(recordsDir, recordFileName).isFile()
+                || !listSegments(recordsDir, recordFileName).isEmpty();
+    }
+
     public boolean put(final String record) throws IOException {
-        boolean success = false;
-        BufferedWriter writer = null;
+        final byte[] bytes = record.getBytes(StringUtils.UTF8);
         accessLock.lock();
         try {
-            writer = tryInitializeWriter();
-            if (recordFile.length() + record.getBytes(StringUtils.UTF8).length <= maxStorageSize) {
-                writer.write(record);
-                writer.newLine();
-                writer.flush();
-                success = true;
+            if (diskBytes + HEADER_SIZE + bytes.length > maxStorageSize) {
+                return false;
             }
+            append(bytes);
+            return true;
         } finally {
-            if (writer != null) {
-                writer.close();
-            }
             accessLock.unlock();
         }
+    }
 
-        return success;
+    /**
+     * Appends the records in one go, dropping those that don't fit in the
+     * maximum storage size. The records of a segment are written with one
+     * write.
+     *
+     * @return whether each record was appended.
+     */
+    boolean[] putAll(List<byte[]> records) throws IOException {
+        accessLock.lock();
+        try {
+            final List<byte[]> frames = new ArrayList<byte[]>(records.size());
+            final boolean[] appended = new boolean[records.size()];
+            long framesSize = 0;
+            long activeSize = appendChannel.size();
+            for (int i = 0; i < records.size(); i++) {
+                final byte[] bytes = records.get(i);
+                final long frameSize = HEADER_SIZE + bytes.length;
+                if (diskBytes + framesSize + frameSize > maxStorageSize) {
+                    continue;
+                }
+                if (activeSize > 0 && activeSize + frameSize > segmentSize) {
+                    writeFrames(frames, framesSize);
+                    frames.clear();
+                    framesSize = 0;
+                    rollOver();
+                    activeSize = 0;
+                }
+                frames.add(bytes);
+                framesSize += frameSize;
+                activeSize += frameSize;
+                appended[i] = true;
+            }
+            writeFrames(frames, framesSize);
+            return appended;
+        } finally {
+            accessLock.unlock();
+        }
     }
 
-    public long getFileSize() {
-        return recordFile == null ? 0 : recordFile.length();
+    /**
+     * Forces the records appended so far to the storage device.
+     */
+    void sync() throws IOException {
+        accessLock.lock();
+        try {
+            if (appendChannel != null) {
+                appendChannel.force(false);
+            }
+        } finally {
+            accessLock.unlock();
+        }
     }
 
-    private void tryCreateRecordsFile() throws IOException {
-        if (recordFile != null && recordFile.exists()) {
+    /**
+     * Removes the records in the given range, which was read by an iterator.
+     * Records before the range may still be in the store, in which case the
+     * range is only skipped by readers, and the segments it covers entirely
+     * deleted, until they are removed too.
+     *
+     * @param from the position before the first record of the range.
+     * @param to the position after the last record of the range.
+     */
+    void acknowledge(Position from, Position to) throws IOException {
+        if (to.compareTo(from) <= 0) {
             return;
         }
-
-        synchronized (this) {
-            if (recordFile != null && recordFile.exists()) {
-                return;
+        accessLock.lock();
+        try {
+            Position start = from;
+            Position end = to;
+            final Map.Entry<Position, Position> lower = acknowledged.floorEntry(start);
+            if (lower != null && lower.getValue().compareTo(start) >= 0) {
+                start = lower.getKey();
+                end = max(end, lower.getValue());
+                acknowledged.remove(lower.getKey());
+            }
+            Map.Entry<Position, Position> higher;
+            while ((higher = acknowledged.ceilingEntry(start)) != null
+                    && higher.getKey().compareTo(end) <= 0) {
+                end = max(end, higher.getValue());
+                acknowledged.remove(higher.getKey());
             }
+            acknowledged.put(start, end);
+
+            final Map.Entry<Position, Position> first = acknowledged.firstEntry();
+            if (first.getKey().compareTo(checkpoint()) <= 0) {
+                acknowledged.remove(first.getKey());
+                if (first.getValue().compareTo(checkpoint()) > 0) {
+                    final Position next = existingPosition(first.getValue());
+                    removeRecordsBefore(next.segment, next.offset);
+                }
+            }
+            deleteAcknowledgedSegments();
+        } finally {
+            accessLock.unlock();
+        }
+    }
 
-            final File recordDir = fileManager.createDirectory(
-                    Constants.RECORDS_DIRECTORY);
-            recordFile = fileManager.createFile(new File(
-                    recordDir, recordFileName));
+    /**
+     * Deletes the segments after the checkpoint that acknowledged ranges
+     * cover entirely. The last segment is kept for the records to come.
+     */
+    private void deleteAcknowledgedSegments() {
+        for (int i = segments.size() - 2; i >= 0; i--) {
+            final long segment = segments.get(i);
+            if (segment <= checkpointSegment) {
+                break;
+            }
+            final File file = segmentFile(segment);
+            final Map.Entry<Position, Position> range = acknowledged.floorEntry(
+                    new Position(segment, 0));
+            if (range != null
+                    && range.getValue().compareTo(new Position(segment, file.length())) >= 0) {
+                segments.remove(i);
+                diskBytes -= file.length();
+                if (!file.delete()) {
+                    LOGGER.error("Failed to delete record segment " + file.getName());
+                }
+            }
         }
     }
 
-    private BufferedWriter tryInitializeWriter() throws IOException {
-        BufferedWriter writer = null;
-        tryCreateRecordsFile();
-        final OutputStream stream = fileManager.newOutputStream(recordFile, true);
-        writer = new BufferedWriter(new OutputStreamWriter(stream, StringUtils.UTF8));
+    private Position checkpoint() {
+        return new Position(checkpointSegment, checkpointOffset);
+    }
 
-        return writer;
+    /**
+     * Returns the given position, or the start of the segment after it if
+     * its segment was deleted.
+     */
+    private Position existingPosition(Position position) {
+        if (segments.contains(position.segment)) {
+            return position;
+        }
+        return new Position(nextSegment(position.segment), 0);
     }
 
-    private File deleteAllRecords() throws IOException {
-        final File recordsDir = fileManager.createDirectory(
-                Constants.RECORDS_DIRECTORY);
+    /**
+     * Returns the first segment after the given one, or -1 if there is none.
+     */
+    private long nextSegment(long segment) {
+        for (final Long next : segments) {
+            if (next > segment) {
+                return next;
+            }
+        }
+        return -1;
+    }
 
-        recordFile.delete();
+    private static Position max(Position a, Position b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
 
-        recordFile = fileManager.createFile(new File(
-                recordsDir, recordFileName));
-        return recordFile;
+    public long getFileSize() {
+        accessLock.lock();
+        try {
+            return diskBytes;
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments and the checkpoint of this store. The store can't
+     * be used afterwards.
+     */
+    void delete() throws IOException {
+        accessLock.lock();
+        try {
+            closeAppendChannel();
+            for (final Long segment : segments) {
+                segmentFile(segment).delete();
+            }
+            segments.clear();
+            checkpointFile().delete();
+            diskBytes = 0;
+        } finally {
+            accessLock.unlock();
+        }
     }
 
-    private File deleteReadRecords(final int lineNumber) throws IOException {
-        // Write all records after line number to a temporary file
-        final File recordsDir = fileManager.createDirectory(
-                Constants.RECORDS_DIRECTORY);
+    private void open() throws IOException {
+        recordsDirectory = fileManager.createDirectory(Constants.RECORDS_DIRECTORY);
+        if (recordsDirectory == null) {
+            throw new IOException("Failed to create records directory");
+        }
+        segments.addAll(listSegments(recordsDirectory, recordFileName));
+        readCheckpoint();
+
+        // segments before the checkpoint are left over if the store stopped
+        // before deleting them
+        while (!segments.isEmpty() && segments.get(0) < checkpointSegment) {
+            segmentFile(segments.remove(0)).delete();
+        }
+        if (segments.isEmpty()) {
+            segments.add(checkpointSegment);
+            fileManager.createFile(segmentFile(checkpointSegment));
+            checkpointOffset = 0;
+        }
 
-        File tempRecordsFile = null;
-        final File tempFile = new File(
-                recordsDir, recordFileName + ".tmp");
-        if (tempFile.exists()) {
-            if (!tempFile.delete()) {
-                throw new IOException("Failed to delete previous temp file");
+        final long last = segments.get(segments.size() - 1);
+        truncateTornRecord(last, last == checkpointSegment ? checkpointOffset : 0);
+        openAppendChannel(last);
+
+        diskBytes = 0;
+        for (final Long segment : segments) {
+            diskBytes += segmentFile(segment).length();
+        }
+    }
+
+    /**
+     * Reads the checkpoint, or starts at the first segment if there is no
+     * valid checkpoint. Starting early sends records twice rather than losing
+     * them.
+     */
+    private void readCheckpoint() throws IOException {
+        checkpointSegment = segments.isEmpty() ? 1 : segments.get(0);
+        checkpointOffset = 0;
+        final File file = checkpointFile();
+        if (!file.isFile()) {
+            return;
+        }
+        final RandomAccessFile checkpoint = new RandomAccessFile(file, "r");
+        try {
+            final long segment = checkpoint.readLong();
+            final long offset = checkpoint.readLong();
+            if (segments.contains(segment) && offset >= 0
+                    && offset <= segmentFile(segment).length()) {
+                checkpointSegment = segment;
+                checkpointOffset = offset;
+            } else {
+                LOGGER.warn("Invalid checkpoint, records will be read from the start");
             }
+        } catch (final EOFException e) {
+            LOGGER.warn("Truncated checkpoint, records will be read from the start");
+        } finally {
+            checkpoint.close();
         }
-        tempRecordsFile = fileManager.createFile(tempFile);
+    }
+
+    private void writeCheckpoint() throws IOException {
+        final RandomAccessFile checkpoint = new RandomAccessFile(checkpointFile(), "rw");
+        try {
+            checkpoint.writeLong(checkpointSegment);
+            checkpoint.writeLong(checkpointOffset);
+        } finally {
+            checkpoint.close();
+        }
+    }
 
-        if (tempRecordsFile != null && recordFile.exists() && tempRecordsFile.exists()) {
-            BufferedReader reader = null;
-            PrintWriter writer = null;
+    /**
+     * Cuts a record the store stopped in the middle of writing off the end of
+     * the last segment, so that records appended later can be read.
+     */
+    private void truncateTornRecord(long segment, long offset) throws IOException {
+        final File file = segmentFile(segment);
+        final SegmentReader reader = new SegmentReader(file, offset);
+        try {
+            while (reader.readRecord() != null) {
+                // read to the last complete record
+            }
+        } finally {
+            reader.close();
+        }
+        if (reader.offset < file.length()) {
+            LOGGER.warn("Discarding " + (file.length() - reader.offset)
+                    + " bytes of an incomplete record");
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
             try {
-                reader = new BufferedReader(new InputStreamReader(new FileInputStream(recordFile),
-                        StringUtils.UTF8));
-                writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(
-                        tempRecordsFile, true), StringUtils.UTF8));
-
-                String line = null;
-                int currentLineNumber = 0;
-                while ((line = reader.readLine()) != null) {
-                    currentLineNumber++;
-                    if (currentLineNumber > lineNumber) {
-                        writer.println(line);
-                        writer.flush();
-                    }
-                }
+                raf.setLength(reader.offset);
             } finally {
-                if (writer != null) {
-                    writer.close();
-                }
-                if (reader != null) {
-                    try {
-                        reader.close();
-                    } catch (final IOException e) {
-                        LOGGER.error("failed to close reader", e);
-                    }
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * Moves the records of a text file, one per line, as stored by earlier
+     * versions, into the log. If the store stops before the text file is
+     * deleted, the records are moved again the next time; they are sent twice
+     * rather than lost.
+     */
+    private void migrateLegacyRecords() throws IOException {
+        final File legacyFile = new File(recordsDirectory, recordFileName);
+        if (!legacyFile.isFile()) {
+            return;
+        }
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                fileManager.newInputStream(legacyFile), StringUtils.UTF8));
+        int count = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    append(line.getBytes(StringUtils.UTF8));
+                    count++;
                 }
+            }
+        } finally {
+            reader.close();
+        }
+        if (!legacyFile.delete()) {
+            throw new IOException("Failed to delete migrated records file");
+        }
+        new File(recordsDirectory, recordFileName + LEGACY_TEMP_SUFFIX).delete();
+        LOGGER.info("Migrated " + count + " records to the record log");
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        final long frameSize = HEADER_SIZE + bytes.length;
+        final long activeSize = appendChannel.size();
+        if (activeSize > 0 && activeSize + frameSize > segmentSize) {
+            rollOver();
+        }
+        writeFrames(Collections.singletonList(bytes), frameSize);
+    }
+
+    /**
+     * Writes the records to the active segment, each with its header.
+     */
+    private void writeFrames(List<byte[]> records, long framesSize) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        final CRC32 crc = new CRC32();
+        final ByteBuffer frames = ByteBuffer.allocate((int) framesSize);
+        for (final byte[] bytes : records) {
+            crc.reset();
+            crc.update(bytes, 0, bytes.length);
+            frames.putInt(bytes.length);
+            frames.putInt((int) crc.getValue());
+            frames.put(bytes);
+        }
+        frames.flip();
+        while (frames.hasRemaining()) {
+            appendChannel.write(frames);
+        }
+        diskBytes += framesSize;
+    }
+
+    private void rollOver() throws IOException {
+        // a later sync only forces the new segment
+        appendChannel.force(false);
+        closeAppendChannel();
+        final long next = segments.get(segments.size() - 1) + 1;
+        fileManager.createFile(segmentFile(next));
+        segments.add(next);
+        openAppendChannel(next);
+    }
+
+    private void openAppendChannel(long segment) throws FileNotFoundException {
+        appendChannel = new FileOutputStream(segmentFile(segment), true).getChannel();
+    }
 
-                if (!recordFile.delete() || !tempRecordsFile.renameTo(recordFile)) {
-                    throw new IOException(
-                            "Failed to delete read records and persist unread records");
+    private void closeAppendChannel() throws IOException {
+        if (appendChannel != null) {
+            appendChannel.close();
+            appendChannel = null;
+        }
+    }
+
+    /**
+     * Removes the records before the given position. If no record is left,
+     * the last segment is emptied and kept for the records to come.
+     */
+    private void removeRecordsBefore(long segment, long offset) throws IOException {
+        final long last = segments.get(segments.size() - 1);
+        if (segment == last && offset >= appendChannel.size()) {
+            deleteAllRecords();
+            return;
+        }
+        checkpointSegment = segment;
+        checkpointOffset = offset;
+        writeCheckpoint();
+        final Position checkpoint = checkpoint();
+        while (!acknowledged.isEmpty()
+                && acknowledged.firstEntry().getValue().compareTo(checkpoint) <= 0) {
+            acknowledged.pollFirstEntry();
+        }
+        while (segments.get(0) < segment) {
+            final File file = segmentFile(segments.remove(0));
+            diskBytes -= file.length();
+            if (!file.delete()) {
+                LOGGER.error("Failed to delete record segment " + file.getName());
+            }
+        }
+    }
+
+    private void deleteAllRecords() throws IOException {
+        final long last = segments.get(segments.size() - 1);
+        while (segments.size() > 1) {
+            segmentFile(segments.remove(0)).delete();
+        }
+        appendChannel.truncate(0);
+        diskBytes = 0;
+        checkpointSegment = last;
+        checkpointOffset = 0;
+        checkpointFile().delete();
+        acknowledged.clear();
+    }
+
+    private File segmentFile(long segment) {
+        return new File(recordsDirectory, segmentName(recordFileName, segment));
+    }
+
+    private File checkpointFile() {
+        return new File(recordsDirectory, recordFileName + CHECKPOINT_SUFFIX);
+    }
+
+    private static String segmentName(String recordFileName, long segment) {
+        return String.format("%s.%010d%s", recordFileName, segment, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Returns the sequence numbers of the segments of the given store, oldest
+     * first.
+     */
+    private static List<Long> listSegments(File recordsDir, String recordFileName) {
+        final List<Long> segments = new ArrayList<Long>();
+        final String[] names = recordsDir.list();
+        if (names == null) {
+            return segments;
+        }
+        final String prefix = recordFileName + ".";
+        for (final String name : names) {
+            if (!name.startsWith(prefix) || !name.endsWith(SEGMENT_SUFFIX)) {
+                continue;
+            }
+            try {
+                final long segment = Long.parseLong(name.substring(prefix.length(),
+                        name.length() - SEGMENT_SUFFIX.length()));
+                if (name.equals(segmentName(recordFileName, segment))) {
+                    segments.add(segment);
                 }
+            } catch (final NumberFormatException e) {
+                // not a segment
             }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
 
-            if (tempFile.exists()) {
-                if (!tempFile.delete()) {
-                    LOGGER.error("Failed to delete temp file");
+    /**
+     * Reads the records of a segment from a given offset, stopping at the end
+     * of the segment or at the first record that is incomplete. A record
+     * that doesn't match its checksum is skipped, as long as its length fits
+     * in the segment; otherwise the length itself can't be trusted to find
+     * the next record, and the rest of the segment is dropped.
+     */
+    private static final class SegmentReader {
+        private final File file;
+        private final DataInputStream in;
+        /** The offset of the next record. */
+        long offset;
+
+        SegmentReader(File file, long offset) throws IOException {
+            final FileInputStream stream = new FileInputStream(file);
+            stream.getChannel().position(offset);
+            this.file = file;
+            this.in = new DataInputStream(new BufferedInputStream(stream));
+            this.offset = offset;
+        }
+
+        /**
+         * Returns the next record, or null at the end of the records.
+         */
+        String readRecord() throws IOException {
+            final CRC32 crc = new CRC32();
+            while (true) {
+                final int length;
+                final int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                } catch (final EOFException e) {
+                    return null;
+                }
+                if (length < 0 || length > file.length() - offset - HEADER_SIZE) {
+                    // cut off, or not a length at all
+                    return null;
                 }
+                final byte[] bytes = new byte[length];
+                try {
+                    in.readFully(bytes);
+                } catch (final EOFException e) {
+                    return null;
+                }
+                offset += HEADER_SIZE + length;
+                crc.reset();
+                crc.update(bytes, 0, length);
+                if ((int) crc.getValue() == checksum) {
+                    return new String(bytes, StringUtils.UTF8);
+                }
+                LOGGER.warn("Skipping a record that doesn't match its checksum");
             }
         }
-        return recordFile;
+
+        void close() throws IOException {
+            in.close();
+        }
     }
 
     public RecordIterator iterator() {
@@ -201,25 +671,27 @@ class FileRecordStore {
     }
 
     public class RecordIterator implements java.util.Iterator<String> {
-        int linesRead = 0;
         String nextBuffer = null;
-        BufferedReader reader = null;
+        SegmentReader reader = null;
         boolean isEndOfFile = false;
-
-        private boolean tryOpenReader() throws FileNotFoundException {
+        /** The segment being read. */
+        long readerSegment;
+        /** The position after the buffered record. */
+        long bufferSegment;
+        long bufferOffset;
+        /** The position after the last record returned. */
+        long readSegment = -1;
+        long readOffset;
+
+        private boolean tryOpenReader() throws IOException {
             if (reader != null) {
                 return true;
             }
 
             if (!isEndOfFile) {
-                InputStreamReader streamReader = null;
-                streamReader = new InputStreamReader(fileManager.newInputStream(recordFile),
-                        StringUtils.UTF8);
-
-                if (streamReader != null) {
-                    reader = new BufferedReader(streamReader);
-                    return true;
-                }
+                readerSegment = checkpointSegment;
+                reader = new SegmentReader(segmentFile(checkpointSegment), checkpointOffset);
+                return true;
             }
             return false;
         }
@@ -231,43 +703,88 @@ class FileRecordStore {
             }
         }
 
+        /**
+         * Reads the next record into the buffer, moving on to the next
+         * segments as each one ends.
+         */
+        private void readNext() throws IOException {
+            while (true) {
+                if (!acknowledged.isEmpty() && !skipAcknowledged()) {
+                    return;
+                }
+                final String record = reader.readRecord();
+                if (record != null) {
+                    nextBuffer = record;
+                    bufferSegment = readerSegment;
+                    bufferOffset = reader.offset;
+                    return;
+                }
+                final long next = nextSegment(readerSegment);
+                if (next < 0) {
+                    // The end of the last segment
+                    isEndOfFile = true;
+                    tryCloseReader();
+                    return;
+                }
+                reader.close();
+                readerSegment = next;
+                reader = new SegmentReader(segmentFile(readerSegment), 0);
+            }
+        }
+
+        /**
+         * Moves the reader past the acknowledged range it is in, if any.
+         *
+         * @return false if the range goes on to the end of the records.
+         */
+        private boolean skipAcknowledged() throws IOException {
+            final Map.Entry<Position, Position> range = acknowledged.floorEntry(
+                    new Position(readerSegment, reader.offset));
+            if (range == null
+                    || range.getValue().compareTo(new Position(readerSegment, reader.offset)) <= 0) {
+                return true;
+            }
+            final Position end = range.getValue();
+            reader.close();
+            if (segments.contains(end.segment)) {
+                readerSegment = end.segment;
+                reader = new SegmentReader(segmentFile(readerSegment), end.offset);
+                return true;
+            }
+            final long next = nextSegment(end.segment);
+            if (next < 0) {
+                reader = null;
+                isEndOfFile = true;
+                return false;
+            }
+            readerSegment = next;
+            reader = new SegmentReader(segmentFile(readerSegment), 0);
+            return true;
+        }
+
+        /**
+         * Returns the position after the last record returned by this
+         * iterator, or the checkpoint if none was.
+         */
+        Position readPosition() {
+            accessLock.lock();
+            try {
+                return readSegment >= 0 ? new Position(readSegment, readOffset) : checkpoint();
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
         @Override
         public boolean hasNext() {
-            boolean hasNext = false;
             accessLock.lock();
             try {
                 // If there is something already buffered then there is a
                 // next
-                if (nextBuffer != null) {
-                    hasNext = true;
-                } else {
-                    if (!tryOpenReader()) {
-                        return hasNext;
-                    }
-                    // Nothing was previously buffered so try to read one
-                    // more line
-                    boolean found = false;
-                    while (!found) {
-                        try {
-                            nextBuffer = reader.readLine();
-                            found = true;
-                        } catch (final IOException e) {
-                            nextBuffer = null;
-                            found = true;
-                        }
-                    }
-                    if (nextBuffer != null) {
-                        // There was at least one more line so there is a
-                        // next
-                        hasNext = true;
-                    } else {
-                        // The next line was null so it should be the end of
-                        // the file. Try to close the reader
-                        isEndOfFile = true;
-                        tryCloseReader();
-                    }
+                if (nextBuffer == null && tryOpenReader()) {
+                    readNext();
                 }
-                return hasNext;
+                return nextBuffer != null;
             } catch (final FileNotFoundException fnfe) {
                 throw new AmazonClientException("Cannot find records file", fnfe);
             } catch (final IOException ioe) {
@@ -279,39 +796,16 @@ class FileRecordStore {
 
         @Override
         public String next() {
-            String next = null;
             accessLock.lock();
             try {
-                if (nextBuffer != null) {
-                    next = nextBuffer;
-                    linesRead++;
-                    nextBuffer = null;
-                } else {
-                    if (!tryOpenReader()) {
-                        return next;
-                    }
-                    boolean found = false;
-                    while (!found) {
-                        try {
-                            next = reader.readLine();
-                            found = true;
-                        } catch (final IOException e) {
-                            next = null;
-                            found = true;
-                        }
-                    }
-                    if (next != null) {
-                        linesRead++;
-                    } else {
-                        isEndOfFile = true;
-                        tryCloseReader();
-                    }
+                if (!hasNext()) {
+                    return null;
                 }
+                final String next = nextBuffer;
+                nextBuffer = null;
+                readSegment = bufferSegment;
+                readOffset = bufferOffset;
                 return next;
-            } catch (final FileNotFoundException e) {
-                throw new AmazonClientException("Cannot find records file", e);
-            } catch (final IOException ioe) {
-                throw new AmazonClientException("IO Error", ioe);
             } finally {
                 accessLock.unlock();
             }
@@ -336,7 +830,9 @@ class FileRecordStore {
         public void removeReadRecords() throws IOException {
             accessLock.lock();
             try {
-                deleteReadRecords(linesRead);
+                if (readSegment >= 0) {
+                    removeRecordsBefore(readSegment, readOffset);
+                }
                 resetReader();
             } finally {
                 accessLock.unlock();
@@ -355,7 +851,7 @@ class FileRecordStore {
 
         private void resetReader() throws IOException {
             tryCloseReader();
-            linesRead = 0;
+            readSegment = -1;
             nextBuffer = null;
             isEndOfFile = false;
         }
@@ -364,4 +860,46 @@ class FileRecordStore {
             tryCloseReader();
         }
     }
+
+    /**
+     * A position in the log: a segment and an offset in it.
+     */
+    static final class Position implements Comparable<Position> {
+        final long segment;
+        final long offset;
+
+        Position(long segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        @Override
+        public int compareTo(Position other) {
+            if (segment != other.segment) {
+                return segment < other.segment ? -1 : 1;
+            }
+            if (offset != other.offset) {
+                return offset < other.offset ? -1 : 1;
+            }
+            return 0;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Position)) {
+                return false;
+            }
+            return compareTo((Position) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (segment * 31 + offset);
+        }
+
+        @Override
+        public String toString() {
+            return segment + ":" + offset;
+        }
+    }
 }
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the records saved by any number of threads to a
+ * {@link FileRecordStore} from a single thread. Saving threads hand their
+ * records over through a {@link RecordRingBuffer} without taking a lock; the
+ * writer appends whatever has piled up since its last batch under one
+ * acquisition of the store's lock, and syncs the store to the storage device
+ * once the interval or the number of bytes since the last sync is reached,
+ * or as soon as a thread waits for its record to be durable.
+ * <p>
+ * The writer thread is started when a record is saved, and stops once it
+ * has had nothing to write for a while.
+ */
+final class GroupCommitWriter {
+    private static final Log LOGGER = LogFactory.getLog(GroupCommitWriter.class);
+
+    /** The number of records that can wait for the writer. */
+    private static final int RING_CAPACITY = 1024;
+    /** The most records appended under one acquisition of the store's lock. */
+    private static final int MAX_BATCH_SIZE = 256;
+    /** How long a saving thread backs off when the ring is full. */
+    private static final long FULL_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    /** How long the writer thread waits for records before it stops. */
+    private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger(0);
+
+    private final FileRecordStore store;
+    private final long syncIntervalNanos;
+    private final long syncBytes;
+    private final RecordRingBuffer<Entry> ring = new RecordRingBuffer<Entry>(RING_CAPACITY);
+
+    /** Whether a writer thread runs or is being started. */
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    /** Whether the writer thread is about to park or parked. */
+    private volatile boolean sleeping;
+    private volatile Thread writerThread;
+
+    /**
+     * @param store the store to write the records to.
+     * @param syncIntervalMillis the longest time records are kept unsynced.
+     * @param syncBytes the number of bytes written after which the store is
+     *            synced.
+     */
+    GroupCommitWriter(FileRecordStore store, long syncIntervalMillis, long syncBytes) {
+        this.store = store;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+        this.syncBytes = syncBytes;
+    }
+
+    /**
+     * Hands a record over to the writer thread.
+     *
+     * @param bytes the record in the encoding of the store.
+     * @param durable whether to wait until the record is synced to the
+     *            storage device.
+     * @throws IOException if waiting for a durable record and it couldn't be
+     *             written, didn't fit in the maximum storage size, or the
+     *             wait was interrupted.
+     */
+    void save(byte[] bytes, boolean durable) throws IOException {
+        final Entry entry = new Entry(bytes, durable);
+        enqueue(entry);
+        if (durable) {
+            entry.await();
+        }
+    }
+
+    /**
+     * Waits until the records saved so far are written and synced.
+     *
+     * @throws IOException if the last of them couldn't be written, or the
+     *             wait was interrupted.
+     */
+    void flush() throws IOException {
+        final Entry barrier = new Entry(null, true);
+        enqueue(barrier);
+        barrier.await();
+    }
+
+    private void enqueue(Entry entry) {
+        while (ring.offer(entry) < 0) {
+            // the writer is behind; make sure it is working on it
+            wakeWriter();
+            LockSupport.parkNanos(FULL_BACKOFF_NANOS);
+        }
+        if (!running.get() && running.compareAndSet(false, true)) {
+            startWriter();
+        } else if (sleeping) {
+            wakeWriter();
+        }
+    }
+
+    private void wakeWriter() {
+        final Thread thread = writerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void startWriter() {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "KinesisRecorder-GroupCommit-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+    }
+
+    private void writeLoop() {
+        final List<byte[]> batch = new ArrayList<byte[]>(MAX_BATCH_SIZE);
+        /* the entry of each record of the batch */
+        final List<Entry> entries = new ArrayList<Entry>(MAX_BATCH_SIZE);
+        final List<Entry> waiters = new ArrayList<Entry>();
+        long unsyncedBytes = 0;
+        long firstUnsyncedNanos = 0;
+        while (true) {
+            batch.clear();
+            entries.clear();
+            waiters.clear();
+            long batchBytes = 0;
+            Entry entry;
+            while (batch.size() + waiters.size() < MAX_BATCH_SIZE
+                    && (entry = ring.poll()) != null) {
+                if (entry.bytes != null) {
+                    batch.add(entry.bytes);
+                    entries.add(entry);
+                    batchBytes += entry.bytes.length;
+                }
+                if (entry.waiting) {
+                    waiters.add(entry);
+                }
+            }
+
+            IOException failure = null;
+            if (!batch.isEmpty() || !waiters.isEmpty() || unsyncedBytes > 0) {
+                try {
+                    if (!batch.isEmpty()) {
+                        rejectDropped(entries, store.putAll(batch));
+                        if (unsyncedBytes == 0) {
+                            firstUnsyncedNanos = System.nanoTime();
+                        }
+                        unsyncedBytes += batchBytes;
+                    }
+                    if (unsyncedBytes > 0 && (!waiters.isEmpty()
+                            || unsyncedBytes >= syncBytes
+                            || System.nanoTime() - firstUnsyncedNanos >= syncIntervalNanos)) {
+                        store.sync();
+                        unsyncedBytes = 0;
+                    }
+                } catch (final IOException e) {
+                    failure = e;
+                } catch (final RuntimeException e) {
+                    failure = new IOException("Failed to write records", e);
+                }
+                if (failure != null) {
+                    // the records of this batch are lost; the ones to come
+                    // may still be written
+                    LOGGER.error("Failed to write " + batch.size() + " records", failure);
+                    unsyncedBytes = 0;
+                }
+            }
+            for (final Entry waiter : waiters) {
+                waiter.complete(failure);
+            }
+            if (!batch.isEmpty() || !waiters.isEmpty()) {
+                continue;
+            }
+
+            if (!ring.isEmpty()) {
+                // a record is claimed but not yet published
+                Thread.yield();
+                continue;
+            }
+            boolean idle = false;
+            sleeping = true;
+            if (ring.isEmpty()) {
+                if (unsyncedBytes > 0) {
+                    LockSupport.parkNanos(this, Math.max(1,
+                            syncIntervalNanos - (System.nanoTime() - firstUnsyncedNanos)));
+                } else {
+                    final long parkedNanos = System.nanoTime();
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                    idle = System.nanoTime() - parkedNanos >= IDLE_NANOS;
+                }
+            }
+            sleeping = false;
+            if (idle && stopIfIdle()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells the threads waiting for records the store dropped, since they
+     * didn't fit in its maximum storage size, that they weren't saved.
+     *
+     * @param entries the entries of the records appended.
+     * @param appended whether each record was appended.
+     */
+    private static void rejectDropped(List<Entry> entries, boolean[] appended) {
+        for (int i = 0; i < appended.length; i++) {
+            final Entry entry = entries.get(i);
+            if (!appended[i] && entry.waiting) {
+                entry.reject(new IOException("The record of " + entry.bytes.length
+                        + " bytes exceeds the maximum storage size"));
+            }
+        }
+    }
+
+    /**
+     * Stops the writer thread, unless a record was saved in the meantime.
+     *
+     * @return whether the thread is to stop.
+     */
+    private boolean stopIfIdle() {
+        writerThread = null;
+        running.set(false);
+        if (ring.isEmpty() || !running.compareAndSet(false, true)) {
+            // a thread saving a record from now on starts a new writer
+            return true;
+        }
+        writerThread = Thread.currentThread();
+        return false;
+    }
+
+    /**
+     * A record handed over to the writer thread, or a barrier when it has no
+     * bytes.
+     */
+    private static final class Entry {
+        private final byte[] bytes;
+        private final boolean waiting;
+        private boolean done;
+        private IOException failure;
+
+        Entry(byte[] bytes, boolean waiting) {
+            this.bytes = bytes;
+            this.waiting = waiting;
+        }
+
+        /**
+         * Fails the record ahead of its batch, which may still be written.
+         */
+        synchronized void reject(IOException failure) {
+            this.failure = failure;
+        }
+
+        synchronized void complete(IOException failure) {
+            if (this.failure == null) {
+                this.failure = failure;
+            }
+            this.done = true;
+            notifyAll();
+        }
+
+        synchronized void await() throws IOException {
+            while (!done) {
+                try {
+                    wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(
+                            "Interrupted while waiting for the record to be written");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
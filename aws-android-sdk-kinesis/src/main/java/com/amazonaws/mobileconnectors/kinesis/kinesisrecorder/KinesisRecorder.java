@@ -21,6 +21,7 @@ import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.kinesis.AmazonKinesis;
 import com.amazonaws.services.kinesis.AmazonKinesisClient;
+import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.VersionInfoUtils;
 
 import com.amazonaws.logging.Log;
@@ -93,6 +94,17 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
      * is up to 1 MB.
      */
     private static final int MAX_RECORD_SIZE_BYTES = 1024 * 1024;
+    /**
+     * Maximum number of records per batch when records are aggregated. They
+     * are packed into far fewer records, which are sent in PutRecords
+     * requests of up to 500 records.
+     */
+    private static final int MAX_AGGREGATED_RECORDS_PER_BATCH = 4096;
+    /**
+     * Maximum size in bytes of records in a batch when records are
+     * aggregated, which keeps a PutRecords request within its 5 MB limit.
+     */
+    private static final int MAX_AGGREGATED_BATCH_RECORDS_SIZE_BYTES = 2 * 1024 * 1024;
     /**
      * Valid stream name pattern.
      */
@@ -154,7 +166,16 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
         final AmazonKinesis client = new AmazonKinesisClient(credentialsProvider,
                 config.getClientConfiguration());
         client.setRegion(Region.getRegion(region));
-        sender = new KinesisStreamRecordSender(client, USER_AGENT, config.getPartitionKey());
+        final PartitionStrategy partitionStrategy;
+        if (config.getPartitionStrategy() != null) {
+            partitionStrategy = config.getPartitionStrategy();
+        } else if (!StringUtils.isBlank(config.getPartitionKey())) {
+            partitionStrategy = PartitionStrategies.fixed(config.getPartitionKey());
+        } else {
+            partitionStrategy = PartitionStrategies.randomPerBatch();
+        }
+        sender = new KinesisStreamRecordSender(client, USER_AGENT, partitionStrategy,
+                config.isAggregation());
 
         checkUpgrade(directory);
     }
@@ -174,10 +195,8 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
     }
 
     private void checkUpgrade(final File directory) {
-        final File recordsDir = new File(directory, Constants.RECORDS_DIRECTORY);
-        final File oldRecordsFile = new File(recordsDir, Constants.RECORDS_FILE_NAME);
         // if the records file exists, run upgrade in a background thread
-        if (oldRecordsFile.isFile()) {
+        if (FileRecordStore.exists(directory, Constants.RECORDS_FILE_NAME)) {
             new Thread(new Runnable() {
                 @Override
                 public void run() {
@@ -195,9 +214,7 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
      */
     void upgrade(File directory) {
         synchronized (KinesisRecorder.this) {
-            final File recordsDir = new File(directory, Constants.RECORDS_DIRECTORY);
-            final File oldRecordsFile = new File(recordsDir, Constants.RECORDS_FILE_NAME);
-            if (!oldRecordsFile.isFile()) {
+            if (!FileRecordStore.exists(directory, Constants.RECORDS_FILE_NAME)) {
                 return;
             }
 
@@ -217,10 +234,10 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
             }
             try {
                 iterator.close();
+                frs.delete();
             } catch (final IOException e) {
                 LOGGER.debug("caught exception", e);
             }
-            oldRecordsFile.delete();
         }
     }
 
@@ -229,6 +246,18 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
         return sender;
     }
 
+    @Override
+    int getMaxRecordsPerBatch() {
+        return sender.isAggregation() ? MAX_AGGREGATED_RECORDS_PER_BATCH
+                : super.getMaxRecordsPerBatch();
+    }
+
+    @Override
+    int getMaxBatchRecordsSizeBytes() {
+        return sender.isAggregation() ? MAX_AGGREGATED_BATCH_RECORDS_SIZE_BYTES
+                : super.getMaxBatchRecordsSizeBytes();
+    }
+
     @Override
     public void saveRecord(byte[] data, String streamName) {
         if (streamName == null || !STREAM_NAME_PATTERN.matcher(streamName).matches()) {
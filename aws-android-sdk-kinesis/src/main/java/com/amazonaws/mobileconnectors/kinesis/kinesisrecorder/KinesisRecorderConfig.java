@@ -24,9 +24,19 @@ import com.amazonaws.ClientConfiguration;
 public class KinesisRecorderConfig {
 
     private static final long DEFAUT_MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+    private static final long DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS = 1000L;
+    private static final long DEFAULT_GROUP_COMMIT_BYTES = 64 * 1024L;
     private long maxStorageSize = DEFAUT_MAX_STORAGE_SIZE;
+    private boolean groupCommit;
+    private long groupCommitIntervalMillis = DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS;
+    private long groupCommitBytes = DEFAULT_GROUP_COMMIT_BYTES;
+    private boolean durableSave;
+    private int submitConcurrency = 1;
+    private boolean orderedSubmit;
+    private boolean aggregation;
     private final ClientConfiguration clientConfiguration;
     private String partitionKey;
+    private PartitionStrategy partitionStrategy;
     private DeadLetterListener mDeadLetterListener;
 
     /**
@@ -61,6 +71,14 @@ public class KinesisRecorderConfig {
         this.maxStorageSize = other.getMaxStorageSize();
         this.clientConfiguration = new ClientConfiguration(other.getClientConfiguration());
         this.partitionKey = other.partitionKey;
+        this.partitionStrategy = other.partitionStrategy;
+        this.groupCommit = other.groupCommit;
+        this.groupCommitIntervalMillis = other.groupCommitIntervalMillis;
+        this.groupCommitBytes = other.groupCommitBytes;
+        this.durableSave = other.durableSave;
+        this.submitConcurrency = other.submitConcurrency;
+        this.orderedSubmit = other.orderedSubmit;
+        this.aggregation = other.aggregation;
     }
 
     /**
@@ -74,9 +92,39 @@ public class KinesisRecorderConfig {
         return this;
     }
 
+    /**
+     * Optionally set the strategy that sets the partition keys of the records
+     * KinesisRecorder submits, which takes precedence over the partition key.
+     * By default, every record has the partition key if it is set, and the
+     * records of each batch share a random partition key otherwise. See
+     * {@link PartitionStrategies} for the built-in strategies.
+     *
+     * @param partitionStrategy the partition strategy.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withPartitionStrategy(PartitionStrategy partitionStrategy) {
+        this.partitionStrategy = partitionStrategy;
+        return this;
+    }
+
+    /**
+     * Returns the partition strategy, or null if none is set.
+     *
+     * @return the partition strategy.
+     */
+    public PartitionStrategy getPartitionStrategy() {
+        return partitionStrategy;
+    }
+
     /**
      * Sets the max storage in bytes that KinesisRecorder is allowed to use.
      * Requests saved that exceed the max storage limit will be dropped.
+     * <p>
+     * Each record is stored with an 8 byte header holding its length and
+     * checksum, which counts against the max storage. Earlier versions stored
+     * a line separator after each record instead, so the same max storage now
+     * holds 7 bytes less for each record: for example, 100 bytes hold five
+     * records of 12 bytes, where they held eight before.
      *
      * @param maxStorage the maximum storage.
      * @return This class for chaining
@@ -94,6 +142,172 @@ public class KinesisRecorderConfig {
         return this.maxStorageSize;
     }
 
+    /**
+     * Sets whether records are saved in group commits. In a group commit,
+     * saveRecord hands the record to a single writer thread, which appends
+     * the records of all threads saving at the same time in one go, instead
+     * of each thread writing its record in turn. By default, records are
+     * written by the thread saving them.
+     *
+     * @param groupCommit whether records are saved in group commits.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withGroupCommit(boolean groupCommit) {
+        this.groupCommit = groupCommit;
+        return this;
+    }
+
+    /**
+     * @return Whether records are saved in group commits.
+     */
+    public boolean isGroupCommit() {
+        return groupCommit;
+    }
+
+    /**
+     * Sets the longest time in milliseconds that records saved in group
+     * commits are kept before they are synced to the storage device. The
+     * default is 1 second.
+     *
+     * @param intervalMillis the time between syncs in milliseconds.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withGroupCommitIntervalMillis(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Group commit interval must be positive");
+        }
+        this.groupCommitIntervalMillis = intervalMillis;
+        return this;
+    }
+
+    /**
+     * @return The longest time in milliseconds between syncs of the records
+     *         saved in group commits.
+     */
+    public long getGroupCommitIntervalMillis() {
+        return groupCommitIntervalMillis;
+    }
+
+    /**
+     * Sets the number of bytes of records saved in group commits after which
+     * they are synced to the storage device, without waiting for the
+     * interval. The default is 64 KiB.
+     *
+     * @param bytes the number of bytes written between syncs.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withGroupCommitBytes(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Group commit bytes must be positive");
+        }
+        this.groupCommitBytes = bytes;
+        return this;
+    }
+
+    /**
+     * @return The number of bytes of records saved in group commits after
+     *         which they are synced to the storage device.
+     */
+    public long getGroupCommitBytes() {
+        return groupCommitBytes;
+    }
+
+    /**
+     * Sets whether saveRecord waits for records saved in group commits to be
+     * synced to the storage device before it returns. By default, saveRecord
+     * returns as soon as the writer thread has the record, and errors writing
+     * it are only logged. Has no effect unless group commit is enabled.
+     *
+     * @param durableSave whether saveRecord waits for the record to be synced.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withDurableSave(boolean durableSave) {
+        this.durableSave = durableSave;
+        return this;
+    }
+
+    /**
+     * @return Whether saveRecord waits for records saved in group commits to
+     *         be synced to the storage device.
+     */
+    public boolean isDurableSave() {
+        return durableSave;
+    }
+
+    /**
+     * Sets the number of batches submitAllRecords keeps in flight at the same
+     * time. Each batch is removed from local storage as soon as it is sent,
+     * even if batches read before it are still in flight. The default is 1,
+     * which sends one batch at a time.
+     *
+     * @param concurrency the number of batches in flight.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withSubmitConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Submit concurrency must be at least 1");
+        }
+        this.submitConcurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * @return The number of batches submitAllRecords keeps in flight at the
+     *         same time.
+     */
+    public int getSubmitConcurrency() {
+        return submitConcurrency;
+    }
+
+    /**
+     * Sets whether submitAllRecords sends the batches of a stream one at a
+     * time, in the order the records were saved, when it keeps several
+     * batches in flight. Batches of different streams are still sent at the
+     * same time. Records that fail and are saved again are sent after the
+     * records saved in the meantime either way.
+     *
+     * @param orderedSubmit whether the batches of a stream are sent in order.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withOrderedSubmit(boolean orderedSubmit) {
+        this.orderedSubmit = orderedSubmit;
+        return this;
+    }
+
+    /**
+     * @return Whether submitAllRecords sends the batches of a stream in
+     *         order.
+     */
+    public boolean isOrderedSubmit() {
+        return orderedSubmit;
+    }
+
+    /**
+     * Sets whether KinesisRecorder packs the records of a batch that share a
+     * partition key and explicit hash key into aggregated records in the
+     * format of the Kinesis Producer Library, which consumers using the
+     * Kinesis Client Library de-aggregate. Each aggregated record counts as
+     * one record against the limits of its shard, and batches of up to 4096
+     * records are sent at a time. The partition strategy decides how many
+     * records can be packed together: all the records of a batch with the
+     * default strategy or a fixed partition key, none with a random key per
+     * record. The default is false. This is ignored by KinesisFirehoseRecorder.
+     *
+     * @param aggregation whether records are aggregated.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withAggregation(boolean aggregation) {
+        this.aggregation = aggregation;
+        return this;
+    }
+
+    /**
+     * @return Whether KinesisRecorder packs records into aggregated records.
+     */
+    public boolean isAggregation() {
+        return aggregation;
+    }
+
     /**
      * Returns the {@link DeadLetterListener} that will respond to records being dropped.
      * @return the {@link DeadLetterListener} that will respond to records being dropped.
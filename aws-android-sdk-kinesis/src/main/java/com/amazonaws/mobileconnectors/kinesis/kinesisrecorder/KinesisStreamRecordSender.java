@@ -17,6 +17,7 @@ package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.RecordAggregator.AggregatedRecord;
 import com.amazonaws.services.kinesis.AmazonKinesis;
 import com.amazonaws.services.kinesis.model.PutRecordsRequest;
 import com.amazonaws.services.kinesis.model.PutRecordsRequestEntry;
@@ -28,16 +29,19 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * A implementation of {@link RecordSender} for Amazon Kinesis.
  */
 class KinesisStreamRecordSender implements RecordSender {
 
+    /** Maximum number of records in a PutRecords request. */
+    private static final int MAX_RECORDS_PER_REQUEST = 500;
+
     private final AmazonKinesis client;
     private final String userAgent;
-    private final String partitionKey;
+    private final PartitionStrategy partitionStrategy;
+    private final RecordAggregator aggregator;
 
     /**
      * Constructs a {@link KinesisStreamRecordSender}.
@@ -46,7 +50,7 @@ class KinesisStreamRecordSender implements RecordSender {
      * @param userAgent user agent string to be set in each request
      */
     public KinesisStreamRecordSender(AmazonKinesis client, String userAgent) {
-        this(client, userAgent, null);
+        this(client, userAgent, PartitionStrategies.randomPerBatch());
     }
 
     /**
@@ -54,13 +58,52 @@ class KinesisStreamRecordSender implements RecordSender {
      *
      * @param client an {@link AmazonKinesis} client
      * @param userAgent user agent string to be set in each request
-     * @param config the Kinesis recorder config.
+     * @param partitionKey the partition key of all records, or null to give
+     *            each batch a random partition key.
      */
     public KinesisStreamRecordSender(AmazonKinesis client, String userAgent,
             String partitionKey) {
+        this(client, userAgent, StringUtils.isBlank(partitionKey)
+                ? PartitionStrategies.randomPerBatch()
+                : PartitionStrategies.fixed(partitionKey));
+    }
+
+    /**
+     * Constructs a {@link KinesisStreamRecordSender}.
+     *
+     * @param client an {@link AmazonKinesis} client
+     * @param userAgent user agent string to be set in each request
+     * @param partitionStrategy the strategy that sets the partition keys of
+     *            the records.
+     */
+    public KinesisStreamRecordSender(AmazonKinesis client, String userAgent,
+            PartitionStrategy partitionStrategy) {
+        this(client, userAgent, partitionStrategy, false);
+    }
+
+    /**
+     * Constructs a {@link KinesisStreamRecordSender}.
+     *
+     * @param client an {@link AmazonKinesis} client
+     * @param userAgent user agent string to be set in each request
+     * @param partitionStrategy the strategy that sets the partition keys of
+     *            the records.
+     * @param aggregation whether records with the same partition are packed
+     *            into aggregated records.
+     */
+    public KinesisStreamRecordSender(AmazonKinesis client, String userAgent,
+            PartitionStrategy partitionStrategy, boolean aggregation) {
         this.client = client;
         this.userAgent = userAgent;
-        this.partitionKey = partitionKey;
+        this.partitionStrategy = partitionStrategy;
+        this.aggregator = aggregation ? new RecordAggregator() : null;
+    }
+
+    /**
+     * @return whether records are packed into aggregated records.
+     */
+    boolean isAggregation() {
+        return aggregator != null;
     }
 
     @Override
@@ -69,28 +112,75 @@ class KinesisStreamRecordSender implements RecordSender {
             return Collections.emptyList();
         }
 
-        final PutRecordsRequest request = new PutRecordsRequest();
-        request.setStreamName(streamName);
         final List<PutRecordsRequestEntry> records = new ArrayList<PutRecordsRequestEntry>(data.size());
-        final String partKey = StringUtils.isBlank(this.partitionKey)
-                ? UUID.randomUUID().toString() : this.partitionKey;
         for (final byte[] d : data) {
             final PutRecordsRequestEntry r = new PutRecordsRequestEntry();
             r.setData(ByteBuffer.wrap(d));
-            r.setPartitionKey(partKey);
             records.add(r);
         }
+        partitionStrategy.assignPartitions(streamName, records);
+        if (aggregator == null) {
+            return putRecords(streamName, records, data);
+        }
+
+        final List<AggregatedRecord> aggregated = aggregator.aggregate(records);
+        final List<byte[]> failures = new ArrayList<byte[]>();
+        for (int from = 0; from < aggregated.size(); from += MAX_RECORDS_PER_REQUEST) {
+            final List<AggregatedRecord> chunk = aggregated.subList(from,
+                    Math.min(from + MAX_RECORDS_PER_REQUEST, aggregated.size()));
+            final List<PutRecordsRequestEntry> entries = new ArrayList<PutRecordsRequestEntry>(
+                    chunk.size());
+            for (final AggregatedRecord record : chunk) {
+                entries.add(record.record);
+            }
+            try {
+                addFailures(putRecords(streamName, entries, chunk), data, failures);
+            } catch (final AmazonClientException ace) {
+                // records failing for good would otherwise be saved and sent
+                // again forever
+                if (from == 0 || !isRecoverable(ace)) {
+                    throw ace;
+                }
+                // the records already sent are not sent again
+                addFailures(aggregated.subList(from, aggregated.size()), data, failures);
+                break;
+            }
+        }
+        return failures;
+    }
+
+    private static void addFailures(List<AggregatedRecord> failed, List<byte[]> data,
+            List<byte[]> failures) {
+        for (final AggregatedRecord record : failed) {
+            for (final int index : record.indexes) {
+                failures.add(data.get(index));
+            }
+        }
+    }
+
+    /**
+     * Sends records in a PutRecords request.
+     *
+     * @param streamName the stream to send the records to.
+     * @param records the records.
+     * @param items the item of each record to return if it fails.
+     * @return the items of the records that failed.
+     */
+    private <T> List<T> putRecords(String streamName, List<PutRecordsRequestEntry> records,
+            List<T> items) {
+        final PutRecordsRequest request = new PutRecordsRequest();
+        request.setStreamName(streamName);
         request.setRecords(records);
         request.getRequestClientOptions().appendUserAgent(userAgent);
 
         final PutRecordsResult result = client.putRecords(request);
 
         final int size = result.getRecords().size();
-        final List<byte[]> failures = new ArrayList<byte[]>(result.getFailedRecordCount());
+        final List<T> failures = new ArrayList<T>(result.getFailedRecordCount());
         for (int i = 0; i < size; i++) {
             if (result.getRecords().get(i).getErrorCode() != null) {
                 // always retry failed record
-                failures.add(data.get(i));
+                failures.add(items.get(i));
             }
         }
         return failures;
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.services.kinesis.AmazonKinesis;
+import com.amazonaws.services.kinesis.model.PutRecordsRequestEntry;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+import com.amazonaws.util.StringUtils;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class includes the built-in partition strategies for
+ * {@link KinesisRecorder}.
+ */
+public final class PartitionStrategies {
+
+    /** The size of the hash key space of a stream, 2^128. */
+    private static final BigInteger HASH_KEY_SPACE = BigInteger.ONE.shiftLeft(128);
+
+    private PartitionStrategies() {
+    }
+
+    /**
+     * Returns a strategy that gives every record the same partition key, so
+     * that all records go to the same shard.
+     *
+     * @param partitionKey the partition key of all records.
+     * @return the strategy.
+     */
+    public static PartitionStrategy fixed(final String partitionKey) {
+        if (StringUtils.isBlank(partitionKey)) {
+            throw new IllegalArgumentException("Partition key can't be blank");
+        }
+        return new PartitionStrategy() {
+            @Override
+            public void assignPartitions(String streamName,
+                    List<PutRecordsRequestEntry> records) {
+                for (final PutRecordsRequestEntry record : records) {
+                    record.setPartitionKey(partitionKey);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a strategy that gives all records of a batch the same random
+     * partition key, so that each batch goes to one shard. This is the
+     * strategy used when neither a partition key nor a strategy is
+     * configured.
+     *
+     * @return the strategy.
+     */
+    public static PartitionStrategy randomPerBatch() {
+        return new PartitionStrategy() {
+            @Override
+            public void assignPartitions(String streamName,
+                    List<PutRecordsRequestEntry> records) {
+                final String partitionKey = UUID.randomUUID().toString();
+                for (final PutRecordsRequestEntry record : records) {
+                    record.setPartitionKey(partitionKey);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a strategy that gives each record a random partition key, so
+     * that the records of a batch are spread over all shards.
+     *
+     * @return the strategy.
+     */
+    public static PartitionStrategy randomPerRecord() {
+        return new PartitionStrategy() {
+            @Override
+            public void assignPartitions(String streamName,
+                    List<PutRecordsRequestEntry> records) {
+                for (final PutRecordsRequestEntry record : records) {
+                    record.setPartitionKey(UUID.randomUUID().toString());
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a strategy that splits the hash key space into the given number
+     * of equal ranges, and places the records in the middle of each range in
+     * turn. With as many ranges as the stream has shards of equal size, every
+     * shard gets the same share of the records.
+     *
+     * @param ranges the number of ranges.
+     * @return the strategy.
+     */
+    public static PartitionStrategy roundRobin(int ranges) {
+        if (ranges < 1) {
+            throw new IllegalArgumentException("The number of ranges must be at least 1");
+        }
+        final String[] hashKeys = new String[ranges];
+        final BigInteger size = HASH_KEY_SPACE.divide(BigInteger.valueOf(ranges));
+        for (int i = 0; i < ranges; i++) {
+            hashKeys[i] = size.multiply(BigInteger.valueOf(i)).add(size.shiftRight(1)).toString();
+        }
+        final AtomicLong next = new AtomicLong();
+        return new PartitionStrategy() {
+            @Override
+            public void assignPartitions(String streamName,
+                    List<PutRecordsRequestEntry> records) {
+                long index = next.getAndAdd(records.size());
+                for (final PutRecordsRequestEntry record : records) {
+                    final int range = (int) ((index++ & Long.MAX_VALUE) % hashKeys.length);
+                    record.setPartitionKey(String.valueOf(range));
+                    record.setExplicitHashKey(hashKeys[range]);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a strategy that derives the partition key of a record from its
+     * data, so that records with the same data go to the same shard, and
+     * records with different data are spread over all shards.
+     *
+     * @return the strategy.
+     */
+    public static PartitionStrategy contentHash() {
+        return new PartitionStrategy() {
+            @Override
+            public void assignPartitions(String streamName,
+                    List<PutRecordsRequestEntry> records) {
+                for (final PutRecordsRequestEntry record : records) {
+                    final ByteBuffer data = record.getData().duplicate();
+                    final byte[] bytes = new byte[data.remaining()];
+                    data.get(bytes);
+                    record.setPartitionKey(BinaryUtils.toHex(Md5Utils.computeMD5Hash(bytes)));
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a strategy that learns the open shards of each stream with
+     * ListShards, or DescribeStream if ListShards isn't allowed, and places
+     * the records in the middle of the hash key range of each shard in turn.
+     * Every shard gets the same share of the records whatever the size of
+     * its range. The shards are listed again after the given interval; until
+     * they can be listed, records get random partition keys.
+     *
+     * @param client the client to list the shards with.
+     * @param refreshIntervalMillis the time after which the shards of a
+     *            stream are listed again.
+     * @return the strategy.
+     */
+    public static PartitionStrategy shardMap(AmazonKinesis client, long refreshIntervalMillis) {
+        if (client == null) {
+            throw new IllegalArgumentException("Client can't be null");
+        }
+        return new ShardMapPartitionStrategy(client, refreshIntervalMillis);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.services.kinesis.model.PutRecordsRequestEntry;
+
+import java.util.List;
+
+/**
+ * Decides which shards the records KinesisRecorder submits to a stream go
+ * to, by setting the partition key, and optionally the explicit hash key, of
+ * each record of a batch. {@link PartitionStrategies} has the built-in
+ * strategies. This is set using
+ * {@link KinesisRecorderConfig#withPartitionStrategy(PartitionStrategy)}.
+ */
+public interface PartitionStrategy {
+
+    /**
+     * Sets the partition key of each record of a batch, and its explicit hash
+     * key if it is to be placed on a given shard rather than on the shard of
+     * the hash of its partition key. May be called from several threads at
+     * the same time.
+     *
+     * @param streamName the stream the batch is sent to.
+     * @param records the records of the batch, with their data set.
+     */
+    void assignPartitions(String streamName, List<PutRecordsRequestEntry> records);
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.Position;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Submits the records of a {@link FileRecordStore} with several batches in
+ * flight at the same time. The batches are read one after the other, and each
+ * is sent on the executor as soon as fewer than the given number are in
+ * flight; its range of records is removed from the store as soon as it is
+ * sent, whether or not the batches before it are. Optionally, the batches of
+ * a stream are sent one at a time, in the order they are read.
+ * <p>
+ * Errors are handled as the sequential submission does: records that fail are
+ * saved again, a batch that fails with an unrecoverable error is dropped, and
+ * a recoverable error keeps the batch and stops the submission once the
+ * batches in flight are done.
+ */
+final class PipelinedRecordSubmitter {
+    private static final Log LOGGER = LogFactory.getLog(PipelinedRecordSubmitter.class);
+
+    private final AbstractKinesisRecorder recorder;
+    private final FileRecordStore recordStore;
+    private final RecordSender sender;
+    private final Executor executor;
+    private final int concurrency;
+    private final boolean ordered;
+    private final int maxRecordsPerBatch;
+    private final int maxBatchSize;
+    private final int maxRetryCount;
+
+    /** The number of batches in flight; guarded by this. */
+    private int inFlight;
+    /** The streams with a batch in flight, when ordered; guarded by this. */
+    private final Set<String> busyStreams = new HashSet<String>();
+    /** The first error that stops the submission; guarded by this. */
+    private AmazonClientException failure;
+    /** The number of batches of which no record went through; guarded by this. */
+    private int retries;
+    /** The number of records sent; guarded by this. */
+    private int sent;
+    /** Whether a batch was retried after an unknown error; guarded by this. */
+    private boolean unknownErrorRetried;
+
+    /**
+     * @param recorder the recorder to read batches and save failed records
+     *            with.
+     * @param recordStore the store of the records.
+     * @param sender the sender of the batches.
+     * @param executor the executor to send the batches on.
+     * @param concurrency the number of batches in flight at most.
+     * @param ordered whether the batches of a stream are sent one at a time.
+     * @param maxRecordsPerBatch the number of records in a batch at most.
+     * @param maxBatchSize the size of a batch after which no record is added.
+     * @param maxRetryCount the number of batches of which no record goes
+     *            through after which the submission stops.
+     */
+    PipelinedRecordSubmitter(AbstractKinesisRecorder recorder, FileRecordStore recordStore,
+            RecordSender sender, Executor executor, int concurrency, boolean ordered,
+            int maxRecordsPerBatch, int maxBatchSize, int maxRetryCount) {
+        this.recorder = recorder;
+        this.recordStore = recordStore;
+        this.sender = sender;
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.ordered = ordered;
+        this.maxRecordsPerBatch = maxRecordsPerBatch;
+        this.maxBatchSize = maxBatchSize;
+        this.maxRetryCount = maxRetryCount;
+    }
+
+    /**
+     * Submits the records in the store, and returns once the batches in
+     * flight are done.
+     *
+     * @return the number of records sent.
+     * @throws AmazonClientException the first error that stopped the
+     *             submission.
+     */
+    int submitAll() {
+        final RecordIterator iterator = recordStore.iterator();
+        try {
+            Position start = iterator.readPosition();
+            while (awaitCapacity() && iterator.hasNext()) {
+                final List<byte[]> data = new ArrayList<byte[]>(maxRecordsPerBatch);
+                final String streamName = recorder.nextBatch(iterator, data,
+                        maxRecordsPerBatch, maxBatchSize);
+                if (streamName == null || data.isEmpty()) {
+                    break;
+                }
+                final Position end = iterator.readPosition();
+                if (!awaitStream(streamName)) {
+                    break;
+                }
+                try {
+                    executor.execute(new Batch(streamName, data, start, end));
+                } catch (final RejectedExecutionException e) {
+                    batchDone(streamName, 0,
+                            new AmazonClientException("Unable to schedule the batch", e));
+                    break;
+                }
+                start = end;
+            }
+        } finally {
+            awaitBatches();
+            try {
+                iterator.close();
+            } catch (final IOException e) {
+                throw new AmazonClientException("Failed to close record file", e);
+            }
+        }
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+            return sent;
+        }
+    }
+
+    /**
+     * Waits until another batch can be sent.
+     *
+     * @return false if the submission is to stop.
+     */
+    private synchronized boolean awaitCapacity() {
+        while (inFlight >= concurrency && failure == null) {
+            await();
+        }
+        return failure == null && retries < maxRetryCount;
+    }
+
+    /**
+     * Waits until no batch of the stream is in flight, if ordered, and counts
+     * the batch of the stream in.
+     *
+     * @return false if the submission is to stop.
+     */
+    private synchronized boolean awaitStream(String streamName) {
+        while (ordered && busyStreams.contains(streamName) && failure == null) {
+            await();
+        }
+        if (failure != null) {
+            return false;
+        }
+        inFlight++;
+        if (ordered) {
+            busyStreams.add(streamName);
+        }
+        return true;
+    }
+
+    private synchronized void awaitBatches() {
+        boolean interrupted = false;
+        while (inFlight > 0) {
+            try {
+                wait();
+            } catch (final InterruptedException e) {
+                // the batches in flight still update the store
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void await() {
+        try {
+            wait();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (failure == null) {
+                failure = new AmazonClientException("Interrupted while submitting records", e);
+            }
+        }
+    }
+
+    private synchronized void batchDone(String streamName, int successCount,
+            AmazonClientException error) {
+        inFlight--;
+        busyStreams.remove(streamName);
+        sent += successCount;
+        if (error != null) {
+            if (failure == null) {
+                failure = error;
+            }
+        } else if (successCount == 0) {
+            // no record went through, increase retry count.
+            retries++;
+        }
+        notifyAll();
+    }
+
+    private synchronized boolean retryUnknownError() {
+        if (unknownErrorRetried) {
+            return false;
+        }
+        unknownErrorRetried = true;
+        return true;
+    }
+
+    /**
+     * A batch of records of a stream, and its range in the store.
+     */
+    private final class Batch implements Runnable {
+        private final String streamName;
+        private final List<byte[]> data;
+        private final Position start;
+        private final Position end;
+
+        Batch(String streamName, List<byte[]> data, Position start, Position end) {
+            this.streamName = streamName;
+            this.data = data;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            int successCount = 0;
+            AmazonClientException error = null;
+            try {
+                List<byte[]> failures;
+                try {
+                    failures = sender.sendBatch(streamName, data);
+                } catch (final AmazonClientException ace) {
+                    if (ace.getMessage() != null
+                            && ace.getMessage().contains("Unable to unmarshall error response")
+                            && retryUnknownError()) {
+                        // Retry once for unforeseen error, possible kinesis error without shape
+                        failures = data;
+                    } else {
+                        throw ace;
+                    }
+                }
+                successCount = data.size() - failures.size();
+                // as in the sequential submission, the failed records are
+                // saved again after the batch is removed, which may send
+                // them twice but doesn't lose them
+                recordStore.acknowledge(start, end);
+                for (final byte[] bytes : failures) {
+                    recorder.saveRecord(bytes, streamName);
+                }
+            } catch (final AmazonClientException ace) {
+                error = handleError(ace);
+            } catch (final IOException e) {
+                error = new AmazonClientException("Failed to remove read records", e);
+            } catch (final RuntimeException e) {
+                error = new AmazonClientException("Failed to submit records", e);
+            } finally {
+                batchDone(streamName, successCount, error);
+            }
+        }
+
+        private AmazonClientException handleError(AmazonClientException ace) {
+            if (sender.isRecoverable(ace)) {
+                LOGGER.error(
+                        "ServiceException in submit all, the values of the data inside the requests appears valid.  The request will be kept",
+                        ace);
+                return ace;
+            }
+
+            // Data is dead and should be added to dead letter queue
+            final DeadLetterListener deadLetterListener = recorder.getKinesisRecorderConfig()
+                    .getDeadLetterListener();
+            if (deadLetterListener != null) {
+                try {
+                    deadLetterListener.onRecordsDropped(streamName, data);
+                } catch (final Exception e) {
+                    LOGGER.error("DeadLetterListener onRecordsDropped has thrown an exception (user code)", e);
+                }
+            }
+            try {
+                recordStore.acknowledge(start, end);
+            } catch (final IOException e) {
+                return new AmazonClientException("Failed to drop bad records.", e);
+            }
+            LOGGER.error(
+                    "ServiceException in submit all, the last request is presumed to be the cause and will be dropped",
+                    ace);
+            return ace;
+        }
+    }
+}
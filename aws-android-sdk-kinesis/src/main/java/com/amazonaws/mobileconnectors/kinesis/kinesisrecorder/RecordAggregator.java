@@ -0,0 +1,236 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.services.kinesis.model.PutRecordsRequestEntry;
+import com.amazonaws.util.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs the records of a batch into aggregated records in the format of the
+ * Kinesis Producer Library, which the Kinesis Client Library de-aggregates:
+ * a magic number, an AggregatedRecord protobuf message, and the MD5 digest
+ * of the message. Only records with the same partition key and explicit hash
+ * key are packed together, so that each one is read from the shard it was
+ * placed on. An aggregated record of a single record would only be larger,
+ * so that record is sent as it is.
+ */
+final class RecordAggregator {
+
+    /** The magic number the aggregated records start with. */
+    static final byte[] MAGIC = {
+            (byte) 0xF3, (byte) 0x89, (byte) 0x9A, (byte) 0xC2
+    };
+    /**
+     * The maximum size of a record, its data and its partition key, is up to
+     * 1 MB.
+     */
+    static final int MAX_RECORD_SIZE_BYTES = 1024 * 1024;
+    private static final int DIGEST_LENGTH = 16;
+
+    // the protobuf field tags of AggregatedRecord and Record
+    private static final int PARTITION_KEY_TABLE_TAG = 1 << 3 | 2;
+    private static final int EXPLICIT_HASH_KEY_TABLE_TAG = 2 << 3 | 2;
+    private static final int RECORDS_TAG = 3 << 3 | 2;
+    private static final int PARTITION_KEY_INDEX_TAG = 1 << 3;
+    private static final int EXPLICIT_HASH_KEY_INDEX_TAG = 2 << 3;
+    private static final int DATA_TAG = 3 << 3 | 2;
+
+    private final int maxRecordSize;
+
+    RecordAggregator() {
+        this(MAX_RECORD_SIZE_BYTES);
+    }
+
+    /**
+     * @param maxRecordSize the maximum size of an aggregated record, its data
+     *            and its partition key.
+     */
+    RecordAggregator(int maxRecordSize) {
+        this.maxRecordSize = maxRecordSize;
+    }
+
+    /**
+     * Packs records whose partitions are assigned into as few records as
+     * possible.
+     *
+     * @param records the records of a batch.
+     * @return the records to send, each with the indexes of the records of
+     *         the batch it holds.
+     */
+    List<AggregatedRecord> aggregate(List<PutRecordsRequestEntry> records) {
+        final Map<String, List<Integer>> partitions = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < records.size(); i++) {
+            final PutRecordsRequestEntry record = records.get(i);
+            final String partition = record.getPartitionKey() + "/"
+                    + record.getExplicitHashKey();
+            List<Integer> partitionRecords = partitions.get(partition);
+            if (partitionRecords == null) {
+                partitionRecords = new ArrayList<Integer>();
+                partitions.put(partition, partitionRecords);
+            }
+            partitionRecords.add(i);
+        }
+
+        final List<AggregatedRecord> aggregated = new ArrayList<AggregatedRecord>();
+        final List<Integer> pending = new ArrayList<Integer>();
+        for (final List<Integer> partitionRecords : partitions.values()) {
+            final PutRecordsRequestEntry first = records.get(partitionRecords.get(0));
+            final byte[] partitionKey = first.getPartitionKey().getBytes(StringUtils.UTF8);
+            final String explicitHashKey = first.getExplicitHashKey();
+            final int headerSize = headerSize(partitionKey, explicitHashKey);
+            final int limit = maxRecordSize - partitionKey.length;
+            int size = headerSize;
+            for (final Integer index : partitionRecords) {
+                final int recordSize = fieldSize(recordSize(records.get(index),
+                        explicitHashKey != null));
+                if (!pending.isEmpty() && size + recordSize > limit) {
+                    aggregated.add(flush(records, pending, partitionKey, explicitHashKey, size));
+                    size = headerSize;
+                }
+                pending.add(index);
+                size += recordSize;
+            }
+            aggregated.add(flush(records, pending, partitionKey, explicitHashKey, size));
+        }
+        return aggregated;
+    }
+
+    private static AggregatedRecord flush(List<PutRecordsRequestEntry> records,
+            List<Integer> pending, byte[] partitionKey, String explicitHashKey, int size) {
+        final int[] indexes = new int[pending.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = pending.get(i);
+        }
+        pending.clear();
+        if (indexes.length == 1) {
+            return new AggregatedRecord(records.get(indexes[0]), indexes);
+        }
+
+        final byte[] bytes = new byte[size];
+        int offset = MAGIC.length;
+        System.arraycopy(MAGIC, 0, bytes, 0, offset);
+        offset = writeBytes(bytes, offset, PARTITION_KEY_TABLE_TAG, partitionKey);
+        if (explicitHashKey != null) {
+            offset = writeBytes(bytes, offset, EXPLICIT_HASH_KEY_TABLE_TAG,
+                    explicitHashKey.getBytes(StringUtils.UTF8));
+        }
+        for (final int index : indexes) {
+            final ByteBuffer data = records.get(index).getData().duplicate();
+            offset = writeVarint(bytes, offset, RECORDS_TAG);
+            offset = writeVarint(bytes, offset,
+                    recordSize(records.get(index), explicitHashKey != null));
+            // every record refers to the first entry of each table
+            offset = writeVarint(bytes, offset, PARTITION_KEY_INDEX_TAG);
+            offset = writeVarint(bytes, offset, 0);
+            if (explicitHashKey != null) {
+                offset = writeVarint(bytes, offset, EXPLICIT_HASH_KEY_INDEX_TAG);
+                offset = writeVarint(bytes, offset, 0);
+            }
+            offset = writeVarint(bytes, offset, DATA_TAG);
+            offset = writeVarint(bytes, offset, data.remaining());
+            final int length = data.remaining();
+            data.get(bytes, offset, length);
+            offset += length;
+        }
+
+        final MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            // should never get here
+            throw new IllegalStateException(e);
+        }
+        md5.update(bytes, MAGIC.length, offset - MAGIC.length);
+        System.arraycopy(md5.digest(), 0, bytes, offset, DIGEST_LENGTH);
+
+        final PutRecordsRequestEntry record = new PutRecordsRequestEntry();
+        record.setPartitionKey(records.get(indexes[0]).getPartitionKey());
+        record.setExplicitHashKey(explicitHashKey);
+        record.setData(ByteBuffer.wrap(bytes));
+        return new AggregatedRecord(record, indexes);
+    }
+
+    /**
+     * Returns the size of an aggregated record without its records: the magic
+     * number, the key tables and the digest.
+     */
+    private static int headerSize(byte[] partitionKey, String explicitHashKey) {
+        int size = MAGIC.length + fieldSize(partitionKey.length) + DIGEST_LENGTH;
+        if (explicitHashKey != null) {
+            size += fieldSize(explicitHashKey.getBytes(StringUtils.UTF8).length);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the size of the Record message of a record.
+     */
+    private static int recordSize(PutRecordsRequestEntry record, boolean explicitHashKey) {
+        return (explicitHashKey ? 4 : 2) + fieldSize(record.getData().remaining());
+    }
+
+    /**
+     * Returns the size of a length-delimited field with a one byte tag.
+     */
+    private static int fieldSize(int length) {
+        return 1 + varintSize(length) + length;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarint(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int writeBytes(byte[] bytes, int offset, int tag, byte[] value) {
+        offset = writeVarint(bytes, offset, tag);
+        offset = writeVarint(bytes, offset, value.length);
+        System.arraycopy(value, 0, bytes, offset, value.length);
+        return offset + value.length;
+    }
+
+    /**
+     * A record to send, and the indexes of the records of the batch it holds.
+     */
+    static final class AggregatedRecord {
+        final PutRecordsRequestEntry record;
+        final int[] indexes;
+
+        AggregatedRecord(PutRecordsRequestEntry record, int[] indexes) {
+            this.record = record;
+            this.indexes = indexes;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded ring buffer that any number of threads offer to without locking,
+ * and that one thread polls from. A producer claims a slot by moving the tail
+ * on, then publishes its element in the slot; the consumer takes elements in
+ * the order the slots were claimed, and waits at a slot claimed but not yet
+ * published.
+ *
+ * @param <E> the type of the elements
+ */
+final class RecordRingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    /** The sequence of the next slot to claim. */
+    private final AtomicLong tail = new AtomicLong();
+    /** The sequence of the next slot to poll; written by the consumer only. */
+    private volatile long head;
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two.
+     */
+    RecordRingBuffer(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<E>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds an element, unless the buffer is full.
+     *
+     * @return the sequence of the element, or -1 if the buffer is full.
+     */
+    long offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            final long sequence = tail.get();
+            if (sequence - head >= slots.length()) {
+                return -1;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                slots.lazySet((int) (sequence & mask), element);
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Takes the next element. Must only be called by the consumer thread.
+     *
+     * @return the next element, or null if there is none published yet.
+     */
+    E poll() {
+        final long sequence = head;
+        final int index = (int) (sequence & mask);
+        final E element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        // the slot is cleared before the producers see it free
+        head = sequence + 1;
+        return element;
+    }
+
+    /**
+     * Returns whether no slot is claimed, including slots claimed but not
+     * yet published. Reads the tail, so that a consumer that announces it is
+     * about to wait and then finds the buffer empty can't miss a producer
+     * that claimed a slot and then checked whether the consumer waits.
+     */
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+}
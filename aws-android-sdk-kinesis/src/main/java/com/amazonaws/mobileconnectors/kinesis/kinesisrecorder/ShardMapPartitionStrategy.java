@@ -0,0 +1,203 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.kinesis.AmazonKinesis;
+import com.amazonaws.services.kinesis.model.DescribeStreamRequest;
+import com.amazonaws.services.kinesis.model.ListShardsRequest;
+import com.amazonaws.services.kinesis.model.ListShardsResult;
+import com.amazonaws.services.kinesis.model.PutRecordsRequestEntry;
+import com.amazonaws.services.kinesis.model.Shard;
+import com.amazonaws.services.kinesis.model.StreamDescription;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Places records on the open shards of a stream in turn, in the middle of
+ * the hash key range of each shard. The shards of each stream are listed
+ * when a batch is first sent to it, and again once the refresh interval has
+ * passed; a stale list still places every record on a shard that exists,
+ * only less evenly.
+ * <p>
+ * If the caller isn't allowed to call ListShards, or the endpoint doesn't
+ * know it, the shards are listed with DescribeStream from then on. Any other
+ * failure to list the shards is taken as transient: the records get random
+ * partition keys until the shards are listed again after the interval.
+ */
+final class ShardMapPartitionStrategy implements PartitionStrategy {
+    private static final Log LOGGER = LogFactory.getLog(ShardMapPartitionStrategy.class);
+
+    /** The error codes of a ListShards call that DescribeStream may replace. */
+    private static final Set<String> LIST_SHARDS_UNAVAILABLE_CODES = new HashSet<String>(
+            Arrays.asList("AccessDeniedException", "AccessDenied",
+                    "UnknownOperationException", "InvalidAction"));
+
+    private final AmazonKinesis client;
+    private final long refreshIntervalMillis;
+    private final Map<String, ShardMap> shardMaps = new ConcurrentHashMap<String, ShardMap>();
+    private final AtomicLong next = new AtomicLong();
+    /** Whether ListShards failed, and DescribeStream is used instead. */
+    private volatile boolean describeStream;
+
+    ShardMapPartitionStrategy(AmazonKinesis client, long refreshIntervalMillis) {
+        this.client = client;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    @Override
+    public void assignPartitions(String streamName, List<PutRecordsRequestEntry> records) {
+        final ShardMap shardMap = shardMap(streamName);
+        if (shardMap.shardIds.isEmpty()) {
+            for (final PutRecordsRequestEntry record : records) {
+                record.setPartitionKey(UUID.randomUUID().toString());
+            }
+            return;
+        }
+        final int shards = shardMap.shardIds.size();
+        long index = next.getAndAdd(records.size());
+        for (final PutRecordsRequestEntry record : records) {
+            final int shard = (int) ((index++ & Long.MAX_VALUE) % shards);
+            record.setPartitionKey(shardMap.shardIds.get(shard));
+            record.setExplicitHashKey(shardMap.hashKeys.get(shard));
+        }
+    }
+
+    private ShardMap shardMap(String streamName) {
+        ShardMap shardMap = shardMaps.get(streamName);
+        if (shardMap != null && !shardMap.isStale()) {
+            return shardMap;
+        }
+        synchronized (this) {
+            shardMap = shardMaps.get(streamName);
+            if (shardMap != null && !shardMap.isStale()) {
+                return shardMap;
+            }
+            ShardMap listed;
+            try {
+                listed = new ShardMap(listOpenShards(streamName));
+            } catch (final AmazonClientException e) {
+                LOGGER.warn("Unable to list the shards of " + streamName, e);
+                // random keys until the shards are listed again after the
+                // interval
+                listed = new ShardMap(new ArrayList<Shard>());
+            }
+            shardMaps.put(streamName, listed);
+            return listed;
+        }
+    }
+
+    private List<Shard> listOpenShards(String streamName) {
+        final List<Shard> shards = new ArrayList<Shard>();
+        if (!describeStream) {
+            try {
+                listShards(streamName, shards);
+                return openShards(shards);
+            } catch (final AmazonServiceException e) {
+                // ListShards may not be allowed by the policy of the caller,
+                // or not be known to the endpoint
+                if (!LIST_SHARDS_UNAVAILABLE_CODES.contains(e.getErrorCode())) {
+                    throw e;
+                }
+                LOGGER.debug("ListShards failed, falling back to DescribeStream", e);
+                describeStream = true;
+                shards.clear();
+            }
+        }
+        describeStream(streamName, shards);
+        return openShards(shards);
+    }
+
+    private void listShards(String streamName, List<Shard> shards) {
+        ListShardsResult result = client.listShards(new ListShardsRequest()
+                .withStreamName(streamName));
+        shards.addAll(result.getShards());
+        while (result.getNextToken() != null) {
+            result = client.listShards(new ListShardsRequest()
+                    .withNextToken(result.getNextToken()));
+            shards.addAll(result.getShards());
+        }
+    }
+
+    private void describeStream(String streamName, List<Shard> shards) {
+        String exclusiveStartShardId = null;
+        while (true) {
+            final StreamDescription description = client.describeStream(
+                    new DescribeStreamRequest().withStreamName(streamName)
+                            .withExclusiveStartShardId(exclusiveStartShardId))
+                    .getStreamDescription();
+            shards.addAll(description.getShards());
+            if (!Boolean.TRUE.equals(description.getHasMoreShards())
+                    || description.getShards().isEmpty()) {
+                return;
+            }
+            exclusiveStartShardId = description.getShards()
+                    .get(description.getShards().size() - 1).getShardId();
+        }
+    }
+
+    /**
+     * Returns the shards that are not closed by a split or a merge.
+     */
+    private static List<Shard> openShards(List<Shard> shards) {
+        final List<Shard> open = new ArrayList<Shard>(shards.size());
+        for (final Shard shard : shards) {
+            if (shard.getSequenceNumberRange() == null
+                    || shard.getSequenceNumberRange().getEndingSequenceNumber() == null) {
+                open.add(shard);
+            }
+        }
+        return open;
+    }
+
+    /**
+     * The open shards of a stream, and the hash key in the middle of each.
+     */
+    private final class ShardMap {
+        final List<String> shardIds;
+        final List<String> hashKeys;
+        final long listedAt = System.currentTimeMillis();
+
+        ShardMap(List<Shard> shards) {
+            shardIds = new ArrayList<String>(shards.size());
+            hashKeys = new ArrayList<String>(shards.size());
+            for (final Shard shard : shards) {
+                final BigInteger start = new BigInteger(
+                        shard.getHashKeyRange().getStartingHashKey());
+                final BigInteger end = new BigInteger(shard.getHashKeyRange().getEndingHashKey());
+                shardIds.add(shard.getShardId());
+                hashKeys.add(start.add(end).shiftRight(1).toString());
+            }
+        }
+
+        boolean isStale() {
+            return System.currentTimeMillis() - listedAt >= refreshIntervalMillis;
+        }
+    }
+}
@@ -18,9 +18,6 @@ import static com.amazonaws.util.StringUtils.UTF8;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.OutputStreamWriter;
-import java.io.StringWriter;
-import java.io.Writer;
 import java.util.Map;
 import java.util.List;
 import java.util.zip.GZIPOutputStream;
@@ -32,10 +29,13 @@ import com.amazonaws.http.HttpMethodName;
 import com.amazonaws.services.kinesis.model.*;
 import com.amazonaws.transform.Marshaller;
 import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.PooledByteArrayInputStream;
 import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.StringInputStream;
 import com.amazonaws.util.json.AwsJsonWriter;
 import com.amazonaws.util.json.JsonUtils;
+import com.amazonaws.util.json.Utf8JsonWriter;
 
 /**
  * Put Record Request Marshaller
@@ -55,10 +55,7 @@ public class PutRecordRequestMarshaller implements Marshaller<Request<PutRecordR
         request.setResourcePath("");
         
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            GZIPOutputStream gos = new GZIPOutputStream(baos, 8192);
-            Writer writer = new OutputStreamWriter(gos, StringUtils.UTF8);
-            AwsJsonWriter jsonWriter = JsonUtils.getJsonWriter(writer);
+            Utf8JsonWriter jsonWriter = JsonUtils.getUtf8JsonWriter();
 
             jsonWriter.beginObject();
             
@@ -79,9 +76,17 @@ public class PutRecordRequestMarshaller implements Marshaller<Request<PutRecordR
             }
 
             jsonWriter.endObject();
-            jsonWriter.flush();
-            gos.finish();
-            writer.close();
+            jsonWriter.close();
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            GZIPOutputStream gos = new GZIPOutputStream(baos, 8192);
+            PooledByteArrayInputStream json = jsonWriter.toInputStream();
+            try {
+                IOUtils.copy(json, gos);
+            } finally {
+                json.release();
+            }
+            gos.close();
 
             byte[] content = baos.toByteArray();
             request.setContent(new ByteArrayInputStream(content));
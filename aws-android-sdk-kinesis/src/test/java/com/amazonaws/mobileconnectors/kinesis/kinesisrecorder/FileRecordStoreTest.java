@@ -21,6 +21,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.Position;
 import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
 import com.amazonaws.util.StringUtils;
 
@@ -28,14 +29,18 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -69,7 +74,6 @@ public class FileRecordStoreTest {
     @Test
     public void testFileRecordStore_putIterateAndRemove() throws IOException {
 
-        FileManager fileManager = new FileManager(TEST_DIRECTORY);
         FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
                 RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
 
@@ -96,7 +100,7 @@ public class FileRecordStoreTest {
             // If we read 5 events remove the 5 last read events
             if (counter % 5 == 0) {
                 iter.removeReadRecords();
-                assertSame(getNumberOfLinesInFile(fileManager), (10 - counter));
+                assertSame(countRecords(recordStore), (10 - counter));
             }
         }
 
@@ -119,7 +123,7 @@ public class FileRecordStoreTest {
             assertSame(Integer.valueOf(nextRecord), counter);
         }
         iter.removeReadRecords();
-        assertSame(getNumberOfLinesInFile(fileManager), 0);
+        assertSame(countRecords(recordStore), 0);
 
         // Try getting a new iterator while the store is empty and verify
         // that hasNext is false
@@ -183,38 +187,27 @@ public class FileRecordStoreTest {
 
     @Test
     public void testWhenWritingExceedsMaxStorageSize_noMoreRecordsWritten() throws IOException {
-        File recordsDirectory = null;
-        File recordsFile = null;
-
-        FileManager fileManager = new FileManager(TEST_DIRECTORY);
         FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
                 RECORDER_FILE_NAME, 100L);
 
-        recordsDirectory = fileManager.getDirectory(Constants.RECORDS_DIRECTORY);
-        recordsFile = new File(recordsDirectory, Constants.RECORDS_FILE_NAME);
-
+        // each record takes 20 bytes with its header
         for (int i = 0; i < 10; i++) {
-            recordStore.put("ten bytes");
+            assertEquals(i < 5, recordStore.put("twenty bytes"));
         }
-        assertSame(recordsFile.length(), 100L);
+        assertEquals(100L, recordStore.getFileSize());
 
-        recordStore.put("0123456789");
-        assertSame(recordsFile.length(), 100L);
+        assertFalse(recordStore.put("0123456789"));
+        assertEquals(100L, recordStore.getFileSize());
+        assertEquals(5, countRecords(recordStore));
 
     }
 
     @Test
     public void testWhenWritingTooManyConcurrentRecords() throws
             InterruptedException, IOException {
-        File recordsDirectory = null;
-        File recordsFile = null;
-        FileManager fileManager = new FileManager(TEST_DIRECTORY);
         final FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
                 RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
 
-        recordsDirectory = fileManager.getDirectory(Constants.RECORDS_DIRECTORY);
-        recordsFile = new File(recordsDirectory, Constants.RECORDS_FILE_NAME);
-
         SecureRandom random = new SecureRandom();
 
         // first fill the disk
@@ -229,8 +222,8 @@ public class FileRecordStoreTest {
             recordStore.put(recordStr);
         }
 
-        long initialSize = recordsFile.length();
-        assertTrue(recordsFile.length() <= MAX_STORAGE_SIZE);
+        long initialSize = recordStore.getFileSize();
+        assertTrue(recordStore.getFileSize() <= MAX_STORAGE_SIZE);
 
         final CountDownLatch latch = new CountDownLatch(1);
         ExecutorService threadPool = Executors.newFixedThreadPool(1);
@@ -259,17 +252,17 @@ public class FileRecordStoreTest {
 
         for (int i = 0; i < 10000; i++) {
             recordStore.put(recordStr);
-            assertTrue(recordsFile.length() <= initialSize);
+            assertTrue(recordStore.getFileSize() <= initialSize);
             recordStore.put(recordStr);
-            assertTrue(recordsFile.length() <= initialSize);
+            assertTrue(recordStore.getFileSize() <= initialSize);
             recordStore.put(recordStr);
-            assertTrue(recordsFile.length() <= initialSize);
+            assertTrue(recordStore.getFileSize() <= initialSize);
             Thread.sleep(1);
         }
 
         latch.await();
-        assertEquals(recordsFile.length(), initialSize);
-        assertTrue(recordsFile.length() < MAX_STORAGE_SIZE);
+        assertEquals(recordStore.getFileSize(), initialSize);
+        assertTrue(recordStore.getFileSize() < MAX_STORAGE_SIZE);
 
     }
 
@@ -328,28 +321,301 @@ public class FileRecordStoreTest {
 
     }
 
-    private int getNumberOfLinesInFile(final FileManager fileManager) throws NumberFormatException,
-            IOException {
-        BufferedReader reader = getRecordsFileReader(fileManager);
+    @Test
+    public void testPutAllSplitsRecordsIntoSegments() throws IOException {
+        // a segment holds two records of 8 bytes and their headers
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE, 40L);
+        List<byte[]> records = new ArrayList<byte[]>();
+        for (int i = 0; i < 5; i++) {
+            records.add(("record " + i).getBytes(StringUtils.UTF8));
+        }
+        boolean[] appended = recordStore.putAll(records);
+        assertEquals(5, appended.length);
+        for (boolean b : appended) {
+            assertTrue(b);
+        }
+        assertEquals(3, countSegments());
+        assertEquals(5 * 16, recordStore.getFileSize());
+
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("record " + i, iter.next());
+        }
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testAcknowledgedRangesAreRemovedOutOfOrder() throws IOException {
+        // a segment holds two records of 8 bytes and their headers
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE, 40L);
+        for (int i = 0; i < 10; i++) {
+            recordStore.put("record " + i);
+        }
+        assertEquals(5, countSegments());
+
+        RecordIterator iter = recordStore.iterator();
+        Position[] positions = new Position[6];
+        positions[0] = iter.readPosition();
+        for (int i = 1; i <= 5; i++) {
+            iter.next();
+            iter.next();
+            positions[i] = iter.readPosition();
+        }
+        iter.close();
+
+        // records 4 to 7 fill the third and fourth segments
+        recordStore.acknowledge(positions[2], positions[4]);
+        assertEquals(3, countSegments());
+        assertEquals(6 * 16, recordStore.getFileSize());
+        iter = recordStore.iterator();
+        for (int i : new int[] {0, 1, 2, 3, 8, 9}) {
+            assertEquals("record " + i, iter.next());
+        }
+        assertFalse(iter.hasNext());
+        iter.close();
+
+        // records 2 and 3 fill the second segment
+        recordStore.acknowledge(positions[1], positions[2]);
+        assertEquals(2, countSegments());
+        recordStore.acknowledge(positions[0], positions[1]);
+        assertEquals(1, countSegments());
+        assertEquals(2 * 16, recordStore.getFileSize());
+        iter = recordStore.iterator();
+        assertEquals("record 8", iter.next());
+        assertEquals("record 9", iter.next());
+        assertFalse(iter.hasNext());
+        iter.close();
+
+        recordStore.acknowledge(positions[4], positions[5]);
+        assertEquals(0, recordStore.getFileSize());
+        assertEquals(0, countRecords(recordStore));
+    }
+
+    @Test
+    public void testReopenedStoreKeepsRecordsBeforeAcknowledgedRange() throws IOException {
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE, 40L);
+        for (int i = 0; i < 10; i++) {
+            recordStore.put("record " + i);
+        }
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 0; i < 4; i++) {
+            iter.next();
+        }
+        Position from = iter.readPosition();
+        for (int i = 4; i < 8; i++) {
+            iter.next();
+        }
+        Position to = iter.readPosition();
+        iter.close();
+        recordStore.acknowledge(from, to);
+
+        // the segments of the range are gone; the rest is read again
+        recordStore = new FileRecordStore(TEST_DIRECTORY, RECORDER_FILE_NAME,
+                MAX_STORAGE_SIZE, 40L);
+        iter = recordStore.iterator();
+        for (int i : new int[] {0, 1, 2, 3, 8, 9}) {
+            assertEquals("record " + i, iter.next());
+        }
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testRemovingReadRecordsDeletesSentSegments() throws IOException {
+        // a segment holds two records of 9 bytes and their headers
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE, 40L);
+        for (int i = 0; i < 10; i++) {
+            recordStore.put("record " + i);
+        }
+        assertEquals(5, countSegments());
+
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("record " + i, iter.next());
+        }
+        iter.removeReadRecords();
+        // the third segment still holds "record 5"
+        assertEquals(3, countSegments());
+        assertEquals("record 5", iter.next());
+        iter.close();
+
+        iter = recordStore.iterator();
+        for (int i = 5; i < 10; i++) {
+            assertEquals("record " + i, iter.next());
+        }
+        assertFalse(iter.hasNext());
+        iter.removeReadRecords();
+        assertEquals(1, countSegments());
+        assertEquals(0, recordStore.getFileSize());
+
+        // records are still appended after the log is emptied
+        recordStore.put("record 10");
+        assertEquals(1, countRecords(recordStore));
+    }
+
+    @Test
+    public void testReopenedStoreResumesAfterRemovedRecords() throws IOException {
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE, 40L);
+        for (int i = 0; i < 10; i++) {
+            recordStore.put("record " + i);
+        }
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 0; i < 3; i++) {
+            iter.next();
+        }
+        iter.removeReadRecords();
+        iter.close();
+
+        FileRecordStore reopened = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE, 40L);
+        assertEquals(recordStore.getFileSize(), reopened.getFileSize());
+        iter = reopened.iterator();
+        for (int i = 3; i < 10; i++) {
+            assertEquals("record " + i, iter.next());
+        }
+        assertFalse(iter.hasNext());
+        reopened.put("record 10");
+        iter = reopened.iterator();
+        assertEquals("record 3", iter.next());
+    }
+
+    @Test
+    public void testIncompleteRecordIsDiscardedOnOpen() throws IOException {
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
+        recordStore.put("first");
+        recordStore.put("second");
+
+        // cut the last record short, as if the app died while writing it
+        File segment = segmentFiles()[0];
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        raf.setLength(segment.length() - 2);
+        raf.close();
+
+        FileRecordStore reopened = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
+        reopened.put("third");
+        RecordIterator iter = reopened.iterator();
+        assertEquals("first", iter.next());
+        assertEquals("third", iter.next());
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testRecordNotMatchingItsChecksumIsSkipped() throws IOException {
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
+        recordStore.put("first");
+        recordStore.put("second");
+        recordStore.put("third");
+
+        // flip a byte of "second", after "first" and the header of "second"
+        File segment = segmentFiles()[0];
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        raf.seek(8 + 5 + 8);
+        raf.write('S');
+        raf.close();
+
+        RecordIterator iter = recordStore.iterator();
+        assertEquals("first", iter.next());
+        assertEquals("third", iter.next());
+        assertFalse(iter.hasNext());
+        iter.close();
+
+        FileRecordStore reopened = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
+        reopened.put("fourth");
+        iter = reopened.iterator();
+        assertEquals("first", iter.next());
+        assertEquals("third", iter.next());
+        assertEquals("fourth", iter.next());
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testRecordWithImplausibleLengthEndsTheSegment() throws IOException {
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
+        recordStore.put("first");
+        recordStore.put("second");
+        recordStore.put("third");
+
+        // the length of "second" runs past the end of the segment
+        File segment = segmentFiles()[0];
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        raf.seek(8 + 5);
+        raf.writeInt(1000);
+        raf.close();
+
+        RecordIterator iter = recordStore.iterator();
+        assertEquals("first", iter.next());
+        assertFalse(iter.hasNext());
+        iter.close();
+
+        // the rest of the segment is cut off when the store is opened
+        FileRecordStore reopened = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
+        assertEquals(8 + 5, reopened.getFileSize());
+        reopened.put("fourth");
+        iter = reopened.iterator();
+        assertEquals("first", iter.next());
+        assertEquals("fourth", iter.next());
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testTextRecordsFileIsMigrated() throws IOException {
+        File recordsDirectory = new File(TEST_DIRECTORY, Constants.RECORDS_DIRECTORY);
+        recordsDirectory.mkdirs();
+        File textFile = new File(recordsDirectory, RECORDER_FILE_NAME);
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(textFile), StringUtils.UTF8));
+        writer.println("stream,AAAA");
+        writer.println("");
+        writer.println("stream,BBBB");
+        writer.close();
+        assertTrue(FileRecordStore.exists(TEST_DIRECTORY, RECORDER_FILE_NAME));
+
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
+        assertFalse(textFile.exists());
+        RecordIterator iter = recordStore.iterator();
+        assertEquals("stream,AAAA", iter.next());
+        assertEquals("stream,BBBB", iter.next());
+        assertFalse(iter.hasNext());
+
+        recordStore.delete();
+        assertFalse(FileRecordStore.exists(TEST_DIRECTORY, RECORDER_FILE_NAME));
+    }
+
+    private int countRecords(final FileRecordStore recordStore) throws IOException {
+        RecordIterator iter = recordStore.iterator();
         int counter = 0;
-        while (reader.readLine() != null) {
+        while (iter.hasNext()) {
+            iter.next();
             counter++;
         }
+        iter.close();
         return counter;
     }
 
-    private BufferedReader getRecordsFileReader(final FileManager fileManager) {
-        InputStreamReader streamReader = null;
-        try {
-            streamReader = new InputStreamReader(
-                    fileManager.newInputStream(Constants.RECORDS_DIRECTORY + File.separator
-                            + Constants.RECORDS_FILE_NAME), StringUtils.UTF8);
-        } catch (FileNotFoundException e) {
-        }
+    private int countSegments() {
+        return segmentFiles().length;
+    }
 
-        if (streamReader != null) {
-            return new BufferedReader(streamReader);
-        }
-        return null;
+    private File[] segmentFiles() {
+        File recordsDirectory = new File(TEST_DIRECTORY, Constants.RECORDS_DIRECTORY);
+        return recordsDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(RECORDER_FILE_NAME + ".") && name.endsWith(".log");
+            }
+        });
     }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class GroupCommitWriterTest {
+
+    private static final File TEST_DIRECTORY = new File("GroupCommitWriterTest");
+    private static final String RECORDER_FILE_NAME = Constants.RECORDS_FILE_NAME;
+    private static final long MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+
+    private FileRecordStore recordStore;
+
+    @Before
+    public void setup() {
+        TEST_DIRECTORY.mkdir();
+        recordStore = new FileRecordStore(TEST_DIRECTORY, RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        recordStore.delete();
+        delete(TEST_DIRECTORY);
+    }
+
+    private void delete(File f) {
+        if (f.isDirectory()) {
+            for (File subFile : f.listFiles()) {
+                delete(subFile);
+            }
+        }
+        f.delete();
+    }
+
+    @Test
+    public void testRingBufferIsBoundedAndKeepsOrder() {
+        RecordRingBuffer<Integer> ring = new RecordRingBuffer<Integer>(3);
+        assertTrue(ring.isEmpty());
+        // the capacity is rounded up to 4
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, ring.offer(i));
+        }
+        assertEquals(-1, ring.offer(4));
+        assertEquals(Integer.valueOf(0), ring.poll());
+        assertEquals(4, ring.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(Integer.valueOf(i), ring.poll());
+        }
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentSavesAreAllWritten() throws Exception {
+        final GroupCommitWriter writer = new GroupCommitWriter(recordStore, 1000, 64 * 1024);
+        final int threads = 8;
+        // more records than the ring holds, so that savers wait for the writer
+        final int recordsPerThread = 1000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < recordsPerThread; i++) {
+                            writer.save(record(thread + "-" + i), false);
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        writer.flush();
+
+        Set<String> records = readRecords();
+        assertEquals(threads * recordsPerThread, records.size());
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < recordsPerThread; i++) {
+                assertTrue(records.contains(t + "-" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testDurableSaveIsWrittenWhenItReturns() throws IOException {
+        // neither the interval nor the threshold is reached
+        final GroupCommitWriter writer = new GroupCommitWriter(recordStore, 60 * 60 * 1000L,
+                1024 * 1024);
+        writer.save(record("fire-and-forget"), false);
+        writer.save(record("durable"), true);
+
+        Set<String> records = readRecords();
+        assertEquals(2, records.size());
+        assertTrue(records.contains("fire-and-forget"));
+        assertTrue(records.contains("durable"));
+    }
+
+    @Test
+    public void testRecordsOverTheStorageLimitAreDropped() throws IOException {
+        recordStore.delete();
+        recordStore = new FileRecordStore(TEST_DIRECTORY, RECORDER_FILE_NAME, 100);
+        final GroupCommitWriter writer = new GroupCommitWriter(recordStore, 1000, 64 * 1024);
+        for (int i = 0; i < 10; i++) {
+            // 8 bytes of header and 12 of record
+            writer.save(record("record-" + String.format("%05d", i)), false);
+        }
+        writer.flush();
+
+        assertEquals(5, readRecords().size());
+        assertEquals(100, recordStore.getFileSize());
+    }
+
+    @Test
+    public void testDurableSaveOverTheStorageLimitFails() throws IOException {
+        recordStore.delete();
+        recordStore = new FileRecordStore(TEST_DIRECTORY, RECORDER_FILE_NAME, 100);
+        final GroupCommitWriter writer = new GroupCommitWriter(recordStore, 1000, 64 * 1024);
+        try {
+            writer.save(new byte[100], true);
+            fail("Expected the record to be rejected");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().contains("maximum storage size"));
+        }
+        // a smaller record still fits
+        writer.save(record("fits"), true);
+
+        assertEquals(1, readRecords().size());
+    }
+
+    @Test
+    public void testSavesAfterFlushAreWritten() throws IOException {
+        final GroupCommitWriter writer = new GroupCommitWriter(recordStore, 1000, 64 * 1024);
+        writer.flush();
+        writer.save(record("1"), true);
+        writer.flush();
+        writer.save(record("2"), true);
+
+        assertEquals(2, readRecords().size());
+    }
+
+    private static byte[] record(String record) {
+        return record.getBytes(StringUtils.UTF8);
+    }
+
+    private Set<String> readRecords() throws IOException {
+        Set<String> records = new HashSet<String>();
+        RecordIterator iter = recordStore.iterator();
+        while (iter.hasNext()) {
+            records.add(iter.next());
+        }
+        iter.close();
+        return records;
+    }
+}
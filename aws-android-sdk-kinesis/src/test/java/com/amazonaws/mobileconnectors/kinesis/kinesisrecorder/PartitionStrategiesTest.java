@@ -0,0 +1,249 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.kinesis.AmazonKinesisClient;
+import com.amazonaws.services.kinesis.model.DescribeStreamRequest;
+import com.amazonaws.services.kinesis.model.DescribeStreamResult;
+import com.amazonaws.services.kinesis.model.HashKeyRange;
+import com.amazonaws.services.kinesis.model.ListShardsRequest;
+import com.amazonaws.services.kinesis.model.ListShardsResult;
+import com.amazonaws.services.kinesis.model.PutRecordsRequestEntry;
+import com.amazonaws.services.kinesis.model.SequenceNumberRange;
+import com.amazonaws.services.kinesis.model.Shard;
+import com.amazonaws.services.kinesis.model.StreamDescription;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class PartitionStrategiesTest {
+
+    private static final String STREAM = "stream";
+    private static final BigInteger HALF = BigInteger.ONE.shiftLeft(127);
+
+    @Test
+    public void testRandomPerBatchSharesAKeyInABatch() {
+        PartitionStrategy strategy = PartitionStrategies.randomPerBatch();
+        List<PutRecordsRequestEntry> first = records(10);
+        List<PutRecordsRequestEntry> second = records(10);
+        strategy.assignPartitions(STREAM, first);
+        strategy.assignPartitions(STREAM, second);
+
+        assertEquals(1, partitionKeys(first).size());
+        assertEquals(1, partitionKeys(second).size());
+        assertFalse(partitionKeys(first).equals(partitionKeys(second)));
+    }
+
+    @Test
+    public void testRandomPerRecordGivesEachRecordAKey() {
+        List<PutRecordsRequestEntry> records = records(100);
+        PartitionStrategies.randomPerRecord().assignPartitions(STREAM, records);
+
+        assertEquals(100, partitionKeys(records).size());
+        assertNull(records.get(0).getExplicitHashKey());
+    }
+
+    @Test
+    public void testRoundRobinCyclesOverRangesAcrossBatches() {
+        PartitionStrategy strategy = PartitionStrategies.roundRobin(4);
+        List<PutRecordsRequestEntry> first = records(3);
+        List<PutRecordsRequestEntry> second = records(5);
+        strategy.assignPartitions(STREAM, first);
+        strategy.assignPartitions(STREAM, second);
+
+        List<PutRecordsRequestEntry> records = new ArrayList<PutRecordsRequestEntry>(first);
+        records.addAll(second);
+        BigInteger range = BigInteger.ONE.shiftLeft(126);
+        for (int i = 0; i < records.size(); i++) {
+            BigInteger hashKey = new BigInteger(records.get(i).getExplicitHashKey());
+            assertEquals(BigInteger.valueOf(i % 4), hashKey.divide(range));
+            assertEquals(String.valueOf(i % 4), records.get(i).getPartitionKey());
+        }
+    }
+
+    @Test
+    public void testContentHashFollowsTheData() {
+        List<PutRecordsRequestEntry> records = new ArrayList<PutRecordsRequestEntry>();
+        for (String data : new String[] {"a", "b", "a"}) {
+            PutRecordsRequestEntry record = new PutRecordsRequestEntry();
+            record.setData(ByteBuffer.wrap(data.getBytes(StringUtils.UTF8)));
+            records.add(record);
+        }
+        PartitionStrategies.contentHash().assignPartitions(STREAM, records);
+
+        assertEquals(records.get(0).getPartitionKey(), records.get(2).getPartitionKey());
+        assertFalse(records.get(0).getPartitionKey().equals(records.get(1).getPartitionKey()));
+        // the data is still there to be sent
+        assertEquals(1, records.get(0).getData().remaining());
+    }
+
+    @Test
+    public void testShardMapSpreadsRecordsOverOpenShards() {
+        StubKinesisClient client = new StubKinesisClient();
+        PartitionStrategy strategy = PartitionStrategies.shardMap(client, 60 * 1000L);
+        List<PutRecordsRequestEntry> records = records(6);
+        strategy.assignPartitions(STREAM, records);
+        strategy.assignPartitions(STREAM, records(6));
+
+        assertEquals(2, client.listShardsCalls);
+        for (int i = 0; i < records.size(); i++) {
+            PutRecordsRequestEntry record = records.get(i);
+            BigInteger hashKey = new BigInteger(record.getExplicitHashKey());
+            if (i % 2 == 0) {
+                assertEquals("shard-1", record.getPartitionKey());
+                assertTrue(hashKey.compareTo(HALF) < 0);
+            } else {
+                assertEquals("shard-2", record.getPartitionKey());
+                assertTrue(hashKey.compareTo(HALF) >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testShardMapFallsBackToDescribeStream() {
+        StubKinesisClient client = new StubKinesisClient();
+        client.listShardsErrorCode = "AccessDeniedException";
+        PartitionStrategy strategy = PartitionStrategies.shardMap(client, 60 * 1000L);
+        List<PutRecordsRequestEntry> records = records(4);
+        strategy.assignPartitions(STREAM, records);
+
+        assertEquals(2, client.describeStreamCalls);
+        Set<String> partitionKeys = partitionKeys(records);
+        assertEquals(2, partitionKeys.size());
+        assertTrue(partitionKeys.contains("shard-1"));
+        assertTrue(partitionKeys.contains("shard-2"));
+    }
+
+    @Test
+    public void testShardMapUsesRandomKeysAfterTransientListShardsError() {
+        StubKinesisClient client = new StubKinesisClient();
+        client.listShardsErrorCode = "LimitExceededException";
+        // every batch lists the shards again
+        PartitionStrategy strategy = PartitionStrategies.shardMap(client, 0L);
+        List<PutRecordsRequestEntry> records = records(4);
+        strategy.assignPartitions(STREAM, records);
+
+        assertEquals(0, client.describeStreamCalls);
+        for (PutRecordsRequestEntry record : records) {
+            assertFalse(record.getPartitionKey().startsWith("shard-"));
+            assertNull(record.getExplicitHashKey());
+        }
+
+        // ListShards is used again once it works
+        client.listShardsErrorCode = null;
+        records = records(4);
+        strategy.assignPartitions(STREAM, records);
+
+        assertEquals(0, client.describeStreamCalls);
+        Set<String> partitionKeys = partitionKeys(records);
+        assertEquals(2, partitionKeys.size());
+        assertTrue(partitionKeys.contains("shard-1"));
+        assertTrue(partitionKeys.contains("shard-2"));
+    }
+
+    private static List<PutRecordsRequestEntry> records(int count) {
+        List<PutRecordsRequestEntry> records = new ArrayList<PutRecordsRequestEntry>();
+        for (int i = 0; i < count; i++) {
+            PutRecordsRequestEntry record = new PutRecordsRequestEntry();
+            record.setData(ByteBuffer.wrap(("record " + i).getBytes(StringUtils.UTF8)));
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static Set<String> partitionKeys(List<PutRecordsRequestEntry> records) {
+        Set<String> partitionKeys = new HashSet<String>();
+        for (PutRecordsRequestEntry record : records) {
+            partitionKeys.add(record.getPartitionKey());
+        }
+        return partitionKeys;
+    }
+
+    /**
+     * A stream of a shard closed by a split and the two shards it was split
+     * into, listed a page of two shards at a time.
+     */
+    private static final class StubKinesisClient extends AmazonKinesisClient {
+        private final List<Shard> shards = new ArrayList<Shard>();
+        /** The error code ListShards fails with, if any. */
+        String listShardsErrorCode;
+        int listShardsCalls;
+        int describeStreamCalls;
+
+        StubKinesisClient() {
+            super(new BasicAWSCredentials("access", "secret"));
+            BigInteger max = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+            shards.add(shard("shard-0", BigInteger.ZERO, max, "100"));
+            shards.add(shard("shard-1", BigInteger.ZERO, HALF.subtract(BigInteger.ONE), null));
+            shards.add(shard("shard-2", HALF, max, null));
+        }
+
+        private static Shard shard(String shardId, BigInteger start, BigInteger end,
+                String endingSequenceNumber) {
+            return new Shard().withShardId(shardId)
+                    .withHashKeyRange(new HashKeyRange().withStartingHashKey(start.toString())
+                            .withEndingHashKey(end.toString()))
+                    .withSequenceNumberRange(new SequenceNumberRange()
+                            .withStartingSequenceNumber("0")
+                            .withEndingSequenceNumber(endingSequenceNumber));
+        }
+
+        @Override
+        public ListShardsResult listShards(ListShardsRequest request) {
+            listShardsCalls++;
+            if (listShardsErrorCode != null) {
+                AmazonServiceException e = new AmazonServiceException("ListShards failed");
+                e.setErrorCode(listShardsErrorCode);
+                throw e;
+            }
+            if (request.getNextToken() == null) {
+                assertEquals(STREAM, request.getStreamName());
+                return new ListShardsResult().withShards(shards.subList(0, 2))
+                        .withNextToken("page-2");
+            }
+            assertNull(request.getStreamName());
+            return new ListShardsResult().withShards(shards.subList(2, 3));
+        }
+
+        @Override
+        public DescribeStreamResult describeStream(DescribeStreamRequest request) {
+            describeStreamCalls++;
+            assertEquals(STREAM, request.getStreamName());
+            boolean firstPage = request.getExclusiveStartShardId() == null;
+            if (!firstPage) {
+                assertEquals("shard-1", request.getExclusiveStartShardId());
+            }
+            return new DescribeStreamResult().withStreamDescription(new StreamDescription()
+                    .withStreamName(STREAM)
+                    .withShards(firstPage ? shards.subList(0, 2) : shards.subList(2, 3))
+                    .withHasMoreShards(firstPage));
+        }
+    }
+}
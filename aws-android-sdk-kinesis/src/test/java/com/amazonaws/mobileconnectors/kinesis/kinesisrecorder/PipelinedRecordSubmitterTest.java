@@ -0,0 +1,268 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PipelinedRecordSubmitterTest {
+
+    private static final File TEST_DIRECTORY = new File("PipelinedRecordSubmitterTest");
+    private static final long MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+    private static final int CONCURRENCY = 4;
+    /** Records per batch in the recorder. */
+    private static final int BATCH_SIZE = 128;
+
+    private FileRecordStore recordStore;
+    private StubRecordSender sender;
+
+    @Before
+    public void setup() {
+        TEST_DIRECTORY.mkdir();
+        // a segment holds a little more than a batch of the records saved
+        recordStore = new FileRecordStore(TEST_DIRECTORY, Constants.RECORDS_FILE_NAME,
+                MAX_STORAGE_SIZE, 8 * 1024L);
+        sender = new StubRecordSender();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        recordStore.delete();
+        delete(TEST_DIRECTORY);
+    }
+
+    private void delete(File f) {
+        if (f.isDirectory()) {
+            for (File subFile : f.listFiles()) {
+                delete(subFile);
+            }
+        }
+        f.delete();
+    }
+
+    @Test
+    public void testAllRecordsAreSentConcurrently() {
+        StubRecorder recorder = recorder(false);
+        saveRecords(recorder, "stream", 0, 10 * BATCH_SIZE);
+        sender.delayMillis = 20;
+
+        recorder.submitAllRecords();
+
+        assertEquals(10 * BATCH_SIZE, sender.sent("stream").size());
+        assertEquals(0, recorder.getDiskBytesUsed());
+        assertTrue(sender.maxInFlight.get() > 1);
+        assertTrue(sender.maxInFlight.get() <= CONCURRENCY);
+    }
+
+    @Test
+    public void testOrderedBatchesOfAStreamAreSentInOrder() {
+        StubRecorder recorder = recorder(true);
+        for (int i = 0; i < 4; i++) {
+            saveRecords(recorder, "stream-a", i * 300, 300);
+            saveRecords(recorder, "stream-b", i * 300, 300);
+        }
+        sender.delayMillis = 5;
+
+        recorder.submitAllRecords();
+
+        for (String streamName : new String[] {"stream-a", "stream-b"}) {
+            List<String> sent = sender.sent(streamName);
+            assertEquals(1200, sent.size());
+            for (int i = 0; i < sent.size(); i++) {
+                assertEquals(streamName + " " + i, sent.get(i));
+            }
+        }
+        assertFalse(sender.concurrentBatchOfAStream);
+        assertEquals(0, recorder.getDiskBytesUsed());
+    }
+
+    @Test
+    public void testSlowBatchDoesNotBlockRemovalOfTheOthers() throws Exception {
+        final StubRecorder recorder = recorder(false);
+        saveRecords(recorder, "stream", 0, 10 * BATCH_SIZE);
+        final long saved = recorder.getDiskBytesUsed();
+        sender.blockFirstBatch = new CountDownLatch(1);
+
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread submit = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    recorder.submitAllRecords();
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            }
+        });
+        submit.start();
+
+        // all batches but the first are sent and their segments removed
+        assertTrue(sender.sentBatches.await(10, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (recorder.getDiskBytesUsed() >= saved / 4
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(recorder.getDiskBytesUsed() < saved / 4);
+        sender.blockFirstBatch.countDown();
+        submit.join(10000);
+
+        assertNull(error.get());
+        assertEquals(0, recorder.getDiskBytesUsed());
+        assertEquals(10 * BATCH_SIZE, sender.sent("stream").size());
+    }
+
+    @Test
+    public void testRecoverableErrorKeepsTheFailedBatch() {
+        StubRecorder recorder = recorder(false);
+        saveRecords(recorder, "stream", 0, 10 * BATCH_SIZE);
+        sender.failingRecord = "stream 300";
+
+        try {
+            recorder.submitAllRecords();
+            fail("Expected the recoverable error to be thrown");
+        } catch (AmazonClientException expected) {
+            assertEquals("offline", expected.getMessage());
+        }
+
+        // the failed batch holds records 256 to 383, and is sent next time;
+        // the batches sent after it are not sent again
+        sender.failingRecord = null;
+        recorder.submitAllRecords();
+        List<String> sent = sender.sent("stream");
+        assertEquals(10 * BATCH_SIZE, sent.size());
+        assertEquals(10 * BATCH_SIZE, new HashSet<String>(sent).size());
+        assertEquals(0, recorder.getDiskBytesUsed());
+    }
+
+    private StubRecorder recorder(boolean ordered) {
+        return new StubRecorder(recordStore, new KinesisRecorderConfig()
+                .withSubmitConcurrency(CONCURRENCY).withOrderedSubmit(ordered), sender);
+    }
+
+    private static void saveRecords(AbstractKinesisRecorder recorder, String streamName,
+            int first, int count) {
+        for (int i = first; i < first + count; i++) {
+            recorder.saveRecord(streamName + " " + i, streamName);
+        }
+    }
+
+    static class StubRecorder extends AbstractKinesisRecorder {
+        private final RecordSender sender;
+
+        StubRecorder(FileRecordStore recordStore, KinesisRecorderConfig config,
+                RecordSender sender) {
+            super(recordStore, config);
+            this.sender = sender;
+        }
+
+        @Override
+        protected RecordSender getRecordSender() {
+            return sender;
+        }
+    }
+
+    /**
+     * Records the data sent to each stream, and the batches in flight.
+     */
+    static class StubRecordSender implements RecordSender {
+        final Map<String, List<String>> sent = new HashMap<String, List<String>>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final Set<String> busyStreams = Collections.synchronizedSet(new HashSet<String>());
+        final CountDownLatch sentBatches = new CountDownLatch(9);
+        final AtomicInteger batches = new AtomicInteger();
+        volatile boolean concurrentBatchOfAStream;
+        volatile long delayMillis;
+        volatile CountDownLatch blockFirstBatch;
+        volatile String failingRecord;
+
+        @Override
+        public List<byte[]> sendBatch(String streamName, List<byte[]> data) {
+            final int current = inFlight.incrementAndGet();
+            if (!busyStreams.add(streamName)) {
+                concurrentBatchOfAStream = true;
+            }
+            try {
+                int max;
+                while (current > (max = maxInFlight.get())
+                        && !maxInFlight.compareAndSet(max, current)) {
+                    // retry
+                }
+                if (batches.getAndIncrement() == 0 && blockFirstBatch != null) {
+                    blockFirstBatch.await(10, TimeUnit.SECONDS);
+                }
+                Thread.sleep(delayMillis);
+                final List<String> records = new ArrayList<String>();
+                for (byte[] bytes : data) {
+                    records.add(new String(bytes, StringUtils.UTF8));
+                }
+                if (records.contains(failingRecord)) {
+                    throw new AmazonClientException("offline");
+                }
+                synchronized (sent) {
+                    sent(streamName).addAll(records);
+                }
+                sentBatches.countDown();
+                return new ArrayList<byte[]>();
+            } catch (InterruptedException e) {
+                throw new AmazonClientException("interrupted", e);
+            } finally {
+                busyStreams.remove(streamName);
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean isRecoverable(AmazonClientException ace) {
+            return true;
+        }
+
+        List<String> sent(String streamName) {
+            synchronized (sent) {
+                List<String> records = sent.get(streamName);
+                if (records == null) {
+                    records = new ArrayList<String>();
+                    sent.put(streamName, records);
+                }
+                return records;
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonServiceException;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.RecordAggregator.AggregatedRecord;
+import com.amazonaws.services.kinesis.AmazonKinesisClient;
+import com.amazonaws.services.kinesis.model.PutRecordsRequest;
+import com.amazonaws.services.kinesis.model.PutRecordsRequestEntry;
+import com.amazonaws.services.kinesis.model.PutRecordsResult;
+import com.amazonaws.services.kinesis.model.PutRecordsResultEntry;
+import com.amazonaws.util.Md5Utils;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RecordAggregatorTest {
+
+    private static final String STREAM = "stream";
+
+    @Test
+    public void testRecordsOfAPartitionArePackedTogether() {
+        List<PutRecordsRequestEntry> records = records(10, 20);
+        PartitionStrategies.fixed("key").assignPartitions(STREAM, records);
+
+        List<AggregatedRecord> aggregated = new RecordAggregator().aggregate(records);
+
+        assertEquals(1, aggregated.size());
+        PutRecordsRequestEntry record = aggregated.get(0).record;
+        assertEquals("key", record.getPartitionKey());
+        assertNull(record.getExplicitHashKey());
+        Decoded decoded = decode(record.getData());
+        assertEquals(Arrays.asList("key"), decoded.partitionKeys);
+        assertTrue(decoded.explicitHashKeys.isEmpty());
+        assertEquals(10, decoded.data.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, aggregated.get(0).indexes[i]);
+            assertEquals(0L, decoded.partitionKeyIndexes.get(i).longValue());
+            assertNull(decoded.explicitHashKeyIndexes.get(i));
+            assertArrayEquals(bytes(records.get(i)), decoded.data.get(i));
+        }
+    }
+
+    @Test
+    public void testPartitionsAreAggregatedSeparately() {
+        List<PutRecordsRequestEntry> records = records(9, 20);
+        PartitionStrategies.roundRobin(2).assignPartitions(STREAM, records);
+
+        List<AggregatedRecord> aggregated = new RecordAggregator().aggregate(records);
+
+        assertEquals(2, aggregated.size());
+        for (int range = 0; range < 2; range++) {
+            AggregatedRecord record = aggregated.get(range);
+            Decoded decoded = decode(record.record.getData());
+            assertEquals(records.get(range).getExplicitHashKey(),
+                    record.record.getExplicitHashKey());
+            assertEquals(Arrays.asList(record.record.getExplicitHashKey()),
+                    decoded.explicitHashKeys);
+            assertEquals(range == 0 ? 5 : 4, decoded.data.size());
+            for (int i = 0; i < decoded.data.size(); i++) {
+                assertEquals(range + 2 * i, record.indexes[i]);
+                assertEquals(0L, decoded.explicitHashKeyIndexes.get(i).longValue());
+                assertArrayEquals(bytes(records.get(range + 2 * i)), decoded.data.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testAggregatedRecordsStayWithinTheSizeLimit() {
+        // 300 byte records, 3 bytes more in the aggregated record each
+        List<PutRecordsRequestEntry> records = records(100, 300);
+        PartitionStrategies.fixed("key").assignPartitions(STREAM, records);
+        int limit = 4096;
+
+        List<AggregatedRecord> aggregated = new RecordAggregator(limit).aggregate(records);
+
+        // 4096 - 3 (key) - 4 (magic) - 5 (key table) - 16 (digest) = 13 * 303
+        assertEquals(8, aggregated.size());
+        int index = 0;
+        for (AggregatedRecord record : aggregated) {
+            int size = record.record.getData().remaining() + 3;
+            assertTrue(size <= limit);
+            List<byte[]> data = decode(record.record.getData()).data;
+            assertEquals(Math.min(13, 100 - index), data.size());
+            for (byte[] bytes : data) {
+                assertArrayEquals(bytes(records.get(index++)), bytes);
+            }
+        }
+        assertEquals(100, index);
+    }
+
+    @Test
+    public void testSingleRecordIsNotAggregated() {
+        List<PutRecordsRequestEntry> records = records(3, 20);
+        PartitionStrategies.randomPerRecord().assignPartitions(STREAM, records);
+        List<PutRecordsRequestEntry> big = records(1, 5000);
+        PartitionStrategies.fixed("key").assignPartitions(STREAM, big);
+        records.addAll(big);
+
+        List<AggregatedRecord> aggregated = new RecordAggregator(4096).aggregate(records);
+
+        assertEquals(4, aggregated.size());
+        for (int i = 0; i < 4; i++) {
+            assertSame(records.get(i), aggregated.get(i).record);
+            assertArrayEquals(new int[] {i}, aggregated.get(i).indexes);
+        }
+    }
+
+    @Test
+    public void testSenderReturnsEveryRecordOfAFailedAggregatedRecord() {
+        StubKinesisClient client = new StubKinesisClient();
+        KinesisStreamRecordSender sender = new KinesisStreamRecordSender(client, "agent",
+                PartitionStrategies.roundRobin(2), true);
+        List<byte[]> data = new ArrayList<byte[]>();
+        for (int i = 0; i < 10; i++) {
+            data.add(("record " + i).getBytes(StringUtils.UTF8));
+        }
+        client.failedRecord = 1;
+
+        List<byte[]> failures = sender.sendBatch(STREAM, data);
+
+        assertEquals(1, client.requests.size());
+        assertEquals(2, client.requests.get(0).getRecords().size());
+        assertEquals(5, failures.size());
+        for (int i = 0; i < 5; i++) {
+            assertSame(data.get(2 * i + 1), failures.get(i));
+        }
+    }
+
+    @Test
+    public void testSenderSplitsRequestsOfMoreThan500Records() {
+        StubKinesisClient client = new StubKinesisClient();
+        KinesisStreamRecordSender sender = new KinesisStreamRecordSender(client, "agent",
+                PartitionStrategies.randomPerRecord(), true);
+        List<byte[]> data = new ArrayList<byte[]>();
+        for (int i = 0; i < 1200; i++) {
+            data.add(("record " + i).getBytes(StringUtils.UTF8));
+        }
+        client.failedRecord = 0;
+
+        List<byte[]> failures = sender.sendBatch(STREAM, data);
+
+        assertEquals(3, client.requests.size());
+        assertEquals(500, client.requests.get(0).getRecords().size());
+        assertEquals(200, client.requests.get(2).getRecords().size());
+        assertEquals(3, failures.size());
+        assertSame(data.get(500), failures.get(1));
+    }
+
+    @Test
+    public void testSenderReturnsTheRecordsNotSentAfterARecoverableError() {
+        StubKinesisClient client = new StubKinesisClient();
+        KinesisStreamRecordSender sender = new KinesisStreamRecordSender(client, "agent",
+                PartitionStrategies.randomPerRecord(), true);
+        List<byte[]> data = new ArrayList<byte[]>();
+        for (int i = 0; i < 1200; i++) {
+            data.add(("record " + i).getBytes(StringUtils.UTF8));
+        }
+        client.failedRequest = 1;
+        client.failedRequestErrorCode = "ProvisionedThroughputExceededException";
+
+        List<byte[]> failures = sender.sendBatch(STREAM, data);
+
+        assertEquals(2, client.requests.size());
+        assertEquals(700, failures.size());
+        assertSame(data.get(500), failures.get(0));
+    }
+
+    @Test
+    public void testSenderRethrowsANonRecoverableErrorOfALaterRequest() {
+        StubKinesisClient client = new StubKinesisClient();
+        KinesisStreamRecordSender sender = new KinesisStreamRecordSender(client, "agent",
+                PartitionStrategies.randomPerRecord(), true);
+        List<byte[]> data = new ArrayList<byte[]>();
+        for (int i = 0; i < 1200; i++) {
+            data.add(("record " + i).getBytes(StringUtils.UTF8));
+        }
+        client.failedRequest = 1;
+        client.failedRequestErrorCode = "ValidationException";
+
+        try {
+            sender.sendBatch(STREAM, data);
+            fail("the error should be rethrown");
+        } catch (AmazonServiceException e) {
+            assertEquals("ValidationException", e.getErrorCode());
+            assertFalse(sender.isRecoverable(e));
+        }
+        assertEquals(2, client.requests.size());
+    }
+
+    private static List<PutRecordsRequestEntry> records(int count, int size) {
+        List<PutRecordsRequestEntry> records = new ArrayList<PutRecordsRequestEntry>();
+        for (int i = 0; i < count; i++) {
+            byte[] data = new byte[size];
+            Arrays.fill(data, (byte) i);
+            PutRecordsRequestEntry record = new PutRecordsRequestEntry();
+            record.setData(ByteBuffer.wrap(data));
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static byte[] bytes(PutRecordsRequestEntry record) {
+        ByteBuffer data = record.getData().duplicate();
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Decodes an aggregated record, checking its magic number and digest.
+     */
+    private static Decoded decode(ByteBuffer record) {
+        ByteBuffer buffer = record.duplicate();
+        byte[] magic = new byte[4];
+        buffer.get(magic);
+        assertArrayEquals(RecordAggregator.MAGIC, magic);
+        byte[] message = new byte[buffer.remaining() - 16];
+        buffer.get(message);
+        byte[] digest = new byte[16];
+        buffer.get(digest);
+        assertArrayEquals(Md5Utils.computeMD5Hash(message), digest);
+
+        Decoded decoded = new Decoded();
+        ByteBuffer in = ByteBuffer.wrap(message);
+        while (in.hasRemaining()) {
+            long tag = readVarint(in);
+            byte[] field = readBytes(in);
+            if (tag == (1 << 3 | 2)) {
+                decoded.partitionKeys.add(new String(field, StringUtils.UTF8));
+            } else if (tag == (2 << 3 | 2)) {
+                decoded.explicitHashKeys.add(new String(field, StringUtils.UTF8));
+            } else {
+                assertEquals(3 << 3 | 2, tag);
+                decodeRecord(ByteBuffer.wrap(field), decoded);
+            }
+        }
+        return decoded;
+    }
+
+    private static void decodeRecord(ByteBuffer in, Decoded decoded) {
+        Long explicitHashKeyIndex = null;
+        while (in.hasRemaining()) {
+            long tag = readVarint(in);
+            if (tag == 1 << 3) {
+                decoded.partitionKeyIndexes.add(readVarint(in));
+            } else if (tag == 2 << 3) {
+                explicitHashKeyIndex = readVarint(in);
+            } else {
+                assertEquals(3 << 3 | 2, tag);
+                decoded.data.add(readBytes(in));
+            }
+        }
+        decoded.explicitHashKeyIndexes.add(explicitHashKeyIndex);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static final class Decoded {
+        final List<String> partitionKeys = new ArrayList<String>();
+        final List<String> explicitHashKeys = new ArrayList<String>();
+        final List<Long> partitionKeyIndexes = new ArrayList<Long>();
+        final List<Long> explicitHashKeyIndexes = new ArrayList<Long>();
+        final List<byte[]> data = new ArrayList<byte[]>();
+    }
+
+    /**
+     * Fails the record at a given index of each request, and the request at a
+     * given index with an error.
+     */
+    private static final class StubKinesisClient extends AmazonKinesisClient {
+        final List<PutRecordsRequest> requests = new ArrayList<PutRecordsRequest>();
+        int failedRecord = -1;
+        int failedRequest = -1;
+        String failedRequestErrorCode;
+
+        StubKinesisClient() {
+            super(new BasicAWSCredentials("access", "secret"));
+        }
+
+        @Override
+        public PutRecordsResult putRecords(PutRecordsRequest request) {
+            requests.add(request);
+            if (requests.size() - 1 == failedRequest) {
+                AmazonServiceException e = new AmazonServiceException("PutRecords failed");
+                e.setErrorCode(failedRequestErrorCode);
+                throw e;
+            }
+            List<PutRecordsResultEntry> entries = new ArrayList<PutRecordsResultEntry>();
+            for (int i = 0; i < request.getRecords().size(); i++) {
+                PutRecordsResultEntry entry = new PutRecordsResultEntry();
+                if (i == failedRecord) {
+                    entry.setErrorCode("ProvisionedThroughputExceededException");
+                } else {
+                    entry.setSequenceNumber(String.valueOf(i));
+                }
+                entries.add(entry);
+            }
+            return new PutRecordsResult().withRecords(entries)
+                    .withFailedRecordCount(failedRecord < 0 ? 0 : 1);
+        }
+    }
+}
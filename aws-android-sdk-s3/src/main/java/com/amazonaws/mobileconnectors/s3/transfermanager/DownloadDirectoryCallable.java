@@ -0,0 +1,286 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.mobileconnectors.s3.transfermanager.Transfer.TransferState;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DownloadImpl;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.MultipleFileDownloadImpl;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.TransferStateChangeListener;
+import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Downloads a virtual directory while it is being listed. The pages of the
+ * virtual subdirectories are fetched concurrently by the listing thread pool,
+ * and each object is downloaded as soon as it is listed. Listing waits while
+ * {@code queueSize} objects are downloading, so that the memory of the
+ * download stays bounded however many objects the directory has.
+ * <p>
+ * The objects downloading are kept in the set of sub-transfers of the
+ * directory download until they are done, and the total bytes to transfer
+ * grow as objects are listed.
+ * <p>
+ * The directory is always listed with the "/" delimiter, and each object is
+ * saved under the destination directory at its key, every "/" of the key
+ * starting a subdirectory. Other delimiters are not supported: an object
+ * whose key is "a|b|c" is saved as a single file named "a|b|c".
+ */
+final class DownloadDirectoryCallable implements Callable<Boolean> {
+    private static final Log log = LogFactory.getLog(DownloadDirectoryCallable.class);
+
+    private static final String DELIMITER = "/";
+
+    private final TransferManager transferManager;
+    private final String bucketName;
+    private final String keyPrefix;
+    private final File destinationDirectory;
+    private final MultipleFileDownloadImpl multipleFileDownload;
+    private final Set<DownloadImpl> downloads;
+    private final ProgressListener progressListener;
+    private final ExecutorService listingPool;
+    private final int queueSize;
+    private final Semaphore permits;
+
+    /** Releases the permit of a download once it is done. */
+    private final TransferStateChangeListener stateListener = new TransferStateChangeListener() {
+        @Override
+        public void transferStateChanged(Transfer transfer, TransferState state) {
+            if (transfer.isDone()) {
+                downloadDone((DownloadImpl) transfer);
+            }
+        }
+    };
+
+    private final List<DownloadImpl> failedDownloads = new ArrayList<DownloadImpl>();
+    private boolean seenCanceled;
+    private int prefixesInProgress;
+    private Exception listingFailure;
+    private long totalBytes;
+    private volatile boolean stopped;
+
+    /**
+     * @param transferManager the transfer manager to download the objects
+     *            with.
+     * @param bucketName the bucket containing the virtual directory.
+     * @param keyPrefix the key prefix of the virtual directory.
+     * @param destinationDirectory the directory to place downloaded files.
+     * @param multipleFileDownload the directory download.
+     * @param downloads the concurrent set of sub-transfers of the directory
+     *            download.
+     * @param progressListener the listener of the progress of the objects.
+     * @param listingPool the thread pool to list the virtual subdirectories
+     *            in, shut down once the directory is listed.
+     * @param queueSize the maximum number of objects downloading at once.
+     */
+    DownloadDirectoryCallable(TransferManager transferManager, String bucketName,
+            String keyPrefix, File destinationDirectory,
+            MultipleFileDownloadImpl multipleFileDownload, Set<DownloadImpl> downloads,
+            ProgressListener progressListener, ExecutorService listingPool, int queueSize) {
+        this.transferManager = transferManager;
+        this.bucketName = bucketName;
+        this.keyPrefix = keyPrefix;
+        this.destinationDirectory = destinationDirectory;
+        this.multipleFileDownload = multipleFileDownload;
+        this.downloads = downloads;
+        this.progressListener = progressListener;
+        this.listingPool = listingPool;
+        this.queueSize = queueSize;
+        this.permits = new Semaphore(queueSize);
+    }
+
+    @Override
+    public Boolean call() throws Exception {
+        multipleFileDownload.getProgress().setTotalBytesToTransfer(0);
+        multipleFileDownload.setState(TransferState.InProgress);
+        try {
+            synchronized (this) {
+                submitPrefix(keyPrefix);
+                while (prefixesInProgress > 0 && listingFailure == null) {
+                    wait();
+                }
+            }
+            listingPool.shutdownNow();
+            // all the permits are back once the last download is done
+            permits.acquire(queueSize);
+        } catch (final InterruptedException e) {
+            // the directory download was aborted
+            stopped = true;
+            listingPool.shutdownNow();
+            for (final DownloadImpl download : downloads) {
+                abort(download);
+            }
+            multipleFileDownload.setState(TransferState.Canceled);
+            throw e;
+        }
+
+        synchronized (this) {
+            if (listingFailure != null || !failedDownloads.isEmpty()) {
+                multipleFileDownload.setState(TransferState.Failed);
+                if (listingFailure != null) {
+                    throw listingFailure;
+                }
+                throw failedDownloads.get(0).waitForException();
+            }
+            multipleFileDownload.setState(seenCanceled ? TransferState.Canceled
+                    : TransferState.Completed);
+        }
+        return true;
+    }
+
+    /**
+     * Submits the listing of a virtual directory. Must hold the lock.
+     */
+    private void submitPrefix(final String prefix) {
+        prefixesInProgress++;
+        listingPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                Exception exception = null;
+                try {
+                    listPrefix(prefix);
+                } catch (final InterruptedException e) {
+                    // the listing pool was shut down
+                } catch (final Exception e) {
+                    exception = e;
+                }
+                synchronized (DownloadDirectoryCallable.this) {
+                    prefixesInProgress--;
+                    if (exception != null && listingFailure == null) {
+                        listingFailure = exception;
+                    }
+                    DownloadDirectoryCallable.this.notifyAll();
+                }
+            }
+        });
+    }
+
+    private void listPrefix(String prefix) throws InterruptedException {
+        ObjectListing listing = transferManager.getAmazonS3Client().listObjects(
+                new ListObjectsRequest().withBucketName(bucketName)
+                        .withDelimiter(DELIMITER).withPrefix(prefix));
+        while (true) {
+            synchronized (this) {
+                for (final String commonPrefix : listing.getCommonPrefixes()) {
+                    submitPrefix(commonPrefix);
+                }
+            }
+            for (final S3ObjectSummary summary : listing.getObjectSummaries()) {
+                // Skip any files that are also virtual directories, since we
+                // can't save both a directory and a file of the same name.
+                if (summary.getKey().equals(prefix)
+                        || listing.getCommonPrefixes().contains(summary.getKey() + DELIMITER)) {
+                    log.debug("Skipping download for object " + summary.getKey()
+                            + " since it is also a virtual directory");
+                    continue;
+                }
+                download(summary);
+            }
+            if (!listing.isTruncated() || isStopped()) {
+                return;
+            }
+            listing = transferManager.getAmazonS3Client().listNextBatchOfObjects(listing);
+        }
+    }
+
+    private void download(S3ObjectSummary summary) throws InterruptedException {
+        permits.acquire();
+        if (isStopped()) {
+            permits.release();
+            throw new InterruptedException();
+        }
+        final DownloadImpl download;
+        try {
+            final File file = new File(destinationDirectory, summary.getKey());
+            final File parentFile = file.getParentFile();
+            if (!parentFile.exists() && !parentFile.mkdirs()) {
+                throw new AmazonClientException("Couldn't create parent directories for "
+                        + file.getAbsolutePath());
+            }
+            addTotalBytes(summary.getSize());
+            download = (DownloadImpl) transferManager.doDownload(
+                    new GetObjectRequest(summary.getBucketName(), summary.getKey())
+                            .withGeneralProgressListener(progressListener),
+                    file, stateListener, null, ServiceUtils.OVERWRITE_MODE);
+        } catch (final RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        /*
+         * The download may be done before it is added to the sub-transfers,
+         * so this thread checks again whether it is, and only the first of
+         * the listener and this thread to remove it releases its permit.
+         */
+        downloads.add(download);
+        if (download.isDone()) {
+            downloadDone(download);
+        } else if (stopped) {
+            abort(download);
+        }
+    }
+
+    private void abort(DownloadImpl download) {
+        try {
+            download.abort();
+        } catch (final IOException e) {
+            log.debug("Unable to abort download of " + download.getDescription(), e);
+        }
+    }
+
+    /**
+     * Returns whether the directory download was aborted, or listing stopped
+     * since it failed.
+     */
+    private boolean isStopped() {
+        return stopped || Thread.currentThread().isInterrupted();
+    }
+
+    private void downloadDone(DownloadImpl download) {
+        if (!downloads.remove(download)) {
+            return;
+        }
+        synchronized (this) {
+            if (download.getState() == TransferState.Failed) {
+                failedDownloads.add(download);
+            } else if (download.getState() == TransferState.Canceled) {
+                seenCanceled = true;
+            }
+        }
+        permits.release();
+    }
+
+    private synchronized void addTotalBytes(long bytes) {
+        totalBytes += bytes;
+        multipleFileDownload.getProgress().setTotalBytesToTransfer(totalBytes);
+    }
+}
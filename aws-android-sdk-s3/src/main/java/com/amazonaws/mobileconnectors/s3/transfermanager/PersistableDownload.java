@@ -64,6 +64,22 @@ public final class PersistableDownload extends PersistableTransfer {
      */
     private final String file;
 
+    /**
+     * The size of the ranges of a ranged download, or -1 if the object is
+     * downloaded in one request.
+     */
+    private final long partSize;
+
+    /**
+     * The ETag of the object the completed ranges were downloaded from.
+     */
+    private final String eTag;
+
+    /**
+     * The numbers, starting at 1, of the ranges already written to the file.
+     */
+    private final int[] completedParts;
+
     @Deprecated
     public PersistableDownload() {
         this(null, null, null, null, null, false, null);
@@ -77,6 +93,21 @@ public final class PersistableDownload extends PersistableTransfer {
             ResponseHeaderOverrides responseHeaders,
             boolean isRequesterPays,
             String file) {
+        this(bucketName, key, versionId, range, responseHeaders, isRequesterPays, file, -1,
+                null, null);
+    }
+
+    public PersistableDownload(
+            String bucketName,
+            String key,
+            String versionId,
+            long[] range,
+            ResponseHeaderOverrides responseHeaders,
+            boolean isRequesterPays,
+            String file,
+            long partSize,
+            String eTag,
+            int[] completedParts) {
         this.bucketName = bucketName;
         this.key = key;
         this.versionId = versionId;
@@ -84,6 +115,9 @@ public final class PersistableDownload extends PersistableTransfer {
         this.responseHeaders = responseHeaders;
         this.isRequesterPays = isRequesterPays;
         this.file = file;
+        this.partSize = partSize;
+        this.eTag = eTag;
+        this.completedParts = completedParts == null ? null : completedParts.clone();
     }
 
     /**
@@ -136,6 +170,29 @@ public final class PersistableDownload extends PersistableTransfer {
         return file;
     }
 
+    /**
+     * Returns the size of the ranges of a ranged download, or -1 if the
+     * object is downloaded in one request.
+     */
+    long getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * Returns the ETag of the object the completed ranges were downloaded
+     * from.
+     */
+    String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Returns the numbers of the ranges already written to the file.
+     */
+    int[] getCompletedParts() {
+        return completedParts == null ? null : completedParts.clone();
+    }
+
     String getPauseType() {
         return pauseType;
     }
@@ -169,6 +226,19 @@ public final class PersistableDownload extends PersistableTransfer {
                         .name("contentEncoding").value(responseHeaders.getContentEncoding())
                         .endObject();
             }
+            if (partSize > 0) {
+                writer.name("partSize").value(partSize);
+                if (eTag != null) {
+                    writer.name("eTag").value(eTag);
+                }
+                if (completedParts != null) {
+                    writer.name("completedParts").beginArray();
+                    for (int part : completedParts) {
+                        writer.value(part);
+                    }
+                    writer.endArray();
+                }
+            }
             writer.endObject().close();
         } catch (IOException e) {
             throw new IllegalStateException(e);
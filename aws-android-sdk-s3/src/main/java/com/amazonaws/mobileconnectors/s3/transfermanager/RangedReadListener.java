@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import com.amazonaws.mobileconnectors.s3.transfermanager.model.RangedReadResult;
+
+/**
+ * This is the callback interface which is used by
+ * TransferManager.readRanges. The callback is invoked once for each range, as
+ * soon as the range is read or fails to be, from the thread that read it.
+ *
+ * @deprecated The Transfer Manager is now deprecated in favor of the
+ *             {@link com.amazonaws.mobileconnectors.s3.transferutility.TransferUtility}
+ */
+@Deprecated
+public interface RangedReadListener {
+
+    /**
+     * This method is called for every range of a batch of ranged reads, in
+     * the order the reads complete. The next range is not read by the thread
+     * until this method returns, so it should return quickly.
+     *
+     * @param result The data of the range, or the reason it couldn't be read.
+     */
+    public void rangeRead(RangedReadResult result);
+
+}
@@ -15,6 +15,7 @@
 
 package com.amazonaws.mobileconnectors.s3.transfermanager;
 
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
 import static com.amazonaws.services.s3.internal.ServiceUtils.APPEND_MODE;
 import static com.amazonaws.services.s3.internal.ServiceUtils.OVERWRITE_MODE;
 
@@ -33,19 +34,23 @@ import com.amazonaws.mobileconnectors.s3.transfermanager.Transfer.TransferState;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.CopyCallable;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.CopyImpl;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.CopyMonitor;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DownloadCallable;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DownloadImpl;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DownloadMonitor;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.MultipleFileDownloadImpl;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.MultipleFileTransferMonitor;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.MultipleFileUploadImpl;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.RangedReader;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.S3ProgressListener;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.S3ProgressListenerChain;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.TransferManagerUtils;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.TransferMonitor;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.TransferProgressUpdatingListener;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.TransferStateChangeListener;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.UploadCallable;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.UploadImpl;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.UploadMonitor;
+import com.amazonaws.mobileconnectors.s3.transfermanager.model.RangedReadResult;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.AmazonS3EncryptionClient;
@@ -72,13 +77,19 @@ import com.amazonaws.logging.LogFactory;
 import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.Stack;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -594,10 +605,23 @@ public class TransferManager {
      *
      * @see TransferManager#download(GetObjectRequest, File)
      */
-    private Download doDownload(final GetObjectRequest getObjectRequest,
+    Download doDownload(final GetObjectRequest getObjectRequest,
             final File file, final TransferStateChangeListener stateListener,
             final S3ProgressListener s3progressListener,
             final boolean resumeExistingDownload) {
+        return doDownload(getObjectRequest, file, stateListener, s3progressListener,
+                resumeExistingDownload, null);
+    }
+
+    /**
+     * Same as above, but resumes the ranges of a paused ranged download if the
+     * object and the file are still the ones it was paused with.
+     */
+    private Download doDownload(final GetObjectRequest getObjectRequest,
+            final File file, final TransferStateChangeListener stateListener,
+            final S3ProgressListener s3progressListener,
+            final boolean resumeExistingDownload,
+            final PersistableDownload pausedDownload) {
 
         appendSingleObjectUserAgent(getObjectRequest);
 
@@ -661,6 +685,46 @@ public class TransferManager {
         long totalBytesToDownload = lastByte - startingByte + 1;
         transferProgress.setTotalBytesToTransfer(totalBytesToDownload);
 
+        if (shouldUseRangedDownload(getObjectRequest, objectMetadata)) {
+            final long contentLength = objectMetadata.getContentLength();
+            long partSize = Math.max(configuration.getMinimumDownloadPartSize(),
+                    (long) Math.ceil((double) contentLength / MAXIMUM_UPLOAD_PARTS));
+            final Set<Integer> completedParts = new HashSet<Integer>();
+            if (pausedDownload != null && pausedDownload.getPartSize() > 0
+                    && pausedDownload.getCompletedParts() != null
+                    && objectMetadata.getETag() != null
+                    && objectMetadata.getETag().equals(pausedDownload.getETag())
+                    && file.length() == contentLength) {
+                partSize = pausedDownload.getPartSize();
+                for (final int part : pausedDownload.getCompletedParts()) {
+                    completedParts.add(part);
+                }
+            }
+            long bytesAlreadyDownloaded = 0;
+            for (final int part : completedParts) {
+                bytesAlreadyDownloaded += Math.min(partSize, contentLength - (part - 1) * partSize);
+            }
+            transferProgress.updateProgress(bytesAlreadyDownloaded);
+
+            // there is no single response to take the object from
+            final S3Object s3Object = new S3Object();
+            s3Object.setBucketName(getObjectRequest.getBucketName());
+            s3Object.setKey(getObjectRequest.getKey());
+            s3Object.setObjectMetadata(objectMetadata);
+            download.setS3Object(s3Object);
+            download.setRangedDownload(partSize, objectMetadata.getETag(),
+                    Collections.unmodifiableSet(completedParts));
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            final Future<?> future = submitDownloadTask(getObjectRequest, file,
+                    resumeExistingDownload, latch, download,
+                    new DownloadCallable(s3, threadPool, download, getObjectRequest, file,
+                            objectMetadata, partSize, completedParts));
+            download.setMonitor(new DownloadMonitor(download, future));
+            latch.countDown();
+            return download;
+        }
+
         if (resumeExistingDownload) {
             if (file.exists()) {
                 final long numberOfBytesRead = file.length();
@@ -679,7 +743,7 @@ public class TransferManager {
 
         final CountDownLatch latch = new CountDownLatch(1);
         final Future<?> future = submitDownloadTask(getObjectRequest, file,
-                resumeExistingDownload, latch, download);
+                resumeExistingDownload, latch, download, null);
         download.setMonitor(new DownloadMonitor(download, future));
         latch.countDown();
         return download;
@@ -689,13 +753,19 @@ public class TransferManager {
             final GetObjectRequest getObjectRequest, final File file,
             final boolean resumeExistingDownload,
             final CountDownLatch latch,
-            final DownloadImpl download) {
+            final DownloadImpl download,
+            final DownloadCallable rangedDownload) {
         final Future<?> future = threadPool.submit(new Callable<Object>() {
             @Override
             public Object call() throws Exception {
                 try {
                     latch.await();
                     download.setState(TransferState.InProgress);
+                    if (rangedDownload != null) {
+                        rangedDownload.call();
+                        download.setState(TransferState.Completed);
+                        return true;
+                    }
                     final S3Object s3Object = ServiceUtils.retryableDownloadS3ObjectToFile(file,
                             new ServiceUtils.RetryableS3DownloadTask() {
 
@@ -747,6 +817,20 @@ public class TransferManager {
         return future;
     }
 
+    /**
+     * Returns whether to download the object in byte ranges fetched in
+     * parallel. Only whole objects are, and not through the encryption client
+     * which decrypts objects as a whole.
+     */
+    private boolean shouldUseRangedDownload(GetObjectRequest getObjectRequest,
+            ObjectMetadata objectMetadata) {
+        return getObjectRequest.getRange() == null
+                && !(s3 instanceof AmazonS3EncryptionClient)
+                && objectMetadata.getContentLength() > 0
+                && objectMetadata.getContentLength() >= configuration
+                        .getMultipartDownloadThreshold();
+    }
+
     /**
      * Downloads all objects in the virtual directory designated by the
      * keyPrefix given to the destination directory given. All virtual
@@ -758,6 +842,7 @@ public class TransferManager {
      *            recursively.
      * @param destinationDirectory The directory to place downloaded files.
      *            Subdirectories will be created as necessary.
+     * @see TransferManagerConfiguration#setDirectoryDownloadQueueSize(int)
      */
     public MultipleFileDownload downloadDirectory(String bucketName, String keyPrefix,
             File destinationDirectory) {
@@ -766,6 +851,10 @@ public class TransferManager {
             keyPrefix = "";
         }
 
+        if (configuration.getDirectoryDownloadQueueSize() > 0) {
+            return downloadDirectoryWhileListing(bucketName, keyPrefix, destinationDirectory);
+        }
+
         final List<S3ObjectSummary> objectSummaries = new LinkedList<S3ObjectSummary>();
         final Stack<String> commonPrefixes = new Stack<String>();
         commonPrefixes.add(keyPrefix);
@@ -865,6 +954,111 @@ public class TransferManager {
         return multipleFileDownload;
     }
 
+    /**
+     * Downloads the objects of a virtual directory as they are listed, with
+     * at most {@link TransferManagerConfiguration#getDirectoryDownloadQueueSize()}
+     * objects downloading at once. Listing and waiting for the downloads run
+     * on threads of their own, so that they never hold a thread of the pool
+     * the downloads need.
+     */
+    private MultipleFileDownload downloadDirectoryWhileListing(String bucketName,
+            String keyPrefix, File destinationDirectory) {
+        /* This is the hook for adding additional progress listeners */
+        final ProgressListenerChain additionalListeners = new ProgressListenerChain();
+
+        final TransferProgress transferProgress = new TransferProgress();
+        final ProgressListener listener = new MultipleFileTransferProgressUpdatingListener(
+                transferProgress, additionalListeners);
+
+        // The downloads in progress, removed as they are done
+        final Set<DownloadImpl> downloads = Collections
+                .newSetFromMap(new ConcurrentHashMap<DownloadImpl, Boolean>());
+
+        final String description = "Downloading from " + bucketName + "/" + keyPrefix;
+        final MultipleFileDownloadImpl multipleFileDownload = new MultipleFileDownloadImpl(
+                description, transferProgress,
+                additionalListeners, keyPrefix, bucketName, downloads);
+
+        final ExecutorService listingPool = Executors.newFixedThreadPool(
+                DIRECTORY_LISTING_THREADS, daemonThreadFactory);
+        final ExecutorService coordinator = Executors.newSingleThreadExecutor(daemonThreadFactory);
+        final Future<Boolean> future = coordinator.submit(new DownloadDirectoryCallable(this,
+                bucketName, keyPrefix, destinationDirectory, multipleFileDownload, downloads,
+                listener, listingPool, configuration.getDirectoryDownloadQueueSize()));
+        coordinator.shutdown();
+
+        multipleFileDownload.setMonitor(new TransferMonitor() {
+            @Override
+            public Future<?> getFuture() {
+                return future;
+            }
+
+            @Override
+            public boolean isDone() {
+                return future.isDone();
+            }
+        });
+        return multipleFileDownload;
+    }
+
+    /**
+     * Reads ranges of objects, such as their first few kilobytes, at most the
+     * given number at a time, and returns them as they are read. This method
+     * is non-blocking and returns immediately; the returned iterator blocks
+     * until the next range is read.
+     * <p>
+     * The ranges are returned in the order the reads complete, not the order
+     * of the requests. A range that fails to be read is returned with the
+     * reason, without failing the others.
+     *
+     * @param getObjectRequests The requests for the ranges to read, each with
+     *            its bucket, key and range.
+     * @param maxConcurrency The most ranges read at the same time.
+     * @return An iterator over the ranges, in the order they are read.
+     * @see GetObjectRequest#setRange(long, long)
+     */
+    public Iterator<RangedReadResult> readRanges(List<GetObjectRequest> getObjectRequests,
+            int maxConcurrency) {
+        final RangedReader.ResultIterator results = new RangedReader.ResultIterator(
+                getObjectRequests == null ? 0 : getObjectRequests.size());
+        readRanges(getObjectRequests, maxConcurrency, results);
+        return results;
+    }
+
+    /**
+     * Reads ranges of objects, such as their first few kilobytes, at most the
+     * given number at a time, and hands each range to the listener as soon as
+     * it is read. This method is non-blocking and returns immediately.
+     * <p>
+     * The listener is called once for every range, from the thread that read
+     * it. A range that fails to be read is handed to the listener with the
+     * reason, without failing the others.
+     *
+     * @param getObjectRequests The requests for the ranges to read, each with
+     *            its bucket, key and range.
+     * @param maxConcurrency The most ranges read at the same time.
+     * @param listener The callback to hand each range to.
+     * @see GetObjectRequest#setRange(long, long)
+     */
+    public void readRanges(List<GetObjectRequest> getObjectRequests, int maxConcurrency,
+            RangedReadListener listener) {
+        assertParameterNotNull(getObjectRequests,
+                "The get object requests must be provided to read ranges.");
+        assertParameterNotNull(listener, "A listener must be provided to read ranges.");
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        final List<GetObjectRequest> requests = new ArrayList<GetObjectRequest>(
+                getObjectRequests);
+        for (final GetObjectRequest request : requests) {
+            assertParameterNotNull(request, "The get object requests must not be null.");
+            assertParameterNotNull(request.getRange(),
+                    "A range must be provided for each object to read: " + request.getKey());
+            appendSingleObjectUserAgent(request);
+        }
+        new RangedReader(s3, threadPool, requests, listener).start(maxConcurrency);
+    }
+
     /**
      * Uploads all files in the directory given to the bucket named, optionally
      * recursing for all subdirectories.
@@ -1177,6 +1371,9 @@ public class TransferManager {
 
     private static final String DEFAULT_DELIMITER = "/";
 
+    /** The number of virtual subdirectories listed at once by a directory download. */
+    private static final int DIRECTORY_LISTING_THREADS = 4;
+
     /**
      * There is no need for threads from timedThreadPool if there is no more
      * running threads in current process, so we need a daemon thread factory
@@ -1403,7 +1600,7 @@ public class TransferManager {
         request.setResponseHeaders(persistableDownload.getResponseHeaders());
 
         return doDownload(request, new File(persistableDownload.getFile()), null, null,
-                APPEND_MODE);
+                APPEND_MODE, persistableDownload);
     }
 
     /**
@@ -47,6 +47,9 @@ public class TransferManagerConfiguration {
     /** Default minimum size of each part for multi-part copy. */
     private static final long DEFAULT_MINIMUM_COPY_PART_SIZE = 100 * MB;
 
+    /** Default minimum size of each range of a ranged download. */
+    private static final long DEFAULT_MINIMUM_DOWNLOAD_PART_SIZE = 8 * MB;
+
     /**
      * The minimum part size for upload parts. Decreasing the minimum part size
      * will cause multipart uploads to be split into a larger number of smaller
@@ -85,6 +88,24 @@ public class TransferManagerConfiguration {
      */
     private long multipartCopyPartSize = DEFAULT_MINIMUM_COPY_PART_SIZE;
 
+    /**
+     * The size threshold, in bytes, for when to download objects in byte
+     * ranges fetched in parallel. Ranged downloads are disabled by default.
+     */
+    private long multipartDownloadThreshold = Long.MAX_VALUE;
+
+    /**
+     * The minimum size in bytes of each range of a ranged download.
+     */
+    private long minimumDownloadPartSize = DEFAULT_MINIMUM_DOWNLOAD_PART_SIZE;
+
+    /**
+     * The maximum number of objects of a directory download queued or in
+     * progress at once, or zero to list the whole directory before
+     * downloading it.
+     */
+    private int directoryDownloadQueueSize = 0;
+
     /**
      * Returns the minimum part size for upload parts. Decreasing the minimum
      * part size causes multipart uploads to be split into a larger number of
@@ -192,4 +213,82 @@ public class TransferManagerConfiguration {
     public void setMultipartCopyThreshold(long multipartCopyThreshold) {
         this.multipartCopyThreshold = multipartCopyThreshold;
     }
+
+    /**
+     * Returns the size threshold in bytes for when to download objects in
+     * byte ranges fetched in parallel. Downloads of objects over this size
+     * are split in ranges of at least {@link #getMinimumDownloadPartSize()}
+     * bytes, written in place into the file, and can be resumed range by
+     * range. Ranged downloads are disabled by default.
+     *
+     * @return The size threshold in bytes for when to use ranged downloads.
+     */
+    public long getMultipartDownloadThreshold() {
+        return multipartDownloadThreshold;
+    }
+
+    /**
+     * Sets the size threshold in bytes for when to download objects in byte
+     * ranges fetched in parallel. Downloads of objects over this size are
+     * split in ranges of at least {@link #getMinimumDownloadPartSize()}
+     * bytes, written in place into the file, and can be resumed range by
+     * range.
+     *
+     * @param multipartDownloadThreshold The size threshold in bytes for when
+     *            to use ranged downloads, or Long.MAX_VALUE to disable them.
+     */
+    public void setMultipartDownloadThreshold(long multipartDownloadThreshold) {
+        this.multipartDownloadThreshold = multipartDownloadThreshold;
+    }
+
+    /**
+     * Returns the minimum size in bytes of each range of a ranged download.
+     *
+     * @return The minimum size in bytes of each range of a ranged download.
+     */
+    public long getMinimumDownloadPartSize() {
+        return minimumDownloadPartSize;
+    }
+
+    /**
+     * Sets the minimum size in bytes of each range of a ranged download.
+     * Smaller ranges spread a download over more connections, at the cost of
+     * a request per range.
+     *
+     * @param minimumDownloadPartSize The minimum size in bytes of each range
+     *            of a ranged download.
+     */
+    public void setMinimumDownloadPartSize(long minimumDownloadPartSize) {
+        this.minimumDownloadPartSize = minimumDownloadPartSize;
+    }
+
+    /**
+     * Returns the maximum number of objects of a directory download queued or
+     * in progress at once. When positive, the objects of a directory are
+     * downloaded as its listing pages arrive, the pages of its virtual
+     * subdirectories being fetched concurrently, and listing waits while
+     * that many objects are downloading. Zero, the default, lists the whole
+     * directory before downloading it.
+     *
+     * @return The maximum number of objects of a directory download queued
+     *         or in progress at once, or zero.
+     */
+    public int getDirectoryDownloadQueueSize() {
+        return directoryDownloadQueueSize;
+    }
+
+    /**
+     * Sets the maximum number of objects of a directory download queued or in
+     * progress at once. A positive size downloads the objects of a directory
+     * as they are listed, keeping the memory of the download bounded however
+     * many objects the directory has; the total bytes to transfer then grow
+     * as objects are listed.
+     *
+     * @param directoryDownloadQueueSize The maximum number of objects of a
+     *            directory download queued or in progress at once, or zero
+     *            to list the whole directory first.
+     */
+    public void setDirectoryDownloadQueueSize(int directoryDownloadQueueSize) {
+        this.directoryDownloadQueueSize = directoryDownloadQueueSize;
+    }
 }
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.mobileconnectors.s3.transfermanager.TransferManager;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads an object in byte ranges fetched in parallel, each written in
+ * place into the file.
+ * <p>
+ * The ranges are taken in turn by this callable and by helpers submitted to
+ * the thread pool of the transfer manager, so that the download goes on even
+ * if the pool has no thread to spare; this callable only waits for the ranges
+ * other threads are downloading, never for helpers still queued.
+ */
+public class DownloadCallable implements Callable<Boolean> {
+    private static final Log log = LogFactory.getLog(DownloadCallable.class);
+
+    private final AmazonS3 s3;
+    private final ExecutorService threadPool;
+    private final DownloadImpl download;
+    private final GetObjectRequest getObjectRequest;
+    private final File file;
+    private final ObjectMetadata objectMetadata;
+    private final long partSize;
+
+    /** The numbers of the ranges left to download. */
+    private final Queue<Integer> parts = new LinkedList<Integer>();
+    private final Set<S3Object> openObjects = new HashSet<S3Object>();
+    private int partsInProgress;
+    private Exception failure;
+    private FileChannel channel;
+
+    /**
+     * @param s3 the client to download the ranges with.
+     * @param threadPool the thread pool to run helpers in.
+     * @param download the download.
+     * @param getObjectRequest the request for the whole object.
+     * @param file the file to write the object to.
+     * @param objectMetadata the metadata of the object.
+     * @param partSize the size of the ranges.
+     * @param completedParts the numbers of the ranges already in the file.
+     */
+    public DownloadCallable(AmazonS3 s3, ExecutorService threadPool, DownloadImpl download,
+            GetObjectRequest getObjectRequest, File file, ObjectMetadata objectMetadata,
+            long partSize, Collection<Integer> completedParts) {
+        this.s3 = s3;
+        this.threadPool = threadPool;
+        this.download = download;
+        this.getObjectRequest = getObjectRequest;
+        this.file = file;
+        this.objectMetadata = objectMetadata;
+        this.partSize = partSize;
+
+        final int partCount = getPartCount(objectMetadata.getContentLength(), partSize);
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            if (!completedParts.contains(partNumber)) {
+                parts.add(partNumber);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of ranges of the given size in an object.
+     *
+     * @param contentLength the size of the object.
+     * @param partSize the size of the ranges.
+     * @return the number of ranges.
+     */
+    public static int getPartCount(long contentLength, long partSize) {
+        return (int) ((contentLength + partSize - 1) / partSize);
+    }
+
+    @Override
+    public Boolean call() throws Exception {
+        final File parentDirectory = file.getParentFile();
+        if (parentDirectory != null && !parentDirectory.mkdirs()
+                && !parentDirectory.isDirectory()) {
+            throw new AmazonClientException("Unable to create the directory "
+                    + parentDirectory.getAbsolutePath());
+        }
+        final List<Future<?>> helpers = new ArrayList<Future<?>>();
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(objectMetadata.getContentLength());
+            channel = randomAccessFile.getChannel();
+
+            final int helperCount;
+            synchronized (this) {
+                helperCount = parts.size() - 1;
+            }
+            for (int i = 0; i < helperCount; i++) {
+                helpers.add(threadPool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        downloadParts();
+                    }
+                }));
+            }
+            downloadParts();
+
+            synchronized (this) {
+                while (partsInProgress > 0) {
+                    wait();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        } catch (final InterruptedException e) {
+            synchronized (this) {
+                failure = e;
+                // unblock the helpers reading from the network
+                for (final S3Object s3Object : openObjects) {
+                    s3Object.getObjectContent().abort();
+                }
+            }
+            throw e;
+        } finally {
+            for (final Future<?> helper : helpers) {
+                helper.cancel(false);
+            }
+            try {
+                randomAccessFile.close();
+            } catch (final IOException e) {
+                log.debug("Unable to close file " + file, e);
+            }
+        }
+
+        if (!ServiceUtils.skipMd5CheckPerRequest(getObjectRequest)
+                && !ServiceUtils.skipMd5CheckPerResponse(objectMetadata)) {
+            try {
+                ServiceUtils.verifyDownloadedFile(file, objectMetadata.getETag());
+            } catch (final AmazonClientException e) {
+                // a resumed download would keep the corrupted ranges
+                file.delete();
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Downloads ranges until none is left or one fails.
+     */
+    private void downloadParts() {
+        Integer partNumber;
+        while ((partNumber = nextPart()) != null) {
+            Exception exception = null;
+            try {
+                downloadPart(partNumber);
+                download.partCompleted(partNumber);
+            } catch (final Exception e) {
+                exception = e;
+            }
+            synchronized (this) {
+                partsInProgress--;
+                if (exception != null && failure == null) {
+                    failure = exception;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized Integer nextPart() {
+        if (failure != null || Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        final Integer partNumber = parts.poll();
+        if (partNumber != null) {
+            partsInProgress++;
+        }
+        return partNumber;
+    }
+
+    private void downloadPart(int partNumber) {
+        final long rangeStart = (partNumber - 1) * partSize;
+        final long rangeLast = Math.min(rangeStart + partSize,
+                objectMetadata.getContentLength()) - 1;
+
+        final GetObjectRequest partRequest = new GetObjectRequest(
+                getObjectRequest.getBucketName(), getObjectRequest.getKey(),
+                getObjectRequest.getVersionId())
+                .withRange(rangeStart, rangeLast)
+                .withResponseHeaders(getObjectRequest.getResponseHeaders())
+                .withRequesterPays(getObjectRequest.isRequesterPays())
+                .withSSECustomerKey(getObjectRequest.getSSECustomerKey())
+                .withMatchingETagConstraint(objectMetadata.getETag());
+        partRequest.setGeneralProgressListener(getObjectRequest.getGeneralProgressListener());
+        TransferManager.appendMultipartUserAgent(partRequest);
+
+        final S3Object s3Object = s3.getObject(partRequest);
+        if (s3Object == null) {
+            throw new AmazonClientException("Object " + getObjectRequest.getKey()
+                    + " was modified during the download");
+        }
+        synchronized (this) {
+            openObjects.add(s3Object);
+        }
+        try {
+            final long bytesWritten = ServiceUtils.downloadObjectToFileChannel(s3Object,
+                    channel, rangeStart);
+            if (bytesWritten != rangeLast - rangeStart + 1) {
+                throw new AmazonClientException("Received " + bytesWritten + " bytes of range "
+                        + partNumber + " of " + getObjectRequest.getKey() + " instead of "
+                        + (rangeLast - rangeStart + 1));
+            }
+        } finally {
+            synchronized (this) {
+                openObjects.remove(s3Object);
+            }
+        }
+    }
+}
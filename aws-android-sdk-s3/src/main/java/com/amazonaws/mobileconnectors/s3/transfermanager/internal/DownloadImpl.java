@@ -27,6 +27,9 @@ import com.amazonaws.services.s3.model.S3Object;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 public class DownloadImpl extends AbstractTransfer implements Download {
 
@@ -37,12 +40,34 @@ public class DownloadImpl extends AbstractTransfer implements Download {
      */
     private final PersistableDownload persistableDownload;
 
+    private final GetObjectRequest getObjectRequest;
+    private final File file;
+
+    /**
+     * The size of the ranges of a ranged download, or -1 if the object is
+     * downloaded in one request.
+     */
+    private long partSize = -1;
+
+    /**
+     * The ETag of the object the ranges are downloaded from.
+     */
+    private String eTag;
+
+    /**
+     * The numbers of the ranges written to the file, which a resumed download
+     * skips.
+     */
+    private final SortedSet<Integer> completedParts = new TreeSet<Integer>();
+
     public DownloadImpl(String description, TransferProgress transferProgress,
             ProgressListenerChain progressListenerChain, S3Object s3Object,
             TransferStateChangeListener listener,
             GetObjectRequest getObjectRequest, File file) {
         super(description, transferProgress, progressListenerChain, listener);
         this.s3Object = s3Object;
+        this.getObjectRequest = getObjectRequest;
+        this.file = file;
         this.persistableDownload = captureDownloadState(getObjectRequest, file);
         S3ProgressPublisher.publishTransferPersistable(progressListenerChain,
                 persistableDownload);
@@ -88,7 +113,8 @@ public class DownloadImpl extends AbstractTransfer implements Download {
 
         this.monitor.getFuture().cancel(true);
 
-        if (s3Object != null) {
+        // a ranged download has no content of its own
+        if (s3Object != null && s3Object.getObjectContent() != null) {
             s3Object.getObjectContent().abort();
         }
         setState(TransferState.Canceled);
@@ -115,6 +141,28 @@ public class DownloadImpl extends AbstractTransfer implements Download {
         this.s3Object = s3Object;
     }
 
+    /**
+     * Makes this download a ranged download.
+     *
+     * @param partSize the size of the ranges.
+     * @param eTag the ETag of the object the ranges are downloaded from.
+     * @param completedParts the numbers of the ranges already in the file.
+     */
+    public synchronized void setRangedDownload(long partSize, String eTag,
+            Collection<Integer> completedParts) {
+        this.partSize = partSize;
+        this.eTag = eTag;
+        this.completedParts.clear();
+        this.completedParts.addAll(completedParts);
+    }
+
+    /**
+     * Records that a range of a ranged download was written to the file.
+     */
+    synchronized void partCompleted(int partNumber) {
+        completedParts.add(partNumber);
+    }
+
     /**
      * This method is also responsible for firing COMPLETED signal to the
      * listeners.
@@ -145,6 +193,25 @@ public class DownloadImpl extends AbstractTransfer implements Download {
         return null;
     }
 
+    /**
+     * Returns the state of a ranged download with the ranges completed so
+     * far, which change as the download goes on.
+     */
+    private synchronized PersistableDownload captureRangedDownloadState() {
+        final int[] parts = new int[completedParts.size()];
+        int i = 0;
+        for (final Integer part : completedParts) {
+            parts[i++] = part;
+        }
+        return new PersistableDownload(
+                getObjectRequest.getBucketName(),
+                getObjectRequest.getKey(), getObjectRequest.getVersionId(),
+                getObjectRequest.getRange(),
+                getObjectRequest.getResponseHeaders(),
+                getObjectRequest.isRequesterPays(), file.getAbsolutePath(),
+                partSize, eTag, parts);
+    }
+
     /*
      * (non-Javadoc)
      * @see com.amazonaws.mobileconnectors.s3.transfermanager.Download#pause()
@@ -159,6 +226,11 @@ public class DownloadImpl extends AbstractTransfer implements Download {
             throw new PauseException(TransferManagerUtils.determinePauseStatus(
                     currentState, forceCancel));
         }
+        synchronized (this) {
+            if (partSize > 0) {
+                return captureRangedDownloadState();
+            }
+        }
         return persistableDownload;
     }
 }
@@ -73,7 +73,9 @@ public class MultipleFileDownloadImpl extends MultipleFileTransfer<Download> imp
     @Override
     public void waitForCompletion()
             throws AmazonClientException, AmazonServiceException, InterruptedException {
-        if (subTransfers.isEmpty())
+        // a directory downloaded while listed has no sub-transfers left once
+        // it is done, but may have failed
+        if (subTransfers.isEmpty() && getState() == TransferState.Completed)
             return;
         super.waitForCompletion();
     }
@@ -83,6 +85,12 @@ public class MultipleFileDownloadImpl extends MultipleFileTransfer<Download> imp
      */
     @Override
     public void abort() throws IOException {
+        /*
+         * Stop listing a directory downloaded while listed, so that no
+         * download starts past this point.
+         */
+        getMonitor().getFuture().cancel(true);
+
         /*
          * The abort() method of DownloadImpl would attempt to notify its
          * TransferStateChangeListener BEFORE it releases its intrinsic lock.
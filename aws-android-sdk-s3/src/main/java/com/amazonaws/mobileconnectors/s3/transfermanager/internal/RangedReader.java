@@ -0,0 +1,223 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.mobileconnectors.s3.transfermanager.RangedReadListener;
+import com.amazonaws.mobileconnectors.s3.transfermanager.model.RangedReadResult;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.IOUtils;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reads a batch of ranges of objects on a thread pool, a bounded number at a
+ * time, and hands each range to a listener as soon as it is read. Each thread
+ * that finishes a range goes on to the next one not yet started, so the
+ * batch never takes more than its share of the pool.
+ * <p>
+ * Each range is read to its end and its stream closed before the next, which
+ * leaves the connection free for the client to reuse. Ranged reads aren't
+ * checked against the MD5 of the object, since the ETag is that of the whole
+ * object.
+ */
+public class RangedReader {
+    private static final Log log = LogFactory.getLog(RangedReader.class);
+
+    private final AmazonS3 s3;
+    private final ExecutorService threadPool;
+    private final RangedReadListener listener;
+    /** The requests not yet started; guarded by this. */
+    private final Iterator<GetObjectRequest> pending;
+
+    /**
+     * @param s3 The client to read the ranges with.
+     * @param threadPool The thread pool to read the ranges on.
+     * @param requests The requests for the ranges to read.
+     * @param listener The listener to hand each range to.
+     */
+    public RangedReader(AmazonS3 s3, ExecutorService threadPool,
+            List<GetObjectRequest> requests, RangedReadListener listener) {
+        this.s3 = s3;
+        this.threadPool = threadPool;
+        this.listener = listener;
+        this.pending = requests.iterator();
+    }
+
+    /**
+     * Starts reading the ranges, at most the given number at a time, and
+     * returns immediately.
+     *
+     * @param maxConcurrency The most ranges read at the same time.
+     */
+    public void start(int maxConcurrency) {
+        for (int i = 0; i < maxConcurrency; i++) {
+            if (!readNext()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Schedules the read of the next range not yet started.
+     *
+     * @return False if there is no range left to start.
+     */
+    private boolean readNext() {
+        while (true) {
+            final GetObjectRequest request;
+            synchronized (this) {
+                if (!pending.hasNext()) {
+                    return false;
+                }
+                request = pending.next();
+            }
+            try {
+                threadPool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            notifyListener(read(request));
+                        } finally {
+                            readNext();
+                        }
+                    }
+                });
+                return true;
+            } catch (final RejectedExecutionException e) {
+                // the pool has been shut down; fail the range and go on to
+                // the next, so that every range is handed to the listener
+                notifyListener(failed(request, new AmazonClientException(
+                        "Unable to schedule the read of " + request.getKey(), e)));
+            }
+        }
+    }
+
+    private RangedReadResult read(GetObjectRequest request) {
+        final RangedReadResult result = new RangedReadResult();
+        result.setRequest(request);
+        S3Object object = null;
+        try {
+            object = s3.getObject(request);
+            if (object != null) {
+                result.setObjectMetadata(object.getObjectMetadata());
+                result.setContent(IOUtils.toByteArray(object.getObjectContent()));
+            }
+        } catch (final AmazonClientException e) {
+            result.setException(e);
+        } catch (final IOException e) {
+            result.setException(new AmazonClientException(
+                    "Unable to read the range of " + request.getKey(), e));
+        } catch (final RuntimeException e) {
+            result.setException(new AmazonClientException(
+                    "Unable to read the range of " + request.getKey(), e));
+        } finally {
+            if (object != null) {
+                try {
+                    object.close();
+                } catch (final IOException e) {
+                    log.debug("Unable to close the content of " + request.getKey(), e);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void notifyListener(RangedReadResult result) {
+        try {
+            listener.rangeRead(result);
+        } catch (final RuntimeException e) {
+            // the other ranges are still handed to the listener
+            log.warn("Ranged read listener failed for " + result.getRequest().getKey(), e);
+        }
+    }
+
+    private static RangedReadResult failed(GetObjectRequest request,
+            AmazonClientException exception) {
+        final RangedReadResult result = new RangedReadResult();
+        result.setRequest(request);
+        result.setException(exception);
+        return result;
+    }
+
+    /**
+     * A listener that queues the ranges as they are read, and hands them out
+     * as an iterator in the order the reads complete. The iterator blocks
+     * until the next range is read.
+     */
+    public static final class ResultIterator implements RangedReadListener,
+            Iterator<RangedReadResult> {
+        private final BlockingQueue<RangedReadResult> results =
+                new LinkedBlockingQueue<RangedReadResult>();
+        private final int count;
+        private int returned;
+
+        /**
+         * @param count The number of ranges in the batch.
+         */
+        public ResultIterator(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void rangeRead(RangedReadResult result) {
+            results.add(result);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return returned < count;
+        }
+
+        /**
+         * Returns the next range read, waiting for it if needed.
+         *
+         * @throws AbortedException if interrupted while waiting.
+         */
+        @Override
+        public RangedReadResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                final RangedReadResult result = results.take();
+                returned++;
+                return result;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AbortedException(e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
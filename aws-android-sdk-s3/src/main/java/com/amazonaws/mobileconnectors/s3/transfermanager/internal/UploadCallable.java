@@ -15,6 +15,7 @@
 
 package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.event.ProgressEvent;
 import com.amazonaws.event.ProgressListenerCallbackExecutor;
 import com.amazonaws.event.ProgressListenerChain;
@@ -47,12 +48,17 @@ import com.amazonaws.logging.LogFactory;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class UploadCallable implements Callable<UploadResult> {
     private final AmazonS3 s3;
@@ -62,6 +68,12 @@ public class UploadCallable implements Callable<UploadResult> {
     private final UploadImpl upload;
 
     private static final Log log = LogFactory.getLog(UploadCallable.class);
+
+    /**
+     * The pool the parts of pipelined encrypted uploads run on: separate from
+     * the transfer thread pool, which runs the upload that waits for them.
+     */
+    private static ExecutorService pipelineExecutor;
     private final TransferManagerConfiguration configuration;
     private final List<Future<PartETag>> futures = new ArrayList<Future<PartETag>>();
     private final ProgressListenerChain listener;
@@ -189,6 +201,9 @@ public class UploadCallable implements Callable<UploadResult> {
                 captureUploadStateIfPossible();
                 uploadPartsInParallel(requestFactory, multipartUploadId);
                 return null;
+            } else if (isUsingEncryption && ((AmazonS3EncryptionClient) s3)
+                    .getCryptoConfiguration().isPipelinedMultipartUpload()) {
+                return uploadPartsPipelined(requestFactory);
             } else {
                 return uploadPartsInSeries(requestFactory);
             }
@@ -263,7 +278,78 @@ public class UploadCallable implements Callable<UploadResult> {
             }
             partETags.add(s3.uploadPart(uploadPartRequest).getPartETag());
         }
+        return completeMultipartUpload(partETags);
+    }
+
+    /**
+     * Uploads the parts of an encrypted upload in order, two at a time, so
+     * that a part is encrypted while the previous one uploads, then completes
+     * the upload and returns the result.
+     */
+    private UploadResult uploadPartsPipelined(UploadPartRequestFactory requestFactory)
+            throws Exception {
+
+        final List<PartETag> partETags = new ArrayList<PartETag>();
+        final LinkedList<Future<PartETag>> inFlight = new LinkedList<Future<PartETag>>();
+        try {
+            while (requestFactory.hasMoreRequests()) {
+                if (threadPool.isShutdown())
+                    throw new CancellationException("TransferManager has been shutdown");
+                UploadPartRequest uploadPartRequest = requestFactory.getNextUploadPartRequest();
+                inFlight.add(getPipelineExecutor().submit(
+                        new UploadPartCallable(s3, uploadPartRequest)));
+                if (inFlight.size() > 1) {
+                    partETags.add(getPartETag(inFlight.getFirst()));
+                    inFlight.removeFirst();
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                partETags.add(getPartETag(inFlight.getFirst()));
+                inFlight.removeFirst();
+            }
+        } finally {
+            for (Future<PartETag> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+        return completeMultipartUpload(partETags);
+    }
+
+    private static PartETag getPartETag(Future<PartETag> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new AmazonClientException("Unable to upload part", cause);
+        }
+    }
 
+    private static synchronized ExecutorService getPipelineExecutor() {
+        if (pipelineExecutor == null) {
+            pipelineExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r);
+                    thread.setDaemon(true);
+                    thread.setName("s3-encrypted-upload-" + threadCount.incrementAndGet());
+                    return thread;
+                }
+            });
+        }
+        return pipelineExecutor;
+    }
+
+    /**
+     * Completes the multipart upload with the given parts and returns the
+     * result.
+     */
+    private UploadResult completeMultipartUpload(List<PartETag> partETags) {
         CompleteMultipartUploadResult completeMultipartUploadResult = s3
                 .completeMultipartUpload(new CompleteMultipartUploadRequest(putObjectRequest
                         .getBucketName(),
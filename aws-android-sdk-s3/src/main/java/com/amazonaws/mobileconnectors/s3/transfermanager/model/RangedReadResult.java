@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager.model;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.mobileconnectors.s3.transfermanager.TransferManager;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+
+/**
+ * Contains the data read from a range of an object by a batch of ranged
+ * reads, or the reason the range couldn't be read.
+ * <p>
+ * See {@link TransferManager} for more information about ranged reads.
+ *
+ * @see TransferManager#readRanges(java.util.List, int)
+ * @deprecated The Transfer Manager is now deprecated in favor of the
+ *             {@link com.amazonaws.mobileconnectors.s3.transferutility.TransferUtility}
+ */
+@Deprecated
+public class RangedReadResult {
+
+    /** The request for the range. */
+    private GetObjectRequest request;
+
+    /** The data of the range, or null if it couldn't be read. */
+    private byte[] content;
+
+    /** The metadata of the object, or null if it couldn't be read. */
+    private ObjectMetadata objectMetadata;
+
+    /** The reason the range couldn't be read, or null if it was read. */
+    private AmazonClientException exception;
+
+    /**
+     * Gets the request for the range, as given to the batch of reads.
+     *
+     * @return The request for the range.
+     */
+    public GetObjectRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Sets the request for the range.
+     *
+     * @param request The request for the range.
+     */
+    public void setRequest(GetObjectRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Gets the data of the range. The data is null if the range couldn't be
+     * read, or if the request has constraints the object didn't meet.
+     *
+     * @return The data of the range.
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Sets the data of the range.
+     *
+     * @param content The data of the range.
+     */
+    public void setContent(byte[] content) {
+        this.content = content;
+    }
+
+    /**
+     * Gets the metadata of the object, as returned with the range.
+     *
+     * @return The metadata of the object.
+     */
+    public ObjectMetadata getObjectMetadata() {
+        return objectMetadata;
+    }
+
+    /**
+     * Sets the metadata of the object.
+     *
+     * @param objectMetadata The metadata of the object.
+     */
+    public void setObjectMetadata(ObjectMetadata objectMetadata) {
+        this.objectMetadata = objectMetadata;
+    }
+
+    /**
+     * Gets the reason the range couldn't be read: an
+     * {@link com.amazonaws.AmazonServiceException} if Amazon S3 rejected the
+     * request, such as for a missing object, or an
+     * {@link AmazonClientException} if the client failed to read it.
+     *
+     * @return The reason the range couldn't be read, or null if it was read.
+     */
+    public AmazonClientException getException() {
+        return exception;
+    }
+
+    /**
+     * Sets the reason the range couldn't be read.
+     *
+     * @param exception The reason the range couldn't be read.
+     */
+    public void setException(AmazonClientException exception) {
+        this.exception = exception;
+    }
+
+    /**
+     * Returns whether the range was read.
+     *
+     * @return True if the range was read, false if it failed.
+     */
+    public boolean isSuccessful() {
+        return exception == null;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static com.amazonaws.services.s3.internal.Constants.GB;
+import static com.amazonaws.services.s3.internal.Constants.MB;
+
+/**
+ * Tunes the number of concurrent parts and the size of the parts of an
+ * adaptive multipart upload from the throughput and latency of the parts
+ * uploaded so far.
+ * <p>
+ * The parts are measured in rounds of as many parts as are uploaded at once.
+ * After a round that uploaded faster than the previous one, one more part is
+ * uploaded at once; if adding a part made the next round slower, it is taken
+ * back, and the concurrency holds for a few rounds before it is probed again.
+ * Rounds whose parts take longer than {@link #MAXIMUM_PART_MILLIS} halve
+ * the concurrency, since such parts are the ones that time out and are
+ * retried on slow networks. The part size follows the throughput of a single
+ * part, so that a part takes about {@link #TARGET_PART_MILLIS}, within the
+ * part sizes S3 allows.
+ */
+class AdaptiveUploadTuner {
+
+    /** The smallest part S3 accepts, but for the last one. */
+    static final long MINIMUM_PART_SIZE = 5 * MB;
+    /** The largest part S3 accepts. */
+    static final long MAXIMUM_PART_SIZE = 5 * GB;
+    /** How long a part should take to upload. */
+    static final long TARGET_PART_MILLIS = 15 * 1000;
+    /** How long a part may take to upload before the concurrency is reduced. */
+    static final long MAXIMUM_PART_MILLIS = 60 * 1000;
+
+    /** The change in throughput between rounds that counts as a change. */
+    private static final double THROUGHPUT_TOLERANCE = 0.1;
+    /** The weight of the latest part in the throughput of a single part. */
+    private static final double PART_THROUGHPUT_WEIGHT = 0.3;
+    /** The rounds to hold the concurrency for after taking an increase back. */
+    private static final int HOLD_ROUNDS = 3;
+
+    private final int maximumConcurrency;
+    private int concurrency;
+    private long partSize;
+
+    /** The bytes per millisecond of a single part, or 0 until measured. */
+    private double partThroughput;
+    private double lastRoundThroughput;
+    private boolean lastChangeWasIncrease;
+    private int roundsToHold;
+
+    private long roundStartMillis;
+    private int roundParts;
+    private long roundBytes;
+    private long roundPartMillis;
+
+    /**
+     * @param partSize the size of the parts of the upload so far.
+     * @param maximumConcurrency the most parts to upload at once.
+     * @param startMillis the time the upload starts at.
+     */
+    AdaptiveUploadTuner(long partSize, int maximumConcurrency, long startMillis) {
+        this.maximumConcurrency = Math.max(1, maximumConcurrency);
+        this.concurrency = Math.max(1, this.maximumConcurrency / 2);
+        this.partSize = partSize;
+        this.roundStartMillis = startMillis;
+    }
+
+    /**
+     * Returns the number of parts to upload at once.
+     */
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Returns the size of the parts not started yet.
+     */
+    long getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * Records a part that was uploaded, and adjusts the settings at the end of
+     * a round.
+     *
+     * @param bytes the size of the part.
+     * @param durationMillis how long the part took to upload.
+     * @param nowMillis the time the part completed at.
+     */
+    void onPartCompleted(long bytes, long durationMillis, long nowMillis) {
+        final double throughput = (double) bytes / Math.max(1, durationMillis);
+        partThroughput = partThroughput == 0 ? throughput
+                : PART_THROUGHPUT_WEIGHT * throughput
+                        + (1 - PART_THROUGHPUT_WEIGHT) * partThroughput;
+
+        roundParts++;
+        roundBytes += bytes;
+        roundPartMillis += durationMillis;
+        if (roundParts < concurrency) {
+            return;
+        }
+
+        final double roundThroughput = (double) roundBytes
+                / Math.max(1, nowMillis - roundStartMillis);
+        final long averagePartMillis = roundPartMillis / roundParts;
+        tuneConcurrency(roundThroughput, averagePartMillis);
+        tunePartSize();
+
+        lastRoundThroughput = roundThroughput;
+        roundStartMillis = nowMillis;
+        roundParts = 0;
+        roundBytes = 0;
+        roundPartMillis = 0;
+    }
+
+    private void tuneConcurrency(double roundThroughput, long averagePartMillis) {
+        final boolean wasIncrease = lastChangeWasIncrease;
+        lastChangeWasIncrease = false;
+        if (averagePartMillis > MAXIMUM_PART_MILLIS) {
+            concurrency = Math.max(1, concurrency / 2);
+        } else if (roundsToHold > 0) {
+            roundsToHold--;
+        } else if (lastRoundThroughput == 0
+                || roundThroughput > lastRoundThroughput * (1 + THROUGHPUT_TOLERANCE)) {
+            if (concurrency < maximumConcurrency) {
+                concurrency++;
+                lastChangeWasIncrease = true;
+            }
+        } else if (wasIncrease
+                && roundThroughput < lastRoundThroughput * (1 - THROUGHPUT_TOLERANCE)) {
+            concurrency = Math.max(1, concurrency - 1);
+            roundsToHold = HOLD_ROUNDS;
+        }
+    }
+
+    private void tunePartSize() {
+        long targetSize = (long) (partThroughput * TARGET_PART_MILLIS);
+        targetSize = Math.max(MINIMUM_PART_SIZE, Math.min(MAXIMUM_PART_SIZE, targetSize));
+        // only resize parts by whole megabytes and when the size is at least
+        // halved or doubled, so that the parts aren't split again and again
+        targetSize = targetSize / MB * MB;
+        if (targetSize >= partSize * 2 || targetSize * 2 <= partSize) {
+            partSize = targetSize;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2015-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.mobileconnectors.s3.transferutility.TransferService.NetworkInfoReceiver;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+
+/**
+ * Downloads a range of an object into its place in the file of a multipart
+ * download, and returns whether it succeeded.
+ */
+class DownloadPartTask implements Callable<Boolean> {
+    private static final Log LOGGER = LogFactory.getLog(DownloadPartTask.class);
+
+    private final TransferRecord part;
+    private final String eTag;
+    private final FileChannel channel;
+    private final AmazonS3 s3;
+    private final TransferDBUtil dbUtil;
+    private final ProgressListener progressListener;
+    private final NetworkInfoReceiver networkInfoReceiver;
+
+    /**
+     * @param part the record of the part to download
+     * @param eTag the ETag of the object when the download started, so that a
+     *            part of a newer object isn't mixed with the others
+     * @param channel the channel of the file shared by the parts
+     * @param s3 Low-level S3 client
+     * @param dbUtil database util
+     * @param progressListener the progress listener of the download
+     * @param networkInfoReceiver network info
+     */
+    public DownloadPartTask(TransferRecord part,
+                            String eTag,
+                            FileChannel channel,
+                            AmazonS3 s3,
+                            TransferDBUtil dbUtil,
+                            ProgressListener progressListener,
+                            NetworkInfoReceiver networkInfoReceiver) {
+        this.part = part;
+        this.eTag = eTag;
+        this.channel = channel;
+        this.s3 = s3;
+        this.dbUtil = dbUtil;
+        this.progressListener = progressListener;
+        this.networkInfoReceiver = networkInfoReceiver;
+    }
+
+    /*
+     * Runs part download task and returns whether successfully downloaded.
+     */
+    @Override
+    public Boolean call() throws Exception {
+        final GetObjectRequest getObjectRequest = new GetObjectRequest(part.bucketName, part.key)
+                .withRange(part.rangeStart, part.rangeLast);
+        if (eTag != null) {
+            getObjectRequest.withMatchingETagConstraint(eTag);
+        }
+        TransferUtility.appendMultipartTransferServiceUserAgentString(getObjectRequest);
+        getObjectRequest.setGeneralProgressListener(progressListener);
+        try {
+            final S3Object object = s3.getObject(getObjectRequest);
+            if (object == null) {
+                /*
+                 * The ETag constraint wasn't met: the object was replaced
+                 * since the download started. Drop the file so that resuming
+                 * the transfer starts over with the new object.
+                 */
+                new File(part.file).delete();
+                throw new AmazonClientException("The object " + part.key
+                        + " was modified during the download");
+            }
+            final long bytesWritten = ServiceUtils.downloadObjectToFileChannel(object, channel,
+                    part.rangeStart);
+            if (bytesWritten != part.bytesTotal) {
+                throw new AmazonClientException("Received " + bytesWritten + " bytes instead of "
+                        + part.bytesTotal + " for part " + part.partNumber + " of " + part.key);
+            }
+            dbUtil.updateState(part.id, TransferState.PART_COMPLETED);
+            return true;
+        } catch (final Exception e) {
+            if (RetryUtils.isInterrupted(e)) {
+                // thread interrupted by user
+                return false;
+            }
+            if (networkInfoReceiver != null
+                && !networkInfoReceiver.isNetworkConnected()) {
+                /*
+                 * Network connection is being interrupted. Moving the TransferState
+                 * to WAITING_FOR_NETWORK till the network availability resumes.
+                 */
+                dbUtil.updateState(part.id, TransferState.WAITING_FOR_NETWORK);
+                LOGGER.debug("Network Connection Interrupted: " +
+                        "Moving the TransferState to WAITING_FOR_NETWORK");
+            } else {
+                dbUtil.updateState(part.id, TransferState.FAILED);
+                LOGGER.error("Encountered error downloading part ", e);
+            }
+            throw e;
+        }
+    }
+}
@@ -16,11 +16,19 @@
 package com.amazonaws.mobileconnectors.s3.transferutility;
 
 
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
+
+import android.content.ContentValues;
+
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.mobileconnectors.s3.transferutility.TransferService.NetworkInfoReceiver;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3EncryptionClient;
+import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 
 import com.amazonaws.logging.Log;
@@ -32,12 +40,20 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Performs download operation and returns a Boolean value indicating whether
- * the file has been downloaded successfully.
+ * the file has been downloaded successfully. Objects of at least
+ * {@link TransferUtilityOptions#getMultipartDownloadThreshold()} bytes are
+ * downloaded in ranges, each tracked by a part record like the parts of a
+ * multipart upload and fetched by a {@link DownloadPartTask}.
  */
 class DownloadTask implements Callable<Boolean> {
 
@@ -46,8 +62,10 @@ class DownloadTask implements Callable<Boolean> {
 
     private final AmazonS3 s3;
     private final TransferRecord download;
+    private final TransferDBUtil dbUtil;
     private final TransferStatusUpdater updater;
     private final NetworkInfoReceiver networkInfo;
+    private final TransferUtilityOptions options;
 
     /**
      * Constructs a DownloadTask with the given download info and S3 client.
@@ -55,15 +73,21 @@ class DownloadTask implements Callable<Boolean> {
      * @param download A TransferRecord object storing all the information of
      *            the download
      * @param s3 Low-level S3 client
+     * @param dbUtil database util
      * @param updater status updater
      * @param networkInfo network info
+     * @param options the options of the TransferUtility, or null for the
+     *            defaults
      */
-    public DownloadTask(TransferRecord download, AmazonS3 s3, TransferStatusUpdater updater,
-            NetworkInfoReceiver networkInfo) {
+    public DownloadTask(TransferRecord download, AmazonS3 s3, TransferDBUtil dbUtil,
+            TransferStatusUpdater updater, NetworkInfoReceiver networkInfo,
+            TransferUtilityOptions options) {
         this.download = download;
         this.s3 = s3;
+        this.dbUtil = dbUtil;
         this.updater = updater;
         this.networkInfo = networkInfo;
+        this.options = options == null ? new TransferUtilityOptions() : options;
     }
 
     /**
@@ -77,10 +101,38 @@ class DownloadTask implements Callable<Boolean> {
         }
         updater.updateState(download.id, TransferState.IN_PROGRESS);
 
+        final File file = new File(download.file);
+        try {
+            if (download.isMultipart == 1 && file.length() != download.bytesTotal) {
+                /*
+                 * The parts already downloaded were lost with the file, or the
+                 * object was modified. Start over with the current object.
+                 */
+                LOGGER.debug("Restart multipart download " + download.id);
+                file.delete();
+                createMultipartDownloadRecords(file, getObjectMetadata());
+            } else if (download.isMultipart == 0 && shouldDownloadInMultipart(file)) {
+                final ObjectMetadata metadata = getObjectMetadata();
+                if (metadata.getContentLength() > 0
+                        && metadata.getContentLength() >= options.getMultipartDownloadThreshold()) {
+                    createMultipartDownloadRecords(file, metadata);
+                }
+            }
+        } catch (final Exception e) {
+            handleException(e);
+            return false;
+        }
+
+        if (download.isMultipart == 1) {
+            return downloadMultipartAndWaitForCompletion(file);
+        }
+        return downloadSinglePartAndWaitForCompletion(file);
+    }
+
+    private Boolean downloadSinglePartAndWaitForCompletion(File file) {
         final GetObjectRequest getObjectRequest = new GetObjectRequest(download.bucketName,
                 download.key);
         TransferUtility.appendTransferServiceUserAgentString(getObjectRequest);
-        final File file = new File(download.file);
         final long bytesCurrent = file.length();
         if (bytesCurrent > 0) {
             LOGGER.debug(String.format("Resume transfer %d from %d bytes", download.id,
@@ -109,24 +161,201 @@ class DownloadTask implements Callable<Boolean> {
             updater.updateState(download.id, TransferState.COMPLETED);
             return true;
         } catch (final Exception e) {
-            if (RetryUtils.isInterrupted(e)) {
-                /*
-                 * thread is interrupted by user. don't update the state as it's
-                 * set by caller who interrupted
-                 */
-                LOGGER.debug("Transfer " + download.id + " is interrupted by user");
-            } else if (e.getCause() != null &&
-                    (e.getCause() instanceof IOException || e.getCause() instanceof AmazonClientException)
-                    && !networkInfo.isNetworkConnected()) {
-                LOGGER.debug("Transfer " + download.id + " waits for network");
+            handleException(e);
+        }
+        return false;
+    }
+
+    private Boolean downloadMultipartAndWaitForCompletion(File file) {
+        final boolean isResumed = file.length() == download.bytesTotal;
+        long bytesAlreadyTransferred = 0;
+        final List<TransferRecord> parts = new ArrayList<TransferRecord>();
+        for (final TransferRecord part : dbUtil.queryPartsOfDownload(download.id)) {
+            if (isResumed && TransferState.PART_COMPLETED.equals(part.state)) {
+                bytesAlreadyTransferred += part.bytesTotal;
+            } else {
+                parts.add(part);
+            }
+        }
+        if (bytesAlreadyTransferred > 0) {
+            LOGGER.debug(String.format("Resume transfer %d from %d bytes", download.id,
+                    bytesAlreadyTransferred));
+        }
+        updater.updateProgress(download.id, bytesAlreadyTransferred, download.bytesTotal);
+        LOGGER.debug("multipart download " + download.id + " in " + parts.size() + " parts.");
+
+        try {
+            createParentDirectory(file);
+        } catch (final AmazonClientException ace) {
+            handleException(ace);
+            return false;
+        }
+        final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(download.bytesTotal);
+            for (final TransferRecord part : parts) {
+                futures.add(TransferThreadPool.submitTask(new DownloadPartTask(part,
+                        download.eTag, randomAccessFile.getChannel(), s3, dbUtil,
+                        updater.newProgressListener(download.id), networkInfo)));
+            }
+            boolean isSuccess = true;
+            /*
+             * Future.get() will block the current thread until the method
+             * returns.
+             */
+            for (final Future<Boolean> f : futures) {
+                // DownloadPartTask returns false when it's interrupted by user
+                // and the state is set by caller
+                isSuccess &= f.get();
+            }
+            if (!isSuccess) {
+                return false;
+            }
+        } catch (final InterruptedException e) {
+            /*
+             * Future.get() will catch InterruptedException, but it's not a
+             * failure, it may be caused by a pause operation from applications.
+             */
+            for (final Future<?> f : futures) {
+                f.cancel(true);
+            }
+            // abort by user
+            LOGGER.debug("Transfer " + download.id + " is interrupted by user");
+            return false;
+        } catch (final ExecutionException ee) {
+            // handle pause, cancel, etc
+            if (dbUtil.checkWaitingForNetworkPartRequestsFromDB(download.id)) {
+                LOGGER.debug("Network Connection Interrupted: Transfer " + download.id
+                        + " waits for network");
                 updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
+                return false;
+            }
+            if (ee.getCause() instanceof Exception) {
+                handleException((Exception) ee.getCause());
             } else {
-                LOGGER.debug("Failed to download: " + download.id + " due to " + e.getMessage());
-                updater.throwError(download.id, e);
                 updater.updateState(download.id, TransferState.FAILED);
             }
+            return false;
+        } catch (final IOException e) {
+            handleException(new AmazonClientException(
+                    "Unable to store object contents to disk: " + e.getMessage(), e));
+            return false;
+        } finally {
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (final IOException ioe) {
+                    LOGGER.warn("got exception", ioe);
+                }
+            }
+        }
+
+        try {
+            if (isIntegrityCheckNeeded()) {
+                ServiceUtils.verifyDownloadedFile(file, download.eTag);
+            }
+        } catch (final AmazonClientException ace) {
+            // a resumed transfer downloads the whole object again
+            file.delete();
+            handleException(ace);
+            return false;
+        }
+        updater.updateProgress(download.id, download.bytesTotal, download.bytesTotal);
+        updater.updateState(download.id, TransferState.COMPLETED);
+        return true;
+    }
+
+    /**
+     * Ranged downloads need the size of the object ahead, and the decryption
+     * of the encryption client works on whole objects.
+     */
+    private boolean shouldDownloadInMultipart(File file) {
+        return file.length() == 0
+                && options.getMultipartDownloadThreshold() != Long.MAX_VALUE
+                && !(s3 instanceof AmazonS3EncryptionClient);
+    }
+
+    private ObjectMetadata getObjectMetadata() {
+        final GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(
+                download.bucketName, download.key);
+        TransferUtility.appendMultipartTransferServiceUserAgentString(getObjectMetadataRequest);
+        return s3.getObjectMetadata(getObjectMetadataRequest);
+    }
+
+    /**
+     * Splits the object into parts, and turns the download into a multipart
+     * download of them.
+     */
+    private void createMultipartDownloadRecords(File file, ObjectMetadata metadata) {
+        final long bytesTotal = metadata.getContentLength();
+        final long partSize = Math.max(options.getMinimumDownloadPartSize(),
+                (long) Math.ceil((double) bytesTotal / (double) MAXIMUM_UPLOAD_PARTS));
+        final int partCount = (int) ((bytesTotal + partSize - 1) / partSize);
+        final ContentValues[] valuesArray = new ContentValues[partCount];
+        for (int i = 0; i < partCount; i++) {
+            final long rangeStart = i * partSize;
+            final long rangeLast = Math.min(rangeStart + partSize, bytesTotal) - 1;
+            valuesArray[i] = dbUtil.generateContentValuesForMultiPartDownload(
+                    download.bucketName, download.key, file, i + 1, rangeStart, rangeLast,
+                    i == partCount - 1 ? 1 : 0);
+        }
+        if (dbUtil.replaceMultipartDownloadRecords(download.id, bytesTotal, metadata.getETag(),
+                metadata.getSSEAlgorithm(), valuesArray) < 0) {
+            throw new AmazonClientException("Unable to create the part records of download "
+                    + download.id);
+        }
+        download.isMultipart = 1;
+        download.bytesTotal = bytesTotal;
+        download.eTag = metadata.getETag();
+        download.sseAlgorithm = metadata.getSSEAlgorithm();
+    }
+
+    /**
+     * The MD5 of the downloaded file can be checked against the ETag unless
+     * it was disabled, or the ETag is the MD5 of the ciphertext.
+     */
+    private boolean isIntegrityCheckNeeded() {
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setSSEAlgorithm(download.sseAlgorithm);
+        return !ServiceUtils.skipMd5CheckPerRequest(
+                new GetObjectRequest(download.bucketName, download.key))
+                && !ServiceUtils.skipMd5CheckPerResponse(metadata);
+    }
+
+    private void handleException(Exception e) {
+        if (RetryUtils.isInterrupted(e)) {
+            /*
+             * thread is interrupted by user. don't update the state as it's
+             * set by caller who interrupted
+             */
+            LOGGER.debug("Transfer " + download.id + " is interrupted by user");
+        } else if (e.getCause() != null &&
+                (e.getCause() instanceof IOException || e.getCause() instanceof AmazonClientException)
+                && !networkInfo.isNetworkConnected()) {
+            LOGGER.debug("Transfer " + download.id + " waits for network");
+            updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
+        } else {
+            LOGGER.debug("Failed to download: " + download.id + " due to " + e.getMessage());
+            updater.throwError(download.id, e);
+            updater.updateState(download.id, TransferState.FAILED);
+        }
+    }
+
+    /**
+     * Creates the parent directory of a file if it doesn't exist.
+     *
+     * @param file file to be written
+     * @throws AmazonClientException if the directory can't be created
+     */
+    private static void createParentDirectory(File file) {
+        final File parentDirectory = file.getParentFile();
+        if (parentDirectory != null && !parentDirectory.mkdirs()
+                && !parentDirectory.isDirectory()) {
+            throw new AmazonClientException("Unable to create the directory "
+                    + parentDirectory.getAbsolutePath());
         }
-        return false;
     }
 
     /**
@@ -136,11 +365,7 @@ class DownloadTask implements Callable<Boolean> {
      * @param file file to be written
      */
     private void saveToFile(InputStream is, File file) {
-        // attempt to create the parent if it doesn't exist
-        final File parentDirectory = file.getParentFile();
-        if (parentDirectory != null && !parentDirectory.exists()) {
-            parentDirectory.mkdirs();
-        }
+        createParentDirectory(file);
 
         final boolean append = file.length() > 0;
         OutputStream os = null;
@@ -27,6 +27,8 @@ import android.text.TextUtils;
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
+import java.util.Map;
+
 /**
  * Provides methods to access database through which applications can interact
  * with transfer tasks.
@@ -269,6 +271,99 @@ class TransferDBBase {
         return mainUploadId;
     }
 
+    /**
+     * Replaces the part records of an existing transfer and updates the
+     * transfer record, in a single transaction.
+     *
+     * @param mainUploadId The id of the transfer the parts belong to.
+     * @param mainValues The values to update in the transfer record.
+     * @param valuesArray A array of values of the parts to insert.
+     * @return Number of part records inserted, or -1 if the transaction
+     *         failed.
+     */
+    public int replaceParts(int mainUploadId, ContentValues mainValues,
+            ContentValues[] valuesArray) {
+        int rowsInserted = -1;
+        ensureDatabaseOpen();
+        try {
+            database.beginTransaction();
+            database.delete(TransferTable.TABLE_TRANSFER,
+                    TransferTable.COLUMN_MAIN_UPLOAD_ID + "=" + mainUploadId + " and "
+                            + TransferTable.COLUMN_PART_NUM + ">0", null);
+            database.update(TransferTable.TABLE_TRANSFER, mainValues,
+                    TransferTable.COLUMN_ID + "=" + mainUploadId, null);
+            for (final ContentValues values : valuesArray) {
+                values.put(TransferTable.COLUMN_MAIN_UPLOAD_ID, mainUploadId);
+                database.insertOrThrow(TransferTable.TABLE_TRANSFER, null, values);
+            }
+            database.setTransactionSuccessful();
+            rowsInserted = valuesArray.length;
+        } catch (final Exception e) {
+            LOGGER.error("replaceParts error : ", e);
+        } finally {
+            database.endTransaction();
+        }
+        return rowsInserted;
+    }
+
+    /**
+     * Updates a batch of transfer records in a single transaction.
+     *
+     * @param valuesById The values to update, by the id of the record.
+     * @return Number of rows updated, or -1 if the transaction failed.
+     */
+    public synchronized int updateAll(Map<Integer, ContentValues> valuesById) {
+        int rowsUpdated = 0;
+        ensureDatabaseOpen();
+        try {
+            database.beginTransaction();
+            for (final Map.Entry<Integer, ContentValues> entry : valuesById.entrySet()) {
+                rowsUpdated += database.update(TransferTable.TABLE_TRANSFER, entry.getValue(),
+                        TransferTable.COLUMN_ID + "=" + entry.getKey(), null);
+            }
+            database.setTransactionSuccessful();
+        } catch (final Exception e) {
+            LOGGER.error("updateAll error : ", e);
+            rowsUpdated = -1;
+        } finally {
+            database.endTransaction();
+        }
+        return rowsUpdated;
+    }
+
+    /**
+     * Replaces the part records of a multipart upload from a part number on,
+     * in a single transaction.
+     *
+     * @param mainUploadId The id of the upload the parts belong to.
+     * @param firstPartNumber The number of the first part to replace.
+     * @param valuesArray A array of values of the parts to insert.
+     * @return Number of part records inserted, or -1 if the transaction
+     *         failed.
+     */
+    public synchronized int replacePartsFrom(int mainUploadId, int firstPartNumber,
+            ContentValues[] valuesArray) {
+        int rowsInserted = -1;
+        ensureDatabaseOpen();
+        try {
+            database.beginTransaction();
+            database.delete(TransferTable.TABLE_TRANSFER,
+                    TransferTable.COLUMN_MAIN_UPLOAD_ID + "=" + mainUploadId + " and "
+                            + TransferTable.COLUMN_PART_NUM + ">=" + firstPartNumber, null);
+            for (final ContentValues values : valuesArray) {
+                values.put(TransferTable.COLUMN_MAIN_UPLOAD_ID, mainUploadId);
+                database.insertOrThrow(TransferTable.TABLE_TRANSFER, null, values);
+            }
+            database.setTransactionSuccessful();
+            rowsInserted = valuesArray.length;
+        } catch (final Exception e) {
+            LOGGER.error("replacePartsFrom error : ", e);
+        } finally {
+            database.endTransaction();
+        }
+        return rowsInserted;
+    }
+
     private void ensureDatabaseOpen() {
         // close and reopen database.
         if (!database.isOpen()) {
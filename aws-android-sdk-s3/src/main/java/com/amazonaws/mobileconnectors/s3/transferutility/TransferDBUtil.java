@@ -31,7 +31,9 @@ import com.amazonaws.logging.LogFactory;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Provides methods to conveniently perform database operations.
@@ -178,6 +180,54 @@ class TransferDBUtil {
         return transferDBBase.update(getRecordUri(id), values, null, null);
     }
 
+    /**
+     * Updates the current bytes of several transfer records in a single
+     * transaction.
+     *
+     * @param bytesById The bytes currently transferred, by transfer id.
+     * @return Number of rows updated, or -1 if the transaction failed.
+     */
+    public int updateBytesTransferred(Map<Integer, Long> bytesById) {
+        final Map<Integer, ContentValues> valuesById = new HashMap<Integer, ContentValues>();
+        for (final Map.Entry<Integer, Long> entry : bytesById.entrySet()) {
+            final ContentValues values = new ContentValues();
+            values.put(TransferTable.COLUMN_BYTES_CURRENT, entry.getValue());
+            valuesById.put(entry.getKey(), values);
+        }
+        return transferDBBase.updateAll(valuesById);
+    }
+
+    /**
+     * Records the settings an adaptive multipart upload chose, for its
+     * observers.
+     *
+     * @param id The id of the upload.
+     * @param partConcurrency The number of parts uploaded at once.
+     * @param partSize The size of the parts not started yet.
+     * @return Number of rows updated.
+     */
+    public int updateMultipartUploadSettings(int id, int partConcurrency, long partSize) {
+        final ContentValues values = new ContentValues();
+        values.put(TransferTable.COLUMN_PART_CONCURRENCY, partConcurrency);
+        values.put(TransferTable.COLUMN_PART_SIZE, partSize);
+        return transferDBBase.update(getRecordUri(id), values, null, null);
+    }
+
+    /**
+     * Replaces the part records of a multipart upload that haven't been
+     * started, from a part number on, with parts of another size.
+     *
+     * @param mainUploadId The id of the upload.
+     * @param firstPartNumber The number of the first part to replace.
+     * @param valuesArray The values of the new parts, see
+     *            {@link #generateContentValuesForMultiPartUpload}.
+     * @return Number of part records inserted, or -1 if they couldn't be.
+     */
+    public int replaceMultipartUploadParts(int mainUploadId, int firstPartNumber,
+            ContentValues[] valuesArray) {
+        return transferDBBase.replacePartsFrom(mainUploadId, firstPartNumber, valuesArray);
+    }
+
     /**
      * Updates the total bytes of a download record.
      *
@@ -590,6 +640,54 @@ class TransferDBUtil {
         return list;
     }
 
+    /**
+     * Replaces the part records of a multipart download and records the
+     * object being downloaded in the download record, so that the download
+     * is resumed with the parts it is missing.
+     *
+     * @param mainDownloadId The id of the download.
+     * @param bytesTotal The size of the object.
+     * @param eTag The ETag of the object.
+     * @param sseAlgorithm The server side encryption algorithm of the object.
+     * @param valuesArray The values of the parts, see
+     *            {@link #generateContentValuesForMultiPartDownload}.
+     * @return Number of part records inserted, or -1 if they couldn't be.
+     */
+    public int replaceMultipartDownloadRecords(int mainDownloadId, long bytesTotal, String eTag,
+            String sseAlgorithm, ContentValues[] valuesArray) {
+        final ContentValues values = new ContentValues();
+        values.put(TransferTable.COLUMN_IS_MULTIPART, 1);
+        values.put(TransferTable.COLUMN_BYTES_TOTAL, bytesTotal);
+        values.put(TransferTable.COLUMN_ETAG, eTag);
+        values.put(TransferTable.COLUMN_SSE_ALGORITHM, sseAlgorithm);
+        return transferDBBase.replaceParts(mainDownloadId, values, valuesArray);
+    }
+
+    /**
+     * Queries the part records of a multipart download.
+     *
+     * @param mainDownloadId The id of the download.
+     * @return A list of the parts of the download.
+     */
+    public List<TransferRecord> queryPartsOfDownload(int mainDownloadId) {
+        final List<TransferRecord> parts = new ArrayList<TransferRecord>();
+        Cursor c = null;
+        try {
+            c = transferDBBase.query(getPartUri(mainDownloadId), null, null, null, null);
+            while (c.moveToNext()) {
+                final TransferRecord part = new TransferRecord(
+                        c.getInt(c.getColumnIndexOrThrow(TransferTable.COLUMN_ID)));
+                part.updateFromDB(c);
+                parts.add(part);
+            }
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+        return parts;
+    }
+
     /**
      * Queries waiting for network partUpload tasks of a multipart upload and returns
      * true if one such partUpload tasks
@@ -683,6 +781,40 @@ class TransferDBUtil {
         return values;
     }
 
+    /**
+     * Generates a ContentValues object to insert into the database with the
+     * given values for a part of a multipart download.
+     *
+     * @param bucket The name of the bucket to download from.
+     * @param key The key of the object to download.
+     * @param file The file to download to.
+     * @param partNumber The part number of this part.
+     * @param rangeStart The position of the first byte of the part.
+     * @param rangeLast The position of the last byte of the part.
+     * @param isLastPart Whether this part is the last part of the download.
+     * @return The ContentValues object generated.
+     */
+    public ContentValues generateContentValuesForMultiPartDownload(String bucket,
+            String key, File file, int partNumber, long rangeStart, long rangeLast,
+            int isLastPart) {
+        final ContentValues values = new ContentValues();
+        values.put(TransferTable.COLUMN_TYPE, TransferType.DOWNLOAD.toString());
+        values.put(TransferTable.COLUMN_STATE, TransferState.WAITING.toString());
+        values.put(TransferTable.COLUMN_BUCKET_NAME, bucket);
+        values.put(TransferTable.COLUMN_KEY, key);
+        values.put(TransferTable.COLUMN_FILE, file.getAbsolutePath());
+        values.put(TransferTable.COLUMN_BYTES_CURRENT, 0L);
+        values.put(TransferTable.COLUMN_BYTES_TOTAL, rangeLast - rangeStart + 1);
+        values.put(TransferTable.COLUMN_IS_MULTIPART, 1);
+        values.put(TransferTable.COLUMN_PART_NUM, partNumber);
+        values.put(TransferTable.COLUMN_FILE_OFFSET, rangeStart);
+        values.put(TransferTable.COLUMN_DATA_RANGE_START, rangeStart);
+        values.put(TransferTable.COLUMN_DATA_RANGE_LAST, rangeLast);
+        values.put(TransferTable.COLUMN_IS_LAST_PART, isLastPart);
+        values.put(TransferTable.COLUMN_IS_ENCRYPTED, 0);
+        return values;
+    }
+
     /**
      * Adds mappings to a ContentValues object for the data in the passed in
      * ObjectMetadata
@@ -57,6 +57,8 @@ public class TransferObserver {
     private long bytesTransferred;
     private TransferState transferState;
     private String filePath;
+    private int partConcurrency;
+    private long partSize;
 
     private TransferListener transferListener;
     private TransferStatusListener statusListener;
@@ -142,6 +144,8 @@ public class TransferObserver {
         transferState = TransferState.getState(c.getString(c
                 .getColumnIndexOrThrow(TransferTable.COLUMN_STATE)));
         filePath = c.getString(c.getColumnIndexOrThrow(TransferTable.COLUMN_FILE));
+        partConcurrency = c.getInt(c.getColumnIndexOrThrow(TransferTable.COLUMN_PART_CONCURRENCY));
+        partSize = c.getLong(c.getColumnIndexOrThrow(TransferTable.COLUMN_PART_SIZE));
     }
 
     /**
@@ -232,6 +236,30 @@ public class TransferObserver {
         return transferState;
     }
 
+    /**
+     * Gets the number of parts an adaptive multipart upload uploads at once,
+     * as last tuned. Call {@link #refresh()} to pick up the latest value.
+     *
+     * @return The number of parts uploaded at once, or 0 if the transfer
+     *         isn't an adaptive multipart upload or hasn't started yet.
+     * @see TransferUtilityOptions#setAdaptiveMultipartUpload(boolean)
+     */
+    public int getPartConcurrency() {
+        return partConcurrency;
+    }
+
+    /**
+     * Gets the size of the parts an adaptive multipart upload hasn't started
+     * yet, as last tuned. Call {@link #refresh()} to pick up the latest value.
+     *
+     * @return The size of the parts in bytes, or 0 if the transfer isn't an
+     *         adaptive multipart upload or hasn't started yet.
+     * @see TransferUtilityOptions#setAdaptiveMultipartUpload(boolean)
+     */
+    public long getPartSize() {
+        return partSize;
+    }
+
     /**
      * Cleans the transfer listener.
      */
@@ -160,17 +160,20 @@ class TransferRecord {
      * @param dbUtil database util
      * @param updater status updater
      * @param networkInfo network info
+     * @param options the options of the TransferUtility
      * @return Whether the task is running.
      */
     public boolean start(AmazonS3 s3, TransferDBUtil dbUtil, TransferStatusUpdater updater,
-            NetworkInfoReceiver networkInfo) {
+            NetworkInfoReceiver networkInfo, TransferUtilityOptions options) {
         if (!isRunning() && checkIsReadyToRun()) {
             if (type.equals(TransferType.DOWNLOAD)) {
                 submittedTask = TransferThreadPool
-                        .submitTask(new DownloadTask(this, s3, updater, networkInfo));
+                        .submitTask(new DownloadTask(this, s3, dbUtil, updater, networkInfo,
+                                options));
             } else {
                 submittedTask = TransferThreadPool
-                        .submitTask(new UploadTask(this, s3, dbUtil, updater, networkInfo));
+                        .submitTask(new UploadTask(this, s3, dbUtil, updater, networkInfo,
+                                options));
             }
             return true;
         }
@@ -197,7 +200,10 @@ class TransferRecord {
     }
 
     /**
-     * Cancels a running transfer.
+     * Cancels a running transfer. A multipart upload is aborted on Amazon S3.
+     * A download has its partially downloaded file deleted, and for a
+     * multipart download that includes the parts already completed, so the
+     * download can't be resumed from them; nothing is aborted on Amazon S3.
      * 
      * @param s3 s3 instance
      * @param updater status updater
@@ -211,7 +217,11 @@ class TransferRecord {
                 submittedTask.cancel(true);
             }
             // additional cleanups
-            if (isMultipart == 1) {
+            if (TransferType.DOWNLOAD.equals(type)) {
+                // remove partially download file, including the parts of a
+                // multipart download
+                new File(file).delete();
+            } else if (isMultipart == 1) {
                 new Thread(new Runnable() {
                     @Override
                     public void run() {
@@ -224,9 +234,6 @@ class TransferRecord {
                         }
                     }
                 }).start();
-            } else if (TransferType.DOWNLOAD.equals(type)) {
-                // remove partially download file
-                new File(file).delete();
             }
             return true;
         }
@@ -30,11 +30,26 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A class that tracks active transfers. It has a static map that holds weak
  * references of {@link TransferListener}.
+ * <p>
+ * Progress is written behind: the progress events only add to the bytes of
+ * each transfer and mark it as progressed, and a periodic flush reads the
+ * bytes of all the transfers that progressed, writes them in one transaction
+ * and notifies their listeners in a single callback on the main thread. A
+ * state change flushes the progress of its transfer first, so listeners still
+ * see the progress before the state.
  */
 class TransferStatusUpdater {
     private static final Log LOGGER = LogFactory.getLog(TransferStatusUpdater.class);
@@ -46,11 +61,20 @@ class TransferStatusUpdater {
                     TransferState.PENDING_CANCEL, TransferState.PENDING_PAUSE,
                     TransferState.PENDING_NETWORK_DISCONNECT));
     /**
-     * The threshold to update progress in milliseconds to prevent triggering
-     * listeners too often.
+     * The interval to flush progress in milliseconds to prevent writing the
+     * database and triggering listeners too often.
      */
     private static final int UPDATE_THRESHOLD_MS = 1000;
 
+    private static final ThreadFactory FLUSH_THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "TransferStatusUpdater-flush");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
     /**
      * A map of listeners.
      */
@@ -61,27 +85,73 @@ class TransferStatusUpdater {
      */
     private final Map<Integer, TransferRecord> transfers;
     /**
-     * A map of transfer to its last update time to prevent events from being
-     * fired too often.
+     * The bytes transferred of each active transfer, which the progress
+     * listeners of its parts add to.
+     */
+    private final ConcurrentHashMap<Integer, AtomicLong> bytesTransferred;
+    /**
+     * The total bytes of the transfers whose progress isn't flushed yet. The
+     * bytes transferred are read from {@link #bytesTransferred} by the flush,
+     * so that the progress flushed never goes backwards however the events of
+     * concurrent parts interleave.
+     */
+    private final ConcurrentHashMap<Integer, Long> pendingProgress;
+    /**
+     * Whether a flush is scheduled.
+     */
+    private final AtomicBoolean flushScheduled;
+    /**
+     * Serializes the flushes, so that the progress of a transfer is always
+     * notified before a state change that follows it.
+     */
+    private final Object flushLock = new Object();
+    /**
+     * The thread that flushes the progress.
      */
-    private final Map<Integer, Long> lastUpdateTime;
+    private final ScheduledThreadPoolExecutor flushExecutor;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
     /**
      * Database util to update transfer status.
      */
     private final TransferDBUtil dbUtil;
     /**
-     * The handler of main thread that runs callbacks.
+     * Runs the callbacks on the main thread.
      */
-    private final Handler mainHandler;
+    private final Executor mainThread;
 
     /**
      * This class is instantiated by TransferService.
      */
     TransferStatusUpdater(TransferDBUtil dbUtil) {
+        this(dbUtil, new Executor() {
+            private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+            @Override
+            public void execute(Runnable command) {
+                mainHandler.post(command);
+            }
+        });
+    }
+
+    /**
+     * @param dbUtil database util to update transfer status
+     * @param mainThread the executor that runs callbacks
+     */
+    TransferStatusUpdater(TransferDBUtil dbUtil, Executor mainThread) {
         this.dbUtil = dbUtil;
-        mainHandler = new Handler(Looper.getMainLooper());
+        this.mainThread = mainThread;
         transfers = new HashMap<Integer, TransferRecord>();
-        lastUpdateTime = new HashMap<Integer, Long>();
+        bytesTransferred = new ConcurrentHashMap<Integer, AtomicLong>();
+        pendingProgress = new ConcurrentHashMap<Integer, Long>();
+        flushScheduled = new AtomicBoolean();
+        flushExecutor = new ScheduledThreadPoolExecutor(1, FLUSH_THREAD_FACTORY);
+        // shutdown flushes the pending progress itself
+        flushExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
     }
 
     /**
@@ -120,7 +190,8 @@ class TransferStatusUpdater {
     void removeTransfer(int id) {
         transfers.remove(id);
         LISTENERS.remove(id);
-        lastUpdateTime.remove(id);
+        bytesTransferred.remove(id);
+        pendingProgress.remove(id);
     }
     
     /**
@@ -150,6 +221,7 @@ class TransferStatusUpdater {
      * @param newState new state
      */
     void updateState(final int id, final TransferState newState) {
+        flush(id);
         boolean shouldNotNotify = STATES_NOT_TO_NOTIFY.contains(newState);
         final TransferRecord transfer = transfers.get(id);
         if (transfer == null) {
@@ -180,7 +252,7 @@ class TransferStatusUpdater {
         }
 
         // invoke on main thread
-        mainHandler.post(new Runnable() {
+        mainThread.execute(new Runnable() {
             @Override
             public void run() {
                 for (final TransferListener l : list) {
@@ -202,51 +274,151 @@ class TransferStatusUpdater {
     }
 
     /**
-     * Updates the transfer progress of a transfer. It will trigger
-     * {@link TransferListener#onProgressChanged(int, long, long)} of associated
-     * LISTENERS if the update exceeds either time threshold.
+     * Updates the transfer progress of a transfer. The progress is written to
+     * the database and passed to
+     * {@link TransferListener#onProgressChanged(int, long, long)} of
+     * associated LISTENERS by the next flush, or by the next state change of
+     * the transfer.
      *
      * @param id id of the transfer
      * @param bytesCurrent current transferred bytes
      * @param bytesTotal total bytes
      */
     void updateProgress(final int id, final long bytesCurrent, final long bytesTotal) {
+        getBytesTransferred(id).set(bytesCurrent);
+        recordProgress(id, bytesTotal);
+    }
+
+    private void recordProgress(int id, long bytesTotal) {
         final TransferRecord transfer = transfers.get(id);
         if (transfer != null) {
-            transfer.bytesCurrent = bytesCurrent;
             transfer.bytesTotal = bytesTotal;
         }
+        pendingProgress.put(id, bytesTotal);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                flushExecutor.schedule(flushTask, UPDATE_THRESHOLD_MS, TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException e) {
+                LOGGER.debug("Not flushing the progress of transfer " + id + " after shutdown");
+            }
+        }
+    }
 
-        // Don't fire off the update too frequently, but still fire when it
-        // comes to the last byte.
-        final long timeInMillis = System.currentTimeMillis();
+    private AtomicLong getBytesTransferred(int id) {
+        AtomicLong bytes = bytesTransferred.get(id);
+        if (bytes == null) {
+            final TransferRecord transfer = transfers.get(id);
+            bytes = new AtomicLong(transfer == null ? 0 : transfer.bytesCurrent);
+            final AtomicLong existing = bytesTransferred.putIfAbsent(id, bytes);
+            if (existing != null) {
+                bytes = existing;
+            }
+        }
+        return bytes;
+    }
 
-        // update bytes transfered so that the transfer observer may pick it
-        // up.
-        dbUtil.updateBytesTransferred(id, bytesCurrent);
+    /**
+     * Writes the pending progress of all transfers in one transaction, then
+     * notifies the listeners of all of them in one callback.
+     */
+    void flush() {
+        synchronized (flushLock) {
+            // reset first, so that progress recorded from now on schedules
+            // another flush
+            flushScheduled.set(false);
+            final Map<Integer, Progress> batch = new HashMap<Integer, Progress>();
+            for (final Integer id : pendingProgress.keySet()) {
+                final Progress progress = takeProgress(id);
+                if (progress != null) {
+                    batch.put(id, progress);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
 
-        // invoke LISTENERS
-        final List<TransferListener> list = LISTENERS.get(id);
-        if (list == null || list.isEmpty()) {
-            return;
+            final Map<Integer, Long> bytesById = new HashMap<Integer, Long>();
+            for (final Map.Entry<Integer, Progress> entry : batch.entrySet()) {
+                bytesById.put(entry.getKey(), entry.getValue().bytesCurrent);
+            }
+            // update bytes transfered so that the transfer observer may pick
+            // it up.
+            if (dbUtil.updateBytesTransferred(bytesById) == -1) {
+                LOGGER.warn("Failed to update the progress of " + batch.size() + " transfers");
+            }
+            notifyProgress(batch);
         }
+    }
 
+    /**
+     * Writes and notifies the pending progress of a single transfer.
+     */
+    private void flush(int id) {
+        synchronized (flushLock) {
+            final Progress progress = takeProgress(id);
+            if (progress == null) {
+                return;
+            }
+            dbUtil.updateBytesTransferred(id, progress.bytesCurrent);
+            notifyProgress(Collections.singletonMap(id, progress));
+        }
+    }
 
-        if (!lastUpdateTime.containsKey(id)
-                || timeInMillis - lastUpdateTime.get(id) > UPDATE_THRESHOLD_MS
-                || bytesCurrent == bytesTotal) {
-            lastUpdateTime.put(id, timeInMillis);
+    /**
+     * Takes the pending progress of a transfer, reading its bytes transferred
+     * now. Called with the flush lock held.
+     *
+     * @return the progress to flush, or null if there is none
+     */
+    private Progress takeProgress(int id) {
+        final Long bytesTotal = pendingProgress.remove(id);
+        final AtomicLong bytes = bytesTransferred.get(id);
+        if (bytesTotal == null || bytes == null) {
+            return null;
+        }
+        final Progress progress = new Progress(bytes.get(), bytesTotal);
+        final TransferRecord transfer = transfers.get(id);
+        if (transfer != null) {
+            transfer.bytesCurrent = progress.bytesCurrent;
+        }
+        return progress;
+    }
+
+    private void notifyProgress(final Map<Integer, Progress> batch) {
+        boolean hasListeners = false;
+        for (final Integer id : batch.keySet()) {
+            final List<TransferListener> list = LISTENERS.get(id);
+            hasListeners |= list != null && !list.isEmpty();
+        }
+        if (!hasListeners) {
+            return;
+        }
 
-            // invoke on main thread
-            mainHandler.post(new Runnable() {
-                @Override
-                public void run() {
+        // invoke on main thread
+        mainThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (final Map.Entry<Integer, Progress> entry : batch.entrySet()) {
+                    final List<TransferListener> list = LISTENERS.get(entry.getKey());
+                    if (list == null) {
+                        continue;
+                    }
+                    final Progress progress = entry.getValue();
                     for (final TransferListener l : list) {
-                        l.onProgressChanged(id, bytesCurrent, bytesTotal);
+                        l.onProgressChanged(entry.getKey(), progress.bytesCurrent,
+                                progress.bytesTotal);
                     }
                 }
-            });
-        }
+            }
+        });
+    }
+
+    /**
+     * Flushes the pending progress and stops the flush thread.
+     */
+    void shutdown() {
+        flushExecutor.shutdown();
+        flush();
     }
 
     /**
@@ -263,7 +435,7 @@ class TransferStatusUpdater {
             return;
         }
         // invoke on main thread
-        mainHandler.post(new Runnable() {
+        mainThread.execute(new Runnable() {
             @Override
             public void run() {
                 for (final TransferListener l : list) {
@@ -279,7 +451,8 @@ class TransferStatusUpdater {
     void clear() {
         LISTENERS.clear();
         transfers.clear();
-        lastUpdateTime.clear();
+        bytesTransferred.clear();
+        pendingProgress.clear();
     }
 
     /**
@@ -324,35 +497,54 @@ class TransferStatusUpdater {
         list.remove(listener);
     }
 
+    /**
+     * The progress of a transfer.
+     */
+    private static final class Progress {
+        private final long bytesCurrent;
+        private final long bytesTotal;
+
+        Progress(long bytesCurrent, long bytesTotal) {
+            this.bytesCurrent = bytesCurrent;
+            this.bytesTotal = bytesTotal;
+        }
+    }
+
     /**
      * A helper class that updates transfer progress.
      */
     private class TransferProgressListener implements ProgressListener {
 
         private final TransferRecord transfer;
+        /*
+         * The bytes transferred of the whole transfer, shared by the
+         * listeners of its parts.
+         */
+        private final AtomicLong transferBytes;
         /*
          * Current transfer progress per task. In a multipart upload, this value
          * is per upload part task. The purpose is to reset the progress upon a
-         * reset event.
+         * reset event. Only the thread of the task updates it.
          */
         private long bytesCurrent;
 
         public TransferProgressListener(TransferRecord transfer) {
             this.transfer = transfer;
+            this.transferBytes = getBytesTransferred(transfer.id);
         }
 
         @Override
-        public synchronized void progressChanged(ProgressEvent progressEvent) {
+        public void progressChanged(ProgressEvent progressEvent) {
             if (progressEvent.getEventCode() == ProgressEvent.RESET_EVENT_CODE) {
                 // Reset will discard what's been transferred, so subtract the
                 // bytes transferred in this task from the total progress.
-                transfer.bytesCurrent -= bytesCurrent;
+                transferBytes.addAndGet(-bytesCurrent);
                 bytesCurrent = 0;
             } else {
                 bytesCurrent += progressEvent.getBytesTransferred();
-                transfer.bytesCurrent += progressEvent.getBytesTransferred();
+                transferBytes.addAndGet(progressEvent.getBytesTransferred());
             }
-            updateProgress(transfer.id, transfer.bytesCurrent, transfer.bytesTotal);
+            recordProgress(transfer.id, transfer.bytesTotal);
         }
     }
 
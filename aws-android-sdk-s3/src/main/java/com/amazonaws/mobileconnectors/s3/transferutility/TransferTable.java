@@ -201,6 +201,16 @@ class TransferTable {
      */
     public static final String COLUMN_CANNED_ACL = "canned_acl";
 
+    /**
+     * The number of parts an adaptive multipart upload uploads at once.
+     */
+    public static final String COLUMN_PART_CONCURRENCY = "part_concurrency";
+
+    /**
+     * The size of the parts an adaptive multipart upload has not started yet.
+     */
+    public static final String COLUMN_PART_SIZE = "part_size";
+
     /*
      * Database creation SQL statement
      */
@@ -250,6 +260,7 @@ class TransferTable {
     private static final int TABLE_VERSION_3 = 3;
     private static final int TABLE_VERSION_4 = 4;
     private static final int TABLE_VERSION_5 = 5;
+    private static final int TABLE_VERSION_6 = 6;
 
     /**
      * Upgrades the database.
@@ -273,6 +284,9 @@ class TransferTable {
         if (oldVersion < TABLE_VERSION_5 && newVersion >= TABLE_VERSION_5) {
             addVersion5Columns(database);
         }
+        if (oldVersion < TABLE_VERSION_6 && newVersion >= TABLE_VERSION_6) {
+            addVersion6Columns(database);
+        }
     }
 
     /**
@@ -322,4 +336,16 @@ class TransferTable {
                 " ADD COLUMN " + COLUMN_HEADER_STORAGE_CLASS + " text;";
         database.execSQL(addStorageClass);
     }
+
+    /**
+     * Adds columns that were introduced in version 6 to the database
+     */
+    private static void addVersion6Columns(SQLiteDatabase database) {
+        final String addPartConcurrency = "ALTER TABLE " + TABLE_TRANSFER +
+                " ADD COLUMN " + COLUMN_PART_CONCURRENCY + " integer;";
+        final String addPartSize = "ALTER TABLE " + TABLE_TRANSFER +
+                " ADD COLUMN " + COLUMN_PART_SIZE + " bigint;";
+        database.execSQL(addPartConcurrency);
+        database.execSQL(addPartSize);
+    }
 }
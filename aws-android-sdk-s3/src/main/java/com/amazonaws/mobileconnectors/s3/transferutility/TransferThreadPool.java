@@ -30,7 +30,8 @@ class TransferThreadPool {
     private static final Log LOGGER = LogFactory.getLog(TransferService.class);
 
     private static ExecutorService executorMainTask;
-    private static ExecutorService executorPartTask;
+    private static ThreadPoolExecutor executorPartTask;
+    private static int maximumPartThreads;
 
     static synchronized void init(final int transferThreadPoolSize) {
         LOGGER.debug("Initializing the thread pool of size: " + transferThreadPoolSize);
@@ -42,12 +43,38 @@ class TransferThreadPool {
         }
         if (executorPartTask == null) {
             executorPartTask = buildExecutor(poolSize);
+            maximumPartThreads = Math.max(transferThreadPoolSize, poolSize);
+        }
+    }
+
+    /**
+     * Returns the most threads the part tasks may be given with
+     * {@link #ensurePartThreads(int)}: the size of the whole pool.
+     */
+    static synchronized int getMaximumPartThreads() {
+        init(TransferUtilityOptions.getDefaultThreadPoolSize());
+        return maximumPartThreads;
+    }
+
+    /**
+     * Grows the threads of the part tasks, for the adaptive multipart uploads
+     * that upload more parts at once than half the pool.
+     *
+     * @param threads the number of threads needed, up to
+     *            {@link #getMaximumPartThreads()}.
+     */
+    static synchronized void ensurePartThreads(int threads) {
+        init(TransferUtilityOptions.getDefaultThreadPoolSize());
+        final int poolSize = Math.min(threads, maximumPartThreads);
+        if (poolSize > executorPartTask.getMaximumPoolSize()) {
+            executorPartTask.setMaximumPoolSize(poolSize);
+            executorPartTask.setCorePoolSize(poolSize);
         }
     }
 
     public static <T> Future<T> submitTask(Callable<T> c) {
         init(TransferUtilityOptions.getDefaultThreadPoolSize());
-        if (c instanceof UploadPartTask) {
+        if (c instanceof UploadPartTask || c instanceof DownloadPartTask) {
             return executorPartTask.submit(c);
         } else {
             return executorMainTask.submit(c);
@@ -85,7 +112,7 @@ class TransferThreadPool {
         }
     }
 
-    private static ExecutorService buildExecutor(int maxThreadsAllowed) {
+    private static ThreadPoolExecutor buildExecutor(int maxThreadsAllowed) {
         /*
          * Create a bounded thread pool for executing transfers; it creates
          * threads as needed (up to maximum) and reclaims them when finished.
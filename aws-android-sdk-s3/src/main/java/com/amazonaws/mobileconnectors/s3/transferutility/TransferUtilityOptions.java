@@ -15,6 +15,8 @@
 
 package com.amazonaws.mobileconnectors.s3.transferutility;
 
+import static com.amazonaws.services.s3.internal.Constants.MB;
+
 import java.io.Serializable;
 
 /**
@@ -27,6 +29,7 @@ import java.io.Serializable;
  * TransferUtilityOptions tuOptions = new TransferUtilityOptions();
  * tuOptions.setTransferServiceCheckTimeInterval(5 * 60 * 1000); // Scan for unfinished transfers every 5 minutes.
  * tuOptions.setTransferThreadPoolSize(10); // 10 threads for upload and download operations.
+ * tuOptions.setMultipartDownloadThreshold(16 * 1024 * 1024); // Download objects over 16MB in parallel ranges.
  *
  * // Initializes TransferUtility
  * TransferUtility transferUtility = TransferUtility
@@ -50,6 +53,11 @@ public class TransferUtilityOptions implements Serializable {
      */
     private static final int MILLIS_IN_MINUTE = 60 * 1000;
 
+    /**
+     * Default minimum size of the ranges of a multipart download.
+     */
+    private static final long DEFAULT_MINIMUM_DOWNLOAD_PART_SIZE = 8 * MB;
+
     /**
      * TransferService checks for the transfers that are waiting or in progress
      * and restarts the transfer for every time interval in milliseconds.
@@ -60,6 +68,22 @@ public class TransferUtilityOptions implements Serializable {
      * Number of threads in the pool for the all the transfers.
      */
     private int transferThreadPoolSize;
+
+    /**
+     * Objects of at least this size in bytes are downloaded in ranges fetched
+     * in parallel rather than in a single stream.
+     */
+    private long multipartDownloadThreshold;
+
+    /**
+     * The minimum size in bytes of the ranges of a multipart download.
+     */
+    private long minimumDownloadPartSize;
+
+    /**
+     * Whether multipart uploads tune their part concurrency and part size.
+     */
+    private boolean adaptiveMultipartUpload;
     
     /**
      * Constructor that sets the options to the
@@ -69,6 +93,8 @@ public class TransferUtilityOptions implements Serializable {
         super();
         this.transferServiceCheckTimeInterval = getDefaultCheckTimeInterval();
         this.transferThreadPoolSize = getDefaultThreadPoolSize();
+        this.multipartDownloadThreshold = getDefaultMultipartDownloadThreshold();
+        this.minimumDownloadPartSize = DEFAULT_MINIMUM_DOWNLOAD_PART_SIZE;
     }
 
     /**
@@ -112,6 +138,83 @@ public class TransferUtilityOptions implements Serializable {
         }
     }
     
+    /**
+     * Retrieve the size threshold in bytes for when to use multipart
+     * downloads.
+     *
+     * @return the multipartDownloadThreshold
+     */
+    public long getMultipartDownloadThreshold() {
+        return multipartDownloadThreshold;
+    }
+
+    /**
+     * Set the size threshold in bytes for when to use multipart downloads.
+     * Objects of at least this size are downloaded in ranges of at least
+     * {@link #getMinimumDownloadPartSize()} bytes, fetched in parallel on the
+     * transfer thread pool and written in place into the file. A paused or
+     * interrupted multipart download resumes with the ranges it is missing.
+     * Multipart downloads are disabled by default.
+     *
+     * @param multipartDownloadThreshold the multipartDownloadThreshold to set
+     */
+    public void setMultipartDownloadThreshold(final long multipartDownloadThreshold) {
+        this.multipartDownloadThreshold = multipartDownloadThreshold;
+    }
+
+    /**
+     * Retrieve the minimum size in bytes of the ranges of a multipart
+     * download.
+     *
+     * @return the minimumDownloadPartSize
+     */
+    public long getMinimumDownloadPartSize() {
+        return minimumDownloadPartSize;
+    }
+
+    /**
+     * Set the minimum size in bytes of the ranges of a multipart download.
+     * Smaller ranges spread a download over more connections, at the cost of
+     * a request and a database record per range. If it's not positive, then
+     * set the default value.
+     *
+     * @param minimumDownloadPartSize the minimumDownloadPartSize to set
+     */
+    public void setMinimumDownloadPartSize(final long minimumDownloadPartSize) {
+        if (minimumDownloadPartSize <= 0) {
+            this.minimumDownloadPartSize = DEFAULT_MINIMUM_DOWNLOAD_PART_SIZE;
+        } else {
+            this.minimumDownloadPartSize = minimumDownloadPartSize;
+        }
+    }
+
+    /**
+     * Retrieve whether multipart uploads tune their part concurrency and part
+     * size as they upload.
+     *
+     * @return the adaptiveMultipartUpload
+     */
+    public boolean isAdaptiveMultipartUpload() {
+        return adaptiveMultipartUpload;
+    }
+
+    /**
+     * Set whether multipart uploads tune their part concurrency and part size
+     * as they upload. An adaptive upload measures the throughput and the
+     * latency of its parts: it uploads more parts at once while that speeds
+     * the upload up, fewer when parts take long enough to risk timing out,
+     * and splits the parts it hasn't started yet into parts that take about
+     * 15 seconds each, within the part sizes S3 accepts. It may use up to
+     * {@link #getTransferThreadPoolSize()} threads for its parts. The chosen
+     * settings are available from {@link TransferObserver#getPartConcurrency()}
+     * and {@link TransferObserver#getPartSize()}. Disabled by default.
+     *
+     * @param adaptiveMultipartUpload the adaptiveMultipartUpload to set
+     */
+    public void setAdaptiveMultipartUpload(final boolean adaptiveMultipartUpload) {
+        this.adaptiveMultipartUpload = adaptiveMultipartUpload;
+    }
+
     /**
      * Return the default thread pool size.
      * 
@@ -129,4 +232,14 @@ public class TransferUtilityOptions implements Serializable {
     static long getDefaultCheckTimeInterval() {
         return 1 * MILLIS_IN_MINUTE;
     }
+
+    /**
+     * Return the default multipart download threshold.
+     *
+     * @return Long.MAX_VALUE, so that objects are downloaded in a single
+     *         stream.
+     */
+    static long getDefaultMultipartDownloadThreshold() {
+        return Long.MAX_VALUE;
+    }
 }
@@ -25,6 +25,7 @@ import com.amazonaws.services.s3.model.UploadPartResult;
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
+import java.util.Queue;
 import java.util.concurrent.Callable;
 
 class UploadPartTask implements Callable<Boolean> {
@@ -35,6 +36,14 @@ class UploadPartTask implements Callable<Boolean> {
     private final AmazonS3 s3;
     private final TransferDBUtil dbUtil;
     private final NetworkInfoReceiver networkInfoReceiver;
+    /**
+     * The queue the task adds itself to once done, or null.
+     */
+    private Queue<UploadPartTask> completedTasks;
+    /**
+     * How long the part took to upload, set once done.
+     */
+    private long durationMillis;
 
     public UploadPartTask(UploadPartRequest request,
                           AmazonS3 s3,
@@ -55,11 +64,43 @@ class UploadPartTask implements Callable<Boolean> {
         this.networkInfoReceiver = networkInfoReceiver;
     }
 
+    /**
+     * Adds the task to the queue once it is done, whether or not it uploaded
+     * its part.
+     *
+     * @param completedTasks a thread safe queue.
+     * @return this task.
+     */
+    UploadPartTask withCompletedTasks(Queue<UploadPartTask> completedTasks) {
+        this.completedTasks = completedTasks;
+        return this;
+    }
+
+    UploadPartRequest getRequest() {
+        return request;
+    }
+
+    long getDurationMillis() {
+        return durationMillis;
+    }
+
     /*
      * Runs part upload task and returns whether successfully uploaded.
      */
     @Override
     public Boolean call() throws Exception {
+        final long startMillis = System.currentTimeMillis();
+        try {
+            return uploadPart();
+        } finally {
+            durationMillis = System.currentTimeMillis() - startMillis;
+            if (completedTasks != null) {
+                completedTasks.add(this);
+            }
+        }
+    }
+
+    private Boolean uploadPart() throws Exception {
         try {
             final UploadPartResult putPartResult = s3.uploadPart(request);
             dbUtil.updateState(request.getId(), TransferState.PART_COMPLETED);
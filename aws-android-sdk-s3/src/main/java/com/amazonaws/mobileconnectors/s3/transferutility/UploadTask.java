@@ -15,6 +15,8 @@
 
 package com.amazonaws.mobileconnectors.s3.transferutility;
 
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
+
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.mobileconnectors.s3.transferutility.TransferService.NetworkInfoReceiver;
 import com.amazonaws.retry.RetryUtils;
@@ -35,16 +37,23 @@ import com.amazonaws.services.s3.util.Mimetypes;
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
+import android.content.ContentValues;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 class UploadTask implements Callable<Boolean> {
 
@@ -58,14 +67,22 @@ class UploadTask implements Callable<Boolean> {
     private final TransferDBUtil dbUtil;
     private final TransferStatusUpdater updater;
     private final NetworkInfoReceiver networkInfo;
+    private final TransferUtilityOptions options;
 
     public UploadTask(TransferRecord uploadInfo, AmazonS3 s3, TransferDBUtil dbUtil,
             TransferStatusUpdater updater, NetworkInfoReceiver networkInfo) {
+        this(uploadInfo, s3, dbUtil, updater, networkInfo, null);
+    }
+
+    public UploadTask(TransferRecord uploadInfo, AmazonS3 s3, TransferDBUtil dbUtil,
+            TransferStatusUpdater updater, NetworkInfoReceiver networkInfo,
+            TransferUtilityOptions options) {
         this.upload = uploadInfo;
         this.s3 = s3;
         this.dbUtil = dbUtil;
         this.updater = updater;
         this.networkInfo = networkInfo;
+        this.options = options;
     }
 
     /*
@@ -130,14 +147,20 @@ class UploadTask implements Callable<Boolean> {
         final List<UploadPartRequest> requestList = dbUtil.getNonCompletedPartRequestsFromDB(upload.id,
                 upload.multipartId);
         LOGGER.debug("multipart upload " + upload.id + " in " + requestList.size() + " parts.");
+        final boolean isAdaptive = options != null && options.isAdaptiveMultipartUpload();
         final ArrayList<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
-        for (final UploadPartRequest request : requestList) {
-            TransferUtility.appendMultipartTransferServiceUserAgentString(request);
-            request.setGeneralProgressListener(updater.newProgressListener(upload.id));
-            futures.add(TransferThreadPool.submitTask(new UploadPartTask(request, s3, dbUtil, networkInfo)));
+        if (!isAdaptive) {
+            for (final UploadPartRequest request : requestList) {
+                TransferUtility.appendMultipartTransferServiceUserAgentString(request);
+                request.setGeneralProgressListener(updater.newProgressListener(upload.id));
+                futures.add(TransferThreadPool.submitTask(new UploadPartTask(request, s3, dbUtil, networkInfo)));
+            }
         }
         try {
             boolean isSuccess = true;
+            if (isAdaptive) {
+                isSuccess = uploadPartsAdaptively(requestList, futures);
+            }
             /*
              * Future.get() will block the current thread until the method
              * returns.
@@ -207,6 +230,135 @@ class UploadTask implements Callable<Boolean> {
         }
     }
 
+    /**
+     * Uploads the parts a few at a time, tuning the number of parts uploaded
+     * at once and the size of the parts not started yet with an
+     * {@link AdaptiveUploadTuner}.
+     *
+     * @param requestList the parts to upload.
+     * @param futures the list to add the futures of the parts to, as they are
+     *            submitted.
+     * @return false if a part was interrupted by the user.
+     */
+    private boolean uploadPartsAdaptively(List<UploadPartRequest> requestList,
+            List<Future<Boolean>> futures) throws InterruptedException, ExecutionException {
+        final LinkedList<UploadPartRequest> pending = new LinkedList<UploadPartRequest>(
+                sortByPartNumber(requestList));
+        if (pending.isEmpty()) {
+            return true;
+        }
+        final AdaptiveUploadTuner tuner = new AdaptiveUploadTuner(
+                pending.getFirst().getPartSize(), TransferThreadPool.getMaximumPartThreads(),
+                System.currentTimeMillis());
+        final BlockingQueue<UploadPartTask> completedTasks =
+                new LinkedBlockingQueue<UploadPartTask>();
+        final Map<UploadPartTask, Future<Boolean>> inFlight =
+                new HashMap<UploadPartTask, Future<Boolean>>();
+        int concurrency = 0;
+        long partSize = 0;
+
+        while (!pending.isEmpty() || !inFlight.isEmpty()) {
+            if (concurrency != tuner.getConcurrency() || partSize != tuner.getPartSize()) {
+                if (partSize != 0 && partSize != tuner.getPartSize() && !pending.isEmpty()) {
+                    resizePendingParts(pending, tuner.getPartSize());
+                }
+                concurrency = tuner.getConcurrency();
+                partSize = tuner.getPartSize();
+                LOGGER.debug("Transfer " + upload.id + " uploads " + concurrency
+                        + " parts at once, of " + partSize + " bytes");
+                dbUtil.updateMultipartUploadSettings(upload.id, concurrency, partSize);
+                TransferThreadPool.ensurePartThreads(concurrency);
+            }
+            while (inFlight.size() < concurrency && !pending.isEmpty()) {
+                final UploadPartRequest request = pending.removeFirst();
+                TransferUtility.appendMultipartTransferServiceUserAgentString(request);
+                request.setGeneralProgressListener(updater.newProgressListener(upload.id));
+                final UploadPartTask task = new UploadPartTask(request, s3, dbUtil, networkInfo)
+                        .withCompletedTasks(completedTasks);
+                final Future<Boolean> future = TransferThreadPool.submitTask(task);
+                futures.add(future);
+                inFlight.put(task, future);
+            }
+
+            final UploadPartTask task = completedTasks.take();
+            final Future<Boolean> future = inFlight.remove(task);
+            futures.remove(future);
+            // UploadPartTask returns false when it's interrupted by user
+            if (!future.get()) {
+                return false;
+            }
+            tuner.onPartCompleted(task.getRequest().getPartSize(), task.getDurationMillis(),
+                    System.currentTimeMillis());
+        }
+        return true;
+    }
+
+    /**
+     * Splits the parts not started yet into parts of another size, if they
+     * run contiguously to the end of the file. On a resumed upload they may
+     * not, when parts after them were uploaded before; they keep their size
+     * then.
+     */
+    private void resizePendingParts(LinkedList<UploadPartRequest> pending, long partSize) {
+        final UploadPartRequest first = pending.getFirst();
+        long offset = first.getFileOffset();
+        for (final UploadPartRequest request : pending) {
+            if (request.getFileOffset() != offset) {
+                return;
+            }
+            offset += request.getPartSize();
+        }
+        final File file = first.getFile();
+        if (offset != file.length() || pending.size() == 1 && first.getPartSize() <= partSize) {
+            return;
+        }
+
+        // stay within the number of parts S3 allows
+        final long remaining = offset - first.getFileOffset();
+        final int partsLeft = MAXIMUM_UPLOAD_PARTS - first.getPartNumber() + 1;
+        final long size = Math.max(partSize, (remaining + partsLeft - 1) / partsLeft);
+        final int partCount = (int) ((remaining + size - 1) / size);
+
+        final PutObjectRequest putObjectRequest = createPutObjectRequest(upload);
+        final ContentValues[] valuesArray = new ContentValues[partCount];
+        long fileOffset = first.getFileOffset();
+        for (int i = 0; i < partCount; i++) {
+            final long bytesForPart = Math.min(size, offset - fileOffset);
+            valuesArray[i] = dbUtil.generateContentValuesForMultiPartUpload(upload.bucketName,
+                    upload.key, file, fileOffset, first.getPartNumber() + i,
+                    upload.multipartId, bytesForPart, i == partCount - 1 ? 1 : 0,
+                    putObjectRequest.getMetadata(), putObjectRequest.getCannedAcl());
+            fileOffset += bytesForPart;
+        }
+        if (dbUtil.replaceMultipartUploadParts(upload.id, first.getPartNumber(),
+                valuesArray) == -1) {
+            LOGGER.warn("Failed to resize the parts of transfer " + upload.id);
+            return;
+        }
+
+        pending.clear();
+        for (final UploadPartRequest request : sortByPartNumber(
+                dbUtil.getNonCompletedPartRequestsFromDB(upload.id, upload.multipartId))) {
+            if (request.getPartNumber() >= first.getPartNumber()) {
+                pending.add(request);
+            }
+        }
+        LOGGER.debug("Transfer " + upload.id + " split its remaining " + remaining
+                + " bytes into " + partCount + " parts");
+    }
+
+    private static List<UploadPartRequest> sortByPartNumber(List<UploadPartRequest> requests) {
+        final List<UploadPartRequest> sorted = new ArrayList<UploadPartRequest>(requests);
+        Collections.sort(sorted, new Comparator<UploadPartRequest>() {
+            @Override
+            public int compare(UploadPartRequest a, UploadPartRequest b) {
+                return a.getPartNumber() < b.getPartNumber() ? -1
+                        : a.getPartNumber() == b.getPartNumber() ? 0 : 1;
+            }
+        });
+        return sorted;
+    }
+
     private Boolean uploadSinglePartAndWaitForCompletion() {
         final PutObjectRequest putObjectRequest = createPutObjectRequest(upload);
 
@@ -58,13 +58,14 @@ import com.amazonaws.retry.PredefinedRetryPolicies;
 import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.services.s3.internal.AWSS3V4Signer;
 import com.amazonaws.services.s3.internal.BucketNameUtils;
+import com.amazonaws.services.s3.internal.ByteCountRecordingInputStream;
 import com.amazonaws.services.s3.internal.CompleteMultipartUploadRetryCondition;
 import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.internal.DeleteObjectTaggingHeaderHandler;
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
 import com.amazonaws.services.s3.internal.DigestValidationInputStream;
+import com.amazonaws.services.s3.internal.FilePartInputStream;
 import com.amazonaws.services.s3.internal.GetObjectTaggingResponseHeaderHandler;
-import com.amazonaws.services.s3.internal.InputSubstream;
 import com.amazonaws.services.s3.internal.MD5DigestCalculatingInputStream;
 import com.amazonaws.services.s3.internal.ObjectExpirationHeaderHandler;
 import com.amazonaws.services.s3.internal.RepeatableFileInputStream;
@@ -1605,6 +1606,9 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         final boolean skipContentMd5Check = ServiceUtils
                 .skipMd5CheckPerRequest(putObjectRequest);
 
+        // bytes of the file read before it is sent
+        long bytesReadFromFile = 0;
+
         // If a file is specified for upload, we need to pull some additional
         // information from it to auto-configure a few options
         if (putObjectRequest.getFile() != null) {
@@ -1619,9 +1623,15 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                 metadata.setContentType(Mimetypes.getInstance().getMimetype(file));
             }
 
-            if (calculateMD5 && !skipContentMd5Check) {
+            /*
+             * In single pass mode, the MD5 is calculated as the file is sent,
+             * like for streams, and checked against the returned ETag.
+             */
+            if (calculateMD5 && !skipContentMd5Check
+                    && !clientOptions.isSinglePassDigestEnabled()) {
                 try {
                     final String contentMd5_b64 = Md5Utils.md5AsBase64(file);
+                    bytesReadFromFile = file.length();
                     metadata.setContentMD5(contentMd5_b64);
                 } catch (final Exception e) {
                     throw new AmazonClientException(
@@ -1639,6 +1649,11 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         final Request<PutObjectRequest> request = createRequest(bucketName, key, putObjectRequest,
                 HttpMethodName.PUT);
 
+        if (putObjectRequest.getFile() != null) {
+            // reports how many times over the file is read
+            input = new ByteCountRecordingInputStream(input, request, bytesReadFromFile);
+        }
+
         if (putObjectRequest.getAccessControlList() != null) {
             addAclHeaders(request, putObjectRequest.getAccessControlList());
         } else if (putObjectRequest.getCannedAcl() != null) {
@@ -3633,9 +3648,10 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             inputStream = uploadPartRequest.getInputStream();
         } else if (uploadPartRequest.getFile() != null) {
             try {
-                inputStream = new InputSubstream(new RepeatableFileInputStream(
-                        uploadPartRequest.getFile()),
-                        uploadPartRequest.getFileOffset(), partSize, true);
+                // the parts of a file share one open channel, and a retry
+                // rereads the part without reopening the file
+                inputStream = new FilePartInputStream(uploadPartRequest.getFile(),
+                        uploadPartRequest.getFileOffset(), partSize);
             } catch (final FileNotFoundException e) {
                 throw new IllegalArgumentException("The specified file doesn't exist", e);
             }
@@ -82,6 +82,7 @@ public class AmazonS3EncryptionClient extends AmazonS3Client implements
     public static final String USER_AGENT = AmazonS3EncryptionClient.class.getName()
             + "/" + VersionInfoUtils.getVersion();
     private final S3CryptoModule<?> crypto;
+    private final CryptoConfiguration cryptoConfig;
     private final AWSKMSClient kms;
     /**
      * True if the a default KMS client is constructed, which will be shut down
@@ -440,6 +441,14 @@ public class AmazonS3EncryptionClient extends AmazonS3Client implements
             : kms;
         this.crypto = new CryptoModuleDispatcher(this.kms, new S3DirectImpl(),
                 credentialsProvider, kekMaterialsProvider, cryptoConfig);
+        this.cryptoConfig = cryptoConfig.readOnly();
+    }
+
+    /**
+     * Returns a read-only copy of the crypto configuration of this client.
+     */
+    public CryptoConfiguration getCryptoConfiguration() {
+        return cryptoConfig;
     }
     
     /**
@@ -29,6 +29,8 @@ public class S3ClientOptions {
     public static final boolean DEFAULT_ACCELERATE_MODE_ENABLED = false;
     /** S3 dualstack endpoint is by default not enabled */
     public static final boolean DEFAULT_DUALSTACK_ENABLED = false;
+    /** The default setting for hashing file uploads in a single pass */
+    public static final boolean DEFAULT_SINGLE_PASS_DIGEST_ENABLED = false;
 
     /** Flag for use of path-style access */
     private boolean pathStyleAccess;
@@ -36,6 +38,7 @@ public class S3ClientOptions {
     private final boolean accelerateModeEnabled;
     private final boolean payloadSigningEnabled;
     private final boolean dualstackEnabled;
+    private final boolean singlePassDigestEnabled;
 
     /**
      * @return a new S3ClientOptions builder.
@@ -54,6 +57,7 @@ public class S3ClientOptions {
         private boolean accelerateModeEnabled = DEFAULT_ACCELERATE_MODE_ENABLED;
         private boolean payloadSigningEnabled = DEFAULT_PAYLOAD_SIGNING_ENABLED;
         private boolean dualstackEnabled = DEFAULT_DUALSTACK_ENABLED;
+        private boolean singlePassDigestEnabled = DEFAULT_SINGLE_PASS_DIGEST_ENABLED;
 
         private Builder() {
         }
@@ -67,7 +71,8 @@ public class S3ClientOptions {
                     chunkedEncodingDisabled,
                     accelerateModeEnabled,
                     payloadSigningEnabled,
-                    dualstackEnabled);
+                    dualstackEnabled,
+                    singlePassDigestEnabled);
         }
 
         /**
@@ -178,6 +183,28 @@ public class S3ClientOptions {
             this.dualstackEnabled = true;
             return this;
         }
+
+        /**
+         * <p>
+         * Configures the client to hash the files it uploads in a single pass.
+         * </p>
+         * <p>
+         * By default, the Content-MD5 of a file uploaded with
+         * {@link AmazonS3#putObject(com.amazonaws.services.s3.model.PutObjectRequest)}
+         * is calculated by reading the whole file before sending it, so that
+         * Amazon S3 rejects corrupted uploads. With this option, the MD5 is
+         * calculated as the file is sent, along with the signatures of its
+         * chunks, and checked against the ETag returned by Amazon S3 instead:
+         * the file is read once, but an upload corrupted on the way is stored
+         * before the client reports the mismatch.
+         * </p>
+         *
+         * @return this Builder instance that can be used for method chaining
+         */
+        public Builder enableSinglePassDigest() {
+            this.singlePassDigestEnabled = true;
+            return this;
+        }
     }
 
     /**
@@ -191,6 +218,7 @@ public class S3ClientOptions {
         this.accelerateModeEnabled = DEFAULT_ACCELERATE_MODE_ENABLED;
         this.payloadSigningEnabled = DEFAULT_PAYLOAD_SIGNING_ENABLED;
         this.dualstackEnabled = DEFAULT_DUALSTACK_ENABLED;
+        this.singlePassDigestEnabled = DEFAULT_SINGLE_PASS_DIGEST_ENABLED;
     }
 
     /**
@@ -205,18 +233,21 @@ public class S3ClientOptions {
         this.accelerateModeEnabled = other.accelerateModeEnabled;
         this.payloadSigningEnabled = other.payloadSigningEnabled;
         this.dualstackEnabled = other.dualstackEnabled;
+        this.singlePassDigestEnabled = other.singlePassDigestEnabled;
     }
 
     private S3ClientOptions(boolean pathStyleAccess,
             boolean chunkedEncodingDisabled,
             boolean accelerateModeEnabled,
             boolean payloadSigningEnabled,
-            boolean dualstackEnabled) {
+            boolean dualstackEnabled,
+            boolean singlePassDigestEnabled) {
         this.pathStyleAccess = pathStyleAccess;
         this.chunkedEncodingDisabled = chunkedEncodingDisabled;
         this.accelerateModeEnabled = accelerateModeEnabled;
         this.payloadSigningEnabled = payloadSigningEnabled;
         this.dualstackEnabled = dualstackEnabled;
+        this.singlePassDigestEnabled = singlePassDigestEnabled;
     }
 
     /**
@@ -341,6 +372,19 @@ public class S3ClientOptions {
         return dualstackEnabled;
     }
 
+    /**
+     * <p>
+     * Returns whether the client hashes the files it uploads in a single
+     * pass, checking their MD5 against the returned ETag instead of sending
+     * a precomputed Content-MD5.
+     * </p>
+     *
+     * @return True if files are hashed as they are uploaded
+     */
+    public boolean isSinglePassDigestEnabled() {
+        return singlePassDigestEnabled;
+    }
+
 
     /**
      * <p>
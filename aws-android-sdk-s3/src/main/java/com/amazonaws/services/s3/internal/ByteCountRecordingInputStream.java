@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import com.amazonaws.Request;
+import com.amazonaws.internal.SdkFilterInputStream;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream wrapper that records the number of bytes read from the
+ * wrapped stream, including the bytes read again after a reset, as the
+ * {@link Field#BytesProcessed} counter of the metrics of a request. The
+ * metrics are looked up as the stream is read, since the client binds them
+ * to the request only once it is executed.
+ */
+public class ByteCountRecordingInputStream extends SdkFilterInputStream {
+    private final Request<?> request;
+    private long byteCount;
+
+    /**
+     * @param in the input stream.
+     * @param request the request whose metrics record the bytes read.
+     * @param initialByteCount the bytes already read for the request, such as
+     *            to precompute a hash of its content.
+     */
+    public ByteCountRecordingInputStream(InputStream in, Request<?> request,
+            long initialByteCount) {
+        super(in);
+        this.request = request;
+        this.byteCount = initialByteCount;
+    }
+
+    /**
+     * @return the number of bytes read for the request so far.
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int ch = super.read();
+        if (ch != -1) {
+            record(1);
+        }
+        return ch;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int result = super.read(b, off, len);
+        if (result > 0) {
+            record(result);
+        }
+        return result;
+    }
+
+    private void record(int bytesRead) {
+        byteCount += bytesRead;
+        final AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+        if (metrics != null) {
+            metrics.setCounter(Field.BytesProcessed, byteCount);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import com.amazonaws.internal.SdkInputStream;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream over a range of a file, such as a part of a multipart
+ * upload, read through a {@link java.nio.channels.FileChannel} shared with
+ * every other stream reading the same file.
+ * <p>
+ * The data is read at a position kept by the stream rather than by the
+ * channel, straight into the caller's array. Resetting the stream to its mark
+ * only moves that position back, so a part is retried without reopening the
+ * file and skipping to its offset again; and many parts of a file upload at
+ * the same time through one open file.
+ */
+public class FilePartInputStream extends SdkInputStream {
+    private final SharedFileChannel channel;
+    private final long offset;
+    private final long length;
+    /** The position in the range, from 0 to length. */
+    private long position;
+    private long markedPosition;
+    private boolean closed;
+
+    /**
+     * Constructs a stream over the given range of a file.
+     *
+     * @param file The file to read.
+     * @param offset The offset, in bytes, in the file at which the range
+     *            starts.
+     * @param length The length, in bytes, of the range.
+     * @throws FileNotFoundException If the specified file doesn't exist, or
+     *             can't be opened.
+     */
+    public FilePartInputStream(File file, long offset, long length)
+            throws FileNotFoundException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("offset and length must not be negative");
+        }
+        this.channel = SharedFileChannel.open(file);
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        final int bytesRead = read(b, 0, 1);
+        return bytesRead == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        abortIfNeeded();
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        final long remaining = length - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        final ByteBuffer dst = ByteBuffer.wrap(b, off, (int) Math.min(len, remaining));
+        int bytesRead;
+        do {
+            bytesRead = channel.read(dst, offset + position);
+        } while (bytesRead == 0);
+        if (bytesRead == -1) {
+            // the file is shorter than the range
+            return -1;
+        }
+        position += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        abortIfNeeded();
+        if (n <= 0) {
+            return 0;
+        }
+        final long skipped = Math.min(n, length - position);
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        abortIfNeeded();
+        return (int) Math.min(length - position, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        abortIfNeeded();
+        markedPosition = position;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        abortIfNeeded();
+        position = markedPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            channel.release();
+        }
+        abortIfNeeded();
+    }
+
+    @Override
+    protected InputStream getWrappedInputStream() {
+        return null;
+    }
+}
@@ -20,6 +20,7 @@ package com.amazonaws.services.s3.internal;
 
 import static com.amazonaws.util.StringUtils.UTF8;
 
+import com.amazonaws.AbortedException;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.Request;
@@ -42,10 +43,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.SocketException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -404,6 +409,85 @@ public class ServiceUtils {
         return s3Object;
     }
 
+    /**
+     * Downloads an S3Object, as returned from a ranged
+     * {@link AmazonS3Client#getObject(com.amazonaws.services.s3.model.GetObjectRequest)}
+     * , into the specified file channel at the given position. Positional
+     * writes leave the position of the channel alone, so that the ranges of
+     * an object can be written through the same channel concurrently.
+     *
+     * @param s3Object The S3Object containing a reference to an InputStream
+     *            containing the data of the range.
+     * @param channel The channel of the file to store the data in.
+     * @param position The position in the file of the first byte of the range.
+     * @return The number of bytes written.
+     * @throws AbortedException if the channel was closed by the interruption
+     *             of this or another thread writing into it.
+     */
+    public static long downloadObjectToFileChannel(S3Object s3Object,
+            FileChannel channel, long position) {
+        final InputStream content = s3Object.getObjectContent();
+        final byte[] buffer = new byte[DEAFAULT_BYTE_SIZE];
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long offset = position;
+        try {
+            int bytesRead;
+            while ((bytesRead = content.read(buffer)) > -1) {
+                byteBuffer.clear();
+                byteBuffer.limit(bytesRead);
+                while (byteBuffer.hasRemaining()) {
+                    offset += channel.write(byteBuffer, offset);
+                }
+            }
+        } catch (final AsynchronousCloseException e) {
+            s3Object.getObjectContent().abort();
+            throw new AbortedException(e);
+        } catch (final IOException e) {
+            s3Object.getObjectContent().abort();
+            throw new AmazonClientException(
+                    "Unable to store object contents to disk: " + e.getMessage(), e);
+        } finally {
+            try {
+                content.close();
+            } catch (final Exception e) {
+                log.debug("Caught exception. Ignoring.");
+            }
+        }
+        return offset - position;
+    }
+
+    /**
+     * Verifies the content of a downloaded file against the ETag of its
+     * object, when the ETag is the MD5 of the object content. The caller
+     * decides whether the check applies, see
+     * {@link #skipMd5CheckPerResponse(ObjectMetadata)}.
+     *
+     * @param file The downloaded file.
+     * @param eTag The ETag of the object.
+     * @throws AmazonClientException if the content of the file doesn't match
+     *             the ETag.
+     */
+    public static void verifyDownloadedFile(File file, String eTag) {
+        if (eTag == null || ServiceUtils.isMultipartUploadETag(eTag)) {
+            return;
+        }
+        byte[] clientSideHash = null;
+        byte[] serverSideHash = null;
+        try {
+            clientSideHash = Md5Utils.computeMD5Hash(file);
+            serverSideHash = BinaryUtils.fromHex(eTag);
+        } catch (final Exception e) {
+            log.warn("Unable to calculate MD5 hash to validate download: " + e.getMessage(), e);
+        }
+        if (clientSideHash != null && serverSideHash != null
+                && !Arrays.equals(clientSideHash, serverSideHash)) {
+            throw new AmazonClientException("Unable to verify integrity of data download.  " +
+                    "Client calculated content hash didn't match hash calculated by Amazon S3.  " +
+                    "The data stored in '" + file.getAbsolutePath()
+                    + "' may be corrupt.");
+        }
+    }
+
     /**
      * Based on the given metadata of an S3 response, Returns whether the
      * specified request should skip MD5 check on the requested object content.
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read-only channel to a file, shared by everyone reading the file at the
+ * same time, such as the parts of a multipart upload. The channel is opened
+ * by the first to read the file and closed once the last one releases it.
+ * <p>
+ * Reads are positional, so the readers keep their own position and don't
+ * interfere with each other. A thread interrupted while reading closes the
+ * channel for all of them; the channel is then reopened for the others.
+ */
+final class SharedFileChannel {
+
+    /** The channels currently open, by absolute file. */
+    private static final Map<File, SharedFileChannel> OPEN = new HashMap<File, SharedFileChannel>();
+
+    private final File file;
+    /** Guarded by this. */
+    private FileChannel channel;
+    /** Guarded by OPEN. */
+    private int references;
+
+    private SharedFileChannel(File file) throws FileNotFoundException {
+        this.file = file;
+        this.channel = openChannel(file);
+    }
+
+    /**
+     * Returns the channel to the given file, opening it if no one else is
+     * reading the file. Each call must be matched by a call to
+     * {@link #release()}.
+     *
+     * @throws FileNotFoundException If the file doesn't exist, or can't be
+     *             opened.
+     */
+    static SharedFileChannel open(File file) throws FileNotFoundException {
+        final File key = file.getAbsoluteFile();
+        synchronized (OPEN) {
+            SharedFileChannel shared = OPEN.get(key);
+            if (shared == null) {
+                shared = new SharedFileChannel(key);
+                OPEN.put(key, shared);
+            }
+            shared.references++;
+            return shared;
+        }
+    }
+
+    /**
+     * Returns the number of files with a channel open.
+     */
+    static int getOpenCount() {
+        synchronized (OPEN) {
+            return OPEN.size();
+        }
+    }
+
+    /**
+     * Reads from the file at the given position, without changing the
+     * position of the channel.
+     *
+     * @return the number of bytes read, possibly zero, or -1 if the position
+     *         is at or past the end of the file.
+     */
+    int read(ByteBuffer dst, long position) throws IOException {
+        final FileChannel current = current();
+        try {
+            return current.read(dst, position);
+        } catch (final ClosedByInterruptException e) {
+            // this thread was interrupted
+            throw e;
+        } catch (final ClosedChannelException e) {
+            // another thread was interrupted while reading
+            return reopen(current).read(dst, position);
+        }
+    }
+
+    /**
+     * Lets go of the channel, which is closed if no one else is reading the
+     * file.
+     */
+    void release() throws IOException {
+        synchronized (OPEN) {
+            if (--references > 0) {
+                return;
+            }
+            OPEN.remove(file);
+        }
+        current().close();
+    }
+
+    private synchronized FileChannel current() {
+        return channel;
+    }
+
+    private FileChannel reopen(FileChannel closed) throws IOException {
+        // holding OPEN keeps the last reader from releasing the channel
+        // while it is being reopened
+        synchronized (OPEN) {
+            if (references <= 0) {
+                throw new ClosedChannelException();
+            }
+            synchronized (this) {
+                if (channel == closed) {
+                    channel = openChannel(file);
+                }
+                return channel;
+            }
+        }
+    }
+
+    private static FileChannel openChannel(File file) throws FileNotFoundException {
+        return new RandomAccessFile(file, "r").getChannel();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal.crypto;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of byte buffers of one size, so that the cipher streams opened for
+ * every object and every part reuse their buffers rather than allocate new
+ * ones. Only a few buffers are kept; any more released are left to the
+ * garbage collector.
+ * <p>
+ * The buffers are heap buffers backed by an array: the data is read into
+ * them from a stream, and the JCE providers process array backed buffers in
+ * place, whereas they copy direct buffers through temporary arrays.
+ */
+final class ByteBufferPool {
+
+    /** The most buffers kept in each pool. */
+    static final int MAX_POOLED_BUFFERS = 16;
+
+    private static final ConcurrentMap<Integer, ByteBufferPool> POOLS =
+            new ConcurrentHashMap<Integer, ByteBufferPool>();
+
+    private final int bufferSize;
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers =
+            new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private ByteBufferPool(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Returns the shared pool of buffers of the given size.
+     */
+    static ByteBufferPool forSize(int bufferSize) {
+        final ByteBufferPool pool = POOLS.get(bufferSize);
+        if (pool != null) {
+            return pool;
+        }
+        final ByteBufferPool created = new ByteBufferPool(bufferSize);
+        final ByteBufferPool existing = POOLS.putIfAbsent(bufferSize, created);
+        return existing == null ? created : existing;
+    }
+
+    /**
+     * Returns the size of the buffers of this pool.
+     */
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns the number of buffers available in this pool.
+     */
+    int getPooledCount() {
+        return pooled.get();
+    }
+
+    /**
+     * Takes a cleared buffer from this pool, or allocates one if the pool is
+     * empty.
+     */
+    ByteBuffer acquire() {
+        final ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(bufferSize);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to this pool. The buffer must no longer be used by the
+     * caller.
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
@@ -15,6 +15,7 @@
 
 package com.amazonaws.services.s3.internal.crypto;
 
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -27,6 +28,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.NullCipher;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 /**
  * Functions like a {@link Cipher} but provides only a subset of all the
@@ -268,6 +270,31 @@ class CipherLite {
         return cipher.update(input, inputOffset, inputLen);
     }
 
+    /**
+     * Continues a multiple-part encryption or decryption operation (depending
+     * on how the underlying cipher was initialized), processing another data
+     * part.
+     * <p>
+     * All <code>input.remaining()</code> bytes starting at
+     * <code>input.position()</code> are processed, and the result is stored in
+     * the <code>output</code> buffer rather than in a new one. Upon return, the
+     * position of the input buffer is equal to its limit, and the position of
+     * the output buffer has been advanced by the number of bytes stored.
+     *
+     * @param input the input buffer
+     * @param output the output buffer
+     * @return the number of bytes stored in <code>output</code>
+     * @exception ShortBufferException if there is insufficient space in the
+     *                output buffer, as with {@link #getOutputSize(int)}; no
+     *                input has been processed then, so that the call can be
+     *                repeated with a larger output buffer.
+     * @exception IllegalStateException if the underlying cipher is in a wrong
+     *                state (e.g., has not been initialized)
+     */
+    int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        return cipher.update(input, output);
+    }
+
     /**
      * Returns the algorithm name of the underlying cipher.
      */
@@ -19,11 +19,22 @@ import com.amazonaws.internal.SdkFilterInputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
 
 /**
+ * Encrypts or decrypts the data of an input stream as it is read.
+ * <p>
+ * The data is read and processed a chunk at a time, through an input and an
+ * output buffer taken from a {@link ByteBufferPool} on the first read and
+ * returned to it on close, so that no buffers are allocated per chunk or per
+ * stream. A chunk whose output doesn't fit the output buffer, as when an
+ * AES/GCM decryption holds back all the data until the end, is processed into
+ * a new array instead.
+ *
  * @see CipherLite
  * @see GCMCipherLite
  */
@@ -31,6 +42,8 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
     private static final int MAX_RETRY = 1000;
     private static final int DEFAULT_IN_BUFFER_SIZE = 512;
     private static final int BYTE_MASK = 0xFF;
+    /** The room for the padding the output of a chunk may gain. */
+    private static final int OUTPUT_PADDING = DEFAULT_IN_BUFFER_SIZE;
     private CipherLite cipherLite;
     /**
      * True if this input stream is currently involved in a multipart uploads;
@@ -48,7 +61,10 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
      */
     private final boolean lastMultiPart;
     private boolean eof = false;
-    private final byte[] bufin;
+    private final ByteBufferPool inputPool;
+    private final ByteBufferPool outputPool;
+    private ByteBuffer inputBuffer;
+    private ByteBuffer outputBuffer;
     private byte[] bufout;
     private int currPos = 0;
     private int maxPos = 0;
@@ -95,7 +111,8 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
                     + ") must be a positive multiple of "
                     + DEFAULT_IN_BUFFER_SIZE);
         }
-        this.bufin = new byte[buffsize];
+        this.inputPool = ByteBufferPool.forSize(buffsize);
+        this.outputPool = ByteBufferPool.forSize(buffsize + OUTPUT_PADDING);
     }
 
     /**
@@ -209,6 +226,7 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
         }
         currPos = 0;
         maxPos = 0;
+        releaseBuffers();
         abortIfNeeded();
     }
 
@@ -257,7 +275,11 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
             return -1;
         }
         bufout = null;
-        final int len = in.read(bufin);
+        if (inputBuffer == null) {
+            inputBuffer = inputPool.acquire();
+            outputBuffer = outputPool.acquire();
+        }
+        final int len = in.read(inputBuffer.array(), 0, inputBuffer.capacity());
         if (len == -1) {
             eof = true;
             // Skip doFinal if it's a multi-part upload but not the last part
@@ -282,12 +304,42 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
             }
             return -1;
         }
-        bufout = cipherLite.update(bufin, 0, len);
         currPos = 0;
+        if (fitsOutputBuffer(len)) {
+            inputBuffer.clear();
+            inputBuffer.limit(len);
+            outputBuffer.clear();
+            try {
+                maxPos = cipherLite.update(inputBuffer, outputBuffer);
+                bufout = outputBuffer.array();
+                return maxPos;
+            } catch (final ShortBufferException ignore) {
+                // nothing was processed; fall back to a new output array
+            }
+        }
+        bufout = cipherLite.update(inputBuffer.array(), 0, len);
         maxPos = (bufout == null ? 0 : bufout.length);
         return maxPos;
     }
 
+    private boolean fitsOutputBuffer(int len) {
+        try {
+            return cipherLite.getOutputSize(len) <= outputBuffer.capacity();
+        } catch (final IllegalStateException e) {
+            return false;
+        }
+    }
+
+    private void releaseBuffers() {
+        if (inputBuffer != null) {
+            inputPool.release(inputBuffer);
+            outputPool.release(outputBuffer);
+            inputBuffer = null;
+            outputBuffer = null;
+            bufout = null;
+        }
+    }
+
     void renewCipherLite() {
         cipherLite = cipherLite.recreate();
     }
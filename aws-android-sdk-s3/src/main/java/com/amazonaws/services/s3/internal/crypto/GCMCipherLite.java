@@ -15,12 +15,14 @@
 
 package com.amazonaws.services.s3.internal.crypto;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 /**
  * A AES/GCM specific {@link CipherLite} that support re-processing of input
@@ -188,6 +190,45 @@ final class GCMCipherLite extends CipherLite {
         return out;
     }
 
+    /**
+     * Same as {@link #update(byte[], int, int)}, but stores the result in the
+     * given output buffer.
+     */
+    @Override
+    int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        final int inputLen = input.remaining();
+        if (aux == null) {
+            final int count = super.update(input, output);
+            outputByteCount += checkMax(count);
+            invisiblyProcessed = count == 0 && inputLen > 0;
+            return count;
+        }
+        final int start = output.position();
+        final int count = aux.update(input, output);
+        currentCount += count;
+        if (currentCount == outputByteCount) {
+            aux = null; // flip back to the original GCM cipher
+        } else if (currentCount > outputByteCount) {
+            if (Cipher.ENCRYPT_MODE == getCipherMode()) {
+                throw new IllegalStateException("currentCount=" + currentCount
+                        + " > outputByteCount=" + outputByteCount);
+            }
+            // For decryption, drop what AES/CTR decrypted of the tag at the end
+            final int finalBytesLen = (finalBytes == null ? 0 : finalBytes.length);
+            final long diff = outputByteCount - (currentCount - count) - finalBytesLen;
+            currentCount = outputByteCount - finalBytesLen;
+            aux = null; // flip back to the original GCM cipher
+            output.position(start + (int) diff);
+            return (int) diff;
+        }
+        return count;
+    }
+
+    @Override
+    int getOutputSize(int inputLen) {
+        return aux == null ? super.getOutputSize(inputLen) : aux.getOutputSize(inputLen);
+    }
+
     /**
      * Returns the input delta but only if it will not result in exceeding the
      * limit of the maximum number of bytes that can be processed by AES/GCM.
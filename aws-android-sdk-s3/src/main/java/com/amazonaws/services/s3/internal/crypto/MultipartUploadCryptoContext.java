@@ -27,6 +27,11 @@ class MultipartUploadCryptoContext extends MultipartUploadContext {
      * True if a multi-part upload is currently in progress; false otherwise.
      */
     private volatile boolean partUploadInProgress;
+    /**
+     * True if a part of a pipelined upload failed to be encrypted, leaving the
+     * cipher unfit for the parts after it.
+     */
+    private boolean encryptionFailed;
 
     MultipartUploadCryptoContext(String bucketName, String key,
             ContentCryptoMaterial cekMaterial) {
@@ -93,4 +98,61 @@ class MultipartUploadCryptoContext extends MultipartUploadContext {
     void endPartUpload() {
         partUploadInProgress = false;
     }
+
+    /**
+     * Waits for the turn of the given part to be encrypted in a pipelined
+     * upload: until the previous part has been encrypted, whichever thread
+     * uploads it. Unlike {@link #beginPartUpload(int)}, a part can't be
+     * encrypted again once it has been, since the cipher has moved on.
+     * <p>
+     * Caller of this method is responsible to call
+     * {@link #endPartEncryption(boolean)} in a finally block once the part is
+     * encrypted (either normally or abruptly).
+     *
+     * @throws AmazonClientException if the part has already been encrypted,
+     *             if a previous part failed to be encrypted, or if interrupted
+     *             while waiting
+     */
+    synchronized void beginPartEncryption(final int nextPartNumber) {
+        if (nextPartNumber < 1) {
+            throw new IllegalArgumentException("part number must be at least 1");
+        }
+        try {
+            while (!encryptionFailed
+                    && (partUploadInProgress || nextPartNumber > partNumber + 1)) {
+                wait();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(
+                    "Interrupted while waiting to encrypt part " + nextPartNumber, e);
+        }
+        if (encryptionFailed) {
+            throw new AmazonClientException("Unable to encrypt part " + nextPartNumber
+                    + " after a previous part failed to be encrypted");
+        }
+        if (nextPartNumber <= partNumber) {
+            throw new AmazonClientException("Part " + nextPartNumber
+                    + " has already been encrypted and can't be encrypted again"
+                    + " in a pipelined upload (partNumber=" + partNumber + ")");
+        }
+        partNumber = nextPartNumber;
+        partUploadInProgress = true;
+    }
+
+    /**
+     * Used to mark the end of the encryption of a part, which lets the next
+     * part be encrypted. Must be preceded previously by a call to
+     * {@link #beginPartEncryption(int)}.
+     *
+     * @param succeeded false if the part failed to be encrypted, which fails
+     *            the parts waiting to be encrypted after it.
+     */
+    synchronized void endPartEncryption(boolean succeeded) {
+        partUploadInProgress = false;
+        if (!succeeded) {
+            encryptionFailed = true;
+        }
+        notifyAll();
+    }
 }
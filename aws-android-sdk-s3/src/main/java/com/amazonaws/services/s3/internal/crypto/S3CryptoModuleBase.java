@@ -282,6 +282,11 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
      * opposed to the normal AmazonS3Client) must be uploaded serially, and in
      * order. Otherwise, the previous encryption context isn't available to use
      * when encrypting the current part.
+     * <p>
+     * If {@link CryptoConfiguration#isPipelinedMultipartUpload()}, the part is
+     * encrypted into memory first, and the next part can be encrypted, by
+     * another thread, while it uploads. The parts are still encrypted one at a
+     * time and in order: a part waits for the previous one to be encrypted.
      */
     @Override
     public UploadPartResult uploadPartSecurely(UploadPartRequest req) {
@@ -303,6 +308,9 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
             throw new AmazonClientException(
                 "No client-side information available on upload ID " + uploadId);
         }
+        if (cryptoConfig.isPipelinedMultipartUpload()) {
+            return uploadPartPipelined(req, uploadContext);
+        }
         final UploadPartResult result;
         // Checks the parts are uploaded in series
         uploadContext.beginPartUpload(req.getPartNumber());
@@ -347,6 +355,75 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
         return result;
     }
 
+    /**
+     * Encrypts the part into memory, in turn with the other parts, then
+     * uploads it once the next part is free to be encrypted.
+     */
+    private UploadPartResult uploadPartPipelined(UploadPartRequest req, T uploadContext) {
+        final boolean isLastPart = req.isLastPart();
+        final File fileOrig = req.getFile();
+        final InputStream isOrig = req.getInputStream();
+        final long fileOffsetOrig = req.getFileOffset();
+        final long partSizeOrig = req.getPartSize();
+        // Waits for the previous part to be encrypted
+        uploadContext.beginPartEncryption(req.getPartNumber());
+        boolean encrypted = false;
+        SdkFilterInputStream isCurr = null;
+        final byte[] ciphertext;
+        int ciphertextLength = 0;
+        try {
+            if (isLastPart && uploadContext.hasFinalPartBeenSeen()) {
+                throw new AmazonClientException(
+                    "This part was specified as the last part in a multipart upload, but a previous part was already marked as the last part.  "
+                  + "Only the last part of the upload should be marked as the last part.");
+            }
+            final long lastPartSize = isLastPart ? computeLastPartSize(req) : -1;
+            final long capacity = Math.max(partSizeOrig, lastPartSize)
+                    + contentCryptoScheme.getBlockSizeInBytes();
+            if (capacity > Integer.MAX_VALUE) {
+                throw new AmazonClientException("Invalid part size: part " + req.getPartNumber()
+                        + " is too large to be encrypted into memory");
+            }
+            final CipherLiteInputStream clis = newMultipartS3CipherInputStream(req,
+                    cipherLiteForNextPart(uploadContext));
+            isCurr = clis;
+            isCurr = wrapForMultipart(clis, partSizeOrig);
+            ciphertext = new byte[(int) capacity];
+            int read;
+            while (ciphertextLength < ciphertext.length && (read = isCurr.read(ciphertext,
+                    ciphertextLength, ciphertext.length - ciphertextLength)) != -1) {
+                ciphertextLength += read;
+            }
+            if (ciphertextLength == ciphertext.length && isCurr.read() != -1) {
+                throw new AmazonClientException("Unable to encrypt part " + req.getPartNumber()
+                        + ": the ciphertext is longer than expected");
+            }
+            updateUploadContext(uploadContext, isCurr);
+            if (isLastPart) {
+                uploadContext.setHasFinalPartBeenSeen(true);
+            }
+            encrypted = true;
+        } catch (final IOException e) {
+            throw new AmazonClientException("Unable to encrypt part " + req.getPartNumber(), e);
+        } finally {
+            cleanupDataSource(req, fileOrig, isOrig, isCurr, log);
+            uploadContext.endPartEncryption(encrypted);
+        }
+
+        try {
+            req.setInputStream(new ByteArrayInputStream(ciphertext, 0, ciphertextLength));
+            req.setFile(null);
+            req.setFileOffset(0);
+            req.setPartSize(ciphertextLength);
+            return s3.uploadPart(req);
+        } finally {
+            req.setInputStream(isOrig);
+            req.setFile(fileOrig);
+            req.setFileOffset(fileOffsetOrig);
+            req.setPartSize(partSizeOrig);
+        }
+    }
+
     protected final CipherLiteInputStream newMultipartS3CipherInputStream(
             UploadPartRequest req, CipherLite cipherLite) {
         final File fileOrig = req.getFile();
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.iterable;
+
+import java.util.List;
+
+/**
+ * Lists the pages of a kind of listing, such as the object or the version
+ * listings of a bucket, for the prefetching iterators.
+ *
+ * @param <P> the type of the pages.
+ * @param <S> the type of the summaries of a page.
+ */
+interface ListingSource<P, S> {
+
+    /**
+     * Lists the first page under a prefix.
+     *
+     * @param prefix the prefix, or null for the whole bucket.
+     * @param delimiter the delimiter to roll the keys up by, or null.
+     * @return the first page.
+     */
+    P list(String prefix, String delimiter);
+
+    /**
+     * Lists the page after a truncated page.
+     *
+     * @param previous the previous page.
+     * @return the next page.
+     */
+    P listNext(P previous);
+
+    /**
+     * Returns whether there are more pages after a page.
+     */
+    boolean isTruncated(P page);
+
+    /**
+     * Returns the summaries of a page, in key order.
+     */
+    List<S> getSummaries(P page);
+
+    /**
+     * Returns the common prefixes of a page, in order.
+     */
+    List<String> getCommonPrefixes(P page);
+
+    /**
+     * Returns the key of a summary.
+     */
+    String getKey(S summary);
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.iterable;
+
+import com.amazonaws.AmazonClientException;
+
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the pages of a listing in the background, ahead of the consumer.
+ * At most {@code depth} pages are held that the consumer hasn't taken yet;
+ * once they are, the fetching task returns its thread to the executor and is
+ * resubmitted when the consumer takes a page. An abandoned listing therefore
+ * holds no thread, only the pages already fetched.
+ *
+ * @param <P> the type of the pages.
+ */
+final class PagePrefetcher<P> {
+
+    private static final ThreadFactory DAEMON_THREAD_FACTORY = new ThreadFactory() {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("s3-listing-prefetch-" + threadCount.incrementAndGet());
+            return thread;
+        }
+    };
+
+    private static ExecutorService defaultExecutor;
+
+    private final ListingSource<P, ?> source;
+    private final String prefix;
+    private final String delimiter;
+    private final int depth;
+    private final Executor executor;
+
+    /** The pages fetched and not yet taken, guarded by this. */
+    private final LinkedList<P> pages = new LinkedList<P>();
+    private P lastPage;
+    private boolean fetching;
+    private boolean listed;
+    private RuntimeException failure;
+
+    private final Runnable fetchTask = new Runnable() {
+        @Override
+        public void run() {
+            fetch();
+        }
+    };
+
+    /**
+     * @param source the source of the pages.
+     * @param prefix the prefix to list.
+     * @param delimiter the delimiter to list by, or null.
+     * @param depth the number of pages to fetch ahead of the consumer.
+     * @param executor the executor to fetch the pages on.
+     */
+    PagePrefetcher(ListingSource<P, ?> source, String prefix, String delimiter, int depth,
+            Executor executor) {
+        this.source = source;
+        this.prefix = prefix;
+        this.delimiter = delimiter;
+        this.depth = depth;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the executor the listings prefetch on unless told otherwise: a
+     * shared pool of daemon threads, which exit once idle.
+     */
+    static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newCachedThreadPool(DAEMON_THREAD_FACTORY);
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Starts fetching the first pages, before the consumer asks for them.
+     */
+    synchronized void start() {
+        fetchIfNeeded();
+    }
+
+    /**
+     * Takes the next page, waiting for it to be fetched if needed.
+     *
+     * @return the next page, or null once the listing is exhausted.
+     * @throws AmazonClientException if a page couldn't be fetched or the
+     *             thread was interrupted.
+     */
+    synchronized P next() {
+        fetchIfNeeded();
+        while (pages.isEmpty()) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (listed) {
+                return null;
+            }
+            try {
+                wait();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Interrupted while waiting for a listing", e);
+            }
+        }
+        final P page = pages.removeFirst();
+        fetchIfNeeded();
+        return page;
+    }
+
+    private void fetchIfNeeded() {
+        if (!fetching && !listed && failure == null && pages.size() < depth) {
+            fetching = true;
+            executor.execute(fetchTask);
+        }
+    }
+
+    private void fetch() {
+        while (true) {
+            final P previous;
+            synchronized (this) {
+                previous = lastPage;
+            }
+
+            final P page;
+            try {
+                page = previous == null ? source.list(prefix, delimiter)
+                        : source.listNext(previous);
+            } catch (final Throwable t) {
+                synchronized (this) {
+                    failure = t instanceof RuntimeException ? (RuntimeException) t
+                            : new AmazonClientException("Unable to list " + prefix, t);
+                    fetching = false;
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this) {
+                pages.addLast(page);
+                lastPage = page;
+                listed = !source.isTruncated(page);
+                notifyAll();
+                if (listed || pages.size() >= depth) {
+                    fetching = false;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.iterable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+
+/**
+ * Iterates a listing split into partitions: the prefix is first listed with a
+ * delimiter, then each of the common prefixes found is listed on its own, up
+ * to {@code parallelism} of them at once. The summaries are merged back in the
+ * order of the delimited listing, so they come in the same order as from a
+ * single listing of the prefix.
+ *
+ * @param <P> the type of the pages.
+ * @param <S> the type of the summaries.
+ */
+final class PartitionedIterator<P, S> implements Iterator<S> {
+
+    private final ListingSource<P, S> source;
+    private final PagePrefetcher<P> delimitedPages;
+    private final int depth;
+    private final int parallelism;
+    private final Executor executor;
+
+    /** The summaries and partitions of the delimited listing, in order. */
+    private final LinkedList<Entry<P, S>> entries = new LinkedList<Entry<P, S>>();
+    /** The partitions of the entries not started yet, in order. */
+    private final LinkedList<PagePrefetcher<P>> pendingPartitions =
+            new LinkedList<PagePrefetcher<P>>();
+    /** The partitions started and not yet iterated through. */
+    private int runningPartitions;
+
+    private Iterator<S> currentIterator = Collections.<S> emptyList().iterator();
+    private boolean inPartition;
+    private boolean exhausted;
+
+    /**
+     * @param source the source of the pages.
+     * @param prefix the prefix to list.
+     * @param delimiter the delimiter to partition the prefix by.
+     * @param depth the number of pages to fetch ahead in each listing.
+     * @param parallelism the number of partitions to list at once.
+     * @param executor the executor to fetch the pages on.
+     */
+    PartitionedIterator(ListingSource<P, S> source, String prefix, String delimiter, int depth,
+            int parallelism, Executor executor) {
+        this.source = source;
+        this.delimitedPages = new PagePrefetcher<P>(source, prefix, delimiter, depth, executor);
+        this.depth = depth;
+        this.parallelism = parallelism;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentIterator.hasNext()) {
+            if (inPartition) {
+                inPartition = false;
+                runningPartitions--;
+                startPartitions();
+            }
+            if (entries.isEmpty() && !readDelimitedPage()) {
+                return false;
+            }
+            final Entry<P, S> entry = entries.removeFirst();
+            if (entry.partition == null) {
+                currentIterator = Collections.singletonList(entry.summary).iterator();
+            } else {
+                if (pendingPartitions.remove(entry.partition)) {
+                    entry.partition.start();
+                    runningPartitions++;
+                }
+                inPartition = true;
+                currentIterator = new PrefetchingIterator<P, S>(source, entry.partition);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public S next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentIterator.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Merges the summaries and the common prefixes of the next delimited page
+     * into the entries.
+     *
+     * @return false if the delimited listing is exhausted.
+     */
+    private boolean readDelimitedPage() {
+        while (entries.isEmpty()) {
+            final P page = exhausted ? null : delimitedPages.next();
+            if (page == null) {
+                exhausted = true;
+                return false;
+            }
+
+            final List<S> summaries = source.getSummaries(page);
+            final List<String> prefixes = source.getCommonPrefixes(page);
+            int s = 0;
+            int p = 0;
+            while (s < summaries.size() || p < prefixes.size()) {
+                if (p == prefixes.size() || s < summaries.size()
+                        && source.getKey(summaries.get(s)).compareTo(prefixes.get(p)) < 0) {
+                    entries.add(new Entry<P, S>(summaries.get(s++), null));
+                } else {
+                    final PagePrefetcher<P> partition = new PagePrefetcher<P>(source,
+                            prefixes.get(p++), null, depth, executor);
+                    pendingPartitions.add(partition);
+                    entries.add(new Entry<P, S>(null, partition));
+                }
+            }
+            startPartitions();
+        }
+        return true;
+    }
+
+    private void startPartitions() {
+        while (runningPartitions < parallelism && !pendingPartitions.isEmpty()) {
+            pendingPartitions.removeFirst().start();
+            runningPartitions++;
+        }
+    }
+
+    /**
+     * A summary of the delimited listing, or one of its common prefixes.
+     */
+    private static final class Entry<P, S> {
+        private final S summary;
+        private final PagePrefetcher<P> partition;
+
+        Entry(S summary, PagePrefetcher<P> partition) {
+            this.summary = summary;
+            this.partition = partition;
+        }
+    }
+}
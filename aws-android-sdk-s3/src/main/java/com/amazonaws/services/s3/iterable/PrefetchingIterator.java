@@ -0,0 +1,65 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.iterable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates the summaries of the pages of a {@link PagePrefetcher}.
+ *
+ * @param <P> the type of the pages.
+ * @param <S> the type of the summaries.
+ */
+final class PrefetchingIterator<P, S> implements Iterator<S> {
+
+    private final ListingSource<P, S> source;
+    private final PagePrefetcher<P> pages;
+    private Iterator<S> currentIterator = Collections.<S> emptyList().iterator();
+    private boolean exhausted;
+
+    PrefetchingIterator(ListingSource<P, S> source, PagePrefetcher<P> pages) {
+        this.source = source;
+        this.pages = pages;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentIterator.hasNext() && !exhausted) {
+            final P page = pages.next();
+            if (page == null) {
+                exhausted = true;
+            } else {
+                currentIterator = source.getSummaries(page).iterator();
+            }
+        }
+        return currentIterator.hasNext();
+    }
+
+    @Override
+    public S next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentIterator.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -21,6 +21,8 @@ import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Provides an easy way to iterate Amazon S3 objects in a "foreach" statement.
@@ -35,6 +37,13 @@ import java.util.Iterator;
  * The list of {@link S3ObjectSummary}s will be fetched lazily, a page at a
  * time, as they are needed. The size of the page can be controlled with the
  * {@link S3Objects#withBatchSize(int)} method.
+ * <p>
+ * By default the next page is only requested once the current one has been
+ * iterated through. With {@link S3Objects#withPrefetchDepth(int)} the next
+ * pages are requested in the background while the current one is consumed,
+ * and with {@link S3Objects#withParallelism(String, int)} the prefix is split
+ * by a delimiter into partitions listed at the same time, such as to take an
+ * inventory of a large bucket.
  */
 public final class S3Objects implements Iterable<S3ObjectSummary> {
 
@@ -42,6 +51,10 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
     private String prefix = null;
     private String bucketName;
     private Integer batchSize = null;
+    private int prefetchDepth = 0;
+    private String partitionDelimiter = null;
+    private int parallelism = 1;
+    private Executor executor = null;
 
     private S3Objects(AmazonS3 s3, String bucketName) {
         this.s3 = s3;
@@ -88,6 +101,61 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
         return this;
     }
 
+    /**
+     * Sets the number of pages to request in the background ahead of the
+     * page being iterated. The summaries held at once are bounded by
+     * {@code (prefetchDepth + 1)} pages of the batch size for each listing.
+     *
+     * @param prefetchDepth How many pages to fetch ahead, at least 1.
+     * @return the S3Objects.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Objects withPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 1) {
+            throw new IllegalArgumentException("The prefetch depth must be at least 1");
+        }
+        this.prefetchDepth = prefetchDepth;
+        return this;
+    }
+
+    /**
+     * Splits the listing into partitions listed in parallel: the prefix is
+     * listed with the delimiter, and each of the common prefixes found is
+     * then listed separately, with up to {@code parallelism} of them in
+     * flight. The object summaries are returned in the same order as without
+     * partitioning. Each partition prefetches as set by
+     * {@link #withPrefetchDepth(int)}, one page ahead by default.
+     *
+     * @param delimiter The delimiter to partition the keys by, such as "/".
+     * @param parallelism How many partitions to list at once, at least 1.
+     * @return the S3Objects.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Objects withParallelism(String delimiter, int parallelism) {
+        if (delimiter == null || delimiter.length() == 0) {
+            throw new IllegalArgumentException("The delimiter must be specified");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1");
+        }
+        this.partitionDelimiter = delimiter;
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the executor to prefetch the pages on. By default a shared pool of
+     * daemon threads is used.
+     *
+     * @param executor The executor to fetch the pages on.
+     * @return the S3Objects.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Objects withExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
     public Integer getBatchSize() {
         return batchSize;
     }
@@ -104,6 +172,22 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
         return s3;
     }
 
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public String getPartitionDelimiter() {
+        return partitionDelimiter;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
     private class S3ObjectIterator implements Iterator<S3ObjectSummary> {
 
         private ObjectListing currentListing = null;
@@ -147,9 +231,61 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
 
     }
 
+    private class ObjectListingSource implements ListingSource<ObjectListing, S3ObjectSummary> {
+
+        @Override
+        public ObjectListing list(String prefix, String delimiter) {
+            ListObjectsRequest req = new ListObjectsRequest();
+            req.setBucketName(getBucketName());
+            req.setPrefix(prefix);
+            req.setDelimiter(delimiter);
+            req.setMaxKeys(getBatchSize());
+            return getS3().listObjects(req);
+        }
+
+        @Override
+        public ObjectListing listNext(ObjectListing previous) {
+            return getS3().listNextBatchOfObjects(previous);
+        }
+
+        @Override
+        public boolean isTruncated(ObjectListing page) {
+            return page.isTruncated();
+        }
+
+        @Override
+        public List<S3ObjectSummary> getSummaries(ObjectListing page) {
+            return page.getObjectSummaries();
+        }
+
+        @Override
+        public List<String> getCommonPrefixes(ObjectListing page) {
+            return page.getCommonPrefixes();
+        }
+
+        @Override
+        public String getKey(S3ObjectSummary summary) {
+            return summary.getKey();
+        }
+    }
+
     @Override
     public Iterator<S3ObjectSummary> iterator() {
-        return new S3ObjectIterator();
+        if (prefetchDepth == 0 && partitionDelimiter == null) {
+            return new S3ObjectIterator();
+        }
+
+        final ObjectListingSource source = new ObjectListingSource();
+        final int depth = Math.max(1, prefetchDepth);
+        final Executor pageExecutor = executor == null ? PagePrefetcher.getDefaultExecutor()
+                : executor;
+        if (partitionDelimiter != null) {
+            return new PartitionedIterator<ObjectListing, S3ObjectSummary>(source, getPrefix(),
+                    partitionDelimiter, depth, parallelism, pageExecutor);
+        }
+        return new PrefetchingIterator<ObjectListing, S3ObjectSummary>(source,
+                new PagePrefetcher<ObjectListing>(source, getPrefix(), null, depth,
+                        pageExecutor));
     }
 
 }
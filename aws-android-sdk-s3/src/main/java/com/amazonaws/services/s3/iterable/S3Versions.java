@@ -21,6 +21,9 @@ import com.amazonaws.services.s3.model.S3VersionSummary;
 import com.amazonaws.services.s3.model.VersionListing;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 
 /**
  * Provides an easy way to iterate Amazon S3 object versions in a "foreach"
@@ -35,6 +38,12 @@ import java.util.Iterator;
  * The list of {@link S3VersionSummary}s will be fetched lazily, a page at a
  * time, as they are needed. The size of the page can be controlled with the
  * {@link S3Versions#withBatchSize(int)} method.
+ * <p>
+ * By default the next page is only requested once the current one has been
+ * iterated through. With {@link S3Versions#withPrefetchDepth(int)} the next
+ * pages are requested in the background while the current one is consumed,
+ * and with {@link S3Versions#withParallelism(String, int)} the prefix is split
+ * by a delimiter into partitions listed at the same time.
  */
 public final class S3Versions implements Iterable<S3VersionSummary> {
 
@@ -43,6 +52,10 @@ public final class S3Versions implements Iterable<S3VersionSummary> {
     private String prefix;
     private String key;
     private Integer batchSize;
+    private int prefetchDepth;
+    private String partitionDelimiter;
+    private int parallelism = 1;
+    private Executor executor;
 
     private S3Versions(AmazonS3 s3, String bucketName) {
         this.s3 = s3;
@@ -105,6 +118,61 @@ public final class S3Versions implements Iterable<S3VersionSummary> {
         return this;
     }
 
+    /**
+     * Sets the number of pages to request in the background ahead of the
+     * page being iterated. The summaries held at once are bounded by
+     * {@code (prefetchDepth + 1)} pages of the batch size for each listing.
+     *
+     * @param prefetchDepth How many pages to fetch ahead, at least 1.
+     * @return S3Versions.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Versions withPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 1) {
+            throw new IllegalArgumentException("The prefetch depth must be at least 1");
+        }
+        this.prefetchDepth = prefetchDepth;
+        return this;
+    }
+
+    /**
+     * Splits the listing into partitions listed in parallel: the prefix is
+     * listed with the delimiter, and each of the common prefixes found is
+     * then listed separately, with up to {@code parallelism} of them in
+     * flight. The version summaries are returned in the same order as without
+     * partitioning. Each partition prefetches as set by
+     * {@link #withPrefetchDepth(int)}, one page ahead by default.
+     *
+     * @param delimiter The delimiter to partition the keys by, such as "/".
+     * @param parallelism How many partitions to list at once, at least 1.
+     * @return S3Versions.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Versions withParallelism(String delimiter, int parallelism) {
+        if (delimiter == null || delimiter.length() == 0) {
+            throw new IllegalArgumentException("The delimiter must be specified");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1");
+        }
+        this.partitionDelimiter = delimiter;
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the executor to prefetch the pages on. By default a shared pool of
+     * daemon threads is used.
+     *
+     * @param executor The executor to fetch the pages on.
+     * @return S3Versions.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Versions withExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
     public Integer getBatchSize() {
         return batchSize;
     }
@@ -125,6 +193,22 @@ public final class S3Versions implements Iterable<S3VersionSummary> {
         return bucketName;
     }
 
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public String getPartitionDelimiter() {
+        return partitionDelimiter;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
     private class VersionIterator implements Iterator<S3VersionSummary> {
 
         private VersionListing currentListing = null;
@@ -191,9 +275,103 @@ public final class S3Versions implements Iterable<S3VersionSummary> {
 
     }
 
+    private class VersionListingSource implements
+            ListingSource<VersionListing, S3VersionSummary> {
+
+        @Override
+        public VersionListing list(String prefix, String delimiter) {
+            ListVersionsRequest req = new ListVersionsRequest();
+            req.setBucketName(getBucketName());
+            req.setPrefix(prefix);
+            req.setDelimiter(delimiter);
+            req.setMaxResults(getBatchSize());
+            return getS3().listVersions(req);
+        }
+
+        @Override
+        public VersionListing listNext(VersionListing previous) {
+            return getS3().listNextBatchOfVersions(previous);
+        }
+
+        @Override
+        public boolean isTruncated(VersionListing page) {
+            return page.isTruncated();
+        }
+
+        @Override
+        public List<S3VersionSummary> getSummaries(VersionListing page) {
+            return page.getVersionSummaries();
+        }
+
+        @Override
+        public List<String> getCommonPrefixes(VersionListing page) {
+            return page.getCommonPrefixes();
+        }
+
+        @Override
+        public String getKey(S3VersionSummary summary) {
+            return summary.getKey();
+        }
+    }
+
+    /**
+     * Ends the iteration of the prefetched versions at the first one of
+     * another key, like {@link VersionIterator} does.
+     */
+    private class KeyVersionIterator implements Iterator<S3VersionSummary> {
+
+        private final Iterator<S3VersionSummary> versions;
+        private S3VersionSummary nextSummary = null;
+
+        KeyVersionIterator(Iterator<S3VersionSummary> versions) {
+            this.versions = versions;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextSummary == null && versions.hasNext()) {
+                nextSummary = versions.next();
+            }
+            return nextSummary != null && nextSummary.getKey().equals(getKey());
+        }
+
+        @Override
+        public S3VersionSummary next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            S3VersionSummary returnValue = nextSummary;
+            nextSummary = null;
+            return returnValue;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     @Override
     public Iterator<S3VersionSummary> iterator() {
-        return new VersionIterator();
+        if (prefetchDepth == 0 && partitionDelimiter == null) {
+            return new VersionIterator();
+        }
+
+        final VersionListingSource source = new VersionListingSource();
+        final String listedPrefix = getKey() != null ? getKey() : getPrefix();
+        final int depth = Math.max(1, prefetchDepth);
+        final Executor pageExecutor = executor == null ? PagePrefetcher.getDefaultExecutor()
+                : executor;
+        final Iterator<S3VersionSummary> versions;
+        if (partitionDelimiter != null) {
+            versions = new PartitionedIterator<VersionListing, S3VersionSummary>(source,
+                    listedPrefix, partitionDelimiter, depth, parallelism, pageExecutor);
+        } else {
+            versions = new PrefetchingIterator<VersionListing, S3VersionSummary>(source,
+                    new PagePrefetcher<VersionListing>(source, listedPrefix, null, depth,
+                            pageExecutor));
+        }
+        return getKey() == null ? versions : new KeyVersionIterator(versions);
     }
 
 }
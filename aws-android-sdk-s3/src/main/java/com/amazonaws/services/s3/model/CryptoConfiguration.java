@@ -42,6 +42,12 @@ public class CryptoConfiguration implements Cloneable,Serializable {
      * missing instruction file would always cause security exception.
      */
     private boolean ignoreMissingInstructionFile = true;
+    /**
+     * True to encrypt each part of a multipart upload into memory before it is
+     * uploaded, so that the next part can be encrypted while it uploads; false
+     * to encrypt the parts as they are uploaded. Default is false.
+     */
+    private boolean pipelinedMultipartUpload;
     /**
      * Used to specify the KMS region for the AWS KMS client when such client
      * is internally instantiated instead of externally passed in by users; or
@@ -214,6 +220,39 @@ public class CryptoConfiguration implements Cloneable,Serializable {
         return this;
     }
 
+    /**
+     * Returns true if the parts of multipart uploads are encrypted into memory
+     * before they are uploaded, so that a part can be encrypted while the
+     * previous one uploads; false otherwise. Default is false.
+     */
+    public boolean isPipelinedMultipartUpload() {
+        return pipelinedMultipartUpload;
+    }
+
+    /**
+     * @param pipelinedMultipartUpload
+     *            true to encrypt each part of a multipart upload into memory
+     *            before it is uploaded, so that the next part can be
+     *            encrypted, in order, while it uploads; false to encrypt the
+     *            parts as they are uploaded, one at a time. Default is false.
+     *            Every part being uploaded is held in memory, and a part
+     *            can't be uploaded again once the next part has been
+     *            encrypted.
+     */
+    public void setPipelinedMultipartUpload(boolean pipelinedMultipartUpload) {
+        this.pipelinedMultipartUpload = pipelinedMultipartUpload;
+    }
+
+    /**
+     * Fluent API to set the property to encrypt the next part of a multipart
+     * upload while the previous one uploads.
+     */
+    public CryptoConfiguration withPipelinedMultipartUpload(
+            boolean pipelinedMultipartUpload) {
+        this.pipelinedMultipartUpload = pipelinedMultipartUpload;
+        return this;
+    }
+
     /**
      * Checks if the crypto mode is supported by the runtime.
      *
@@ -272,6 +311,14 @@ public class CryptoConfiguration implements Cloneable,Serializable {
                 boolean ignoreMissingInstructionFile) {
             throw new UnsupportedOperationException();
         }
+        @Override public void setPipelinedMultipartUpload(
+                boolean pipelinedMultipartUpload) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withPipelinedMultipartUpload(
+                boolean pipelinedMultipartUpload) {
+            throw new UnsupportedOperationException();
+        }
         @Override public void setKmsRegion(Regions kmsRegion) {
             throw new UnsupportedOperationException();
         }
@@ -300,6 +347,7 @@ public class CryptoConfiguration implements Cloneable,Serializable {
         that.storageMode = this.storageMode;
         that.cryptoProvider = this.cryptoProvider;
         that.ignoreMissingInstructionFile = this.ignoreMissingInstructionFile;
+        that.pipelinedMultipartUpload = this.pipelinedMultipartUpload;
         that.awskmsRegion = this.awskmsRegion;
         return that;
     }
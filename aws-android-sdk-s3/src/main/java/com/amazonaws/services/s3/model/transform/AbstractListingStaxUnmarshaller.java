@@ -0,0 +1,324 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.model.transform;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.internal.Constants;
+import com.amazonaws.services.s3.internal.S3HttpUtils;
+import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.model.Owner;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.transform.StaxUnmarshallerContext;
+import com.amazonaws.transform.Unmarshaller;
+import com.amazonaws.util.StringUtils;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ * Base class of the pull parsers of object listings. Unlike the SAX handlers
+ * of {@link XmlResponsesSaxParser}, they parse the response as it streams in:
+ * the carriage returns S3 leaves in keys are escaped as they are read, instead
+ * of buffering the whole document to escape them, and each summary is built
+ * straight from the text of its elements.
+ *
+ * @param <T> the type of the listing.
+ */
+abstract class AbstractListingStaxUnmarshaller<T> implements Unmarshaller<T, InputStream> {
+    private static final Log log = LogFactory.getLog(AbstractListingStaxUnmarshaller.class);
+
+    private static final XmlPullParserFactory xmlPullParserFactory;
+    static {
+        try {
+            xmlPullParserFactory = XmlPullParserFactory.newInstance();
+        } catch (final XmlPullParserException xppe) {
+            throw new AmazonClientException("Couldn't initialize XmlPullParserFactory", xppe);
+        }
+    }
+
+    private final boolean shouldSDKDecodeResponse;
+
+    AbstractListingStaxUnmarshaller(boolean shouldSDKDecodeResponse) {
+        this.shouldSDKDecodeResponse = shouldSDKDecodeResponse;
+    }
+
+    @Override
+    public T unmarshall(InputStream inputStream) throws Exception {
+        final XmlPullParser xpp = xmlPullParserFactory.newPullParser();
+        xpp.setInput(new CarriageReturnEscapingReader(new InputStreamReader(inputStream,
+                Constants.DEFAULT_ENCODING)));
+        return unmarshall(new StaxUnmarshallerContext(xpp, null));
+    }
+
+    /**
+     * Unmarshalls the listing, from the start of the document.
+     *
+     * @param context the context of the document.
+     * @return the listing.
+     * @throws Exception if the document can't be read.
+     */
+    abstract T unmarshall(StaxUnmarshallerContext context) throws Exception;
+
+    /**
+     * Returns whether the keys and prefixes of the listing are URL encoded.
+     */
+    boolean shouldSDKDecodeResponse() {
+        return shouldSDKDecodeResponse;
+    }
+
+    /**
+     * URL decodes the value if the SDK requested the keys to be encoded.
+     */
+    String decode(String value) {
+        return shouldSDKDecodeResponse ? S3HttpUtils.urlDecode(value) : value;
+    }
+
+    /**
+     * Reads the element at the current position into an object summary.
+     */
+    S3ObjectSummary readObjectSummary(StaxUnmarshallerContext context, String bucketName)
+            throws Exception {
+        final S3ObjectSummary summary = new S3ObjectSummary();
+        summary.setBucketName(bucketName);
+        final int depth = context.getCurrentDepth();
+        while (true) {
+            final int xmlEvent = context.nextEvent();
+            if (xmlEvent == XmlPullParser.END_DOCUMENT) {
+                return summary;
+            } else if (xmlEvent == XmlPullParser.START_TAG) {
+                if (context.testExpression("Key", depth + 1)) {
+                    summary.setKey(decode(context.readText()));
+                } else if (context.testExpression("LastModified", depth + 1)) {
+                    summary.setLastModified(ServiceUtils.parseIso8601Date(context.readText()));
+                } else if (context.testExpression("ETag", depth + 1)) {
+                    summary.setETag(ServiceUtils.removeQuotes(context.readText()));
+                } else if (context.testExpression("Size", depth + 1)) {
+                    summary.setSize(parseLong(context.readText()));
+                } else if (context.testExpression("StorageClass", depth + 1)) {
+                    summary.setStorageClass(context.readText());
+                } else if (context.testExpression("Owner", depth + 1)) {
+                    summary.setOwner(readOwner(context));
+                }
+            } else if (xmlEvent == XmlPullParser.END_TAG) {
+                if (context.getCurrentDepth() < depth) {
+                    return summary;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the element at the current position into an owner.
+     */
+    static Owner readOwner(StaxUnmarshallerContext context) throws Exception {
+        final Owner owner = new Owner();
+        final int depth = context.getCurrentDepth();
+        while (true) {
+            final int xmlEvent = context.nextEvent();
+            if (xmlEvent == XmlPullParser.END_DOCUMENT) {
+                return owner;
+            } else if (xmlEvent == XmlPullParser.START_TAG) {
+                if (context.testExpression("ID", depth + 1)) {
+                    owner.setId(context.readText());
+                } else if (context.testExpression("DisplayName", depth + 1)) {
+                    owner.setDisplayName(context.readText());
+                }
+            } else if (xmlEvent == XmlPullParser.END_TAG) {
+                if (context.getCurrentDepth() < depth) {
+                    return owner;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the prefix of the CommonPrefixes element at the current position.
+     */
+    String readCommonPrefix(StaxUnmarshallerContext context) throws Exception {
+        String prefix = null;
+        final int depth = context.getCurrentDepth();
+        while (true) {
+            final int xmlEvent = context.nextEvent();
+            if (xmlEvent == XmlPullParser.END_DOCUMENT) {
+                return prefix;
+            } else if (xmlEvent == XmlPullParser.START_TAG) {
+                if (context.testExpression("Prefix", depth + 1)) {
+                    prefix = context.readText();
+                }
+            } else if (xmlEvent == XmlPullParser.END_TAG) {
+                if (context.getCurrentDepth() < depth) {
+                    return prefix;
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the value of an IsTruncated element.
+     */
+    static boolean parseTruncated(String text) {
+        final String isTruncatedStr = StringUtils.lowerCase(text);
+        if (isTruncatedStr.startsWith("false")) {
+            return false;
+        } else if (isTruncatedStr.startsWith("true")) {
+            return true;
+        }
+        throw new IllegalStateException("Invalid value for IsTruncated field: "
+                + isTruncatedStr);
+    }
+
+    /**
+     * Returns null for an empty string.
+     */
+    static String checkForEmptyString(String s) {
+        return s == null || s.length() == 0 ? null : s;
+    }
+
+    /**
+     * Parses an integer, or returns -1 if it is malformed.
+     */
+    static int parseInt(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (final NumberFormatException nfe) {
+            log.error("Unable to parse integer value '" + s + "'", nfe);
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a long, or returns -1 if it is malformed.
+     */
+    static long parseLong(String s) {
+        try {
+            return Long.parseLong(s);
+        } catch (final NumberFormatException nfe) {
+            log.error("Unable to parse long value '" + s + "'", nfe);
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces the carriage returns of a document with character references
+     * as it is read, so that the parser keeps those of the keys instead of
+     * normalizing them to line feeds.
+     */
+    static final class CarriageReturnEscapingReader extends FilterReader {
+        private static final char[] ESCAPED_CARRIAGE_RETURN = "&#013;".toCharArray();
+
+        /** The part of the character reference left to read. */
+        private int escapedOffset = ESCAPED_CARRIAGE_RETURN.length;
+        private final char[] singleChar = new char[1];
+
+        CarriageReturnEscapingReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(singleChar, 0, 1) == -1 ? -1 : singleChar[0];
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int count = drainEscaped(cbuf, off, len);
+            if (count > 0) {
+                return count;
+            }
+
+            // leave room to escape as many carriage returns as read
+            final int read = in.read(cbuf, off, Math.max(1, len / ESCAPED_CARRIAGE_RETURN.length));
+            if (read == -1) {
+                return -1;
+            }
+            int carriageReturns = 0;
+            for (int i = off; i < off + read; i++) {
+                if (cbuf[i] == '\r') {
+                    carriageReturns++;
+                }
+            }
+            if (carriageReturns == 0) {
+                return read;
+            }
+            if (read + carriageReturns * (ESCAPED_CARRIAGE_RETURN.length - 1) > len) {
+                // a single carriage return read into a small buffer
+                escapedOffset = 1;
+                cbuf[off] = ESCAPED_CARRIAGE_RETURN[0];
+                return 1;
+            }
+
+            // expand from the end, so that no character is overwritten
+            // before it is moved
+            int to = off + read + carriageReturns * (ESCAPED_CARRIAGE_RETURN.length - 1);
+            count = to - off;
+            for (int from = off + read - 1; from >= off; from--) {
+                if (cbuf[from] == '\r') {
+                    to -= ESCAPED_CARRIAGE_RETURN.length;
+                    System.arraycopy(ESCAPED_CARRIAGE_RETURN, 0, cbuf, to,
+                            ESCAPED_CARRIAGE_RETURN.length);
+                } else {
+                    cbuf[--to] = cbuf[from];
+                }
+            }
+            return count;
+        }
+
+        private int drainEscaped(char[] cbuf, int off, int len) {
+            final int count = Math.min(len, ESCAPED_CARRIAGE_RETURN.length - escapedOffset);
+            System.arraycopy(ESCAPED_CARRIAGE_RETURN, escapedOffset, cbuf, off, count);
+            escapedOffset += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            throw new IOException("skip not supported");
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(int readAheadLimit) throws IOException {
+            throw new IOException("mark not supported");
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("reset not supported");
+        }
+
+        @Override
+        public boolean ready() throws IOException {
+            return escapedOffset < ESCAPED_CARRIAGE_RETURN.length || in.ready();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.model.transform;
+
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.transform.StaxUnmarshallerContext;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+/**
+ * Pull parser of ListBucket response XML documents, the streaming
+ * counterpart of {@link XmlResponsesSaxParser.ListBucketHandler}.
+ */
+public class ListObjectsStaxUnmarshaller extends AbstractListingStaxUnmarshaller<ObjectListing> {
+    private static final Log log = LogFactory.getLog(ListObjectsStaxUnmarshaller.class);
+
+    /**
+     * @param shouldSDKDecodeResponse whether the SDK requested the keys of
+     *            the listing to be URL encoded.
+     */
+    public ListObjectsStaxUnmarshaller(boolean shouldSDKDecodeResponse) {
+        super(shouldSDKDecodeResponse);
+    }
+
+    @Override
+    ObjectListing unmarshall(StaxUnmarshallerContext context) throws Exception {
+        final ObjectListing objectListing = new ObjectListing();
+        final int targetDepth = context.getCurrentDepth() + 2;
+
+        while (true) {
+            final int xmlEvent = context.nextEvent();
+            if (xmlEvent == XmlPullParser.END_DOCUMENT) {
+                break;
+            } else if (xmlEvent != XmlPullParser.START_TAG) {
+                continue;
+            }
+
+            if (context.testExpression("Contents", targetDepth)) {
+                objectListing.getObjectSummaries().add(
+                        readObjectSummary(context, objectListing.getBucketName()));
+
+            } else if (context.testExpression("CommonPrefixes", targetDepth)) {
+                objectListing.getCommonPrefixes().add(decode(readCommonPrefix(context)));
+
+            } else if (context.testExpression("Name", targetDepth)) {
+                objectListing.setBucketName(context.readText());
+                if (log.isDebugEnabled()) {
+                    log.debug("Examining listing for bucket: " + objectListing.getBucketName());
+                }
+
+            } else if (context.testExpression("Prefix", targetDepth)) {
+                objectListing.setPrefix(decode(checkForEmptyString(context.readText())));
+
+            } else if (context.testExpression("Marker", targetDepth)) {
+                objectListing.setMarker(decode(checkForEmptyString(context.readText())));
+
+            } else if (context.testExpression("NextMarker", targetDepth)) {
+                objectListing.setNextMarker(decode(context.readText()));
+
+            } else if (context.testExpression("MaxKeys", targetDepth)) {
+                objectListing.setMaxKeys(parseInt(context.readText()));
+
+            } else if (context.testExpression("Delimiter", targetDepth)) {
+                objectListing.setDelimiter(decode(checkForEmptyString(context.readText())));
+
+            } else if (context.testExpression("EncodingType", targetDepth)) {
+                final String encodingType = checkForEmptyString(context.readText());
+                objectListing.setEncodingType(shouldSDKDecodeResponse() ? null : encodingType);
+
+            } else if (context.testExpression("IsTruncated", targetDepth)) {
+                objectListing.setTruncated(parseTruncated(context.readText()));
+            }
+        }
+
+        /*
+         * S3 only includes the NextMarker XML element if the request specified
+         * a delimiter, but for consistency we'd like to always give easy
+         * access to the next marker if we're returning a list of results
+         * that's truncated.
+         */
+        if (objectListing.isTruncated() && objectListing.getNextMarker() == null) {
+            String nextMarker = null;
+            if (!objectListing.getObjectSummaries().isEmpty()) {
+                nextMarker = objectListing.getObjectSummaries()
+                        .get(objectListing.getObjectSummaries().size() - 1).getKey();
+            } else if (!objectListing.getCommonPrefixes().isEmpty()) {
+                nextMarker = objectListing.getCommonPrefixes()
+                        .get(objectListing.getCommonPrefixes().size() - 1);
+            } else {
+                log.error("S3 response indicates truncated results, "
+                        + "but contains no object summaries or common prefixes.");
+            }
+            objectListing.setNextMarker(nextMarker);
+        }
+        return objectListing;
+    }
+}
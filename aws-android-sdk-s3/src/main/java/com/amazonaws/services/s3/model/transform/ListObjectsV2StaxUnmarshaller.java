@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.model.transform;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.transform.StaxUnmarshallerContext;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+/**
+ * Pull parser of ListObjectsV2 response XML documents, the streaming
+ * counterpart of {@link XmlResponsesSaxParser.ListObjectsV2Handler}.
+ */
+public class ListObjectsV2StaxUnmarshaller extends
+        AbstractListingStaxUnmarshaller<ListObjectsV2Result> {
+    private static final Log log = LogFactory.getLog(ListObjectsV2StaxUnmarshaller.class);
+
+    /**
+     * @param shouldSDKDecodeResponse whether the SDK requested the keys of
+     *            the listing to be URL encoded.
+     */
+    public ListObjectsV2StaxUnmarshaller(boolean shouldSDKDecodeResponse) {
+        super(shouldSDKDecodeResponse);
+    }
+
+    @Override
+    ListObjectsV2Result unmarshall(StaxUnmarshallerContext context) throws Exception {
+        final ListObjectsV2Result result = new ListObjectsV2Result();
+        final int targetDepth = context.getCurrentDepth() + 2;
+
+        while (true) {
+            final int xmlEvent = context.nextEvent();
+            if (xmlEvent == XmlPullParser.END_DOCUMENT) {
+                break;
+            } else if (xmlEvent != XmlPullParser.START_TAG) {
+                continue;
+            }
+
+            if (context.testExpression("Contents", targetDepth)) {
+                result.getObjectSummaries().add(
+                        readObjectSummary(context, result.getBucketName()));
+
+            } else if (context.testExpression("CommonPrefixes", targetDepth)) {
+                result.getCommonPrefixes().add(decode(readCommonPrefix(context)));
+
+            } else if (context.testExpression("Name", targetDepth)) {
+                result.setBucketName(context.readText());
+                if (log.isDebugEnabled()) {
+                    log.debug("Examining listing for bucket: " + result.getBucketName());
+                }
+
+            } else if (context.testExpression("Prefix", targetDepth)) {
+                result.setPrefix(decode(checkForEmptyString(context.readText())));
+
+            } else if (context.testExpression("MaxKeys", targetDepth)) {
+                result.setMaxKeys(parseInt(context.readText()));
+
+            } else if (context.testExpression("NextContinuationToken", targetDepth)) {
+                result.setNextContinuationToken(context.readText());
+
+            } else if (context.testExpression("ContinuationToken", targetDepth)) {
+                result.setContinuationToken(context.readText());
+
+            } else if (context.testExpression("StartAfter", targetDepth)) {
+                result.setStartAfter(decode(context.readText()));
+
+            } else if (context.testExpression("KeyCount", targetDepth)) {
+                result.setKeyCount(parseInt(context.readText()));
+
+            } else if (context.testExpression("Delimiter", targetDepth)) {
+                result.setDelimiter(decode(checkForEmptyString(context.readText())));
+
+            } else if (context.testExpression("EncodingType", targetDepth)) {
+                result.setEncodingType(checkForEmptyString(context.readText()));
+
+            } else if (context.testExpression("IsTruncated", targetDepth)) {
+                result.setTruncated(parseTruncated(context.readText()));
+            }
+        }
+
+        /*
+         * S3 only includes the NextContinuationToken XML element if the
+         * request specified a delimiter, but for consistency we'd like to
+         * always give easy access to the next token if we're returning a list
+         * of results that's truncated.
+         */
+        if (result.isTruncated() && result.getNextContinuationToken() == null) {
+            String nextContinuationToken = null;
+            if (!result.getObjectSummaries().isEmpty()) {
+                nextContinuationToken = result.getObjectSummaries()
+                        .get(result.getObjectSummaries().size() - 1).getKey();
+            } else {
+                log.error("S3 response indicates truncated results, "
+                        + "but contains no object summaries.");
+            }
+            result.setNextContinuationToken(nextContinuationToken);
+        }
+        return result;
+    }
+}
@@ -100,10 +100,7 @@ public class Unmarshallers {
 
         @Override
         public ObjectListing unmarshall(InputStream in) throws Exception {
-            return new XmlResponsesSaxParser()
-                    .parseListBucketObjectsResponse(in,
-                            shouldSDKDecodeResponse)
-                    .getObjectListing();
+            return new ListObjectsStaxUnmarshaller(shouldSDKDecodeResponse).unmarshall(in);
         }
     }
 
@@ -121,8 +118,7 @@ public class Unmarshallers {
 
         @Override
         public ListObjectsV2Result unmarshall(InputStream in) throws Exception {
-            return new XmlResponsesSaxParser()
-                    .parseListObjectsV2Response(in, shouldSDKDecodeResponse).getResult();
+            return new ListObjectsV2StaxUnmarshaller(shouldSDKDecodeResponse).unmarshall(in);
         }
     }
 
@@ -140,8 +136,7 @@ public class Unmarshallers {
 
         @Override
         public VersionListing unmarshall(InputStream in) throws Exception {
-            return new XmlResponsesSaxParser()
-                    .parseListVersionsResponse(in, shouldSDKDecodeResponse).getListing();
+            return new VersionListStaxUnmarshaller(shouldSDKDecodeResponse).unmarshall(in);
         }
     }
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.model.transform;
+
+import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.model.S3VersionSummary;
+import com.amazonaws.services.s3.model.VersionListing;
+import com.amazonaws.transform.StaxUnmarshallerContext;
+
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Pull parser of ListVersionsResult XML documents, the streaming counterpart
+ * of {@link XmlResponsesSaxParser.ListVersionsHandler}.
+ */
+public class VersionListStaxUnmarshaller extends AbstractListingStaxUnmarshaller<VersionListing> {
+
+    /**
+     * @param shouldSDKDecodeResponse whether the SDK requested the keys of
+     *            the listing to be URL encoded.
+     */
+    public VersionListStaxUnmarshaller(boolean shouldSDKDecodeResponse) {
+        super(shouldSDKDecodeResponse);
+    }
+
+    @Override
+    VersionListing unmarshall(StaxUnmarshallerContext context) throws Exception {
+        final VersionListing versionListing = new VersionListing();
+        final int targetDepth = context.getCurrentDepth() + 2;
+
+        while (true) {
+            final int xmlEvent = context.nextEvent();
+            if (xmlEvent == XmlPullParser.END_DOCUMENT) {
+                return versionListing;
+            } else if (xmlEvent != XmlPullParser.START_TAG) {
+                continue;
+            }
+
+            if (context.testExpression("Version", targetDepth)) {
+                versionListing.getVersionSummaries().add(
+                        readVersionSummary(context, versionListing.getBucketName(), false));
+
+            } else if (context.testExpression("DeleteMarker", targetDepth)) {
+                versionListing.getVersionSummaries().add(
+                        readVersionSummary(context, versionListing.getBucketName(), true));
+
+            } else if (context.testExpression("CommonPrefixes", targetDepth)) {
+                versionListing.getCommonPrefixes().add(
+                        decode(checkForEmptyString(readCommonPrefix(context))));
+
+            } else if (context.testExpression("Name", targetDepth)) {
+                versionListing.setBucketName(context.readText());
+
+            } else if (context.testExpression("Prefix", targetDepth)) {
+                versionListing.setPrefix(decode(checkForEmptyString(context.readText())));
+
+            } else if (context.testExpression("KeyMarker", targetDepth)) {
+                versionListing.setKeyMarker(decode(checkForEmptyString(context.readText())));
+
+            } else if (context.testExpression("VersionIdMarker", targetDepth)) {
+                versionListing.setVersionIdMarker(checkForEmptyString(context.readText()));
+
+            } else if (context.testExpression("MaxKeys", targetDepth)) {
+                versionListing.setMaxKeys(Integer.parseInt(context.readText()));
+
+            } else if (context.testExpression("Delimiter", targetDepth)) {
+                versionListing.setDelimiter(decode(checkForEmptyString(context.readText())));
+
+            } else if (context.testExpression("EncodingType", targetDepth)) {
+                final String encodingType = checkForEmptyString(context.readText());
+                versionListing.setEncodingType(shouldSDKDecodeResponse() ? null : encodingType);
+
+            } else if (context.testExpression("NextKeyMarker", targetDepth)) {
+                versionListing.setNextKeyMarker(decode(checkForEmptyString(context.readText())));
+
+            } else if (context.testExpression("NextVersionIdMarker", targetDepth)) {
+                versionListing.setNextVersionIdMarker(context.readText());
+
+            } else if (context.testExpression("IsTruncated", targetDepth)) {
+                versionListing.setTruncated("true".equals(context.readText()));
+            }
+        }
+    }
+
+    private S3VersionSummary readVersionSummary(StaxUnmarshallerContext context,
+            String bucketName, boolean isDeleteMarker) throws Exception {
+        final S3VersionSummary summary = new S3VersionSummary();
+        summary.setBucketName(bucketName);
+        summary.setIsDeleteMarker(isDeleteMarker);
+        final int depth = context.getCurrentDepth();
+        while (true) {
+            final int xmlEvent = context.nextEvent();
+            if (xmlEvent == XmlPullParser.END_DOCUMENT) {
+                return summary;
+            } else if (xmlEvent == XmlPullParser.START_TAG) {
+                if (context.testExpression("Key", depth + 1)) {
+                    summary.setKey(decode(context.readText()));
+                } else if (context.testExpression("VersionId", depth + 1)) {
+                    summary.setVersionId(context.readText());
+                } else if (context.testExpression("IsLatest", depth + 1)) {
+                    summary.setIsLatest("true".equals(context.readText()));
+                } else if (context.testExpression("LastModified", depth + 1)) {
+                    summary.setLastModified(ServiceUtils.parseIso8601Date(context.readText()));
+                } else if (context.testExpression("ETag", depth + 1)) {
+                    summary.setETag(ServiceUtils.removeQuotes(context.readText()));
+                } else if (context.testExpression("Size", depth + 1)) {
+                    summary.setSize(Long.parseLong(context.readText()));
+                } else if (context.testExpression("Owner", depth + 1)) {
+                    summary.setOwner(readOwner(context));
+                } else if (context.testExpression("StorageClass", depth + 1)) {
+                    summary.setStorageClass(context.readText());
+                }
+            } else if (xmlEvent == XmlPullParser.END_TAG) {
+                if (context.getCurrentDepth() < depth) {
+                    return summary;
+                }
+            }
+        }
+    }
+}
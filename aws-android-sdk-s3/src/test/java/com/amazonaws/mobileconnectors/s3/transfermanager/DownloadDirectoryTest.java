@@ -0,0 +1,265 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.mobileconnectors.s3.transfermanager.Transfer.TransferState;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DownloadDirectoryTest {
+
+    private static final int QUEUE_SIZE = 2;
+    // lists "dir/other" and "dir/other/" in the same page
+    private static final int PAGE_SIZE = 3;
+
+    private static final List<String> KEYS = Arrays.asList(
+            "dir/a", "dir/b", "dir/c",
+            "dir/sub/d", "dir/sub/e",
+            "dir/sub/deeper/f",
+            "dir/other/g", "dir/other/h", "dir/other/i",
+            // also a virtual directory, so skipped
+            "dir/other");
+
+    private File directory;
+    private StubS3Client s3;
+    private TransferManager transferManager;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("directory", "");
+        directory.delete();
+        directory.mkdirs();
+        s3 = new StubS3Client();
+        transferManager = new TransferManager(s3);
+        final TransferManagerConfiguration configuration = new TransferManagerConfiguration();
+        configuration.setDirectoryDownloadQueueSize(QUEUE_SIZE);
+        transferManager.setConfiguration(configuration);
+    }
+
+    @After
+    public void tearDown() {
+        transferManager.shutdownNow(false);
+        delete(directory);
+    }
+
+    @Test
+    public void testDownloadsWhileListing() throws Exception {
+        final MultipleFileDownload download = transferManager.downloadDirectory("bucket", "dir/",
+                directory);
+        download.waitForCompletion();
+
+        assertEquals(TransferState.Completed, download.getState());
+        long totalBytes = 0;
+        for (final String key : KEYS.subList(0, KEYS.size() - 1)) {
+            assertEquals(key, read(new File(directory, key)));
+            totalBytes += key.length();
+        }
+        assertTrue(new File(directory, "dir/other").isDirectory());
+        assertEquals(totalBytes, download.getProgress().getTotalBytesToTransfer());
+        assertTrue(s3.maxDownloads.get() <= QUEUE_SIZE);
+    }
+
+    @Test
+    public void testFailsIfAnObjectFails() throws Exception {
+        s3.failingKey = "dir/sub/e";
+        final MultipleFileDownload download = transferManager.downloadDirectory("bucket", "dir/",
+                directory);
+        try {
+            download.waitForCompletion();
+            fail("Expected the download to fail");
+        } catch (final AmazonServiceException e) {
+            assertEquals("NoSuchKey", e.getErrorCode());
+        }
+        assertEquals(TransferState.Failed, download.getState());
+        // the other objects are still downloaded
+        assertEquals("dir/sub/deeper/f", read(new File(directory, "dir/sub/deeper/f")));
+    }
+
+    @Test
+    public void testEmptyDirectory() throws Exception {
+        final MultipleFileDownload download = transferManager.downloadDirectory("bucket",
+                "missing/", directory);
+        download.waitForCompletion();
+
+        assertEquals(TransferState.Completed, download.getState());
+        assertEquals(0, download.getProgress().getTotalBytesToTransfer());
+        assertFalse(new File(directory, "missing").exists());
+    }
+
+    private static String read(File file) throws IOException {
+        final byte[] bytes = new byte[(int) file.length()];
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += in.read(bytes, offset, bytes.length - offset);
+            }
+        } finally {
+            in.close();
+        }
+        return new String(bytes, StringUtils.UTF8);
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Lists the test keys in pages and serves each key as its own content.
+     */
+    private static final class StubS3Client extends AmazonS3Client {
+        private final AtomicInteger downloads = new AtomicInteger();
+        private final AtomicInteger maxDownloads = new AtomicInteger();
+        private volatile String failingKey;
+
+        StubS3Client() {
+            super(new BasicAWSCredentials("access", "secret"));
+        }
+
+        @Override
+        public ObjectListing listObjects(ListObjectsRequest request) {
+            return list(request.getPrefix(), null);
+        }
+
+        @Override
+        public ObjectListing listNextBatchOfObjects(ObjectListing previousObjectListing) {
+            return list(previousObjectListing.getPrefix(),
+                    previousObjectListing.getNextMarker());
+        }
+
+        private ObjectListing list(String prefix, String marker) {
+            // the entries of the prefix, keys or common prefixes, in order
+            final SortedMap<String, Boolean> entries = new TreeMap<String, Boolean>();
+            for (final String key : KEYS) {
+                if (!key.startsWith(prefix)) {
+                    continue;
+                }
+                final int delimiter = key.indexOf('/', prefix.length());
+                if (delimiter == -1) {
+                    entries.put(key, false);
+                } else {
+                    entries.put(key.substring(0, delimiter + 1), true);
+                }
+            }
+
+            final ObjectListing listing = new ObjectListing();
+            listing.setBucketName("bucket");
+            listing.setPrefix(prefix);
+            int count = 0;
+            for (final String entry : marker == null ? entries.keySet()
+                    : entries.tailMap(marker + "\0").keySet()) {
+                if (count == PAGE_SIZE) {
+                    listing.setTruncated(true);
+                    break;
+                }
+                if (entries.get(entry)) {
+                    listing.getCommonPrefixes().add(entry);
+                } else {
+                    final S3ObjectSummary summary = new S3ObjectSummary();
+                    summary.setBucketName("bucket");
+                    summary.setKey(entry);
+                    summary.setSize(entry.length());
+                    listing.getObjectSummaries().add(summary);
+                }
+                listing.setNextMarker(entry);
+                count++;
+            }
+            return listing;
+        }
+
+        @Override
+        public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+            return metadata(request.getKey());
+        }
+
+        @Override
+        public S3Object getObject(GetObjectRequest request) {
+            final int inProgress = downloads.incrementAndGet();
+            try {
+                int max;
+                while ((max = maxDownloads.get()) < inProgress
+                        && !maxDownloads.compareAndSet(max, inProgress)) {
+                    continue;
+                }
+                if (request.getKey().equals(failingKey)) {
+                    final AmazonServiceException e = new AmazonServiceException("Not found");
+                    e.setErrorCode("NoSuchKey");
+                    e.setStatusCode(404);
+                    throw e;
+                }
+                // give the other downloads a chance to overlap
+                Thread.sleep(10);
+                final S3Object s3Object = new S3Object();
+                s3Object.setBucketName(request.getBucketName());
+                s3Object.setKey(request.getKey());
+                s3Object.setObjectMetadata(metadata(request.getKey()));
+                s3Object.setObjectContent(new S3ObjectInputStream(new ByteArrayInputStream(
+                        request.getKey().getBytes(StringUtils.UTF8)), null));
+                return s3Object;
+            } catch (final InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                downloads.decrementAndGet();
+            }
+        }
+
+        private static ObjectMetadata metadata(String key) {
+            final byte[] content = key.getBytes(StringUtils.UTF8);
+            final ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(content.length);
+            metadata.setHeader(Headers.ETAG, BinaryUtils.toHex(Md5Utils.computeMD5Hash(content)));
+            return metadata;
+        }
+    }
+}
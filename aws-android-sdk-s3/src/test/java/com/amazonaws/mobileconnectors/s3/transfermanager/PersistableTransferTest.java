@@ -15,7 +15,9 @@
 
 package com.amazonaws.mobileconnectors.s3.transfermanager;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
@@ -86,4 +88,25 @@ public class PersistableTransferTest {
                 download.getResponseHeaders().getExpires());
     }
 
+    @Test
+    public void testRangedDownload() {
+        PersistableDownload target = new PersistableDownload("bucketName", "key", null,
+                null, null, false, "file", 8388608, "eTag", new int[] {
+                        1, 2, 5
+                });
+
+        String json = target.serialize();
+        PersistableDownload download = PersistableTransfer.deserializeFrom(json);
+        assertEquals("bucketName", target.getBucketName(), download.getBucketName());
+        assertEquals("file", target.getFile(), download.getFile());
+        assertEquals("partSize", target.getPartSize(), download.getPartSize());
+        assertEquals("eTag", target.getETag(), download.getETag());
+        assertArrayEquals("completedParts", target.getCompletedParts(),
+                download.getCompletedParts());
+
+        download = PersistableTransfer.deserializeFrom(new PersistableDownload("bucketName",
+                "key", null, null, null, false, "file").serialize());
+        assertEquals("partSize", -1, download.getPartSize());
+        assertNull("completedParts", download.getCompletedParts());
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.mobileconnectors.s3.transfermanager.model.RangedReadResult;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReadRangesTest {
+
+    private static final int OBJECTS = 20;
+    private static final int MAX_CONCURRENCY = 3;
+
+    private StubS3Client s3;
+    private TransferManager transferManager;
+
+    @Before
+    public void setUp() {
+        s3 = new StubS3Client();
+        transferManager = new TransferManager(s3);
+    }
+
+    @After
+    public void tearDown() {
+        transferManager.shutdownNow(false);
+    }
+
+    @Test
+    public void testReadsEveryRangeWithBoundedConcurrency() {
+        final Iterator<RangedReadResult> results = transferManager.readRanges(requests(),
+                MAX_CONCURRENCY);
+        final Map<String, String> contents = new HashMap<String, String>();
+        while (results.hasNext()) {
+            final RangedReadResult result = results.next();
+            assertTrue(result.isSuccessful());
+            assertEquals("text/plain", result.getObjectMetadata().getContentType());
+            contents.put(result.getRequest().getKey(),
+                    new String(result.getContent(), StringUtils.UTF8));
+        }
+        assertEquals(OBJECTS, contents.size());
+        for (int i = 0; i < OBJECTS; i++) {
+            // the first 4 bytes of "content of key-i"
+            assertEquals("cont", contents.get("key-" + i));
+        }
+        assertTrue(s3.maxReads.get() <= MAX_CONCURRENCY);
+    }
+
+    @Test
+    public void testFailedRangeDoesNotFailTheOthers() {
+        s3.failingKey = "key-7";
+        final Iterator<RangedReadResult> results = transferManager.readRanges(requests(),
+                MAX_CONCURRENCY);
+        int successful = 0;
+        int failed = 0;
+        while (results.hasNext()) {
+            final RangedReadResult result = results.next();
+            if (result.isSuccessful()) {
+                successful++;
+            } else {
+                failed++;
+                assertEquals("key-7", result.getRequest().getKey());
+                assertNull(result.getContent());
+                assertEquals("NoSuchKey",
+                        ((AmazonServiceException) result.getException()).getErrorCode());
+            }
+        }
+        assertEquals(OBJECTS - 1, successful);
+        assertEquals(1, failed);
+    }
+
+    @Test
+    public void testListenerIsCalledForEveryRange() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(OBJECTS);
+        transferManager.readRanges(requests(), MAX_CONCURRENCY, new RangedReadListener() {
+            @Override
+            public void rangeRead(RangedReadResult result) {
+                if (result.isSuccessful()) {
+                    latch.countDown();
+                }
+            }
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        final Iterator<RangedReadResult> results = transferManager.readRanges(
+                new ArrayList<GetObjectRequest>(), MAX_CONCURRENCY);
+        assertFalse(results.hasNext());
+    }
+
+    @Test
+    public void testRequiresRange() {
+        final List<GetObjectRequest> requests = requests();
+        requests.add(new GetObjectRequest("bucket", "whole-object"));
+        try {
+            transferManager.readRanges(requests, MAX_CONCURRENCY);
+            fail("Expected the request without a range to be rejected");
+        } catch (final IllegalArgumentException expected) {
+            // a batch of ranged reads doesn't read whole objects
+        }
+        assertEquals(0, s3.reads.get());
+    }
+
+    private static List<GetObjectRequest> requests() {
+        final List<GetObjectRequest> requests = new ArrayList<GetObjectRequest>();
+        for (int i = 0; i < OBJECTS; i++) {
+            requests.add(new GetObjectRequest("bucket", "key-" + i).withRange(0, 3));
+        }
+        return requests;
+    }
+
+    /**
+     * Serves "content of " and the key as the content of each object, and
+     * keeps track of the reads in progress.
+     */
+    private static final class StubS3Client extends AmazonS3Client {
+        private final AtomicInteger reads = new AtomicInteger();
+        private final AtomicInteger inProgress = new AtomicInteger();
+        private final AtomicInteger maxReads = new AtomicInteger();
+        private volatile String failingKey;
+
+        StubS3Client() {
+            super(new BasicAWSCredentials("access", "secret"));
+        }
+
+        @Override
+        public S3Object getObject(GetObjectRequest request) {
+            reads.incrementAndGet();
+            final int current = inProgress.incrementAndGet();
+            try {
+                int max;
+                while (current > (max = maxReads.get())
+                        && !maxReads.compareAndSet(max, current)) {
+                    // retry
+                }
+                Thread.sleep(5);
+                if (request.getKey().equals(failingKey)) {
+                    final AmazonServiceException e = new AmazonServiceException("Not found");
+                    e.setErrorCode("NoSuchKey");
+                    e.setStatusCode(404);
+                    throw e;
+                }
+                final byte[] content = ("content of " + request.getKey())
+                        .getBytes(StringUtils.UTF8);
+                final long[] range = request.getRange();
+                final int length = (int) (range[1] - range[0] + 1);
+                final ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentType("text/plain");
+                metadata.setContentLength(length);
+                final S3Object object = new S3Object();
+                object.setBucketName(request.getBucketName());
+                object.setKey(request.getKey());
+                object.setObjectMetadata(metadata);
+                object.setObjectContent(new ByteArrayInputStream(content, (int) range[0],
+                        length));
+                return object;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                inProgress.decrementAndGet();
+            }
+        }
+    }
+}
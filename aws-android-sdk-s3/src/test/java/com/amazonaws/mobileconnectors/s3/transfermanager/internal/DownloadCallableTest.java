@@ -0,0 +1,215 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.mobileconnectors.s3.transfermanager.TransferProgress;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class DownloadCallableTest {
+
+    private static final int PART_SIZE = 1000;
+
+    private final byte[] content = new byte[PART_SIZE * 4 + 123];
+    private ExecutorService threadPool;
+    private File file;
+    private StubS3Client s3;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(42).nextBytes(content);
+        // a single thread, so that the callable downloads ranges itself
+        threadPool = Executors.newFixedThreadPool(1);
+        file = File.createTempFile("download", ".tmp");
+        file.deleteOnExit();
+        s3 = new StubS3Client();
+    }
+
+    @After
+    public void tearDown() {
+        threadPool.shutdownNow();
+        file.delete();
+    }
+
+    @Test
+    public void testDownloadsAllRanges() throws Exception {
+        final DownloadCallable callable = newCallable(s3.metadata(),
+                Collections.<Integer> emptySet());
+        assertTrue(threadPool.submit(callable).get());
+
+        assertArrayEquals(content, readFile());
+        assertEquals(5, s3.ranges.size());
+    }
+
+    @Test
+    public void testSkipsCompletedRanges() throws Exception {
+        writeFile(content);
+        final Set<Integer> completedParts = new HashSet<Integer>(Arrays.asList(1, 3, 5));
+        final DownloadCallable callable = newCallable(s3.metadata(), completedParts);
+        assertTrue(callable.call());
+
+        assertArrayEquals(content, readFile());
+        assertEquals(2, s3.ranges.size());
+        assertTrue(s3.ranges.contains(PART_SIZE + "-" + (2 * PART_SIZE - 1)));
+        assertTrue(s3.ranges.contains(3 * PART_SIZE + "-" + (4 * PART_SIZE - 1)));
+    }
+
+    @Test
+    public void testDeletesCorruptedFile() throws Exception {
+        final ObjectMetadata metadata = s3.metadata();
+        metadata.setHeader(Headers.ETAG, BinaryUtils.toHex(Md5Utils.computeMD5Hash(new byte[1])));
+        s3.eTag = metadata.getETag();
+        try {
+            newCallable(metadata, Collections.<Integer> emptySet()).call();
+            fail("Expected the download to fail its integrity check");
+        } catch (final AmazonClientException e) {
+            assertFalse(file.exists());
+        }
+    }
+
+    @Test
+    public void testFailsIfObjectIsModified() throws Exception {
+        final ObjectMetadata metadata = s3.metadata();
+        s3.eTag = "modified";
+        try {
+            newCallable(metadata, Collections.<Integer> emptySet()).call();
+            fail("Expected the download to fail");
+        } catch (final AmazonClientException e) {
+            assertTrue(e.getMessage().contains("modified"));
+        }
+    }
+
+    @Test
+    public void testFailsIfTheDirectoryCannotBeCreated() throws Exception {
+        // a regular file is in the way of the directory
+        final File blocker = file;
+        file = new File(new File(blocker, "dir"), "download.tmp");
+        try {
+            newCallable(s3.metadata(), Collections.<Integer> emptySet()).call();
+            fail("Expected the download to fail");
+        } catch (final AmazonClientException e) {
+            assertTrue(e.getMessage().contains("Unable to create the directory"));
+            assertTrue(s3.ranges.isEmpty());
+        } finally {
+            file = blocker;
+        }
+    }
+
+    @Test
+    public void testGetPartCount() {
+        assertEquals(1, DownloadCallable.getPartCount(1, PART_SIZE));
+        assertEquals(1, DownloadCallable.getPartCount(PART_SIZE, PART_SIZE));
+        assertEquals(2, DownloadCallable.getPartCount(PART_SIZE + 1, PART_SIZE));
+    }
+
+    private DownloadCallable newCallable(ObjectMetadata metadata, Set<Integer> completedParts) {
+        final GetObjectRequest request = new GetObjectRequest("bucket", "key");
+        final DownloadImpl download = new DownloadImpl("test", new TransferProgress(),
+                new ProgressListenerChain(), null, null, request, file);
+        download.setRangedDownload(PART_SIZE, metadata.getETag(), completedParts);
+        return new DownloadCallable(s3, threadPool, download, request, file, metadata,
+                PART_SIZE, completedParts);
+    }
+
+    private byte[] readFile() throws IOException {
+        final byte[] bytes = new byte[(int) file.length()];
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += in.read(bytes, offset, bytes.length - offset);
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    private void writeFile(byte[] bytes) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Serves the ranges of the test content, like Amazon S3 does.
+     */
+    private final class StubS3Client extends AmazonS3Client {
+        private final List<String> ranges = new CopyOnWriteArrayList<String>();
+        private volatile String eTag = BinaryUtils.toHex(Md5Utils.computeMD5Hash(content));
+
+        StubS3Client() {
+            super(new BasicAWSCredentials("access", "secret"));
+        }
+
+        ObjectMetadata metadata() {
+            final ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(content.length);
+            metadata.setHeader(Headers.ETAG, eTag);
+            return metadata;
+        }
+
+        @Override
+        public S3Object getObject(GetObjectRequest request) {
+            if (!request.getMatchingETagConstraints().contains(eTag)) {
+                // the precondition failed
+                return null;
+            }
+            final long[] range = request.getRange();
+            ranges.add(range[0] + "-" + range[1]);
+            final S3Object s3Object = new S3Object();
+            s3Object.setObjectContent(new ByteArrayInputStream(content, (int) range[0],
+                    (int) (range[1] - range[0] + 1)));
+            return s3Object;
+        }
+    }
+}
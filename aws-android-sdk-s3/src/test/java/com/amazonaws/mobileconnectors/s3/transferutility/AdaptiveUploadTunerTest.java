@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AdaptiveUploadTunerTest {
+
+    private static final long PART_SIZE = 5 * MB;
+
+    private long now;
+
+    /**
+     * Completes a round of parts, each taking the given time, all at once.
+     */
+    private void completeRound(AdaptiveUploadTuner tuner, long bytes, long partMillis) {
+        now += partMillis;
+        final int parts = tuner.getConcurrency();
+        for (int i = 0; i < parts; i++) {
+            tuner.onPartCompleted(bytes, partMillis, now);
+        }
+    }
+
+    @Test
+    public void testStartsWithHalfTheThreads() {
+        assertEquals(4, new AdaptiveUploadTuner(PART_SIZE, 8, now).getConcurrency());
+        assertEquals(1, new AdaptiveUploadTuner(PART_SIZE, 1, now).getConcurrency());
+    }
+
+    @Test
+    public void testAddsPartsWhileThroughputImproves() {
+        final AdaptiveUploadTuner tuner = new AdaptiveUploadTuner(PART_SIZE, 6, now);
+        // each part takes as long whatever the concurrency, so that every
+        // round with more parts is faster
+        completeRound(tuner, PART_SIZE, 10000);
+        assertEquals(4, tuner.getConcurrency());
+        completeRound(tuner, PART_SIZE, 10000);
+        assertEquals(5, tuner.getConcurrency());
+        completeRound(tuner, PART_SIZE, 10000);
+        assertEquals(6, tuner.getConcurrency());
+        completeRound(tuner, PART_SIZE, 10000);
+        assertEquals(6, tuner.getConcurrency());
+    }
+
+    @Test
+    public void testTakesBackAnIncreaseThatSlowedDown() {
+        final AdaptiveUploadTuner tuner = new AdaptiveUploadTuner(PART_SIZE, 8, now);
+        completeRound(tuner, PART_SIZE, 10000);
+        assertEquals(5, tuner.getConcurrency());
+        // the bandwidth is saturated: the parts slow down more than the
+        // added part makes up for
+        completeRound(tuner, PART_SIZE, 15000);
+        assertEquals(4, tuner.getConcurrency());
+        // and it holds once the throughput is steady
+        completeRound(tuner, PART_SIZE, 10000);
+        completeRound(tuner, PART_SIZE, 10000);
+        assertEquals(4, tuner.getConcurrency());
+    }
+
+    @Test
+    public void testHalvesConcurrencyWhenPartsAreSlow() {
+        final AdaptiveUploadTuner tuner = new AdaptiveUploadTuner(PART_SIZE, 8, now);
+        completeRound(tuner, PART_SIZE, AdaptiveUploadTuner.MAXIMUM_PART_MILLIS + 1);
+        assertEquals(2, tuner.getConcurrency());
+        completeRound(tuner, PART_SIZE, AdaptiveUploadTuner.MAXIMUM_PART_MILLIS + 1);
+        assertEquals(1, tuner.getConcurrency());
+        completeRound(tuner, PART_SIZE, AdaptiveUploadTuner.MAXIMUM_PART_MILLIS + 1);
+        assertEquals(1, tuner.getConcurrency());
+    }
+
+    @Test
+    public void testGrowsPartsOnFastNetworks() {
+        final AdaptiveUploadTuner tuner = new AdaptiveUploadTuner(PART_SIZE, 2, now);
+        // 5MB a second for each part
+        completeRound(tuner, PART_SIZE, 1000);
+        final long partSize = tuner.getPartSize();
+        assertEquals(0, partSize % MB);
+        assertEquals(75 * MB, partSize);
+    }
+
+    @Test
+    public void testKeepsPartsWithinS3Limits() {
+        final AdaptiveUploadTuner slow = new AdaptiveUploadTuner(16 * MB, 2, now);
+        completeRound(slow, PART_SIZE, 50000);
+        assertEquals(AdaptiveUploadTuner.MINIMUM_PART_SIZE, slow.getPartSize());
+
+        final AdaptiveUploadTuner fast = new AdaptiveUploadTuner(PART_SIZE, 2, now);
+        completeRound(fast, AdaptiveUploadTuner.MAXIMUM_PART_SIZE, 1000);
+        assertEquals(AdaptiveUploadTuner.MAXIMUM_PART_SIZE, fast.getPartSize());
+    }
+
+    @Test
+    public void testKeepsPartSizeForSmallChanges() {
+        final AdaptiveUploadTuner tuner = new AdaptiveUploadTuner(8 * MB, 2, now);
+        // the target size is 12MB, less than twice the size
+        completeRound(tuner, 8 * MB, 10000);
+        assertEquals(8 * MB, tuner.getPartSize());
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ContentValues;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.mobileconnectors.s3.transferutility.TransferService.NetworkInfoReceiver;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class DownloadTaskTest {
+
+    private static final int ID = 1;
+    private static final int PART_SIZE = 1000;
+
+    private final byte[] content = new byte[PART_SIZE * 2 + 500];
+    private final List<TransferRecord> parts = new ArrayList<TransferRecord>();
+    private File file;
+    private StubS3Client s3;
+    private TransferDBUtil dbUtil;
+    private TransferStatusUpdater updater;
+    private NetworkInfoReceiver networkInfo;
+    private TransferUtilityOptions options;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(42).nextBytes(content);
+        file = File.createTempFile("download", ".tmp");
+        file.delete();
+        s3 = new StubS3Client();
+        dbUtil = mock(TransferDBUtil.class);
+        updater = mock(TransferStatusUpdater.class);
+        networkInfo = mock(NetworkInfoReceiver.class);
+        when(networkInfo.isNetworkConnected()).thenReturn(true);
+        options = new TransferUtilityOptions();
+        options.setMultipartDownloadThreshold(PART_SIZE);
+        options.setMinimumDownloadPartSize(PART_SIZE);
+
+        // the part records "inserted" by the task are the ones it queries
+        when(dbUtil.generateContentValuesForMultiPartDownload(anyString(), anyString(),
+                any(File.class), anyInt(), anyLong(), anyLong(), anyInt()))
+                .thenAnswer(new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) {
+                        final Object[] args = invocation.getArguments();
+                        parts.add(part((Integer) args[3], (Long) args[4], (Long) args[5],
+                                TransferState.WAITING));
+                        return null;
+                    }
+                });
+        when(dbUtil.queryPartsOfDownload(ID)).thenReturn(parts);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testLargeObjectIsDownloadedInParts() throws Exception {
+        final TransferRecord download = download();
+
+        assertTrue(new DownloadTask(download, s3, dbUtil, updater, networkInfo, options).call());
+
+        assertEquals(1, download.isMultipart);
+        assertEquals(content.length, download.bytesTotal);
+        assertEquals(s3.eTag, download.eTag);
+        verify(dbUtil).replaceMultipartDownloadRecords(eq(ID), eq((long) content.length),
+                eq(s3.eTag), any(String.class), any(ContentValues[].class));
+        assertEquals(3, parts.size());
+        assertEquals(3, s3.ranges.size());
+        assertTrue(s3.ranges.containsAll(Arrays.asList("0-999", "1000-1999", "2000-2499")));
+        assertArrayEquals(content, readFile());
+        for (final TransferRecord part : parts) {
+            verify(dbUtil).updateState(part.id, TransferState.PART_COMPLETED);
+        }
+        verify(updater).updateProgress(ID, content.length, content.length);
+        verify(updater).updateState(ID, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void testSmallObjectIsDownloadedWhole() throws Exception {
+        options.setMultipartDownloadThreshold(content.length + 1);
+        final TransferRecord download = download();
+
+        assertTrue(new DownloadTask(download, s3, dbUtil, updater, networkInfo, options).call());
+
+        assertEquals(0, download.isMultipart);
+        assertEquals(Arrays.asList("whole"), s3.ranges);
+        assertArrayEquals(content, readFile());
+        verify(updater).updateState(ID, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void testResumesFromThePartsNotCompleted() throws Exception {
+        // only the second part made it to the file
+        final byte[] partial = new byte[content.length];
+        System.arraycopy(content, PART_SIZE, partial, PART_SIZE, PART_SIZE);
+        writeFile(partial);
+        parts.add(part(1, 0, PART_SIZE - 1, TransferState.FAILED));
+        parts.add(part(2, PART_SIZE, 2 * PART_SIZE - 1, TransferState.PART_COMPLETED));
+        parts.add(part(3, 2 * PART_SIZE, content.length - 1, TransferState.WAITING));
+        final TransferRecord download = download();
+        download.isMultipart = 1;
+        download.bytesTotal = content.length;
+        download.eTag = s3.eTag;
+
+        assertTrue(new DownloadTask(download, s3, dbUtil, updater, networkInfo, options).call());
+
+        assertEquals(Arrays.asList("0-999", "2000-2499"), sorted(s3.ranges));
+        assertArrayEquals(content, readFile());
+        verify(updater).updateProgress(ID, PART_SIZE, content.length);
+        verify(dbUtil, never()).replaceMultipartDownloadRecords(anyInt(), anyLong(),
+                anyString(), anyString(), any(ContentValues[].class));
+        verify(updater).updateState(ID, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void testRestartsIfTheFileWasLost() throws Exception {
+        final TransferRecord download = download();
+        download.isMultipart = 1;
+        download.bytesTotal = content.length;
+        download.eTag = s3.eTag;
+
+        assertTrue(new DownloadTask(download, s3, dbUtil, updater, networkInfo, options).call());
+
+        assertEquals(3, s3.ranges.size());
+        assertArrayEquals(content, readFile());
+        verify(updater).updateState(ID, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void testFailsIfTheDirectoryCannotBeCreated() throws Exception {
+        // a regular file is in the way of the directory
+        final File blocker = File.createTempFile("blocker", ".tmp");
+        try {
+            file = new File(new File(blocker, "dir"), "download.tmp");
+            for (final long threshold : new long[] {
+                    PART_SIZE, Long.MAX_VALUE
+            }) {
+                options.setMultipartDownloadThreshold(threshold);
+                updater = mock(TransferStatusUpdater.class);
+
+                assertFalse(new DownloadTask(download(), s3, dbUtil, updater, networkInfo,
+                        options).call());
+
+                final ArgumentCaptor<Exception> error = ArgumentCaptor.forClass(Exception.class);
+                verify(updater).throwError(eq(ID), error.capture());
+                assertTrue(error.getValue() instanceof AmazonClientException);
+                assertTrue(error.getValue().getMessage().contains("Unable to create the directory"));
+                verify(updater).updateState(ID, TransferState.FAILED);
+                assertFalse(file.exists());
+            }
+        } finally {
+            blocker.delete();
+        }
+    }
+
+    private TransferRecord download() {
+        final TransferRecord download = new TransferRecord(ID);
+        download.type = TransferType.DOWNLOAD;
+        download.bucketName = "bucket";
+        download.key = "key";
+        download.file = file.getAbsolutePath();
+        return download;
+    }
+
+    private TransferRecord part(int partNumber, long rangeStart, long rangeLast,
+            TransferState state) {
+        final TransferRecord part = new TransferRecord(ID + partNumber);
+        part.mainUploadId = ID;
+        part.type = TransferType.DOWNLOAD;
+        part.state = state;
+        part.bucketName = "bucket";
+        part.key = "key";
+        part.file = file.getAbsolutePath();
+        part.partNumber = partNumber;
+        part.rangeStart = rangeStart;
+        part.rangeLast = rangeLast;
+        part.bytesTotal = rangeLast - rangeStart + 1;
+        return part;
+    }
+
+    private static List<String> sorted(List<String> ranges) {
+        final String[] array = ranges.toArray(new String[ranges.size()]);
+        Arrays.sort(array);
+        return Arrays.asList(array);
+    }
+
+    private byte[] readFile() throws IOException {
+        final byte[] bytes = new byte[(int) file.length()];
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += in.read(bytes, offset, bytes.length - offset);
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    private void writeFile(byte[] bytes) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Serves the test content and its ranges, like Amazon S3 does.
+     */
+    private final class StubS3Client extends AmazonS3Client {
+        private final List<String> ranges = new CopyOnWriteArrayList<String>();
+        private final String eTag = BinaryUtils.toHex(Md5Utils.computeMD5Hash(content));
+
+        StubS3Client() {
+            super(new BasicAWSCredentials("access", "secret"));
+        }
+
+        @Override
+        public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+            final ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(content.length);
+            metadata.setHeader(Headers.ETAG, eTag);
+            return metadata;
+        }
+
+        @Override
+        public S3Object getObject(GetObjectRequest request) {
+            final S3Object s3Object = new S3Object();
+            final long[] range = request.getRange();
+            if (range == null) {
+                ranges.add("whole");
+                s3Object.getObjectMetadata().setContentLength(content.length);
+                s3Object.setObjectContent(new ByteArrayInputStream(content));
+                return s3Object;
+            }
+            if (!request.getMatchingETagConstraints().contains(eTag)) {
+                // the precondition failed
+                return null;
+            }
+            ranges.add(range[0] + "-" + range[1]);
+            s3Object.setObjectContent(new ByteArrayInputStream(content, (int) range[0],
+                    (int) (range[1] - range[0] + 1)));
+            return s3Object;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TransferStatusUpdaterTest {
+
+    private static final int ID = 1;
+    private static final int OTHER_ID = 2;
+
+    /** The batches of progress written to the database. */
+    private final List<Map<Integer, Long>> writes = Collections
+            .synchronizedList(new ArrayList<Map<Integer, Long>>());
+    /** The callbacks received by the listeners, in order. */
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    /** The number of callbacks run on the "main thread". */
+    private final AtomicInteger callbacks = new AtomicInteger();
+    private TransferDBUtil dbUtil;
+    private TransferStatusUpdater updater;
+
+    @Before
+    public void setUp() {
+        dbUtil = mock(TransferDBUtil.class);
+        when(dbUtil.updateBytesTransferred(anyMapOf(Integer.class, Long.class))).thenAnswer(
+                new Answer<Integer>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Integer answer(InvocationOnMock invocation) {
+                        final Map<Integer, Long> bytesById = (Map<Integer, Long>) invocation
+                                .getArguments()[0];
+                        writes.add(new HashMap<Integer, Long>(bytesById));
+                        return bytesById.size();
+                    }
+                });
+        updater = new TransferStatusUpdater(dbUtil, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                callbacks.incrementAndGet();
+                command.run();
+            }
+        });
+        for (final int id : new int[] {
+                ID, OTHER_ID
+        }) {
+            final TransferRecord transfer = new TransferRecord(id);
+            transfer.state = TransferState.IN_PROGRESS;
+            updater.addTransfer(transfer);
+            TransferStatusUpdater.registerListener(id, new RecordingListener());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        updater.shutdown();
+        updater.clear();
+    }
+
+    @Test
+    public void testProgressIsFlushedBeforeAStateChange() {
+        updater.updateProgress(ID, 10, 100);
+        updater.updateState(ID, TransferState.COMPLETED);
+
+        final InOrder inOrder = inOrder(dbUtil);
+        inOrder.verify(dbUtil).updateBytesTransferred(ID, 10L);
+        inOrder.verify(dbUtil).updateTransferRecord(updater.getTransfer(ID));
+        assertEquals(Arrays.asList("1 progress 10/100", "1 state COMPLETED"), events);
+        assertEquals(10, updater.getTransfer(ID).bytesCurrent);
+    }
+
+    @Test
+    public void testProgressIsCoalescedIntoOneFlush() throws Exception {
+        final ProgressListener listener = updater.newProgressListener(ID);
+        updater.updateProgress(ID, 0, 100);
+        for (int i = 0; i < 50; i++) {
+            listener.progressChanged(new ProgressEvent(1));
+            updater.updateProgress(OTHER_ID, i, 200);
+        }
+
+        // the periodic flush writes both transfers at once
+        verify(dbUtil, timeout(5000)).updateBytesTransferred(
+                anyMapOf(Integer.class, Long.class));
+        updater.flush();
+
+        assertEquals(1, writes.size());
+        final Map<Integer, Long> expected = new HashMap<Integer, Long>();
+        expected.put(ID, 50L);
+        expected.put(OTHER_ID, 49L);
+        assertEquals(expected, writes.get(0));
+        assertEquals(1, callbacks.get());
+        assertEquals(2, events.size());
+        assertTrue(events.contains("1 progress 50/100"));
+        assertTrue(events.contains("2 progress 49/200"));
+    }
+
+    @Test
+    public void testShutdownFlushesThePendingProgress() {
+        updater.updateProgress(ID, 10, 100);
+
+        updater.shutdown();
+
+        assertEquals(Arrays.asList(Collections.singletonMap(ID, 10L)), writes);
+        assertEquals(Arrays.asList("1 progress 10/100"), events);
+        // progress after the shutdown isn't scheduled, but doesn't fail
+        updater.updateProgress(ID, 20, 100);
+    }
+
+    @Test
+    public void testProgressNeverGoesBackwardsWithConcurrentParts() throws Exception {
+        final int parts = 8;
+        final int eventsPerPart = 10000;
+        updater.updateProgress(ID, 0, parts * eventsPerPart);
+        final CountDownLatch done = new CountDownLatch(parts);
+        for (int i = 0; i < parts; i++) {
+            final ProgressListener listener = updater.newProgressListener(ID);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < eventsPerPart; j++) {
+                        listener.progressChanged(new ProgressEvent(1));
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        final AtomicBoolean flushing = new AtomicBoolean(true);
+        final Thread flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (flushing.get()) {
+                    updater.flush();
+                }
+            }
+        });
+        flusher.start();
+        done.await();
+        flushing.set(false);
+        flusher.join();
+        updater.flush();
+
+        long previous = -1;
+        for (final Map<Integer, Long> write : new ArrayList<Map<Integer, Long>>(writes)) {
+            final long bytes = write.get(ID);
+            assertTrue(bytes + " after " + previous, bytes >= previous);
+            previous = bytes;
+        }
+        assertEquals(parts * eventsPerPart, previous);
+        previous = -1;
+        for (final String event : new ArrayList<String>(events)) {
+            final long bytes = Long.parseLong(event.substring("1 progress ".length(),
+                    event.indexOf('/')));
+            assertTrue(bytes + " after " + previous, bytes >= previous);
+            previous = bytes;
+        }
+        assertEquals(parts * eventsPerPart, previous);
+    }
+
+    private final class RecordingListener implements TransferListener {
+        @Override
+        public void onStateChanged(int id, TransferState state) {
+            events.add(id + " state " + state);
+        }
+
+        @Override
+        public void onProgressChanged(int id, long bytesCurrent, long bytesTotal) {
+            events.add(id + " progress " + bytesCurrent + "/" + bytesTotal);
+        }
+
+        @Override
+        public void onError(int id, Exception ex) {
+            events.add(id + " error " + ex.getMessage());
+        }
+    }
+}
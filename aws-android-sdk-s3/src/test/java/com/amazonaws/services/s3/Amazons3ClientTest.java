@@ -21,10 +21,16 @@ import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.Request;
+import com.amazonaws.Response;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.auth.Signer;
+import com.amazonaws.http.HttpClient;
 import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.internal.StaticCredentialsProvider;
+import com.amazonaws.metrics.RequestMetricCollector;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.internal.AWSS3V4Signer;
@@ -32,11 +38,18 @@ import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.model.DeleteBucketRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
 public class Amazons3ClientTest {
     private AmazonS3Client s3;
@@ -168,4 +181,58 @@ public class Amazons3ClientTest {
     public void testSetNotificationThreshold() {
         s3.setNotificationThreshold(8 * 1024);
     }
+
+    @Test
+    public void testPutFileReadCount() throws IOException {
+        final byte[] content = new byte[100000];
+        final File file = File.createTempFile("upload", ".tmp");
+        file.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+        final AmazonS3Client client = new AmazonS3Client(
+                new StaticCredentialsProvider(creds), new ClientConfiguration(),
+                new HttpClient() {
+                    @Override
+                    public HttpResponse execute(HttpRequest request) throws IOException {
+                        // sends the body
+                        final InputStream body = request.getContent();
+                        while (body.read(new byte[8192]) != -1) {
+                        }
+                        return HttpResponse.builder().statusCode(200)
+                                .header("ETag", BinaryUtils.toHex(
+                                        Md5Utils.computeMD5Hash(content)))
+                                .content(new ByteArrayInputStream(new byte[0])).build();
+                    }
+
+                    @Override
+                    public void shutdown() {
+                    }
+                });
+        client.setRegion(Region.getRegion(Regions.US_EAST_1));
+
+        // the file is hashed, then read again as it is sent
+        assertEquals(2 * content.length, putFileBytesRead(client, file));
+
+        client.setS3ClientOptions(S3ClientOptions.builder().enableSinglePassDigest().build());
+        assertEquals(content.length, putFileBytesRead(client, file));
+        file.delete();
+    }
+
+    private static long putFileBytesRead(AmazonS3Client client, File file) {
+        final long[] bytesRead = new long[1];
+        final PutObjectRequest request = new PutObjectRequest("bucket", "key", file);
+        request.setRequestMetricCollector(new RequestMetricCollector() {
+            @Override
+            public void collectMetrics(Request<?> request, Response<?> response) {
+                bytesRead[0] = request.getAWSRequestMetrics().getTimingInfo()
+                        .getCounter(Field.BytesProcessed.name()).longValue();
+            }
+        });
+        client.putObject(request);
+        return bytesRead[0];
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.util.IOUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class FilePartInputStreamTest {
+
+    private final byte[] content = new byte[10000];
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(42).nextBytes(content);
+        file = File.createTempFile("FilePartInputStreamTest", null);
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testReadsRange() throws IOException {
+        final FilePartInputStream in = new FilePartInputStream(file, 1000, 3000);
+        try {
+            assertArrayEquals(Arrays.copyOfRange(content, 1000, 4000), IOUtils.toByteArray(in));
+            assertEquals(-1, in.read());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testRangePastEndOfFileStopsAtEnd() throws IOException {
+        final FilePartInputStream in = new FilePartInputStream(file, 9000, 5000);
+        try {
+            assertArrayEquals(Arrays.copyOfRange(content, 9000, 10000), IOUtils.toByteArray(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testResetRereadsFromMark() throws IOException {
+        final FilePartInputStream in = new FilePartInputStream(file, 2000, 4000);
+        try {
+            in.mark(4000);
+            final byte[] partial = new byte[2500];
+            int read = 0;
+            while (read < partial.length) {
+                read += in.read(partial, read, partial.length - read);
+            }
+            in.reset();
+            assertArrayEquals(Arrays.copyOfRange(content, 2000, 6000), IOUtils.toByteArray(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testPartsOfAFileShareOneChannel() throws IOException {
+        final int openCount = SharedFileChannel.getOpenCount();
+        final FilePartInputStream first = new FilePartInputStream(file, 0, 5000);
+        final FilePartInputStream second = new FilePartInputStream(file, 5000, 5000);
+        assertEquals(openCount + 1, SharedFileChannel.getOpenCount());
+
+        // interleaved reads don't disturb each other's position
+        assertEquals(content[0] & 0xFF, first.read());
+        assertEquals(content[5000] & 0xFF, second.read());
+        assertEquals(content[1] & 0xFF, first.read());
+
+        first.close();
+        assertEquals(openCount + 1, SharedFileChannel.getOpenCount());
+        assertArrayEquals(Arrays.copyOfRange(content, 5001, 10000), IOUtils.toByteArray(second));
+        second.close();
+        assertEquals(openCount, SharedFileChannel.getOpenCount());
+    }
+
+    @Test
+    public void testChannelClosedByInterruptedReaderIsReopened() throws Exception {
+        final FilePartInputStream in = new FilePartInputStream(file, 0, 10000);
+        final AtomicBoolean closedByInterrupt = new AtomicBoolean();
+        final Thread reader = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    final SharedFileChannel channel = SharedFileChannel.open(file);
+                    try {
+                        // an interrupt while reading closes the channel the
+                        // streams share
+                        Thread.currentThread().interrupt();
+                        channel.read(ByteBuffer.allocate(100), 0);
+                    } finally {
+                        channel.release();
+                    }
+                } catch (final ClosedByInterruptException expected) {
+                    closedByInterrupt.set(true);
+                } catch (final IOException e) {
+                    // fails the test below
+                }
+            }
+        };
+        try {
+            assertEquals(content[0] & 0xFF, in.read());
+            reader.start();
+            reader.join(10000);
+            assertTrue(closedByInterrupt.get());
+            assertArrayEquals(Arrays.copyOfRange(content, 1, 10000), IOUtils.toByteArray(in));
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.amazonaws.services.s3.internal;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.DefaultRequest;
@@ -46,6 +47,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.SocketException;
@@ -277,6 +279,37 @@ public class ServiceUtilsTest {
 
     }
 
+    @Test
+    public void testDownloadObjectToFileChannel() throws IOException {
+        final File file = File.createTempFile("temp1", "temp2");
+        file.deleteOnExit();
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(10);
+            final S3Object last = new S3Object();
+            last.setObjectContent(new StringInputStream("input"));
+            assertEquals(5, ServiceUtils.downloadObjectToFileChannel(last,
+                    randomAccessFile.getChannel(), 5));
+            final S3Object first = new S3Object();
+            first.setObjectContent(new StringInputStream("test "));
+            assertEquals(5, ServiceUtils.downloadObjectToFileChannel(first,
+                    randomAccessFile.getChannel(), 0));
+        } finally {
+            randomAccessFile.close();
+        }
+
+        // the ranges make up the object, whatever the order they came in
+        ServiceUtils.verifyDownloadedFile(file, "5eed650258ee02f6a77c87b748b764ec");
+        // no MD5 to check against for multipart objects
+        ServiceUtils.verifyDownloadedFile(file, "b54357faf0632cce46e942fa68356b38-2");
+        try {
+            ServiceUtils.verifyDownloadedFile(file, "b54357faf0632cce46e942fa68356b38");
+            fail("Expected the file not to match its ETag");
+        } catch (final AmazonClientException e) {
+            assertTrue(e.getMessage().contains("integrity"));
+        }
+    }
+
     @Test
     public void testToBytes() {
         assertEquals("dGVzdA==", new String(Base64.encode(ServiceUtils.toByteArray("test"))));
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.amazonaws.util.IOUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+public class CipherLiteInputStreamTest {
+
+    private static final SecretKey KEY = new SecretKeySpec(new byte[16], "AES");
+    private static final byte[] IV = new byte[16];
+    private static final byte[] GCM_IV = new byte[12];
+
+    private final byte[] plaintext = randomBytes(5000);
+
+    @Test
+    public void testEncryptsLikeCipher() throws Exception {
+        final Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, KEY, new IvParameterSpec(IV));
+        final byte[] expected = cipher.doFinal(plaintext);
+
+        for (final int buffsize : new int[] {
+                512, 1024, 4096, 8192
+        }) {
+            final CipherLite cipherLite = ContentCryptoScheme.AES_CBC.createCipherLite(KEY, IV,
+                    Cipher.ENCRYPT_MODE);
+            final InputStream in = new CipherLiteInputStream(
+                    new ByteArrayInputStream(plaintext), cipherLite, buffsize);
+            assertArrayEquals(expected, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void testDecryptsWhatItEncrypts() throws Exception {
+        final InputStream encrypting = new CipherLiteInputStream(
+                new ByteArrayInputStream(plaintext),
+                ContentCryptoScheme.AES_CBC.createCipherLite(KEY, IV, Cipher.ENCRYPT_MODE));
+        final byte[] ciphertext = IOUtils.toByteArray(encrypting);
+
+        final InputStream decrypting = new CipherLiteInputStream(
+                new ByteArrayInputStream(ciphertext),
+                ContentCryptoScheme.AES_CBC.createCipherLite(KEY, IV, Cipher.DECRYPT_MODE), 1024);
+        assertArrayEquals(plaintext, IOUtils.toByteArray(decrypting));
+    }
+
+    @Test
+    public void testReturnsBuffersToPoolOnClose() throws Exception {
+        // a buffer size no other test uses, so that the pool is this test's own
+        final int buffsize = 512 * 13;
+        final ByteBufferPool pool = ByteBufferPool.forSize(buffsize);
+        final int pooled = pool.getPooledCount();
+
+        final InputStream in = new CipherLiteInputStream(new ByteArrayInputStream(plaintext),
+                ContentCryptoScheme.AES_CBC.createCipherLite(KEY, IV, Cipher.ENCRYPT_MODE),
+                buffsize);
+        in.read();
+        in.close();
+        assertEquals(pooled + 1, pool.getPooledCount());
+
+        // the next stream of that size takes the buffer back
+        final InputStream next = new CipherLiteInputStream(new ByteArrayInputStream(plaintext),
+                ContentCryptoScheme.AES_CBC.createCipherLite(KEY, IV, Cipher.ENCRYPT_MODE),
+                buffsize);
+        next.read();
+        assertEquals(pooled, pool.getPooledCount());
+        next.close();
+    }
+
+    @Test
+    public void testGcmResetReencryptsThroughBuffers() throws Exception {
+        final Cipher expectedCipher = Cipher.getInstance("AES/GCM/NoPadding");
+        expectedCipher.init(Cipher.ENCRYPT_MODE, KEY, new GCMParameterSpec(128, GCM_IV));
+        final byte[] expected = expectedCipher.doFinal(plaintext);
+
+        final Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, KEY, new GCMParameterSpec(128, GCM_IV));
+        final InputStream in = new CipherLiteInputStream(new ByteArrayInputStream(plaintext),
+                new GCMCipherLite(cipher, KEY, Cipher.ENCRYPT_MODE), 1024);
+        in.mark(plaintext.length);
+        final byte[] partial = new byte[3000];
+        int read = 0;
+        while (read < partial.length) {
+            read += in.read(partial, read, partial.length - read);
+        }
+        in.reset();
+        assertArrayEquals(expected, IOUtils.toByteArray(in));
+    }
+
+    private static byte[] randomBytes(int length) {
+        final byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
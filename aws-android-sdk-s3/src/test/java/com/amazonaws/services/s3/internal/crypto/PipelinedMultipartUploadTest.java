@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.AnonymousAWSCredentials;
+import com.amazonaws.internal.StaticCredentialsProvider;
+import com.amazonaws.services.s3.internal.S3Direct;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.CryptoConfiguration;
+import com.amazonaws.services.s3.model.EncryptionMaterials;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.StaticEncryptionMaterialsProvider;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.util.IOUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.crypto.spec.SecretKeySpec;
+
+public class PipelinedMultipartUploadTest {
+
+    private static final String BUCKET = "bucket";
+    private static final String KEY = "key";
+    private static final int PART_SIZE = 16 * 100;
+    private static final int LAST_PART_SIZE = 1000;
+    private static final int PARTS = 3;
+
+    private final byte[] plaintext = randomBytes(PART_SIZE * (PARTS - 1) + LAST_PART_SIZE);
+    private final StubS3Direct s3 = new StubS3Direct();
+    private final CryptoModuleDispatcher crypto = new CryptoModuleDispatcher(null, s3,
+            new StaticCredentialsProvider(new AnonymousAWSCredentials()),
+            new StaticEncryptionMaterialsProvider(new EncryptionMaterials(
+                    new SecretKeySpec(new byte[16], "AES"))),
+            new CryptoConfiguration().withPipelinedMultipartUpload(true));
+
+    @Test
+    public void testPartsUploadedOutOfOrderAreEncryptedInOrder() throws Exception {
+        final String uploadId = initiate();
+        // the parts start in reverse order, and wait for their turn to encrypt
+        final List<Thread> threads = new ArrayList<Thread>();
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        for (int partNumber = PARTS; partNumber >= 1; partNumber--) {
+            final UploadPartRequest request = partRequest(uploadId, partNumber);
+            final Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        crypto.uploadPartSecurely(request);
+                    } catch (final Throwable t) {
+                        synchronized (failures) {
+                            failures.add(t);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join(10000);
+        }
+        assertEquals(new ArrayList<Throwable>(), failures);
+        assertArrayEquals(plaintext, download());
+    }
+
+    @Test
+    public void testPartsUploadedInSeries() throws Exception {
+        final String uploadId = initiate();
+        for (int partNumber = 1; partNumber <= PARTS; partNumber++) {
+            crypto.uploadPartSecurely(partRequest(uploadId, partNumber));
+        }
+        assertArrayEquals(plaintext, download());
+    }
+
+    @Test
+    public void testEncryptedPartCannotBeEncryptedAgain() {
+        final String uploadId = initiate();
+        crypto.uploadPartSecurely(partRequest(uploadId, 1));
+        try {
+            crypto.uploadPartSecurely(partRequest(uploadId, 1));
+            fail("Expected the part to be rejected");
+        } catch (final AmazonClientException expected) {
+            // the cipher has moved on past the part
+        }
+    }
+
+    private String initiate() {
+        return crypto.initiateMultipartUploadSecurely(
+                new InitiateMultipartUploadRequest(BUCKET, KEY)).getUploadId();
+    }
+
+    private UploadPartRequest partRequest(String uploadId, int partNumber) {
+        final int offset = (partNumber - 1) * PART_SIZE;
+        final boolean isLastPart = partNumber == PARTS;
+        final int size = isLastPart ? LAST_PART_SIZE : PART_SIZE;
+        return new UploadPartRequest()
+                .withBucketName(BUCKET)
+                .withKey(KEY)
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withPartSize(size)
+                .withLastPart(isLastPart)
+                .withInputStream(new ByteArrayInputStream(plaintext, offset, size));
+    }
+
+    private byte[] download() throws IOException {
+        final S3Object object = crypto.getObjectSecurely(new GetObjectRequest(BUCKET, KEY));
+        return IOUtils.toByteArray(object.getObjectContent());
+    }
+
+    private static byte[] randomBytes(int length) {
+        final byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Keeps the metadata of the upload and its parts, and serves them back as
+     * the object.
+     */
+    private static final class StubS3Direct extends S3Direct {
+        private volatile ObjectMetadata metadata;
+        private final Map<Integer, byte[]> parts = new ConcurrentSkipListMap<Integer, byte[]>();
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(
+                InitiateMultipartUploadRequest req) {
+            metadata = req.getObjectMetadata();
+            final InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setBucketName(req.getBucketName());
+            result.setKey(req.getKey());
+            result.setUploadId("upload-" + System.nanoTime());
+            return result;
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest req) {
+            try {
+                parts.put(req.getPartNumber(), IOUtils.toByteArray(req.getInputStream()));
+            } catch (final IOException e) {
+                throw new AmazonClientException("Unable to read part", e);
+            }
+            final UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(req.getPartNumber());
+            result.setETag("etag-" + req.getPartNumber());
+            return result;
+        }
+
+        @Override
+        public S3Object getObject(GetObjectRequest req) {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            for (final byte[] part : parts.values()) {
+                content.write(part, 0, part.length);
+            }
+            final S3Object object = new S3Object();
+            object.setBucketName(req.getBucketName());
+            object.setKey(req.getKey());
+            object.setObjectMetadata(metadata);
+            object.setObjectContent(new ByteArrayInputStream(content.toByteArray()));
+            return object;
+        }
+
+        @Override
+        public PutObjectResult putObject(PutObjectRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObjectMetadata getObject(GetObjectRequest req, File dest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(
+                CompleteMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CopyPartResult copyPart(CopyPartRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void abortMultipartUpload(AbortMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.iterable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class S3ObjectsPrefetchTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    private static final List<String> KEYS = Arrays.asList(
+            "a", "b/1", "b/2", "b/3", "c", "d/1", "d/e/2", "f", "g/1", "g/2", "h");
+
+    @Test
+    public void testPrefetchReturnsAllObjects() {
+        final StubS3Client s3 = new StubS3Client();
+        assertEquals(KEYS, keys(S3Objects.inBucket(s3, "bucket").withPrefetchDepth(2)));
+        assertEquals((KEYS.size() + PAGE_SIZE - 1) / PAGE_SIZE, s3.listings.get());
+    }
+
+    @Test
+    public void testPrefetchFetchesAheadUpToDepth() throws Exception {
+        final StubS3Client s3 = new StubS3Client();
+        final Iterator<S3ObjectSummary> iter = S3Objects.inBucket(s3, "bucket")
+                .withPrefetchDepth(2).iterator();
+        assertEquals("a", iter.next().getKey());
+
+        // the page being consumed and two more
+        waitForListings(s3, 3);
+        Thread.sleep(50);
+        assertEquals(3, s3.listings.get());
+
+        // taking the next page makes room for another one
+        iter.next();
+        iter.next();
+        waitForListings(s3, 4);
+    }
+
+    @Test
+    public void testPrefetchRethrowsListingFailure() {
+        final StubS3Client s3 = new StubS3Client();
+        s3.failingMarker = "b/3";
+        final Iterator<S3ObjectSummary> iter = S3Objects.inBucket(s3, "bucket")
+                .withPrefetchDepth(1).iterator();
+        final List<String> keys = new ArrayList<String>();
+        try {
+            while (iter.hasNext()) {
+                keys.add(iter.next().getKey());
+            }
+            fail("Expected the listing to fail");
+        } catch (final AmazonServiceException e) {
+            assertEquals("InternalError", e.getErrorCode());
+        }
+        assertEquals(KEYS.subList(0, 4), keys);
+    }
+
+    @Test
+    public void testParallelListingKeepsOrder() {
+        final StubS3Client s3 = new StubS3Client();
+        assertEquals(KEYS, keys(S3Objects.inBucket(s3, "bucket").withParallelism("/", 2)));
+        assertTrue(s3.delimitedListings.get() > 0);
+    }
+
+    @Test
+    public void testParallelListingWithPrefix() {
+        final StubS3Client s3 = new StubS3Client();
+        assertEquals(Arrays.asList("d/1", "d/e/2"),
+                keys(S3Objects.withPrefix(s3, "bucket", "d/").withParallelism("/", 4)
+                        .withPrefetchDepth(3)));
+    }
+
+    @Test
+    public void testParallelListingOfEmptyPrefix() {
+        final StubS3Client s3 = new StubS3Client();
+        assertFalse(S3Objects.withPrefix(s3, "bucket", "missing/").withParallelism("/", 2)
+                .iterator().hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrefetchDepthMustBePositive() {
+        S3Objects.inBucket(new StubS3Client(), "bucket").withPrefetchDepth(0);
+    }
+
+    private static List<String> keys(S3Objects objects) {
+        final List<String> keys = new ArrayList<String>();
+        for (final S3ObjectSummary summary : objects) {
+            keys.add(summary.getKey());
+        }
+        return keys;
+    }
+
+    private static void waitForListings(StubS3Client s3, int listings)
+            throws InterruptedException {
+        for (int i = 0; i < 200 && s3.listings.get() < listings; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(listings, s3.listings.get());
+    }
+
+    /**
+     * Lists the test keys in pages.
+     */
+    private static final class StubS3Client extends AmazonS3Client {
+        private final AtomicInteger listings = new AtomicInteger();
+        private final AtomicInteger delimitedListings = new AtomicInteger();
+        private volatile String failingMarker;
+
+        StubS3Client() {
+            super(new BasicAWSCredentials("access", "secret"));
+        }
+
+        @Override
+        public ObjectListing listObjects(ListObjectsRequest request) {
+            return list(request.getPrefix(), request.getDelimiter(), null);
+        }
+
+        @Override
+        public ObjectListing listNextBatchOfObjects(ObjectListing previousObjectListing) {
+            return list(previousObjectListing.getPrefix(),
+                    previousObjectListing.getDelimiter(), previousObjectListing.getNextMarker());
+        }
+
+        private ObjectListing list(String prefix, String delimiter, String marker) {
+            listings.incrementAndGet();
+            if (delimiter != null) {
+                delimitedListings.incrementAndGet();
+            }
+            if (marker != null && marker.equals(failingMarker)) {
+                final AmazonServiceException e = new AmazonServiceException("Failed");
+                e.setErrorCode("InternalError");
+                e.setStatusCode(500);
+                throw e;
+            }
+
+            final String listedPrefix = prefix == null ? "" : prefix;
+            // the entries of the prefix, keys or common prefixes, in order
+            final SortedMap<String, Boolean> entries = new TreeMap<String, Boolean>();
+            for (final String key : KEYS) {
+                if (!key.startsWith(listedPrefix)) {
+                    continue;
+                }
+                final int index = delimiter == null ? -1
+                        : key.indexOf(delimiter, listedPrefix.length());
+                if (index == -1) {
+                    entries.put(key, false);
+                } else {
+                    entries.put(key.substring(0, index + delimiter.length()), true);
+                }
+            }
+
+            final ObjectListing listing = new ObjectListing();
+            listing.setBucketName("bucket");
+            listing.setPrefix(prefix);
+            listing.setDelimiter(delimiter);
+            int count = 0;
+            for (final String entry : marker == null ? entries.keySet()
+                    : entries.tailMap(marker + "\0").keySet()) {
+                if (count == PAGE_SIZE) {
+                    listing.setTruncated(true);
+                    break;
+                }
+                if (entries.get(entry)) {
+                    listing.getCommonPrefixes().add(entry);
+                } else {
+                    final S3ObjectSummary summary = new S3ObjectSummary();
+                    summary.setBucketName("bucket");
+                    summary.setKey(entry);
+                    listing.getObjectSummaries().add(summary);
+                }
+                listing.setNextMarker(entry);
+                count++;
+            }
+            return listing;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.iterable;
+
+import static org.junit.Assert.assertEquals;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.ListVersionsRequest;
+import com.amazonaws.services.s3.model.S3VersionSummary;
+import com.amazonaws.services.s3.model.VersionListing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class S3VersionsPrefetchTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    // the keys and versions, in listing order
+    private static final List<String> VERSIONS = Arrays.asList(
+            "a:2", "a:1", "b/1:1", "b/2:1", "key:3", "key:2", "key:1", "key0:1", "z:1");
+
+    @Test
+    public void testPrefetchReturnsAllVersions() {
+        assertEquals(VERSIONS, versions(S3Versions.inBucket(new StubS3Client(), "bucket")
+                .withPrefetchDepth(1)));
+    }
+
+    @Test
+    public void testPrefetchForKeyStopsAtOtherKeys() {
+        assertEquals(Arrays.asList("key:3", "key:2", "key:1"),
+                versions(S3Versions.forKey(new StubS3Client(), "bucket", "key")
+                        .withPrefetchDepth(3)));
+    }
+
+    @Test
+    public void testParallelListingKeepsOrder() {
+        assertEquals(VERSIONS, versions(S3Versions.inBucket(new StubS3Client(), "bucket")
+                .withParallelism("/", 3)));
+    }
+
+    private static List<String> versions(S3Versions versions) {
+        final List<String> result = new ArrayList<String>();
+        for (final S3VersionSummary summary : versions) {
+            result.add(summary.getKey() + ":" + summary.getVersionId());
+        }
+        return result;
+    }
+
+    /**
+     * Lists the test versions in pages, rolling up the keys by the delimiter.
+     */
+    private static final class StubS3Client extends AmazonS3Client {
+
+        StubS3Client() {
+            super(new BasicAWSCredentials("access", "secret"));
+        }
+
+        @Override
+        public VersionListing listVersions(ListVersionsRequest request) {
+            return list(request.getPrefix(), request.getDelimiter(), 0);
+        }
+
+        @Override
+        public VersionListing listNextBatchOfVersions(VersionListing previousVersionListing) {
+            return list(previousVersionListing.getPrefix(),
+                    previousVersionListing.getDelimiter(),
+                    Integer.parseInt(previousVersionListing.getNextKeyMarker()));
+        }
+
+        private VersionListing list(String prefix, String delimiter, int start) {
+            final String listedPrefix = prefix == null ? "" : prefix;
+            // the versions and common prefixes under the prefix, in order
+            final List<String> entries = new ArrayList<String>();
+            for (final String version : VERSIONS) {
+                final String key = version.substring(0, version.indexOf(':'));
+                if (!key.startsWith(listedPrefix)) {
+                    continue;
+                }
+                final int index = delimiter == null ? -1
+                        : key.indexOf(delimiter, listedPrefix.length());
+                final String entry = index == -1 ? version
+                        : key.substring(0, index + delimiter.length());
+                if (!entries.contains(entry)) {
+                    entries.add(entry);
+                }
+            }
+
+            final VersionListing listing = new VersionListing();
+            listing.setBucketName("bucket");
+            listing.setPrefix(prefix);
+            listing.setDelimiter(delimiter);
+            final int end = Math.min(entries.size(), start + PAGE_SIZE);
+            for (final String entry : entries.subList(start, end)) {
+                final int colon = entry.indexOf(':');
+                if (colon == -1) {
+                    listing.getCommonPrefixes().add(entry);
+                } else {
+                    final S3VersionSummary summary = new S3VersionSummary();
+                    summary.setBucketName("bucket");
+                    summary.setKey(entry.substring(0, colon));
+                    summary.setVersionId(entry.substring(colon + 1));
+                    listing.getVersionSummaries().add(summary);
+                }
+            }
+            listing.setTruncated(end < entries.size());
+            // the index of the next entry stands in for the markers
+            listing.setNextKeyMarker(String.valueOf(end));
+            return listing;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.model.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.Owner;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.S3VersionSummary;
+import com.amazonaws.services.s3.model.VersionListing;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+public class ListingStaxUnmarshallerTest {
+
+    private static final String LIST_OBJECTS_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+            + "<Name>bucket</Name><Prefix>dir%2F</Prefix><Marker></Marker>"
+            + "<MaxKeys>1000</MaxKeys><Delimiter>%2F</Delimiter>"
+            + "<EncodingType>url</EncodingType><IsTruncated>true</IsTruncated>"
+            + "<Contents><Key>dir%2Fa%20b</Key><LastModified>2018-01-02T03:04:05.000Z</LastModified>"
+            + "<ETag>&quot;etag1&quot;</ETag><Size>123</Size>"
+            + "<Owner><ID>owner-id</ID><DisplayName>owner</DisplayName></Owner>"
+            + "<StorageClass>STANDARD</StorageClass></Contents>\n"
+            + "<Contents><Key>dir%2Fc</Key><LastModified>2018-01-02T03:04:05.000Z</LastModified>"
+            + "<ETag>&quot;etag2&quot;</ETag><Size>0</Size>"
+            + "<StorageClass>STANDARD_IA</StorageClass></Contents>\n"
+            + "<CommonPrefixes><Prefix>dir%2Fsub%2F</Prefix></CommonPrefixes>"
+            + "<Unknown><Name>ignored</Name></Unknown>"
+            + "</ListBucketResult>";
+
+    private static final String LIST_OBJECTS_V2_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+            + "<Name>bucket</Name><Prefix></Prefix><KeyCount>2</KeyCount>"
+            + "<MaxKeys>2</MaxKeys><ContinuationToken>token1</ContinuationToken>"
+            + "<NextContinuationToken>token2</NextContinuationToken>"
+            + "<StartAfter>a</StartAfter><IsTruncated>true</IsTruncated>"
+            + "<Contents><Key>line\r\nbreak</Key><LastModified>2018-01-02T03:04:05.000Z</LastModified>"
+            + "<ETag>&quot;etag1&quot;</ETag><Size>5</Size><StorageClass>STANDARD</StorageClass>"
+            + "</Contents>"
+            + "<Contents><Key>a&amp;b</Key><LastModified>2018-01-02T03:04:05.000Z</LastModified>"
+            + "<ETag>&quot;etag2&quot;</ETag><Size>6</Size><StorageClass>STANDARD</StorageClass>"
+            + "</Contents>"
+            + "</ListBucketResult>";
+
+    private static final String LIST_VERSIONS_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ListVersionsResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+            + "<Name>bucket</Name><Prefix>dir/</Prefix><KeyMarker></KeyMarker>"
+            + "<VersionIdMarker></VersionIdMarker><NextKeyMarker>dir/b</NextKeyMarker>"
+            + "<NextVersionIdMarker>v3</NextVersionIdMarker>"
+            + "<MaxKeys>3</MaxKeys><IsTruncated>true</IsTruncated>"
+            + "<Version><Key>dir/a</Key><VersionId>v1</VersionId><IsLatest>true</IsLatest>"
+            + "<LastModified>2018-01-02T03:04:05.000Z</LastModified><ETag>&quot;etag1&quot;</ETag>"
+            + "<Size>10</Size><Owner><ID>owner-id</ID><DisplayName>owner</DisplayName></Owner>"
+            + "<StorageClass>STANDARD</StorageClass></Version>"
+            + "<DeleteMarker><Key>dir/b</Key><VersionId>v2</VersionId><IsLatest>false</IsLatest>"
+            + "<LastModified>2018-01-02T03:04:05.000Z</LastModified>"
+            + "<Owner><ID>owner-id</ID><DisplayName>owner</DisplayName></Owner></DeleteMarker>"
+            + "<CommonPrefixes><Prefix>dir/sub/</Prefix></CommonPrefixes>"
+            + "</ListVersionsResult>";
+
+    @Test
+    public void testListObjectsMatchesSaxParser() throws Exception {
+        final ObjectListing expected = new XmlResponsesSaxParser()
+                .parseListBucketObjectsResponse(stream(LIST_OBJECTS_RESPONSE), true)
+                .getObjectListing();
+        final ObjectListing actual = new ListObjectsStaxUnmarshaller(true)
+                .unmarshall(stream(LIST_OBJECTS_RESPONSE));
+
+        assertEquals("bucket", actual.getBucketName());
+        assertEquals("dir/", actual.getPrefix());
+        assertEquals("dir/a b", actual.getObjectSummaries().get(0).getKey());
+        assertEquals(expected.getBucketName(), actual.getBucketName());
+        assertEquals(expected.getPrefix(), actual.getPrefix());
+        assertEquals(expected.getMarker(), actual.getMarker());
+        assertEquals(expected.getNextMarker(), actual.getNextMarker());
+        assertEquals(expected.getMaxKeys(), actual.getMaxKeys());
+        assertEquals(expected.getDelimiter(), actual.getDelimiter());
+        assertEquals(expected.getEncodingType(), actual.getEncodingType());
+        assertEquals(expected.isTruncated(), actual.isTruncated());
+        assertEquals(expected.getCommonPrefixes(), actual.getCommonPrefixes());
+        assertObjectSummariesEqual(expected.getObjectSummaries(), actual.getObjectSummaries());
+    }
+
+    @Test
+    public void testListObjectsV2MatchesSaxParser() throws Exception {
+        final ListObjectsV2Result expected = new XmlResponsesSaxParser()
+                .parseListObjectsV2Response(stream(LIST_OBJECTS_V2_RESPONSE), false)
+                .getResult();
+        final ListObjectsV2Result actual = new ListObjectsV2StaxUnmarshaller(false)
+                .unmarshall(stream(LIST_OBJECTS_V2_RESPONSE));
+
+        // the carriage return of the key is kept
+        assertEquals("line\r\nbreak", actual.getObjectSummaries().get(0).getKey());
+        assertEquals("a&b", actual.getObjectSummaries().get(1).getKey());
+        assertEquals(expected.getBucketName(), actual.getBucketName());
+        assertEquals(expected.getPrefix(), actual.getPrefix());
+        assertEquals(expected.getKeyCount(), actual.getKeyCount());
+        assertEquals(expected.getMaxKeys(), actual.getMaxKeys());
+        assertEquals(expected.getContinuationToken(), actual.getContinuationToken());
+        assertEquals(expected.getNextContinuationToken(), actual.getNextContinuationToken());
+        assertEquals(expected.getStartAfter(), actual.getStartAfter());
+        assertEquals(expected.isTruncated(), actual.isTruncated());
+        assertEquals(expected.getCommonPrefixes(), actual.getCommonPrefixes());
+        assertObjectSummariesEqual(expected.getObjectSummaries(), actual.getObjectSummaries());
+    }
+
+    @Test
+    public void testListVersionsMatchesSaxParser() throws Exception {
+        final VersionListing expected = new XmlResponsesSaxParser()
+                .parseListVersionsResponse(stream(LIST_VERSIONS_RESPONSE), false)
+                .getListing();
+        final VersionListing actual = new VersionListStaxUnmarshaller(false)
+                .unmarshall(stream(LIST_VERSIONS_RESPONSE));
+
+        assertEquals(expected.getBucketName(), actual.getBucketName());
+        assertEquals(expected.getPrefix(), actual.getPrefix());
+        assertNull(actual.getKeyMarker());
+        assertEquals(expected.getVersionIdMarker(), actual.getVersionIdMarker());
+        assertEquals(expected.getNextKeyMarker(), actual.getNextKeyMarker());
+        assertEquals(expected.getNextVersionIdMarker(), actual.getNextVersionIdMarker());
+        assertEquals(expected.getMaxKeys(), actual.getMaxKeys());
+        assertEquals(expected.isTruncated(), actual.isTruncated());
+        assertEquals(expected.getCommonPrefixes(), actual.getCommonPrefixes());
+
+        assertEquals(2, actual.getVersionSummaries().size());
+        for (int i = 0; i < 2; i++) {
+            final S3VersionSummary e = expected.getVersionSummaries().get(i);
+            final S3VersionSummary a = actual.getVersionSummaries().get(i);
+            assertEquals(e.getBucketName(), a.getBucketName());
+            assertEquals(e.getKey(), a.getKey());
+            assertEquals(e.getVersionId(), a.getVersionId());
+            assertEquals(e.isLatest(), a.isLatest());
+            assertEquals(e.isDeleteMarker(), a.isDeleteMarker());
+            assertEquals(e.getLastModified(), a.getLastModified());
+            assertEquals(e.getETag(), a.getETag());
+            assertEquals(e.getSize(), a.getSize());
+            assertEquals(e.getStorageClass(), a.getStorageClass());
+            assertOwnersEqual(e.getOwner(), a.getOwner());
+        }
+        assertTrue(actual.getVersionSummaries().get(1).isDeleteMarker());
+    }
+
+    @Test
+    public void testTruncatedListingWithoutNextMarker() throws Exception {
+        final String response = "<ListBucketResult><Name>bucket</Name>"
+                + "<IsTruncated>true</IsTruncated>"
+                + "<Contents><Key>a</Key></Contents><Contents><Key>b</Key></Contents>"
+                + "</ListBucketResult>";
+        final ObjectListing listing = new ListObjectsStaxUnmarshaller(false)
+                .unmarshall(stream(response));
+        assertEquals("b", listing.getNextMarker());
+        assertEquals("bucket", listing.getObjectSummaries().get(1).getBucketName());
+    }
+
+    @Test
+    public void testEscapesCarriageReturnsInSmallReads() throws Exception {
+        final Reader reader = new AbstractListingStaxUnmarshaller.CarriageReturnEscapingReader(
+                new StringReader("a\rbc\r\r\nd"));
+        final StringBuilder escaped = new StringBuilder();
+        final char[] buffer = new char[3];
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            escaped.append(buffer, 0, read);
+        }
+        assertEquals("a&#013;bc&#013;&#013;\nd", escaped.toString());
+
+        final Reader singleChars = new AbstractListingStaxUnmarshaller.CarriageReturnEscapingReader(
+                new StringReader("\r\r"));
+        final StringBuilder single = new StringBuilder();
+        int c;
+        while ((c = singleChars.read()) != -1) {
+            single.append((char) c);
+        }
+        assertEquals("&#013;&#013;", single.toString());
+    }
+
+    @Test
+    public void testEscapesCarriageReturnsInLargeReads() throws Exception {
+        final Reader reader = new AbstractListingStaxUnmarshaller.CarriageReturnEscapingReader(
+                new StringReader("\r\r\rabc\r"));
+        final char[] buffer = new char[64];
+        final StringBuilder escaped = new StringBuilder();
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            escaped.append(buffer, 0, read);
+        }
+        assertEquals("&#013;&#013;&#013;abc&#013;", escaped.toString());
+    }
+
+    private static void assertObjectSummariesEqual(List<S3ObjectSummary> expected,
+            List<S3ObjectSummary> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            final S3ObjectSummary e = expected.get(i);
+            final S3ObjectSummary a = actual.get(i);
+            assertEquals(e.getBucketName(), a.getBucketName());
+            assertEquals(e.getKey(), a.getKey());
+            assertEquals(e.getLastModified(), a.getLastModified());
+            assertEquals(e.getETag(), a.getETag());
+            assertEquals(e.getSize(), a.getSize());
+            assertEquals(e.getStorageClass(), a.getStorageClass());
+            assertOwnersEqual(e.getOwner(), a.getOwner());
+        }
+    }
+
+    private static void assertOwnersEqual(Owner expected, Owner actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDisplayName(), actual.getDisplayName());
+    }
+
+    private static InputStream stream(String document) {
+        return new ByteArrayInputStream(document.getBytes(StringUtils.UTF8));
+    }
+}
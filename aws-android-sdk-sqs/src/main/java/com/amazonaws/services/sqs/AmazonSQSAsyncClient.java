@@ -27,8 +27,10 @@ import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.http.AsyncExecutionEngine;
 
 import com.amazonaws.services.sqs.model.*;
+import com.amazonaws.services.sqs.model.transform.*;
 
 /**
  * Interface for accessing Amazon SQS asynchronously.
@@ -135,6 +137,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     private ExecutorService executorService;
 
+    /**
+     * Engine executing the message operations, or null if they run on the
+     * executor service.
+     */
+    private AsyncExecutionEngine executionEngine;
+
     private static final int DEFAULT_THREAD_POOL_SIZE = 10;
 
     /**
@@ -323,6 +331,39 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
         this.executorService = executorService;
     }
 
+    /**
+     * Constructs a new asynchronous client to invoke service methods on Amazon
+     * SQS using the specified AWS account credentials provider, client
+     * configuration options and execution engine.
+     * <p>
+     * The message operations (<code>SendMessage</code>,
+     * <code>SendMessageBatch</code>, <code>ReceiveMessage</code>,
+     * <code>DeleteMessage</code>, <code>DeleteMessageBatch</code>,
+     * <code>ChangeMessageVisibility</code> and
+     * <code>ChangeMessageVisibilityBatch</code>) run on the execution engine,
+     * which holds no thread while a request waits to be retried. A long poll
+     * <code>ReceiveMessage</code> occupies an engine I/O thread for as long as
+     * it waits for messages. The queue operations run on a fixed size thread
+     * pool. The engine can be shared by several clients and is not shut down
+     * with this client.
+     *
+     * @param awsCredentialsProvider The AWS credentials provider which will
+     *            provide credentials to authenticate requests with AWS
+     *            services.
+     * @param clientConfiguration Client configuration options (ex: max retry
+     *            limit, proxy settings, etc).
+     * @param executionEngine The engine executing the message operations.
+     */
+    public AmazonSQSAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
+            ClientConfiguration clientConfiguration, AsyncExecutionEngine executionEngine) {
+        this(awsCredentialsProvider, clientConfiguration, Executors
+                .newFixedThreadPool(clientConfiguration.getMaxConnections()));
+        if (executionEngine == null) {
+            throw new IllegalArgumentException("executionEngine cannot be null");
+        }
+        this.executionEngine = executionEngine;
+    }
+
     /**
      * Returns the executor service used by this async client to execute
      * requests.
@@ -334,6 +375,16 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
         return executorService;
     }
 
+    /**
+     * Returns the engine executing the message operations of this client.
+     *
+     * @return The execution engine, or null if all the operations run on the
+     *         executor service.
+     */
+    public AsyncExecutionEngine getExecutionEngine() {
+        return executionEngine;
+    }
+
     /**
      * Shuts down the client, releasing all managed resources. This includes
      * forcibly terminating all pending asynchronous service calls. Clients who
@@ -541,6 +592,11 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<Void> changeMessageVisibilityAsync(
             final ChangeMessageVisibilityRequest changeMessageVisibilityRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(changeMessageVisibilityRequest,
+                    new ChangeMessageVisibilityRequestMarshaller(),
+                    null, executionEngine, null);
+        }
         return executorService.submit(new Callable<Void>() {
             public Void call() throws Exception {
                 changeMessageVisibility(changeMessageVisibilityRequest);
@@ -616,6 +672,11 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final ChangeMessageVisibilityRequest changeMessageVisibilityRequest,
             final AsyncHandler<ChangeMessageVisibilityRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(changeMessageVisibilityRequest,
+                    new ChangeMessageVisibilityRequestMarshaller(),
+                    null, executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
@@ -679,6 +740,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<ChangeMessageVisibilityBatchResult> changeMessageVisibilityBatchAsync(
             final ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(changeMessageVisibilityBatchRequest,
+                    new ChangeMessageVisibilityBatchRequestMarshaller(),
+                    new ChangeMessageVisibilityBatchResultStaxUnmarshaller(),
+                    executionEngine, null);
+        }
         return executorService.submit(new Callable<ChangeMessageVisibilityBatchResult>() {
             public ChangeMessageVisibilityBatchResult call() throws Exception {
                 return changeMessageVisibilityBatch(changeMessageVisibilityBatchRequest);
@@ -735,6 +802,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest,
             final AsyncHandler<ChangeMessageVisibilityBatchRequest, ChangeMessageVisibilityBatchResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(changeMessageVisibilityBatchRequest,
+                    new ChangeMessageVisibilityBatchRequestMarshaller(),
+                    new ChangeMessageVisibilityBatchResultStaxUnmarshaller(),
+                    executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<ChangeMessageVisibilityBatchResult>() {
             public ChangeMessageVisibilityBatchResult call() throws Exception {
                 ChangeMessageVisibilityBatchResult result = null;
@@ -997,6 +1070,10 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<Void> deleteMessageAsync(final DeleteMessageRequest deleteMessageRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(deleteMessageRequest, new DeleteMessageRequestMarshaller(),
+                    null, executionEngine, null);
+        }
         return executorService.submit(new Callable<Void>() {
             public Void call() throws Exception {
                 deleteMessage(deleteMessageRequest);
@@ -1052,6 +1129,10 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<Void> deleteMessageAsync(final DeleteMessageRequest deleteMessageRequest,
             final AsyncHandler<DeleteMessageRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(deleteMessageRequest, new DeleteMessageRequestMarshaller(),
+                    null, executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
@@ -1112,6 +1193,10 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<DeleteMessageBatchResult> deleteMessageBatchAsync(
             final DeleteMessageBatchRequest deleteMessageBatchRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(deleteMessageBatchRequest, new DeleteMessageBatchRequestMarshaller(),
+                    new DeleteMessageBatchResultStaxUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<DeleteMessageBatchResult>() {
             public DeleteMessageBatchResult call() throws Exception {
                 return deleteMessageBatch(deleteMessageBatchRequest);
@@ -1165,6 +1250,10 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final DeleteMessageBatchRequest deleteMessageBatchRequest,
             final AsyncHandler<DeleteMessageBatchRequest, DeleteMessageBatchResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(deleteMessageBatchRequest, new DeleteMessageBatchRequestMarshaller(),
+                    new DeleteMessageBatchResultStaxUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<DeleteMessageBatchResult>() {
             public DeleteMessageBatchResult call() throws Exception {
                 DeleteMessageBatchResult result = null;
@@ -1793,6 +1882,10 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<ReceiveMessageResult> receiveMessageAsync(
             final ReceiveMessageRequest receiveMessageRequest) throws AmazonServiceException,
             AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(receiveMessageRequest, new ReceiveMessageRequestMarshaller(),
+                    new ReceiveMessageResultStaxUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<ReceiveMessageResult>() {
             public ReceiveMessageResult call() throws Exception {
                 return receiveMessage(receiveMessageRequest);
@@ -1902,6 +1995,10 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final ReceiveMessageRequest receiveMessageRequest,
             final AsyncHandler<ReceiveMessageRequest, ReceiveMessageResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(receiveMessageRequest, new ReceiveMessageRequestMarshaller(),
+                    new ReceiveMessageResultStaxUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<ReceiveMessageResult>() {
             public ReceiveMessageResult call() throws Exception {
                 ReceiveMessageResult result = null;
@@ -2019,6 +2116,10 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<SendMessageResult> sendMessageAsync(final SendMessageRequest sendMessageRequest)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(sendMessageRequest, new SendMessageRequestMarshaller(),
+                    new SendMessageResultStaxUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<SendMessageResult>() {
             public SendMessageResult call() throws Exception {
                 return sendMessage(sendMessageRequest);
@@ -2064,6 +2165,10 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<SendMessageResult> sendMessageAsync(final SendMessageRequest sendMessageRequest,
             final AsyncHandler<SendMessageRequest, SendMessageResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(sendMessageRequest, new SendMessageRequestMarshaller(),
+                    new SendMessageResultStaxUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<SendMessageResult>() {
             public SendMessageResult call() throws Exception {
                 SendMessageResult result = null;
@@ -2152,6 +2257,10 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<SendMessageBatchResult> sendMessageBatchAsync(
             final SendMessageBatchRequest sendMessageBatchRequest) throws AmazonServiceException,
             AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(sendMessageBatchRequest, new SendMessageBatchRequestMarshaller(),
+                    new SendMessageBatchResultStaxUnmarshaller(), executionEngine, null);
+        }
         return executorService.submit(new Callable<SendMessageBatchResult>() {
             public SendMessageBatchResult call() throws Exception {
                 return sendMessageBatch(sendMessageBatchRequest);
@@ -2233,6 +2342,10 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final SendMessageBatchRequest sendMessageBatchRequest,
             final AsyncHandler<SendMessageBatchRequest, SendMessageBatchResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        if (executionEngine != null) {
+            return invokeAsync(sendMessageBatchRequest, new SendMessageBatchRequestMarshaller(),
+                    new SendMessageBatchResultStaxUnmarshaller(), executionEngine, asyncHandler);
+        }
         return executorService.submit(new Callable<SendMessageBatchResult>() {
             public SendMessageBatchResult call() throws Exception {
                 SendMessageBatchResult result = null;
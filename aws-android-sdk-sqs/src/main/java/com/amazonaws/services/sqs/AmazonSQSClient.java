@@ -18,6 +18,7 @@ package com.amazonaws.services.sqs;
 import org.w3c.dom.*;
 
 import java.util.*;
+import java.util.concurrent.Future;
 
 import com.amazonaws.*;
 import com.amazonaws.auth.*;
@@ -2776,6 +2777,71 @@ public class AmazonSQSClient extends AmazonWebServiceClient implements AmazonSQS
         return client.getResponseMetadataForRequest(request);
     }
 
+    /**
+     * Marshalls the request and executes it on the given engine without
+     * blocking the calling thread. Credentials are resolved and the request
+     * is signed on an engine I/O thread.
+     *
+     * @param originalRequest the request.
+     * @param marshaller the marshaller of the request.
+     * @param unmarshaller the unmarshaller of the result; or null if the
+     *            operation has no result.
+     * @param engine the engine executing the request.
+     * @param asyncHandler notified of the outcome; or null.
+     * @return the future result.
+     * @throws AmazonClientException if the request cannot be marshalled.
+     */
+    protected final <X, Y extends AmazonWebServiceRequest> Future<X> invokeAsync(
+            final Y originalRequest,
+            Marshaller<Request<Y>, Y> marshaller,
+            Unmarshaller<X, StaxUnmarshallerContext> unmarshaller,
+            AsyncExecutionEngine engine,
+            final AsyncHandler<Y, X> asyncHandler) {
+        final ExecutionContext executionContext = createExecutionContext(originalRequest);
+        final AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        final Request<Y> request;
+        try {
+            request = marshaller.marshall(originalRequest);
+            // Binds the request metrics to the current request.
+            request.setAWSRequestMetrics(awsRequestMetrics);
+        } catch (RuntimeException e) {
+            awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+            endClientExecution(awsRequestMetrics, null, null);
+            throw e;
+        } catch (Exception e) {
+            awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+            endClientExecution(awsRequestMetrics, null, null);
+            throw new AmazonClientException("Unable to marshall request: " + e.getMessage(), e);
+        }
+        request.setEndpoint(endpoint);
+        request.setTimeOffset(timeOffset);
+
+        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller);
+        DefaultErrorResponseHandler errorResponseHandler = new DefaultErrorResponseHandler(
+                exceptionUnmarshallers);
+        return client.executeAsync(request, responseHandler, errorResponseHandler,
+                executionContext, awsCredentialsProvider, engine, new ResponseCallback<X>() {
+                    @Override
+                    public void onResponse(Response<X> response) {
+                        awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+                        endClientExecution(awsRequestMetrics, request, response);
+                        if (asyncHandler != null) {
+                            asyncHandler.onSuccess(originalRequest, response.getAwsResponse());
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception exception) {
+                        awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+                        endClientExecution(awsRequestMetrics, request, null);
+                        if (asyncHandler != null) {
+                            asyncHandler.onError(exception);
+                        }
+                    }
+                });
+    }
+
     private <X, Y extends AmazonWebServiceRequest> Response<X> invoke(Request<Y> request,
             Unmarshaller<X, StaxUnmarshallerContext> unmarshaller,
             ExecutionContext executionContext) {